@@ -0,0 +1,134 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and timers that {@link GraphAlgorithms} report into when built
+ * with {@link GraphAlgorithms#GraphAlgorithms(AlgorithmMetrics)}, one
+ * {@link AlgorithmStats} per algorithm. Counts a result determines, such as
+ * the vertices and edges a search expanded, are derived from it after the
+ * run; the others, such as relaxations, are local counters every run keeps.
+ * Without metrics an algorithm checks a null field once per run and keeps
+ * those counters: it reads no clock, touches no shared counter, derives
+ * nothing from its results and branches on nothing inside its loops.
+ *
+ * The stats can be published over JMX with {@link #register(MBeanServer,
+ * String)}, as cabkata.graphs:type=GraphAlgorithms,name=&lt;name&gt;,
+ * algorithm=&lt;algorithm&gt;.
+ */
+public final class AlgorithmMetrics {
+    static final String DOMAIN = "cabkata.graphs";
+
+    public static enum Algorithm
+    {
+        BREADTH_FIRST_SEARCH, TOPOLOGICAL_SORT, PRIM, KRUSKAL, BELLMAN_FORD
+    }
+
+    private final Map<Algorithm, AlgorithmStats> stats;
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+    private MBeanServer server;
+
+    public AlgorithmMetrics()
+    {
+        stats = new EnumMap<Algorithm, AlgorithmStats>(Algorithm.class);
+        for (Algorithm algorithm : Algorithm.values())
+        {
+            stats.put(algorithm, new AlgorithmStats());
+        }
+    }
+
+    /**
+     * @param algorithm
+     * @return totals of the runs of algorithm
+     */
+    public AlgorithmStats get(Algorithm algorithm)
+    {
+        if (algorithm == null)
+        {
+            throw new IllegalArgumentException("algorithm is null");
+        }
+        return stats.get(algorithm);
+    }
+
+    /**
+     * Zeroes the stats of every algorithm
+     */
+    public void reset()
+    {
+        for (AlgorithmStats algorithmStats : stats.values())
+        {
+            algorithmStats.reset();
+        }
+    }
+
+    /**
+     * Publishes the stats of every algorithm as MBeans, for instance on
+     * ManagementFactory.getPlatformMBeanServer()
+     *
+     * @param mbeanServer
+     * @param name tells apart the metrics of several registered instances
+     * @throws JMException if a name is taken or invalid; nothing stays
+     *             registered then
+     */
+    public synchronized void register(MBeanServer mbeanServer, String name)
+            throws JMException
+    {
+        if (mbeanServer == null)
+        {
+            throw new IllegalArgumentException("mbeanServer is null");
+        }
+        if (name == null)
+        {
+            throw new IllegalArgumentException("name is null");
+        }
+        if (server != null)
+        {
+            throw new IllegalStateException("metrics already registered");
+        }
+        server = mbeanServer;
+        try
+        {
+            for (Map.Entry<Algorithm, AlgorithmStats> entry : stats.entrySet())
+            {
+                ObjectName objectName = new ObjectName(DOMAIN
+                        + ":type=GraphAlgorithms,name=" + ObjectName.quote(name)
+                        + ",algorithm=" + entry.getKey().name());
+                mbeanServer.registerMBean(entry.getValue(), objectName);
+                registered.add(objectName);
+            }
+        }
+        catch (JMException e)
+        {
+            unregister();
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the MBeans added by {@link #register(MBeanServer, String)}, if
+     * any
+     */
+    public synchronized void unregister()
+    {
+        for (ObjectName objectName : registered)
+        {
+            try
+            {
+                server.unregisterMBean(objectName);
+            }
+            catch (JMException e)
+            {
+                // already gone, nothing left to remove
+            }
+        }
+        registered.clear();
+        server = null;
+    }
+}
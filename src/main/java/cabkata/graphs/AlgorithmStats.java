@@ -0,0 +1,134 @@
+package cabkata.graphs;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals over the runs of one algorithm. A run reports once when it
+ * ends, so the counters cost a few atomic adds per run rather than per edge,
+ * and several {@link GraphAlgorithms} on different threads may report into
+ * the same stats. What the counters mean per algorithm:
+ * <ul>
+ * <li>vertices visited: vertices reached, settled by Prim or taken off
+ * Bellman-Ford's queue, where a vertex counts each time</li>
+ * <li>edges scanned: out edges looked at, or sorted by Kruskal</li>
+ * <li>edges relaxed: edges that lowered a distance or key, tree edges of a
+ * breadth first search, or edges Kruskal took into the forest</li>
+ * <li>heap operations: inserts, polls and decreased keys of Prim's heap</li>
+ * </ul>
+ * Setup time is spent before the search itself: resetting state, indexing
+ * vertices, filling a heap or sorting edges.
+ */
+public final class AlgorithmStats implements AlgorithmStatsMBean {
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong setupNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong vertices = new AtomicLong();
+    private final AtomicLong edgesScanned = new AtomicLong();
+    private final AtomicLong edgesRelaxed = new AtomicLong();
+    private final AtomicLong heapOperations = new AtomicLong();
+
+    AlgorithmStats()
+    {
+    }
+
+    /**
+     * Adds one run
+     *
+     * @param start System.nanoTime() when the run started
+     * @param setupEnd System.nanoTime() when its setup ended
+     */
+    void record(long start, long setupEnd, long verticesVisited,
+            long scanned, long relaxed, long heapOps)
+    {
+        final long elapsed = System.nanoTime() - start;
+        runs.incrementAndGet();
+        totalNanos.addAndGet(elapsed);
+        setupNanos.addAndGet(setupEnd - start);
+        vertices.addAndGet(verticesVisited);
+        edgesScanned.addAndGet(scanned);
+        edgesRelaxed.addAndGet(relaxed);
+        heapOperations.addAndGet(heapOps);
+        for (long max = maxNanos.get(); elapsed > max; max = maxNanos.get())
+        {
+            if (maxNanos.compareAndSet(max, elapsed))
+            {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public long getRuns()
+    {
+        return runs.get();
+    }
+
+    @Override
+    public long getTotalTimeNanos()
+    {
+        return totalNanos.get();
+    }
+
+    @Override
+    public long getSetupTimeNanos()
+    {
+        return setupNanos.get();
+    }
+
+    @Override
+    public long getMaxTimeNanos()
+    {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return 0 before the first run
+     */
+    @Override
+    public long getAverageTimeNanos()
+    {
+        final long count = runs.get();
+        return count == 0 ? 0 : totalNanos.get() / count;
+    }
+
+    @Override
+    public long getVerticesVisited()
+    {
+        return vertices.get();
+    }
+
+    @Override
+    public long getEdgesScanned()
+    {
+        return edgesScanned.get();
+    }
+
+    @Override
+    public long getEdgesRelaxed()
+    {
+        return edgesRelaxed.get();
+    }
+
+    @Override
+    public long getHeapOperations()
+    {
+        return heapOperations.get();
+    }
+
+    /**
+     * Zeroes every counter; runs reporting meanwhile may be partly kept
+     */
+    @Override
+    public void reset()
+    {
+        runs.set(0);
+        totalNanos.set(0);
+        setupNanos.set(0);
+        maxNanos.set(0);
+        vertices.set(0);
+        edgesScanned.set(0);
+        edgesRelaxed.set(0);
+        heapOperations.set(0);
+    }
+}
@@ -0,0 +1,27 @@
+package cabkata.graphs;
+
+/**
+ * JMX view of the {@link AlgorithmStats} of one algorithm
+ */
+public interface AlgorithmStatsMBean {
+
+    long getRuns();
+
+    long getTotalTimeNanos();
+
+    long getSetupTimeNanos();
+
+    long getMaxTimeNanos();
+
+    long getAverageTimeNanos();
+
+    long getVerticesVisited();
+
+    long getEdgesScanned();
+
+    long getEdgesRelaxed();
+
+    long getHeapOperations();
+
+    void reset();
+}
@@ -0,0 +1,141 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable shortest path weights between every ordered pair of vertices of a
+ * {@link CompactGraph}, in one row major V x V matrix, and optionally the
+ * predecessor matrix to rebuild the paths. Safe to share between threads.
+ *
+ * @param <V>
+ */
+public final class AllPairsShortestPaths<V> {
+    private final CompactGraph<V> graph;
+    // Double.POSITIVE_INFINITY where there is no path
+    final double[] weights;
+    // predecessor of j on the path from i at i * V + j, null if not kept
+    final int[] predecessors;
+    private final boolean negativeCycle;
+
+    AllPairsShortestPaths(CompactGraph<V> graph, double[] weights,
+            int[] predecessors)
+    {
+        this.graph = graph;
+        this.weights = weights;
+        this.predecessors = predecessors;
+        final int numNodes = graph.getVertexCount();
+        boolean cycle = false;
+        for (int i = 0; i < numNodes && !cycle; i++)
+        {
+            cycle = weights[i * numNodes + i] < 0;
+        }
+        this.negativeCycle = cycle;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @return true if the graph has a negative cycle, path weights through it
+     *         are then not shortest
+     */
+    public boolean hasNegativeCycle()
+    {
+        return negativeCycle;
+    }
+
+    /**
+     * @return true if paths can be rebuilt with {@link #getPath(Object, Object)}
+     */
+    public boolean hasPredecessors()
+    {
+        return predecessors != null;
+    }
+
+    /**
+     * @param from
+     * @param to
+     * @return path weight, Double.MAX_VALUE if to is not reachable from from
+     */
+    public double getPathWeight(V from, V to)
+    {
+        final double weight = weights[cell(from, to)];
+        return weight == Double.POSITIVE_INFINITY ? Double.MAX_VALUE : weight;
+    }
+
+    public boolean isReachable(V from, V to)
+    {
+        return weights[cell(from, to)] != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param from
+     * @param to
+     * @return value before to on the shortest path from from, null for from
+     *         itself and for unreachable values
+     */
+    public V getPredecessor(V from, V to)
+    {
+        final int cell = cell(from, to);
+        validatePredecessors();
+        final int predecessor = predecessors[cell];
+        return predecessor < 0 ? null : graph.getVertex(predecessor);
+    }
+
+    /**
+     * @param from
+     * @param to
+     * @return vertices from from to to, empty if to is not reachable
+     */
+    public List<V> getPath(V from, V to)
+    {
+        final int cell = cell(from, to);
+        validatePredecessors();
+        if (weights[cell] == Double.POSITIVE_INFINITY)
+        {
+            return Collections.emptyList();
+        }
+        if (negativeCycle)
+        {
+            throw new IllegalStateException("paths are undefined with a negative cycle");
+        }
+        final int numNodes = graph.getVertexCount();
+        final int source = cell / numNodes;
+        List<V> path = new ArrayList<V>();
+        for (int index = cell % numNodes; index >= 0 && index != source; index = predecessors[source
+                * numNodes + index])
+        {
+            path.add(graph.getVertex(index));
+        }
+        path.add(graph.getVertex(source));
+        Collections.reverse(path);
+        return path;
+    }
+
+    private void validatePredecessors()
+    {
+        if (predecessors == null)
+        {
+            throw new IllegalStateException("predecessors were not kept");
+        }
+    }
+
+    private int cell(V from, V to)
+    {
+        return indexOf(from) * graph.getVertexCount() + indexOf(to);
+    }
+
+    private int indexOf(V v)
+    {
+        final int index = graph.indexOf(v);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,388 @@
+package cabkata.graphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Versioned binary file format for a {@link CompactGraph} of String
+ * vertices, written once and then opened by memory mapping it.
+ *
+ * <pre>
+ * header    magic, version, vertex count, edge count, slot count, name bytes
+ * offsets   int[vertexCount + 1]   CSR offsets
+ * targets   int[edgeCount]         CSR targets
+ * weights   double[edgeCount]      CSR weights
+ * names     int[vertexCount + 1]   offset of each vertex name in the name bytes
+ * slots     int[slotCount]         open addressing table of vertex id + 1
+ * bytes     UTF-8 vertex names
+ * </pre>
+ *
+ * All values are little endian and every section starts 8 byte aligned.
+ * Opening maps each section and wraps it in the views a CompactGraph reads,
+ * nothing is copied or decoded up front: vertex names are decoded when asked
+ * for and looked up through the hash slots stored in the file, so opening
+ * costs the same for any graph size and the pages are shared with the OS
+ * cache. A section must stay below 2GB, about 500 million edges.
+ */
+public final class BinaryGraphFormat {
+    public static final int MAGIC = 0x47525343; // "CSRG" read little endian
+    public static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int HEADER_SIZE = 64;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * @param graph
+     * @param file overwritten with the graph
+     * @throws IOException
+     */
+    public static void write(CompactGraph<String> graph, File file) throws IOException
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        final int numNodes = graph.getVertexCount();
+        final int numEdges = graph.getEdgeCount();
+        final int slotCount = slotCount(numNodes);
+
+        final byte[][] names = new byte[numNodes][];
+        long nameBytes = 0;
+        final int[] slots = new int[slotCount];
+        for (int v = 0; v < numNodes; v++)
+        {
+            final String name = graph.getVertex(v);
+            names[v] = name.getBytes(UTF_8);
+            nameBytes += names[v].length;
+            int slot = hash(name) & (slotCount - 1);
+            while (slots[slot] != 0)
+            {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            slots[slot] = v + 1;
+        }
+        if (nameBytes > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("vertex names exceed 2GB");
+        }
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            randomAccessFile.setLength(0);
+            SectionWriter out = new SectionWriter(randomAccessFile.getChannel());
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(numNodes);
+            out.putInt(numEdges);
+            out.putInt(slotCount);
+            out.putInt((int) nameBytes);
+            out.align(HEADER_SIZE);
+
+            for (int v = 0; v <= numNodes; v++)
+            {
+                out.putInt(v < numNodes ? graph.edgeBegin(v) : numEdges);
+            }
+            out.align(8);
+            for (int edge = 0; edge < numEdges; edge++)
+            {
+                out.putInt(graph.getTarget(edge));
+            }
+            out.align(8);
+            for (int edge = 0; edge < numEdges; edge++)
+            {
+                out.putDouble(graph.getWeight(edge));
+            }
+            out.align(8);
+            int nameOffset = 0;
+            for (int v = 0; v <= numNodes; v++)
+            {
+                out.putInt(nameOffset);
+                nameOffset += v < numNodes ? names[v].length : 0;
+            }
+            out.align(8);
+            for (int slot = 0; slot < slotCount; slot++)
+            {
+                out.putInt(slots[slot]);
+            }
+            out.align(8);
+            for (int v = 0; v < numNodes; v++)
+            {
+                out.put(names[v]);
+            }
+            out.flush();
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Maps a graph written by {@link #write(CompactGraph, File)}. The mapping
+     * outlives the file handle and is released when the graph is garbage
+     * collected.
+     *
+     * @param file
+     * @return CompactGraph<String> reading straight from the mapped file
+     * @throws IOException if the file is not a graph file of a known version
+     */
+    public static CompactGraph<String> open(File file) throws IOException
+    {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() < HEADER_SIZE)
+            {
+                throw new IOException(file + " is not a graph file");
+            }
+            final ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC)
+            {
+                throw new IOException(file + " is not a graph file");
+            }
+            if (header.getInt(4) != VERSION)
+            {
+                throw new IOException(file + " has unsupported graph format version "
+                        + header.getInt(4));
+            }
+            final int numNodes = header.getInt(8);
+            final int numEdges = header.getInt(12);
+            final int slotCount = header.getInt(16);
+            final int nameBytes = header.getInt(20);
+
+            long position = HEADER_SIZE;
+            final long offsetsAt = position;
+            position = align(position + 4L * (numNodes + 1));
+            final long targetsAt = position;
+            position = align(position + 4L * numEdges);
+            final long weightsAt = position;
+            position = align(position + 8L * numEdges);
+            final long namesAt = position;
+            position = align(position + 4L * (numNodes + 1));
+            final long slotsAt = position;
+            position = align(position + 4L * slotCount);
+            final long bytesAt = position;
+            if (channel.size() < bytesAt + nameBytes)
+            {
+                throw new IOException(file + " is truncated");
+            }
+
+            MappedVertexList vertices = new MappedVertexList(
+                    map(channel, namesAt, 4L * (numNodes + 1)).asIntBuffer(),
+                    map(channel, slotsAt, 4L * slotCount).asIntBuffer(),
+                    map(channel, bytesAt, nameBytes));
+            return new CompactGraph<String>(vertices, null,
+                    map(channel, offsetsAt, 4L * (numNodes + 1)).asIntBuffer(),
+                    map(channel, targetsAt, 4L * numEdges).asIntBuffer(),
+                    map(channel, weightsAt, 8L * numEdges).asDoubleBuffer());
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size)
+            throws IOException
+    {
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new IOException("graph section of " + size + " bytes is too large to map");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static long align(long position)
+    {
+        return (position + 7) & ~7L;
+    }
+
+    private static int slotCount(int numNodes)
+    {
+        int slots = 2;
+        while (slots < 2L * numNodes)
+        {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    private static int hash(String value)
+    {
+        final int h = value.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Vertex names decoded on demand from the mapped name bytes, indexOf
+     * probes the mapped hash slots instead of scanning
+     */
+    private static final class MappedVertexList extends AbstractList<String>
+            implements RandomAccess {
+        private final IntBuffer nameOffsets;
+        private final IntBuffer slots;
+        private final ByteBuffer bytes;
+
+        MappedVertexList(IntBuffer nameOffsets, IntBuffer slots, ByteBuffer bytes)
+        {
+            this.nameOffsets = nameOffsets;
+            this.slots = slots;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String get(int index)
+        {
+            if (index < 0 || index >= size())
+            {
+                throw new IndexOutOfBoundsException("vertex " + index);
+            }
+            final int start = nameOffsets.get(index);
+            final byte[] name = new byte[nameOffsets.get(index + 1) - start];
+            for (int i = 0; i < name.length; i++)
+            {
+                name[i] = bytes.get(start + i);
+            }
+            return new String(name, UTF_8);
+        }
+
+        @Override
+        public int size()
+        {
+            return nameOffsets.limit() - 1;
+        }
+
+        @Override
+        public int indexOf(Object o)
+        {
+            if (!(o instanceof String))
+            {
+                return -1;
+            }
+            final byte[] name = ((String) o).getBytes(UTF_8);
+            final int mask = slots.limit() - 1;
+            int slot = hash((String) o) & mask;
+            int candidate;
+            while ((candidate = slots.get(slot) - 1) >= 0)
+            {
+                if (sameName(candidate, name))
+                {
+                    return candidate;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return indexOf(o) >= 0;
+        }
+
+        private boolean sameName(int vertex, byte[] name)
+        {
+            final int start = nameOffsets.get(vertex);
+            if (nameOffsets.get(vertex + 1) - start != name.length)
+            {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++)
+            {
+                if (bytes.get(start + i) != name[i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Little endian output through a reused staging buffer
+     */
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(
+                WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        SectionWriter(FileChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException
+        {
+            ensureRoom(4);
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException
+        {
+            ensureRoom(8);
+            buffer.putDouble(value);
+        }
+
+        void put(byte[] values) throws IOException
+        {
+            int offset = 0;
+            while (offset < values.length)
+            {
+                ensureRoom(1);
+                final int length = Math.min(buffer.remaining(), values.length - offset);
+                buffer.put(values, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Pads with zeros up to the next multiple of alignment
+         */
+        void align(int alignment) throws IOException
+        {
+            while ((written + buffer.position()) % alignment != 0)
+            {
+                ensureRoom(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        void flush() throws IOException
+        {
+            buffer.flip();
+            while (buffer.hasRemaining())
+            {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensureRoom(int bytes) throws IOException
+        {
+            if (buffer.remaining() < bytes)
+            {
+                flush();
+            }
+        }
+    }
+
+    private BinaryGraphFormat()
+    {
+    }
+}
@@ -0,0 +1,179 @@
+package cabkata.graphs;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Breadth first search that splits its frontier for parallel streams.
+ *
+ * Every split part searches on from its own share of the frontier, level by
+ * level, and the parts claim vertices in one concurrent map from vertex to
+ * depth: the part that puts a vertex in first returns it, so each vertex is
+ * returned once. Parts run at their own pace and may claim a vertex over a
+ * longer path than the shortest, so under a depth limit a part that later
+ * finds a shorter path lowers the depth and searches on from the vertex
+ * again, without returning it, and no vertex within the limit is lost.
+ *
+ * Splitting halves the current level. A level too narrow to split is
+ * searched ahead a few levels, its vertices held back for returning.
+ */
+final class BreadthFirstSpliterator<V> implements Spliterator<V> {
+    private static final int SPLIT_LEVELS = 64;
+
+    private final Graph<V> graph;
+    private final int maxDepth;
+    private final Predicate<? super V> filter;
+    private final ConcurrentHashMap<V, Integer> depths;
+    // searched from, not yet returned
+    private final ArrayDeque<V> ready = new ArrayDeque<V>();
+    // claimed at depth, returned and searched from in turn
+    private ArrayDeque<V> level = new ArrayDeque<V>();
+    // reached again by a shorter path, only searched from
+    private ArrayDeque<V> revisits = new ArrayDeque<V>();
+    private ArrayDeque<V> nextLevel = new ArrayDeque<V>();
+    private ArrayDeque<V> nextRevisits = new ArrayDeque<V>();
+    private int depth;
+
+    BreadthFirstSpliterator(Graph<V> graph, V source, int maxDepth,
+            Predicate<? super V> filter)
+    {
+        this(graph, maxDepth, filter, new ConcurrentHashMap<V, Integer>(), 0);
+        if (filter == null || filter.test(source))
+        {
+            depths.put(source, Integer.valueOf(0));
+            level.add(source);
+        }
+    }
+
+    private BreadthFirstSpliterator(Graph<V> graph, int maxDepth,
+            Predicate<? super V> filter, ConcurrentHashMap<V, Integer> depths,
+            int depth)
+    {
+        this.graph = graph;
+        this.maxDepth = maxDepth;
+        this.filter = filter;
+        this.depths = depths;
+        this.depth = depth;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super V> action)
+    {
+        if (action == null)
+        {
+            throw new NullPointerException("action is null");
+        }
+        while (true)
+        {
+            if (!ready.isEmpty())
+            {
+                action.accept(ready.poll());
+                return true;
+            }
+            if (!revisits.isEmpty())
+            {
+                expand(revisits.poll());
+                continue;
+            }
+            if (!level.isEmpty())
+            {
+                final V value = level.poll();
+                expand(value);
+                action.accept(value);
+                return true;
+            }
+            if (nextLevel.isEmpty() && nextRevisits.isEmpty())
+            {
+                return false;
+            }
+            descend();
+        }
+    }
+
+    @Override
+    public Spliterator<V> trySplit()
+    {
+        for (int i = 0; level.size() < 2; i++)
+        {
+            if (i == SPLIT_LEVELS
+                    || (nextLevel.isEmpty() && nextRevisits.isEmpty()
+                            && level.isEmpty() && revisits.isEmpty()))
+            {
+                return null;
+            }
+            while (!revisits.isEmpty())
+            {
+                expand(revisits.poll());
+            }
+            while (!level.isEmpty())
+            {
+                final V value = level.poll();
+                expand(value);
+                ready.add(value);
+            }
+            descend();
+        }
+        BreadthFirstSpliterator<V> prefix = new BreadthFirstSpliterator<V>(
+                graph, maxDepth, filter, depths, depth);
+        for (int i = level.size() / 2; i > 0; i--)
+        {
+            prefix.level.add(level.poll());
+        }
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return Spliterator.DISTINCT | Spliterator.NONNULL;
+    }
+
+    private void descend()
+    {
+        ArrayDeque<V> swap = level;
+        level = nextLevel;
+        nextLevel = swap;
+        swap = revisits;
+        revisits = nextRevisits;
+        nextRevisits = swap;
+        depth++;
+    }
+
+    private void expand(V value)
+    {
+        if (depth >= maxDepth)
+        {
+            return;
+        }
+        final Integer next = Integer.valueOf(depth + 1);
+        for (V neighbour : Traversal.neighbours(graph, value, filter))
+        {
+            Integer claimed = depths.putIfAbsent(neighbour, next);
+            if (claimed == null)
+            {
+                nextLevel.add(neighbour);
+                continue;
+            }
+            // without a limit the depth a vertex is searched from is moot
+            while (maxDepth != Integer.MAX_VALUE
+                    && claimed.intValue() > next.intValue())
+            {
+                if (depths.replace(neighbour, claimed, next))
+                {
+                    nextRevisits.add(neighbour);
+                    break;
+                }
+                claimed = depths.get(neighbour);
+            }
+        }
+    }
+}
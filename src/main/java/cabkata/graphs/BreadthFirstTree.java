@@ -0,0 +1,94 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of a breadth first search over a {@link CompactGraph}:
+ * hop distances and the search tree, indexed by vertex id. Safe to share
+ * between threads.
+ *
+ * @param <V>
+ */
+public final class BreadthFirstTree<V> {
+    private final CompactGraph<V> graph;
+    private final int source;
+    final int[] distances;
+    final int[] predecessors;
+
+    BreadthFirstTree(CompactGraph<V> graph, int source, int[] distances,
+            int[] predecessors)
+    {
+        this.graph = graph;
+        this.source = source;
+        this.distances = distances;
+        this.predecessors = predecessors;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    public V getSource()
+    {
+        return graph.getVertex(source);
+    }
+
+    /**
+     * @param v
+     * @return number of edges on the shortest path from the source, -1 if v
+     *         was not reached
+     */
+    public int getDistance(V v)
+    {
+        return distances[indexOf(v)];
+    }
+
+    /**
+     * @param v
+     * @return parent of v in the search tree, null for the source and for
+     *         unreached values
+     */
+    public V getPredecessor(V v)
+    {
+        final int predecessor = predecessors[indexOf(v)];
+        return predecessor < 0 ? null : graph.getVertex(predecessor);
+    }
+
+    public boolean isReachable(V v)
+    {
+        return distances[indexOf(v)] >= 0;
+    }
+
+    /**
+     * @param v
+     * @return vertices from the source to v, empty if v was not reached
+     */
+    public List<V> getPath(V v)
+    {
+        int index = indexOf(v);
+        if (distances[index] < 0)
+        {
+            return Collections.emptyList();
+        }
+        List<V> path = new ArrayList<V>(distances[index] + 1);
+        for (; index >= 0; index = predecessors[index])
+        {
+            path.add(graph.getVertex(index));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private int indexOf(V v)
+    {
+        final int index = graph.indexOf(v);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,100 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+
+/**
+ * Immutable community labels found by {@link LabelPropagation}
+ *
+ * @param <V>
+ */
+public final class Communities<V> {
+    private final CompactGraph<V> graph;
+    private final int[] labels;
+    private final int iterations;
+    private final boolean converged;
+    private final int count;
+
+    Communities(CompactGraph<V> graph, int[] labels, int iterations,
+            boolean converged)
+    {
+        this.graph = graph;
+        this.labels = labels;
+        this.iterations = iterations;
+        this.converged = converged;
+        final boolean[] used = new boolean[labels.length];
+        int distinct = 0;
+        for (int label : labels)
+        {
+            if (!used[label])
+            {
+                used[label] = true;
+                distinct++;
+            }
+        }
+        this.count = distinct;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @param v
+     * @return the vertex whose id labels the community of v
+     */
+    public V getLabel(V v)
+    {
+        return graph.getVertex(labels[indexOf(v)]);
+    }
+
+    /**
+     * @return whether u and v ended up with the same label
+     */
+    public boolean isSameCommunity(V u, V v)
+    {
+        return labels[indexOf(u)] == labels[indexOf(v)];
+    }
+
+    /**
+     * @return number of distinct labels
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return copy of the labels indexed by vertex id
+     */
+    public int[] toArray()
+    {
+        return Arrays.copyOf(labels, labels.length);
+    }
+
+    /**
+     * @return iterations run
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * @return false if labels were still changing at the iteration limit
+     */
+    public boolean isConverged()
+    {
+        return converged;
+    }
+
+    private int indexOf(V v)
+    {
+        final int index = graph.indexOf(v);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return index;
+    }
+}
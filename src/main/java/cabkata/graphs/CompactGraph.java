@@ -0,0 +1,235 @@
+package cabkata.graphs;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import cabkata.graphs.Graph.WeightedEdge;
+
+/**
+ * Immutable compressed sparse row (CSR) snapshot of a {@link Graph}, created
+ * with {@link Graph#compile()}.
+ *
+ * Vertices are numbered 0..n-1 in the iteration order of
+ * {@link Graph#getNodes()}. The out edges of vertex v are the edge ids
+ * edgeBegin(v) <= e < edgeEnd(v), and every edge id maps to a target vertex
+ * and a weight. Everything lives in three primitive buffers so traversals index
+ * instead of chasing Node and WeightedEdge references. The buffers wrap heap
+ * arrays for compiled graphs and file pages for graphs opened with
+ * {@link BinaryGraphFormat#open(java.io.File)}; absolute reads never move their
+ * positions, so one snapshot can be traversed by many threads.
+ *
+ * @param <V>
+ */
+public final class CompactGraph<V> implements VertexIndex<V> {
+    private final List<V> vertices;
+    private final Map<V, Integer> indices;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final DoubleBuffer weights;
+    private volatile CompactGraph<V> reverse;
+
+    CompactGraph(List<V> vertices, Map<V, Integer> indices, int[] offsets,
+            int[] targets, double[] weights)
+    {
+        this(vertices, indices, IntBuffer.wrap(offsets), IntBuffer
+                .wrap(targets), DoubleBuffer.wrap(weights));
+    }
+
+    /**
+     * @param vertices
+     * @param indices index of every vertex, or null if vertices answers
+     *            {@link List#indexOf(Object)} in constant time itself
+     * @param offsets
+     * @param targets
+     * @param weights
+     */
+    CompactGraph(List<V> vertices, Map<V, Integer> indices, IntBuffer offsets,
+            IntBuffer targets, DoubleBuffer weights)
+    {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public int getVertexCount()
+    {
+        return vertices.size();
+    }
+
+    public int getEdgeCount()
+    {
+        return targets.limit();
+    }
+
+    /**
+     * @param index
+     * @return vertex value stored at index
+     */
+    @Override
+    public V getVertex(int index)
+    {
+        return vertices.get(index);
+    }
+
+    /**
+     * @param v
+     * @return index of vertex v or -1 if v is not in the graph
+     */
+    @Override
+    public int indexOf(V v)
+    {
+        if (indices == null)
+        {
+            return vertices.indexOf(v);
+        }
+        Integer index = indices.get(v);
+        return index == null ? -1 : index.intValue();
+    }
+
+    public List<V> getVertices()
+    {
+        return Collections.unmodifiableList(vertices);
+    }
+
+    /**
+     * @param vertex
+     * @return id of the first out edge of vertex
+     */
+    public int edgeBegin(int vertex)
+    {
+        return offsets.get(vertex);
+    }
+
+    /**
+     * @param vertex
+     * @return one past the id of the last out edge of vertex
+     */
+    public int edgeEnd(int vertex)
+    {
+        return offsets.get(vertex + 1);
+    }
+
+    public int getOutDegree(int vertex)
+    {
+        return offsets.get(vertex + 1) - offsets.get(vertex);
+    }
+
+    /**
+     * Binary search of the edge offsets, O(log V)
+     *
+     * @param edge
+     * @return vertex whose out edges contain edge
+     */
+    int getSource(int edge)
+    {
+        int low = 0;
+        int high = getVertexCount() - 1;
+        while (low < high)
+        {
+            final int mid = (low + high + 1) >>> 1;
+            if (offsets.get(mid) <= edge)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public int getTarget(int edge)
+    {
+        return targets.get(edge);
+    }
+
+    public double getWeight(int edge)
+    {
+        return weights.get(edge);
+    }
+
+    /**
+     * Shares the vertices and their numbering, but none of the edges, for
+     * results to name their vertices without keeping the graph
+     *
+     * @return CompactGraph<V> with the same vertices and no edges
+     */
+    CompactGraph<V> withoutEdges()
+    {
+        return new CompactGraph<V>(vertices, indices,
+                new int[vertices.size() + 1], new int[0], new double[0]);
+    }
+
+    /**
+     * The transpose of this graph: same vertices and ids, every edge u->v
+     * turned into v->u with its weight. Built on first use in O(V + E) and
+     * cached, the reverse of the reverse is this graph again.
+     * 
+     * @return CompactGraph<V> whose out edges are this graph's in edges
+     */
+    public CompactGraph<V> reverse()
+    {
+        CompactGraph<V> result = reverse;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = reverse;
+                if (result == null)
+                {
+                    result = transpose();
+                    result.reverse = this;
+                    reverse = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private CompactGraph<V> transpose()
+    {
+        final int numNodes = getVertexCount();
+        final int numEdges = getEdgeCount();
+        final int[] reverseOffsets = new int[numNodes + 1];
+        for (int edge = 0; edge < numEdges; edge++)
+        {
+            reverseOffsets[targets.get(edge) + 1]++;
+        }
+        for (int v = 0; v < numNodes; v++)
+        {
+            reverseOffsets[v + 1] += reverseOffsets[v];
+        }
+
+        final int[] next = Arrays.copyOf(reverseOffsets, numNodes);
+        final int[] reverseTargets = new int[numEdges];
+        final double[] reverseWeights = new double[numEdges];
+        for (int v = 0; v < numNodes; v++)
+        {
+            for (int edge = offsets.get(v), end = offsets.get(v + 1); edge < end; edge++)
+            {
+                final int slot = next[targets.get(edge)]++;
+                reverseTargets[slot] = v;
+                reverseWeights[slot] = weights.get(edge);
+            }
+        }
+        return new CompactGraph<V>(vertices, indices, IntBuffer.wrap(reverseOffsets),
+                IntBuffer.wrap(reverseTargets), DoubleBuffer.wrap(reverseWeights));
+    }
+
+    /**
+     * Materializes a compact edge as a {@link WeightedEdge}, equal to the edge
+     * of the same endpoints in the originating {@link Graph}.
+     */
+    WeightedEdge<V> toWeightedEdge(int from, int edge)
+    {
+        return Graph.detachedEdge(vertices.get(from),
+                vertices.get(targets.get(edge)), weights.get(edge));
+    }
+}
@@ -0,0 +1,885 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import cabkata.heap.IndexedMinHeap;
+import cabkata.sets.IntDisjointSet;
+
+/**
+ * Searches over a {@link CompactGraph} that return immutable results instead
+ * of keeping state, so any number of threads may query the same graph at
+ * once. Results are backed by primitive arrays indexed by vertex id; queues,
+ * stacks and heaps come from a per thread {@link Scratch} that is reused from
+ * one query to the next.
+ *
+ * {@link GraphAlgorithms} runs its compact overloads through these methods
+ * and keeps the last result for its getters.
+ */
+public final class CompactGraphAlgorithms {
+
+    /**
+     * @param graph
+     * @param source
+     * @return hop distances and BFS tree from source
+     */
+    public static <V> BreadthFirstTree<V> breadthFirstSearch(
+            CompactGraph<V> graph, V source)
+    {
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        final int numNodes = graph.getVertexCount();
+        final int[] distances = new int[numNodes];
+        final int[] predecessors = new int[numNodes];
+        Arrays.fill(distances, -1);
+        Arrays.fill(predecessors, -1);
+
+        final int[] q = Scratch.get().queue(numNodes);
+        int head = 0;
+        int tail = 0;
+        distances[sourceIndex] = 0;
+        q[tail++] = sourceIndex;
+        while (head < tail)
+        {
+            final int currentNode = q[head++];
+            final int nextDistance = distances[currentNode] + 1;
+            for (int edge = graph.edgeBegin(currentNode), end = graph
+                    .edgeEnd(currentNode); edge < end; edge++)
+            {
+                final int adjacentNode = graph.getTarget(edge);
+                if (distances[adjacentNode] < 0)
+                {
+                    distances[adjacentNode] = nextDistance;
+                    predecessors[adjacentNode] = currentNode;
+                    q[tail++] = adjacentNode;
+                }
+            }
+        }
+        return new BreadthFirstTree<V>(graph, sourceIndex, distances, predecessors);
+    }
+
+    /**
+     * Parallel direction optimizing breadth first search on pool, see
+     * {@link GraphAlgorithms#breadthFirstSearch(CompactGraph, Object, ForkJoinPool)}
+     *
+     * @param graph
+     * @param source
+     * @param pool
+     * @return hop distances and BFS tree from source
+     */
+    public static <V> BreadthFirstTree<V> breadthFirstSearch(
+            CompactGraph<V> graph, V source, ForkJoinPool pool)
+    {
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        final int numNodes = graph.getVertexCount();
+        final int[] distances = new int[numNodes];
+        final int[] predecessors = new int[numNodes];
+        Arrays.fill(distances, -1);
+        Arrays.fill(predecessors, -1);
+        DirectionOptimizingBreadthFirstSearch.search(graph, sourceIndex, pool,
+                distances, predecessors);
+        return new BreadthFirstTree<V>(graph, sourceIndex, distances, predecessors);
+    }
+
+    /**
+     * Depth first search of the whole graph, starting new trees in vertex id
+     * order. Uses an explicit stack of vertex and edge cursors, so path length
+     * is not limited by the thread stack.
+     *
+     * @param graph
+     * @return discovery/finish times, DFS forest and topological order
+     */
+    public static <V> DepthFirstForest<V> depthFirstSearch(CompactGraph<V> graph)
+    {
+        validateGraphNotNull(graph);
+        final int numNodes = graph.getVertexCount();
+        final int[] startTime = new int[numNodes];
+        final int[] finishTime = new int[numNodes];
+        final int[] predecessors = new int[numNodes];
+        final int[] order = new int[numNodes];
+        Arrays.fill(predecessors, -1);
+
+        final Scratch scratch = Scratch.get();
+        final int[] stack = scratch.stack(numNodes);
+        final int[] cursor = scratch.cursor(numNodes);
+        int orderIndex = numNodes;
+        int time = 0;
+        for (int root = 0; root < numNodes; root++)
+        {
+            if (startTime[root] != 0)
+            {
+                continue;
+            }
+
+            int top = 0;
+            stack[0] = root;
+            cursor[0] = graph.edgeBegin(root);
+            startTime[root] = ++time;
+            while (top >= 0)
+            {
+                final int node = stack[top];
+                final int edge = cursor[top];
+                if (edge < graph.edgeEnd(node))
+                {
+                    cursor[top] = edge + 1;
+                    final int adjacent = graph.getTarget(edge);
+                    if (startTime[adjacent] == 0)
+                    {
+                        predecessors[adjacent] = node;
+                        startTime[adjacent] = ++time;
+                        top++;
+                        stack[top] = adjacent;
+                        cursor[top] = graph.edgeBegin(adjacent);
+                    }
+                }
+                else
+                {
+                    finishTime[node] = ++time;
+                    order[--orderIndex] = node;
+                    top--;
+                }
+            }
+        }
+        return new DepthFirstForest<V>(graph, startTime, finishTime,
+                predecessors, order);
+    }
+
+    /**
+     * Tarjan's strongly connected components with explicit stacks, O(V + E).
+     * Components are numbered in topological order of the condensation: every
+     * edge between two components goes from a lower to a higher id.
+     *
+     * @param graph
+     * @return component of every vertex
+     */
+    public static <V> StronglyConnectedComponents<V> stronglyConnectedComponents(
+            CompactGraph<V> graph)
+    {
+        validateGraphNotNull(graph);
+        final int numNodes = graph.getVertexCount();
+        final int[] index = new int[numNodes];
+        final int[] lowLink = new int[numNodes];
+        final int[] components = new int[numNodes];
+        Arrays.fill(components, -1);
+
+        final Scratch scratch = Scratch.get();
+        final int[] stack = scratch.stack(numNodes);
+        final int[] cursor = scratch.cursor(numNodes);
+        // vertices visited but not yet assigned to a component
+        final int[] open = scratch.queue(numNodes);
+        int openSize = 0;
+        int counter = 0;
+        int count = 0;
+        for (int root = 0; root < numNodes; root++)
+        {
+            if (index[root] != 0)
+            {
+                continue;
+            }
+
+            int top = 0;
+            stack[0] = root;
+            cursor[0] = graph.edgeBegin(root);
+            index[root] = lowLink[root] = ++counter;
+            open[openSize++] = root;
+            while (top >= 0)
+            {
+                final int node = stack[top];
+                final int edge = cursor[top];
+                if (edge < graph.edgeEnd(node))
+                {
+                    cursor[top] = edge + 1;
+                    final int adjacent = graph.getTarget(edge);
+                    if (index[adjacent] == 0)
+                    {
+                        index[adjacent] = lowLink[adjacent] = ++counter;
+                        open[openSize++] = adjacent;
+                        top++;
+                        stack[top] = adjacent;
+                        cursor[top] = graph.edgeBegin(adjacent);
+                    }
+                    else if (components[adjacent] < 0)
+                    {
+                        lowLink[node] = Math.min(lowLink[node], index[adjacent]);
+                    }
+                }
+                else
+                {
+                    if (lowLink[node] == index[node])
+                    {
+                        int member;
+                        do
+                        {
+                            member = open[--openSize];
+                            components[member] = count;
+                        }
+                        while (member != node);
+                        count++;
+                    }
+                    top--;
+                    if (top >= 0)
+                    {
+                        final int parent = stack[top];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                    }
+                }
+            }
+        }
+
+        // Tarjan completes sinks first, reverse the ids into topological order
+        for (int node = 0; node < numNodes; node++)
+        {
+            components[node] = count - 1 - components[node];
+        }
+        return new StronglyConnectedComponents<V>(graph, components, count);
+    }
+
+    /**
+     * Kruskal's minimum spanning forest: edge ids sorted by weight are joined
+     * through a disjoint set of vertex ids, O(E log E)
+     *
+     * @return ids of the forest's edges, in the order they were taken
+     */
+    static int[] kruskal(CompactGraph<?> graph)
+    {
+        return kruskal(graph, null, null);
+    }
+
+    /**
+     * @param stats receives the run if not null
+     * @param forestSources if not null, receives the source of every forest
+     *            edge in the order of the returned edge ids
+     */
+    static int[] kruskal(CompactGraph<?> graph, AlgorithmStats stats,
+            IntList forestSources)
+    {
+        final long start = stats == null ? 0L : System.nanoTime();
+        final int numNodes = graph.getVertexCount();
+        final int numEdges = graph.getEdgeCount();
+        final int[] sources = new int[numEdges];
+        final int[] edges = new int[numEdges];
+        final double[] weights = new double[numEdges];
+        for (int node = 0; node < numNodes; node++)
+        {
+            for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+            {
+                sources[edge] = node;
+                edges[edge] = edge;
+                weights[edge] = graph.getWeight(edge);
+            }
+        }
+
+        // edge ids are now sorted by weight
+        IndexSort.sortByKey(edges, weights);
+        final long setupEnd = stats == null ? 0L : System.nanoTime();
+
+        IntList forest = new IntList();
+        IntDisjointSet disjointSet = new IntDisjointSet(numNodes);
+        int i = 0;
+        for (; i < numEdges && disjointSet.count() > 1; i++)
+        {
+            final int edge = edges[i];
+            if (disjointSet.union(sources[edge], graph.getTarget(edge)))
+            {
+                forest.add(edge);
+                if (forestSources != null)
+                {
+                    forestSources.add(sources[edge]);
+                }
+            }
+        }
+        if (stats != null)
+        {
+            stats.record(start, setupEnd, numNodes, i, forest.size(), 0);
+        }
+        return forest.toArray();
+    }
+
+    /**
+     * Dijkstra's single source shortest paths on an indexed heap,
+     * O((V + E) log V)
+     *
+     * @param graph
+     * @param source
+     * @return shortest path tree from source
+     * @throws IllegalArgumentException on a negative edge weight
+     */
+    public static <V> ShortestPaths<V> dijkstra(CompactGraph<V> graph, V source)
+    {
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        final int numNodes = graph.getVertexCount();
+        final double[] weights = new double[numNodes];
+        final int[] predecessors = new int[numNodes];
+        Arrays.fill(weights, Double.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+
+        final IndexedMinHeap priorityQ = Scratch.get().heap(numNodes);
+        weights[sourceIndex] = 0.0;
+        priorityQ.insert(sourceIndex, 0.0);
+        while (!priorityQ.isEmpty())
+        {
+            final int currentNode = priorityQ.poll();
+            final double currentCost = weights[currentNode];
+            for (int edge = graph.edgeBegin(currentNode), end = graph
+                    .edgeEnd(currentNode); edge < end; edge++)
+            {
+                final double weight = graph.getWeight(edge);
+                if (weight < 0)
+                {
+                    priorityQ.clear();
+                    throw new IllegalArgumentException(
+                            "Dijkstra requires non negative edge weights");
+                }
+                final double totalCost = currentCost + weight;
+                final int adjacentNode = graph.getTarget(edge);
+                if (totalCost < weights[adjacentNode])
+                {
+                    predecessors[adjacentNode] = currentNode;
+                    weights[adjacentNode] = totalCost;
+                    priorityQ.offer(adjacentNode, totalCost);
+                }
+            }
+        }
+        return new ShortestPaths<V>(graph, sourceIndex, weights, predecessors, null);
+    }
+
+    /**
+     * A* from source to target guided by the lower bounds of landmarks. The
+     * search stops when it settles target and only labels the vertices it
+     * reaches, on per thread buffers, so a query costs the part of the graph
+     * it explores rather than O(V).
+     *
+     * @param landmarks precomputed for the graph to search
+     * @param source
+     * @param target
+     * @return shortest path from source to target
+     * @throws IllegalArgumentException on a negative edge weight
+     */
+    public static <V> PointToPointPath<V> aStar(Landmarks<V> landmarks,
+            V source, V target)
+    {
+        if (landmarks == null)
+        {
+            throw new IllegalArgumentException("landmarks is null");
+        }
+        final CompactGraph<V> graph = landmarks.getGraph();
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        final int targetIndex = validateTarget(graph, target);
+        final int numNodes = graph.getVertexCount();
+
+        final Scratch scratch = Scratch.get();
+        final SearchSpace space = scratch.forward(numNodes);
+        final IndexedMinHeap priorityQ = scratch.heap(numNodes);
+        space.label(sourceIndex, 0.0, -1);
+        priorityQ.insert(sourceIndex, landmarks.lowerBound(sourceIndex, targetIndex));
+        int settled = 0;
+        while (!priorityQ.isEmpty())
+        {
+            final int currentNode = priorityQ.poll();
+            settled++;
+            if (currentNode == targetIndex)
+            {
+                break;
+            }
+            final double currentCost = space.distance(currentNode);
+            for (int edge = graph.edgeBegin(currentNode), end = graph
+                    .edgeEnd(currentNode); edge < end; edge++)
+            {
+                final double weight = graph.getWeight(edge);
+                if (weight < 0)
+                {
+                    priorityQ.clear();
+                    throw new IllegalArgumentException(
+                            "A* requires non negative edge weights");
+                }
+                final double totalCost = currentCost + weight;
+                final int adjacentNode = graph.getTarget(edge);
+                if (totalCost < space.distance(adjacentNode))
+                {
+                    space.label(adjacentNode, totalCost, currentNode);
+                    priorityQ.offer(adjacentNode, totalCost
+                            + landmarks.lowerBound(adjacentNode, targetIndex));
+                }
+            }
+        }
+        priorityQ.clear();
+        return PointToPointPath.fromSearchSpace(graph, sourceIndex,
+                targetIndex, space, settled);
+    }
+
+    /**
+     * Breadth first search from both source and target, the backward one
+     * over the cached {@link CompactGraph#reverse()}. Every round expands one
+     * whole level of the side with the smaller frontier and checks the edges
+     * it scans against the labels of the other side; the shortest connection
+     * found by the end of the round is a shortest path. Two searches of
+     * depth d/2 meet where a single search of depth d would have reached
+     * every vertex up to d hops out.
+     *
+     * @param graph
+     * @param source
+     * @param target
+     * @param maxHops longest path to look for
+     * @return path with the fewest edges from source to target, its weight
+     *         the number of edges, not reachable if it is longer than maxHops
+     */
+    public static <V> PointToPointPath<V> bidirectionalBreadthFirstSearch(
+            CompactGraph<V> graph, V source, V target, int maxHops)
+    {
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        final int targetIndex = validateTarget(graph, target);
+        if (maxHops < 0)
+        {
+            throw new IllegalArgumentException("maxHops may not be negative");
+        }
+        final int numNodes = graph.getVertexCount();
+        final CompactGraph<V> reverse = graph.reverse();
+        final Scratch scratch = Scratch.get();
+        final SearchSpace forward = scratch.forward(numNodes);
+        final SearchSpace backward = scratch.backward(numNodes);
+        final int[] forwardQ = scratch.queue(numNodes);
+        final int[] backwardQ = scratch.backwardQueue(numNodes);
+        forward.label(sourceIndex, 0.0, -1);
+        forwardQ[0] = sourceIndex;
+        backward.label(targetIndex, 0.0, -1);
+        backwardQ[0] = targetIndex;
+        if (sourceIndex == targetIndex)
+        {
+            return PointToPointPath.fromSearchSpaces(graph, sourceIndex,
+                    targetIndex, 0.0, forward, sourceIndex, backward,
+                    targetIndex, 0);
+        }
+
+        // each queue holds its levels back to back, [levelStart, tail) is
+        // the frontier
+        int forwardStart = 0;
+        int forwardTail = 1;
+        int backwardStart = 0;
+        int backwardTail = 1;
+        int hops = 0;
+        double best = Double.MAX_VALUE;
+        int last = -1;
+        int first = -1;
+        int settled = 0;
+        while (hops < maxHops && forwardStart < forwardTail
+                && backwardStart < backwardTail)
+        {
+            final boolean isForward = forwardTail - forwardStart <= backwardTail
+                    - backwardStart;
+            final CompactGraph<V> edges = isForward ? graph : reverse;
+            final SearchSpace space = isForward ? forward : backward;
+            final SearchSpace other = isForward ? backward : forward;
+            final int[] queue = isForward ? forwardQ : backwardQ;
+            final int levelStart = isForward ? forwardStart : backwardStart;
+            final int levelEnd = isForward ? forwardTail : backwardTail;
+            int tail = levelEnd;
+            for (int i = levelStart; i < levelEnd; i++)
+            {
+                final int currentNode = queue[i];
+                final double hopsToNext = space.distance(currentNode) + 1.0;
+                settled++;
+                for (int edge = edges.edgeBegin(currentNode), end = edges
+                        .edgeEnd(currentNode); edge < end; edge++)
+                {
+                    final int adjacentNode = edges.getTarget(edge);
+                    if (other.isLabeled(adjacentNode)
+                            && hopsToNext + other.distance(adjacentNode) < best)
+                    {
+                        best = hopsToNext + other.distance(adjacentNode);
+                        last = isForward ? currentNode : adjacentNode;
+                        first = isForward ? adjacentNode : currentNode;
+                    }
+                    if (!space.isLabeled(adjacentNode))
+                    {
+                        space.label(adjacentNode, hopsToNext, currentNode);
+                        queue[tail++] = adjacentNode;
+                    }
+                }
+            }
+            if (isForward)
+            {
+                forwardStart = levelEnd;
+                forwardTail = tail;
+            }
+            else
+            {
+                backwardStart = levelEnd;
+                backwardTail = tail;
+            }
+            hops++;
+            if (last >= 0)
+            {
+                break;
+            }
+        }
+
+        if (last < 0)
+        {
+            return new PointToPointPath<V>(graph, sourceIndex, targetIndex,
+                    Double.MAX_VALUE, new int[0], settled);
+        }
+        return PointToPointPath.fromSearchSpaces(graph, sourceIndex,
+                targetIndex, best, forward, last, backward, first, settled);
+    }
+
+    /**
+     * Dijkstra from both source and target, the backward search over the
+     * cached {@link CompactGraph#reverse()}, always settling the side with
+     * the closer vertex. Relaxing an edge into a vertex the other side
+     * labeled offers a path; once the two closest unsettled distances add up
+     * to no less than the best path offered, no shorter one is left.
+     *
+     * @param graph
+     * @param source
+     * @param target
+     * @return shortest path from source to target
+     * @throws IllegalArgumentException on a negative edge weight
+     */
+    public static <V> PointToPointPath<V> bidirectionalDijkstra(
+            CompactGraph<V> graph, V source, V target)
+    {
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        final int targetIndex = validateTarget(graph, target);
+        final int numNodes = graph.getVertexCount();
+        final CompactGraph<V> reverse = graph.reverse();
+        final Scratch scratch = Scratch.get();
+        final SearchSpace forward = scratch.forward(numNodes);
+        final SearchSpace backward = scratch.backward(numNodes);
+        final IndexedMinHeap forwardQ = scratch.heap(numNodes);
+        final IndexedMinHeap backwardQ = scratch.backwardHeap(numNodes);
+        forward.label(sourceIndex, 0.0, -1);
+        forwardQ.insert(sourceIndex, 0.0);
+        backward.label(targetIndex, 0.0, -1);
+        backwardQ.insert(targetIndex, 0.0);
+
+        double best = sourceIndex == targetIndex ? 0.0 : Double.MAX_VALUE;
+        int last = sourceIndex == targetIndex ? sourceIndex : -1;
+        int first = last;
+        int settled = 0;
+        while (!forwardQ.isEmpty() && !backwardQ.isEmpty())
+        {
+            final double forwardMin = forwardQ.getKey(forwardQ.peek());
+            final double backwardMin = backwardQ.getKey(backwardQ.peek());
+            if (forwardMin + backwardMin >= best)
+            {
+                break;
+            }
+            final boolean isForward = forwardMin <= backwardMin;
+            final CompactGraph<V> edges = isForward ? graph : reverse;
+            final SearchSpace space = isForward ? forward : backward;
+            final SearchSpace other = isForward ? backward : forward;
+            final IndexedMinHeap priorityQ = isForward ? forwardQ : backwardQ;
+            final int currentNode = priorityQ.poll();
+            final double currentCost = space.distance(currentNode);
+            settled++;
+            for (int edge = edges.edgeBegin(currentNode), end = edges
+                    .edgeEnd(currentNode); edge < end; edge++)
+            {
+                final double weight = edges.getWeight(edge);
+                if (weight < 0)
+                {
+                    forwardQ.clear();
+                    backwardQ.clear();
+                    throw new IllegalArgumentException(
+                            "Dijkstra requires non negative edge weights");
+                }
+                final double totalCost = currentCost + weight;
+                final int adjacentNode = edges.getTarget(edge);
+                if (totalCost < space.distance(adjacentNode))
+                {
+                    space.label(adjacentNode, totalCost, currentNode);
+                    priorityQ.offer(adjacentNode, totalCost);
+                }
+                if (other.isLabeled(adjacentNode)
+                        && totalCost + other.distance(adjacentNode) < best)
+                {
+                    best = totalCost + other.distance(adjacentNode);
+                    last = isForward ? currentNode : adjacentNode;
+                    first = isForward ? adjacentNode : currentNode;
+                }
+            }
+        }
+        forwardQ.clear();
+        backwardQ.clear();
+
+        if (last < 0)
+        {
+            return new PointToPointPath<V>(graph, sourceIndex, targetIndex,
+                    Double.MAX_VALUE, new int[0], settled);
+        }
+        return PointToPointPath.fromSearchSpaces(graph, sourceIndex,
+                targetIndex, best, forward, last, backward, first, settled);
+    }
+
+    /**
+     * Queue based Bellman-Ford (SPFA) single source shortest paths. Only the
+     * out edges of vertices whose distance dropped are relaxed again, so the
+     * run stops as soon as the distances converge instead of after |V| - 1
+     * passes. A path of |V| or more edges goes round a negative cycle; the
+     * cycle is then taken from the predecessors and the run stops.
+     *
+     * @param graph
+     * @param source
+     * @return shortest path tree from source, or the first negative cycle
+     *         found, see {@link ShortestPaths#getNegativeCycle()}
+     */
+    public static <V> ShortestPaths<V> bellmanFord(CompactGraph<V> graph, V source)
+    {
+        return bellmanFord(graph, source, (AlgorithmStats) null);
+    }
+
+    /**
+     * @param stats receives the run if not null
+     */
+    static <V> ShortestPaths<V> bellmanFord(CompactGraph<V> graph, V source,
+            AlgorithmStats stats)
+    {
+        final long start = stats == null ? 0L : System.nanoTime();
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        final int numNodes = graph.getVertexCount();
+        final double[] weights = new double[numNodes];
+        final int[] predecessors = new int[numNodes];
+        final int[] pathLengths = new int[numNodes];
+        final boolean[] queued = new boolean[numNodes];
+        Arrays.fill(weights, Double.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+
+        // every vertex is queued at most once, so the queue is a ring of |V|
+        final int[] q = Scratch.get().queue(numNodes);
+        int head = 0;
+        int size = 1;
+        weights[sourceIndex] = 0.0;
+        q[0] = sourceIndex;
+        queued[sourceIndex] = true;
+        int cycleCheck = numNodes;
+        final long setupEnd = stats == null ? 0L : System.nanoTime();
+        long dequeued = 0;
+        long scanned = 0;
+        long relaxed = 0;
+        while (size > 0)
+        {
+            final int currentNode = q[head];
+            head = head + 1 == numNodes ? 0 : head + 1;
+            size--;
+            queued[currentNode] = false;
+            final double currentCost = weights[currentNode];
+            final int begin = graph.edgeBegin(currentNode);
+            final int end = graph.edgeEnd(currentNode);
+            dequeued++;
+            scanned += end - begin;
+            for (int edge = begin; edge < end; edge++)
+            {
+                final double totalCost = currentCost + graph.getWeight(edge);
+                final int adjacentNode = graph.getTarget(edge);
+                if (totalCost < weights[adjacentNode])
+                {
+                    relaxed++;
+                    weights[adjacentNode] = totalCost;
+                    predecessors[adjacentNode] = currentNode;
+                    pathLengths[adjacentNode] = pathLengths[currentNode] + 1;
+                    if (pathLengths[adjacentNode] >= cycleCheck)
+                    {
+                        final int[] cycle = findPredecessorCycle(predecessors);
+                        if (cycle != null)
+                        {
+                            if (stats != null)
+                            {
+                                stats.record(start, setupEnd, dequeued, scanned,
+                                        relaxed, 0);
+                            }
+                            return new ShortestPaths<V>(graph, sourceIndex,
+                                    weights, predecessors, cycle);
+                        }
+                        // the cycle has not closed in the predecessors yet
+                        cycleCheck = pathLengths[adjacentNode] + numNodes;
+                    }
+                    if (!queued[adjacentNode])
+                    {
+                        queued[adjacentNode] = true;
+                        final int tail = head + size;
+                        q[tail < numNodes ? tail : tail - numNodes] = adjacentNode;
+                        size++;
+                    }
+                }
+            }
+        }
+        if (stats != null)
+        {
+            stats.record(start, setupEnd, dequeued, scanned, relaxed, 0);
+        }
+        return new ShortestPaths<V>(graph, sourceIndex, weights, predecessors, null);
+    }
+
+    /**
+     * Parallel Bellman-Ford on pool. Every round each vertex pulls the lowest
+     * distance offered over its in edges by the vertices that changed in the
+     * previous round, so no two tasks write the same entry and rounds stop as
+     * soon as nothing changes. A change in round |V| means a negative cycle.
+     *
+     * @param graph
+     * @param source
+     * @param pool
+     * @return shortest path tree from source, or the first negative cycle
+     *         found, see {@link ShortestPaths#getNegativeCycle()}
+     */
+    public static <V> ShortestPaths<V> bellmanFord(CompactGraph<V> graph,
+            V source, ForkJoinPool pool)
+    {
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        final int numNodes = graph.getVertexCount();
+        final double[] weights = new double[numNodes];
+        final int[] predecessors = new int[numNodes];
+        Arrays.fill(weights, Double.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+        final int[] cycle = ParallelBellmanFord.search(graph, sourceIndex,
+                pool, weights, predecessors);
+        return new ShortestPaths<V>(graph, sourceIndex, weights, predecessors, cycle);
+    }
+
+    /**
+     * All pairs shortest paths by Floyd-Warshall on cache sized tiles of a
+     * flat V x V matrix, O(V^3) time and 8 V^2 bytes, 12 V^2 with
+     * predecessors. Negative weights are allowed, a negative cycle is
+     * reported by {@link AllPairsShortestPaths#hasNegativeCycle()}.
+     *
+     * @param graph
+     * @param keepPredecessors whether to store the predecessor matrix that
+     *            {@link AllPairsShortestPaths#getPath(Object, Object)} needs
+     * @return path weights between all pairs
+     */
+    public static <V> AllPairsShortestPaths<V> allPairsShortestPaths(
+            CompactGraph<V> graph, boolean keepPredecessors)
+    {
+        validateGraphNotNull(graph);
+        final int numNodes = graph.getVertexCount();
+        final int size = TiledFloydWarshall.matrixSize(graph);
+        final int[] predecessors = keepPredecessors ? new int[size] : null;
+        final double[] weights = TiledFloydWarshall.initialize(graph, predecessors);
+        TiledFloydWarshall.search(weights, predecessors, numNodes);
+        return new AllPairsShortestPaths<V>(graph, weights, predecessors);
+    }
+
+    /**
+     * Floyd-Warshall with the tiles of every round split over pool
+     *
+     * @param graph
+     * @param keepPredecessors
+     * @param pool
+     * @return path weights between all pairs
+     * @see #allPairsShortestPaths(CompactGraph, boolean)
+     */
+    public static <V> AllPairsShortestPaths<V> allPairsShortestPaths(
+            CompactGraph<V> graph, boolean keepPredecessors, ForkJoinPool pool)
+    {
+        validateGraphNotNull(graph);
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        final int numNodes = graph.getVertexCount();
+        final int size = TiledFloydWarshall.matrixSize(graph);
+        final int[] predecessors = keepPredecessors ? new int[size] : null;
+        final double[] weights = TiledFloydWarshall.initialize(graph, predecessors);
+        TiledFloydWarshall.search(weights, predecessors, numNodes, pool);
+        return new AllPairsShortestPaths<V>(graph, weights, predecessors);
+    }
+
+    /**
+     * Every cycle among the predecessors of a Bellman-Ford run is negative.
+     *
+     * @param predecessors
+     * @return vertex ids of a cycle in path order, null if there is none
+     */
+    static int[] findPredecessorCycle(int[] predecessors)
+    {
+        final int numNodes = predecessors.length;
+        final int[] walk = new int[numNodes];
+        for (int start = 0; start < numNodes; start++)
+        {
+            int node = start;
+            while (node >= 0 && walk[node] == 0)
+            {
+                walk[node] = start + 1;
+                node = predecessors[node];
+            }
+            if (node >= 0 && walk[node] == start + 1)
+            {
+                // node is on a cycle closed during this walk
+                IntList cycle = new IntList();
+                int v = node;
+                do
+                {
+                    cycle.add(v);
+                    v = predecessors[v];
+                }
+                while (v != node);
+                final int[] path = cycle.toArray();
+                for (int i = 0, j = path.length - 1; i < j; i++, j--)
+                {
+                    final int swap = path[i];
+                    path[i] = path[j];
+                    path[j] = swap;
+                }
+                return path;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Frees the calling thread's reusable search buffers, for threads that
+     * searched a large graph once and should not keep its working memory
+     */
+    public static void releaseScratch()
+    {
+        Scratch.release();
+    }
+
+    static void validateGraphNotNull(CompactGraph<?> graph)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+    }
+
+    static <V> int validateTarget(CompactGraph<V> graph, V target)
+    {
+        if (target == null)
+        {
+            throw new IllegalArgumentException("target is null");
+        }
+        final int index = graph.indexOf(target);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("target value not found in graph");
+        }
+        return index;
+    }
+
+    static <V> int validateGraphAndSource(CompactGraph<V> graph, V source)
+    {
+        validateGraphNotNull(graph);
+        if (source == null)
+        {
+            throw new IllegalArgumentException("source is null");
+        }
+        final int sourceIndex = graph.indexOf(source);
+        if (sourceIndex < 0)
+        {
+            throw new IllegalArgumentException("source value not found in graph");
+        }
+        return sourceIndex;
+    }
+
+    private CompactGraphAlgorithms()
+    {
+    }
+}
@@ -0,0 +1,103 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable weakly connected components of a {@link CompactGraph}, each
+ * vertex labeled with the id 0..count-1 of its component. Ids follow the
+ * smallest vertex id of each component. Safe to share between threads.
+ *
+ * @param <V>
+ */
+public final class ConnectedComponents<V> {
+    private final CompactGraph<V> graph;
+    final int[] components;
+    private final int[] sizes;
+
+    ConnectedComponents(CompactGraph<V> graph, int[] components, int[] sizes)
+    {
+        this.graph = graph;
+        this.components = components;
+        this.sizes = sizes;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @return number of components
+     */
+    public int count()
+    {
+        return sizes.length;
+    }
+
+    /**
+     * @param v
+     * @return id of the component of v
+     */
+    public int getComponent(V v)
+    {
+        final int index = graph.indexOf(v);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return components[index];
+    }
+
+    public boolean isConnected(V v1, V v2)
+    {
+        return getComponent(v1) == getComponent(v2);
+    }
+
+    /**
+     * @param component
+     * @return number of vertices in component
+     */
+    public int getSize(int component)
+    {
+        if (component < 0 || component >= sizes.length)
+        {
+            throw new IllegalArgumentException("component out of range");
+        }
+        return sizes[component];
+    }
+
+    /**
+     * @return copy of the component ids indexed by vertex id
+     */
+    public int[] toArray()
+    {
+        return Arrays.copyOf(components, components.length);
+    }
+
+    /**
+     * @return copy of the component sizes indexed by component id
+     */
+    public int[] getSizes()
+    {
+        return Arrays.copyOf(sizes, sizes.length);
+    }
+
+    /**
+     * @return members of every component, indexed by component id
+     */
+    public List<List<V>> getComponents()
+    {
+        List<List<V>> members = new ArrayList<List<V>>(sizes.length);
+        for (int size : sizes)
+        {
+            members.add(new ArrayList<V>(size));
+        }
+        for (int node = 0; node < components.length; node++)
+        {
+            members.get(components[node]).add(graph.getVertex(node));
+        }
+        return members;
+    }
+}
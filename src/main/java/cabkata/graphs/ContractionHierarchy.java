@@ -0,0 +1,424 @@
+package cabkata.graphs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import cabkata.graphs.ContractionHierarchyBuilder.EdgeList;
+import cabkata.heap.IndexedMinHeap;
+
+/**
+ * Contraction hierarchy of a graph with non negative weights, for point to
+ * point shortest paths on large static graphs such as road networks.
+ *
+ * Vertices are ranked and contracted in rank order; contracting a vertex
+ * adds a shortcut between two of its neighbours wherever it lay on their only
+ * shortest path. Every shortest path then has a form that only climbs in rank
+ * and then only descends, so a query runs Dijkstra upwards from the source
+ * and, over reversed edges, upwards from the target and meets at the top.
+ * Both searches see a tiny part of the graph. Shortcuts remember the vertex
+ * they skip and are expanded back into edges of the graph when the path is
+ * returned.
+ *
+ * Every edge is stored once, at its lower ranked end: as an up edge to a
+ * higher ranked target or as a down edge from a higher ranked source.
+ * Immutable and safe to query from several threads.
+ *
+ * @param <V>
+ */
+public final class ContractionHierarchy<V> {
+    static final int MAGIC = 0x43434848; // "CCHH"
+    static final int VERSION = 1;
+
+    private final CompactGraph<V> graph;
+    private final int[] rank;
+    private final Csr up;
+    private final Csr down;
+
+    private ContractionHierarchy(CompactGraph<V> graph, int[] rank, Csr up, Csr down)
+    {
+        this.graph = graph;
+        this.rank = rank;
+        this.up = up;
+        this.down = down;
+    }
+
+    /**
+     * Orders and contracts the vertices of graph, see
+     * {@link ContractionHierarchyBuilder}
+     *
+     * @param graph
+     * @param pool runs the witness searches
+     * @return hierarchy of graph
+     * @throws IllegalArgumentException on a negative edge weight
+     */
+    public static <V> ContractionHierarchy<V> build(CompactGraph<V> graph,
+            ForkJoinPool pool)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        final int numNodes = graph.getVertexCount();
+        final EdgeList[] upEdges = new EdgeList[numNodes];
+        final EdgeList[] downEdges = new EdgeList[numNodes];
+        final int[] rank = new ContractionHierarchyBuilder(graph).contract(pool,
+                upEdges, downEdges);
+        return new ContractionHierarchy<V>(graph, rank, Csr.of(upEdges),
+                Csr.of(downEdges));
+    }
+
+    /**
+     * @param graph
+     * @param pool
+     * @return hierarchy of the compiled graph
+     * @see #build(CompactGraph, ForkJoinPool)
+     */
+    public static <V> ContractionHierarchy<V> build(Graph<V> graph,
+            ForkJoinPool pool)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        return build(graph.compile(), pool);
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @return number of edges the contraction added
+     */
+    public int getShortcutCount()
+    {
+        return up.shortcutCount() + down.shortcutCount();
+    }
+
+    /**
+     * Bidirectional upward Dijkstra. Each side is settled in order of its
+     * distance and the query stops once neither side can beat the best
+     * meeting point found.
+     *
+     * @param source
+     * @param target
+     * @return shortest path from source to target, in edges of the graph
+     */
+    public PointToPointPath<V> shortestPath(V source, V target)
+    {
+        final int sourceIndex = CompactGraphAlgorithms.validateGraphAndSource(
+                graph, source);
+        final int targetIndex = CompactGraphAlgorithms.validateTarget(graph, target);
+        final int numNodes = graph.getVertexCount();
+        final Scratch scratch = Scratch.get();
+        final SearchSpace forward = scratch.forward(numNodes);
+        final SearchSpace backward = scratch.backward(numNodes);
+        final IndexedMinHeap forwardQ = scratch.heap(numNodes);
+        final IndexedMinHeap backwardQ = scratch.backwardHeap(numNodes);
+        forward.label(sourceIndex, 0.0, -1);
+        forwardQ.insert(sourceIndex, 0.0);
+        backward.label(targetIndex, 0.0, -1);
+        backwardQ.insert(targetIndex, 0.0);
+
+        double best = Double.MAX_VALUE;
+        int meeting = -1;
+        int settled = 0;
+        for (;;)
+        {
+            final double forwardMin = forwardQ.isEmpty() ? Double.MAX_VALUE
+                    : forwardQ.getKey(forwardQ.peek());
+            final double backwardMin = backwardQ.isEmpty() ? Double.MAX_VALUE
+                    : backwardQ.getKey(backwardQ.peek());
+            if (Math.min(forwardMin, backwardMin) >= best
+                    || (forwardQ.isEmpty() && backwardQ.isEmpty()))
+            {
+                break;
+            }
+            final boolean isForward = forwardMin <= backwardMin;
+            final SearchSpace space = isForward ? forward : backward;
+            final SearchSpace other = isForward ? backward : forward;
+            final IndexedMinHeap priorityQ = isForward ? forwardQ : backwardQ;
+            final Csr edges = isForward ? up : down;
+            final int currentNode = priorityQ.poll();
+            final double currentCost = space.distance(currentNode);
+            settled++;
+            if (other.isLabeled(currentNode)
+                    && currentCost + other.distance(currentNode) < best)
+            {
+                best = currentCost + other.distance(currentNode);
+                meeting = currentNode;
+            }
+            for (int edge = edges.offsets[currentNode], end = edges.offsets[currentNode + 1]; edge < end; edge++)
+            {
+                final int adjacentNode = edges.nodes[edge];
+                final double totalCost = currentCost + edges.weights[edge];
+                if (totalCost < space.distance(adjacentNode))
+                {
+                    space.label(adjacentNode, totalCost, currentNode);
+                    priorityQ.offer(adjacentNode, totalCost);
+                }
+            }
+        }
+        forwardQ.clear();
+        backwardQ.clear();
+
+        if (meeting < 0)
+        {
+            return new PointToPointPath<V>(graph, sourceIndex, targetIndex,
+                    Double.MAX_VALUE, new int[0], settled);
+        }
+        return new PointToPointPath<V>(graph, sourceIndex, targetIndex, best,
+                unpack(meeting, forward, backward), settled);
+    }
+
+    /**
+     * @return vertex ids of the path through meeting with every shortcut
+     *         replaced by the edges it stands for
+     */
+    private int[] unpack(int meeting, SearchSpace forward, SearchSpace backward)
+    {
+        IntList upwards = new IntList();
+        for (int v = meeting; v >= 0; v = forward.predecessor(v))
+        {
+            upwards.add(v);
+        }
+        IntList path = new IntList();
+        path.add(upwards.get(upwards.size() - 1));
+        IntList stack = new IntList();
+        for (int i = upwards.size() - 1; i > 0; i--)
+        {
+            unpackEdge(upwards.get(i), upwards.get(i - 1), stack, path);
+        }
+        for (int v = meeting, next = backward.predecessor(v); next >= 0; v = next, next = backward
+                .predecessor(v))
+        {
+            unpackEdge(v, next, stack, path);
+        }
+        return path.toArray();
+    }
+
+    /**
+     * Appends the vertices after from on the edge from, to
+     */
+    private void unpackEdge(int from, int to, IntList stack, IntList path)
+    {
+        stack.clear();
+        stack.add(from);
+        stack.add(to);
+        while (!stack.isEmpty())
+        {
+            final int v = stack.get(stack.size() - 1);
+            final int u = stack.get(stack.size() - 2);
+            stack.removeLast();
+            stack.removeLast();
+            final int middle = middleOf(u, v);
+            if (middle < 0)
+            {
+                path.add(v);
+            }
+            else
+            {
+                // u, middle is expanded first
+                stack.add(middle);
+                stack.add(v);
+                stack.add(u);
+                stack.add(middle);
+            }
+        }
+    }
+
+    /**
+     * @return vertex the edge u, v skips, -1 if it is an edge of the graph
+     */
+    private int middleOf(int u, int v)
+    {
+        return rank[u] < rank[v] ? up.middleOf(u, v) : down.middleOf(v, u);
+    }
+
+    /**
+     * Writes the hierarchy so query servers can load it with
+     * {@link #read(CompactGraph, File)} instead of building it
+     *
+     * @param file overwritten with the hierarchy
+     * @throws IOException
+     */
+    public void write(File file) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 1 << 16));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(graph.getVertexCount());
+            out.writeInt(graph.getEdgeCount());
+            for (int r : rank)
+            {
+                out.writeInt(r);
+            }
+            up.write(out);
+            down.write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * @param graph the graph the hierarchy was built for
+     * @param file written by {@link #write(File)}
+     * @return hierarchy of graph
+     * @throws IOException if the file is not a hierarchy or was written for a
+     *             graph of another size
+     */
+    public static <V> ContractionHierarchy<V> read(CompactGraph<V> graph,
+            File file) throws IOException
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 16));
+        try
+        {
+            if (in.readInt() != MAGIC)
+            {
+                throw new IOException("not a contraction hierarchy file: " + file);
+            }
+            final int version = in.readInt();
+            if (version != VERSION)
+            {
+                throw new IOException("unsupported contraction hierarchy version "
+                        + version);
+            }
+            final int numNodes = graph.getVertexCount();
+            if (in.readInt() != numNodes || in.readInt() != graph.getEdgeCount())
+            {
+                throw new IOException("hierarchy was built for another graph");
+            }
+            final int[] rank = new int[numNodes];
+            for (int v = 0; v < numNodes; v++)
+            {
+                rank[v] = in.readInt();
+            }
+            final Csr up = Csr.read(in, numNodes);
+            final Csr down = Csr.read(in, numNodes);
+            return new ContractionHierarchy<V>(graph, rank, up, down);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Up or down edges of every vertex in compressed sparse row form
+     */
+    private static final class Csr {
+        final int[] offsets;
+        final int[] nodes;
+        final double[] weights;
+        final int[] middles;
+
+        Csr(int[] offsets, int[] nodes, double[] weights, int[] middles)
+        {
+            this.offsets = offsets;
+            this.nodes = nodes;
+            this.weights = weights;
+            this.middles = middles;
+        }
+
+        static Csr of(EdgeList[] lists)
+        {
+            final int[] offsets = new int[lists.length + 1];
+            long total = 0;
+            for (int v = 0; v < lists.length; v++)
+            {
+                total += lists[v].size;
+                if (total > Integer.MAX_VALUE)
+                {
+                    throw new IllegalArgumentException("too many shortcuts");
+                }
+                offsets[v + 1] = (int) total;
+            }
+            final int[] nodes = new int[(int) total];
+            final double[] weights = new double[(int) total];
+            final int[] middles = new int[(int) total];
+            for (int v = 0; v < lists.length; v++)
+            {
+                final EdgeList list = lists[v];
+                System.arraycopy(list.nodes, 0, nodes, offsets[v], list.size);
+                System.arraycopy(list.weights, 0, weights, offsets[v], list.size);
+                System.arraycopy(list.middles, 0, middles, offsets[v], list.size);
+            }
+            return new Csr(offsets, nodes, weights, middles);
+        }
+
+        int middleOf(int v, int node)
+        {
+            for (int edge = offsets[v]; edge < offsets[v + 1]; edge++)
+            {
+                if (nodes[edge] == node)
+                {
+                    return middles[edge];
+                }
+            }
+            throw new IllegalStateException("edge missing from hierarchy");
+        }
+
+        int shortcutCount()
+        {
+            int count = 0;
+            for (int middle : middles)
+            {
+                if (middle >= 0)
+                {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        void write(DataOutputStream out) throws IOException
+        {
+            for (int offset : offsets)
+            {
+                out.writeInt(offset);
+            }
+            for (int i = 0; i < nodes.length; i++)
+            {
+                out.writeInt(nodes[i]);
+                out.writeDouble(weights[i]);
+                out.writeInt(middles[i]);
+            }
+        }
+
+        static Csr read(DataInputStream in, int numNodes) throws IOException
+        {
+            final int[] offsets = new int[numNodes + 1];
+            for (int v = 0; v <= numNodes; v++)
+            {
+                offsets[v] = in.readInt();
+            }
+            final int total = offsets[numNodes];
+            final int[] nodes = new int[total];
+            final double[] weights = new double[total];
+            final int[] middles = new int[total];
+            for (int i = 0; i < total; i++)
+            {
+                nodes[i] = in.readInt();
+                weights[i] = in.readDouble();
+                middles[i] = in.readInt();
+            }
+            return new Csr(offsets, nodes, weights, middles);
+        }
+    }
+}
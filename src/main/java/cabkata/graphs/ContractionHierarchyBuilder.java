@@ -0,0 +1,445 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import cabkata.heap.IndexedMinHeap;
+
+/**
+ * Contracts the vertices of a graph in rounds to build a
+ * {@link ContractionHierarchy}.
+ *
+ * A vertex's priority is its edge difference: the shortcuts contracting it
+ * would add minus the edges it removes, plus the neighbours already
+ * contracted so the order spreads over the graph. Every round picks the
+ * vertices whose priority is lower than that of all their neighbours. These
+ * form an independent set, so they are contracted in parallel: the witness
+ * searches avoid every vertex of the round, shortcuts only join vertices that
+ * stay, and the distances between those are kept whatever the others do. The
+ * shortcuts are then added in one sequential pass and the priorities of the
+ * neighbours recomputed in parallel.
+ *
+ * A witness search gives up after settling SETTLE_LIMIT vertices and the
+ * shortcut is added anyway, which costs an edge but never a wrong distance.
+ */
+final class ContractionHierarchyBuilder {
+    private static final int SETTLE_LIMIT = 500;
+    private static final int GRAIN = 64;
+    private static final int NO_ROUND = -1;
+
+    private final int numNodes;
+    // edges among the vertices not contracted yet
+    private final EdgeList[] out;
+    private final EdgeList[] in;
+    private final int[] rank;
+    private final int[] round;
+    private final int[] priority;
+    private final int[] contractedNeighbours;
+
+    ContractionHierarchyBuilder(CompactGraph<?> graph)
+    {
+        numNodes = graph.getVertexCount();
+        out = new EdgeList[numNodes];
+        in = new EdgeList[numNodes];
+        rank = new int[numNodes];
+        round = new int[numNodes];
+        priority = new int[numNodes];
+        contractedNeighbours = new int[numNodes];
+        Arrays.fill(rank, -1);
+        for (int v = 0; v < numNodes; v++)
+        {
+            out[v] = new EdgeList();
+            in[v] = new EdgeList();
+        }
+        for (int v = 0; v < numNodes; v++)
+        {
+            for (int edge = graph.edgeBegin(v), end = graph.edgeEnd(v); edge < end; edge++)
+            {
+                final double weight = graph.getWeight(edge);
+                if (weight < 0)
+                {
+                    throw new IllegalArgumentException(
+                            "contraction hierarchies require non negative edge weights");
+                }
+                final int target = graph.getTarget(edge);
+                if (target != v)
+                {
+                    out[v].addOrLower(target, weight, -1);
+                    in[target].addOrLower(v, weight, -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Contracts every vertex
+     *
+     * @return rank of every vertex, and in up and down the edges each had to
+     *         higher ranked vertices when it was contracted
+     */
+    int[] contract(ForkJoinPool pool, EdgeList[] up, EdgeList[] down)
+    {
+        int[] remaining = new int[numNodes];
+        for (int v = 0; v < numNodes; v++)
+        {
+            remaining[v] = v;
+        }
+        pool.invoke(new PriorityTask(remaining, 0, numNodes));
+
+        final int[] touched = new int[numNodes];
+        int nextRank = 0;
+        for (int currentRound = 1; remaining.length > 0; currentRound++)
+        {
+            pool.invoke(new SelectTask(remaining, currentRound, 0, remaining.length));
+            IntList selected = new IntList();
+            IntList rest = new IntList(remaining.length);
+            for (int v : remaining)
+            {
+                if (round[v] == currentRound)
+                {
+                    selected.add(v);
+                }
+                else
+                {
+                    rest.add(v);
+                }
+            }
+            final int[] contracted = selected.toArray();
+            final Shortcuts[] shortcuts = new Shortcuts[contracted.length];
+            pool.invoke(new ContractTask(contracted, currentRound, shortcuts, 0,
+                    contracted.length));
+
+            IntList neighbours = new IntList();
+            for (int v : contracted)
+            {
+                rank[v] = nextRank++;
+                up[v] = out[v];
+                down[v] = in[v];
+                for (int i = 0; i < out[v].size; i++)
+                {
+                    final int x = out[v].nodes[i];
+                    in[x].remove(v);
+                    contractedNeighbours[x]++;
+                    if (touched[x] != currentRound)
+                    {
+                        touched[x] = currentRound;
+                        neighbours.add(x);
+                    }
+                }
+                for (int i = 0; i < in[v].size; i++)
+                {
+                    final int u = in[v].nodes[i];
+                    out[u].remove(v);
+                    contractedNeighbours[u]++;
+                    if (touched[u] != currentRound)
+                    {
+                        touched[u] = currentRound;
+                        neighbours.add(u);
+                    }
+                }
+                out[v] = null;
+                in[v] = null;
+            }
+            for (int i = 0; i < contracted.length; i++)
+            {
+                final Shortcuts added = shortcuts[i];
+                for (int j = 0; j < added.size; j++)
+                {
+                    out[added.from[j]].addOrLower(added.to[j], added.weights[j], contracted[i]);
+                    in[added.to[j]].addOrLower(added.from[j], added.weights[j], contracted[i]);
+                }
+            }
+            final int[] update = neighbours.toArray();
+            pool.invoke(new PriorityTask(update, 0, update.length));
+            remaining = rest.toArray();
+        }
+        return rank;
+    }
+
+    /**
+     * Finds the shortcuts contracting v needs, with witness searches that
+     * avoid v and every vertex selected in excludeRound
+     *
+     * @param shortcuts receives the shortcuts, may be null to only count
+     * @return number of shortcuts
+     */
+    private int findShortcuts(int v, int excludeRound, Shortcuts shortcuts)
+    {
+        final EdgeList ins = in[v];
+        final EdgeList outs = out[v];
+        if (ins.size == 0 || outs.size == 0)
+        {
+            return 0;
+        }
+        double maxOut = 0.0;
+        for (int j = 0; j < outs.size; j++)
+        {
+            maxOut = Math.max(maxOut, outs.weights[j]);
+        }
+        final Scratch scratch = Scratch.get();
+        int count = 0;
+        for (int i = 0; i < ins.size; i++)
+        {
+            final int u = ins.nodes[i];
+            final SearchSpace space = scratch.forward(numNodes);
+            witnessSearch(u, v, ins.weights[i] + maxOut, excludeRound, space,
+                    scratch.heap(numNodes));
+            for (int j = 0; j < outs.size; j++)
+            {
+                final int x = outs.nodes[j];
+                final double via = ins.weights[i] + outs.weights[j];
+                if (x != u && space.distance(x) > via)
+                {
+                    count++;
+                    if (shortcuts != null)
+                    {
+                        shortcuts.add(u, x, via);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Dijkstra from u that skips v, stopping past limit or SETTLE_LIMIT
+     * settled vertices
+     */
+    private void witnessSearch(int u, int v, double limit, int excludeRound,
+            SearchSpace space, IndexedMinHeap priorityQ)
+    {
+        space.label(u, 0.0, -1);
+        priorityQ.insert(u, 0.0);
+        int settled = 0;
+        while (!priorityQ.isEmpty())
+        {
+            final int currentNode = priorityQ.poll();
+            final double currentCost = space.distance(currentNode);
+            if (currentCost > limit || ++settled > SETTLE_LIMIT)
+            {
+                break;
+            }
+            final EdgeList edges = out[currentNode];
+            for (int i = 0; i < edges.size; i++)
+            {
+                final int adjacentNode = edges.nodes[i];
+                if (adjacentNode == v || round[adjacentNode] == excludeRound)
+                {
+                    continue;
+                }
+                final double totalCost = currentCost + edges.weights[i];
+                if (totalCost < space.distance(adjacentNode))
+                {
+                    space.label(adjacentNode, totalCost, currentNode);
+                    priorityQ.offer(adjacentNode, totalCost);
+                }
+            }
+        }
+        priorityQ.clear();
+    }
+
+    private boolean isLocalMinimum(int v)
+    {
+        return isBelow(v, out[v]) && isBelow(v, in[v]);
+    }
+
+    private boolean isBelow(int v, EdgeList edges)
+    {
+        for (int i = 0; i < edges.size; i++)
+        {
+            final int w = edges.nodes[i];
+            if (priority[w] < priority[v] || (priority[w] == priority[v] && w < v))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Recomputes the priorities of nodes[from, to)
+     */
+    private final class PriorityTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] nodes;
+        private final int from;
+        private final int to;
+
+        PriorityTask(int[] nodes, int from, int to)
+        {
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new PriorityTask(nodes, from, mid), new PriorityTask(
+                        nodes, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++)
+            {
+                final int v = nodes[i];
+                priority[v] = findShortcuts(v, NO_ROUND, null)
+                        - in[v].size - out[v].size + contractedNeighbours[v];
+            }
+        }
+    }
+
+    /**
+     * Marks the local minima among nodes[from, to) as selected in round
+     */
+    private final class SelectTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] nodes;
+        private final int currentRound;
+        private final int from;
+        private final int to;
+
+        SelectTask(int[] nodes, int currentRound, int from, int to)
+        {
+            this.nodes = nodes;
+            this.currentRound = currentRound;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > GRAIN * 16)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new SelectTask(nodes, currentRound, from, mid),
+                        new SelectTask(nodes, currentRound, mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++)
+            {
+                if (isLocalMinimum(nodes[i]))
+                {
+                    round[nodes[i]] = currentRound;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the shortcuts of the selected nodes[from, to)
+     */
+    private final class ContractTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] nodes;
+        private final int currentRound;
+        private final Shortcuts[] shortcuts;
+        private final int from;
+        private final int to;
+
+        ContractTask(int[] nodes, int currentRound, Shortcuts[] shortcuts,
+                int from, int to)
+        {
+            this.nodes = nodes;
+            this.currentRound = currentRound;
+            this.shortcuts = shortcuts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new ContractTask(nodes, currentRound, shortcuts, from,
+                        mid), new ContractTask(nodes, currentRound, shortcuts,
+                        mid, to));
+                return;
+            }
+            for (int i = from; i < to; i++)
+            {
+                shortcuts[i] = new Shortcuts();
+                findShortcuts(nodes[i], currentRound, shortcuts[i]);
+            }
+        }
+    }
+
+    /**
+     * Edges of one vertex: the vertex at the other end, the weight and the
+     * contracted vertex a shortcut skips, -1 for an edge of the graph
+     */
+    static final class EdgeList {
+        int[] nodes = new int[4];
+        double[] weights = new double[4];
+        int[] middles = new int[4];
+        int size;
+
+        void addOrLower(int node, double weight, int middle)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (nodes[i] == node)
+                {
+                    if (weight < weights[i])
+                    {
+                        weights[i] = weight;
+                        middles[i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (size == nodes.length)
+            {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+            }
+            nodes[size] = node;
+            weights[size] = weight;
+            middles[size] = middle;
+            size++;
+        }
+
+        void remove(int node)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (nodes[i] == node)
+                {
+                    size--;
+                    nodes[i] = nodes[size];
+                    weights[i] = weights[size];
+                    middles[i] = middles[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Shortcuts {
+        int[] from = new int[4];
+        int[] to = new int[4];
+        double[] weights = new double[4];
+        int size;
+
+        void add(int u, int x, double weight)
+        {
+            if (size == from.length)
+            {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            from[size] = u;
+            to[size] = x;
+            weights[size] = weight;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable primitive arrays of (source, target, weight) edges that are
+ * counting sorted by source into the offsets, targets and weights of a
+ * {@link CompactGraph} in O(V + E), without an object per edge. Edges of
+ * one source keep the order they were added in.
+ */
+final class CsrBuilder {
+    private int[] sources;
+    private int[] targets;
+    private double[] weights;
+    private int size;
+
+    CsrBuilder(int capacity)
+    {
+        capacity = Math.max(capacity, 16);
+        sources = new int[capacity];
+        targets = new int[capacity];
+        weights = new double[capacity];
+    }
+
+    void add(int source, int target, double weight)
+    {
+        if (size == sources.length)
+        {
+            final int capacity = size + (size >> 1);
+            if (capacity < 0)
+            {
+                throw new IllegalStateException("too many edges");
+            }
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        sources[size] = source;
+        targets[size] = target;
+        weights[size] = weight;
+        size++;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return graph over vertices with the added edges
+     */
+    <V> CompactGraph<V> build(List<V> vertices)
+    {
+        final int[] sortedTargets = new int[size];
+        final double[] sortedWeights = new double[size];
+        final int[] offsets = sortBySource(vertices.size(), sortedTargets,
+                sortedWeights);
+        return new CompactGraph<V>(vertices, null, offsets, sortedTargets,
+                sortedWeights);
+    }
+
+    /**
+     * Lays the added edges out by source, leaving them as they were added
+     *
+     * @param numNodes vertices the sources are below
+     * @param sortedTargets receives size() targets
+     * @param sortedWeights receives size() weights
+     * @return offsets of the edges of every source
+     */
+    int[] sortBySource(int numNodes, int[] sortedTargets, double[] sortedWeights)
+    {
+        final int[] offsets = new int[numNodes + 1];
+        for (int i = 0; i < size; i++)
+        {
+            offsets[sources[i] + 1]++;
+        }
+        for (int v = 0; v < numNodes; v++)
+        {
+            offsets[v + 1] += offsets[v];
+        }
+        final int[] next = Arrays.copyOf(offsets, numNodes);
+        for (int i = 0; i < size; i++)
+        {
+            final int slot = next[sources[i]]++;
+            sortedTargets[slot] = targets[i];
+            sortedWeights[slot] = weights[i];
+        }
+        return offsets;
+    }
+}
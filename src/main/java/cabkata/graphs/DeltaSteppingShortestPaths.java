@@ -0,0 +1,355 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel single source shortest paths by delta-stepping (Meyer & Sanders).
+ *
+ * Tentative distances are grouped into buckets of width delta. All vertices
+ * of the lowest non empty bucket are relaxed in parallel on a fork-join pool,
+ * vertices that improve are filed into their new buckets, and a bucket is
+ * repeated until it stays empty. Small deltas behave like Dijkstra, large ones
+ * like Bellman-Ford; the default is the mean edge weight.
+ *
+ * Distances are updated with a compare and set on their raw bits, which
+ * order like the doubles themselves because weights may not be negative.
+ * Predecessors are derived from the final distances afterwards so the tree is
+ * consistent no matter how the relaxations raced.
+ *
+ * Instances hold no per run state and may be shared between threads.
+ */
+public final class DeltaSteppingShortestPaths {
+    private static final int VERTEX_GRAIN = 256;
+    private static final long UNREACHED = Double.doubleToRawLongBits(Double.MAX_VALUE);
+
+    private final ForkJoinPool pool;
+    private final double delta;
+
+    /**
+     * Runs on the common pool, which needs no shutting down, and picks delta
+     * per graph
+     */
+    public DeltaSteppingShortestPaths()
+    {
+        this(ForkJoinPool.commonPool(), 0);
+    }
+
+    /**
+     * @param pool
+     * @param delta bucket width, 0 to use the mean edge weight of each graph
+     */
+    public DeltaSteppingShortestPaths(ForkJoinPool pool, double delta)
+    {
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        if (delta < 0 || Double.isNaN(delta))
+        {
+            throw new IllegalArgumentException("delta may not be negative");
+        }
+        this.pool = pool;
+        this.delta = delta;
+    }
+
+    /**
+     * @param graph
+     * @param source
+     * @return shortest path tree rooted at source
+     * @throws IllegalArgumentException if an edge with a negative weight is
+     *             reachable from source
+     */
+    public <V> ShortestPaths<V> singleSourceShortestPath(CompactGraph<V> graph,
+            V source)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        if (source == null)
+        {
+            throw new IllegalArgumentException("source is null");
+        }
+        final int sourceIndex = graph.indexOf(source);
+        if (sourceIndex < 0)
+        {
+            throw new IllegalArgumentException("source value not found in graph");
+        }
+
+        final int numNodes = graph.getVertexCount();
+        final double width = delta > 0 ? delta : meanWeight(graph);
+        final AtomicLongArray distances = new AtomicLongArray(numNodes);
+        for (int i = 0; i < numNodes; i++)
+        {
+            distances.lazySet(i, UNREACHED);
+        }
+        distances.set(sourceIndex, Double.doubleToRawLongBits(0.0));
+
+        final TreeMap<Long, IntList> buckets = new TreeMap<Long, IntList>();
+        final int[] queuedInPhase = new int[numNodes];
+        IntList first = new IntList(1);
+        first.add(sourceIndex);
+        buckets.put(Long.valueOf(0), first);
+
+        int phase = 0;
+        while (!buckets.isEmpty())
+        {
+            final Map.Entry<Long, IntList> entry = buckets.pollFirstEntry();
+            final long bucket = entry.getKey().longValue();
+            final int[] frontier = entry.getValue().toArray();
+            final IntList improved = pool.invoke(new RelaxTask<V>(graph,
+                    distances, frontier, 0, frontier.length, bucket, width));
+
+            phase++;
+            for (int i = 0; i < improved.size(); i++)
+            {
+                final int v = improved.get(i);
+                if (queuedInPhase[v] != phase)
+                {
+                    queuedInPhase[v] = phase;
+                    final Long target = Long.valueOf(bucketOf(distance(distances, v), width));
+                    IntList list = buckets.get(target);
+                    if (list == null)
+                    {
+                        list = new IntList();
+                        buckets.put(target, list);
+                    }
+                    list.add(v);
+                }
+            }
+        }
+
+        final double[] weights = new double[numNodes];
+        for (int i = 0; i < numNodes; i++)
+        {
+            weights[i] = distance(distances, i);
+        }
+        final int[] predecessors = new int[numNodes];
+        Arrays.fill(predecessors, -1);
+        pool.invoke(new PredecessorTask<V>(graph, weights, predecessors,
+                sourceIndex, 0, numNodes));
+        linkZeroWeightTies(graph, weights, predecessors, sourceIndex);
+        return new ShortestPaths<V>(graph, sourceIndex, weights, predecessors,
+                null);
+    }
+
+    private static double meanWeight(CompactGraph<?> graph)
+    {
+        final int numEdges = graph.getEdgeCount();
+        double sum = 0;
+        for (int edge = 0; edge < numEdges; edge++)
+        {
+            sum += graph.getWeight(edge);
+        }
+        final double mean = numEdges == 0 ? 1.0 : sum / numEdges;
+        return mean > 0 ? mean : 1.0;
+    }
+
+    private static long bucketOf(double distance, double width)
+    {
+        return (long) (distance / width);
+    }
+
+    private static double distance(AtomicLongArray distances, int v)
+    {
+        return Double.longBitsToDouble(distances.get(v));
+    }
+
+    /**
+     * Relaxes every out edge of the frontier vertices still in bucket,
+     * returning the targets whose distance dropped
+     */
+    private static final class RelaxTask<V> extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<V> graph;
+        private final AtomicLongArray distances;
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+        private final long bucket;
+        private final double width;
+
+        RelaxTask(CompactGraph<V> graph, AtomicLongArray distances,
+                int[] frontier, int from, int to, long bucket, double width)
+        {
+            this.graph = graph;
+            this.distances = distances;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.bucket = bucket;
+            this.width = width;
+        }
+
+        @Override
+        protected IntList compute()
+        {
+            if (to - from > VERTEX_GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                RelaxTask<V> left = new RelaxTask<V>(graph, distances,
+                        frontier, from, mid, bucket, width);
+                left.fork();
+                IntList improved = new RelaxTask<V>(graph, distances,
+                        frontier, mid, to, bucket, width).compute();
+                improved.addAll(left.join());
+                return improved;
+            }
+
+            IntList improved = new IntList();
+            for (int i = from; i < to; i++)
+            {
+                final int node = frontier[i];
+                final double nodeDistance = distance(distances, node);
+                // settled in an earlier bucket since it was queued here
+                if (bucketOf(nodeDistance, width) != bucket)
+                {
+                    continue;
+                }
+                for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+                {
+                    final double weight = graph.getWeight(edge);
+                    if (weight < 0)
+                    {
+                        throw new IllegalArgumentException(
+                                "delta-stepping requires non negative edge weights");
+                    }
+                    final int adjacent = graph.getTarget(edge);
+                    if (relax(adjacent, nodeDistance + weight))
+                    {
+                        improved.add(adjacent);
+                    }
+                }
+            }
+            return improved;
+        }
+
+        private boolean relax(int node, double candidate)
+        {
+            final long candidateBits = Double.doubleToRawLongBits(candidate);
+            long current = distances.get(node);
+            while (candidateBits < current)
+            {
+                if (distances.compareAndSet(node, current, candidateBits))
+                {
+                    return true;
+                }
+                current = distances.get(node);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Points every reached vertex at a neighbour that achieves its distance
+     * with a strictly shorter path, which cannot form a cycle
+     */
+    private static final class PredecessorTask<V> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<V> graph;
+        private final double[] weights;
+        private final int[] predecessors;
+        private final int source;
+        private final int from;
+        private final int to;
+
+        PredecessorTask(CompactGraph<V> graph, double[] weights,
+                int[] predecessors, int source, int from, int to)
+        {
+            this.graph = graph;
+            this.weights = weights;
+            this.predecessors = predecessors;
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > VERTEX_GRAIN * 16)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new PredecessorTask<V>(graph, weights, predecessors,
+                        source, from, mid), new PredecessorTask<V>(graph,
+                        weights, predecessors, source, mid, to));
+                return;
+            }
+
+            for (int node = from; node < to; node++)
+            {
+                final double nodeDistance = weights[node];
+                if (nodeDistance == Double.MAX_VALUE)
+                {
+                    continue;
+                }
+                for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+                {
+                    final int adjacent = graph.getTarget(edge);
+                    if (adjacent != source && nodeDistance < weights[adjacent]
+                            && nodeDistance + graph.getWeight(edge) == weights[adjacent])
+                    {
+                        // any tight edge will do, racing writers are all valid
+                        predecessors[adjacent] = node;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Vertices only reachable over zero weight edges from vertices at the same
+     * distance have no strictly shorter neighbour, hang them off the tree by
+     * walking the tight zero weight edges from vertices that are attached.
+     */
+    private static void linkZeroWeightTies(CompactGraph<?> graph,
+            double[] weights, int[] predecessors, int source)
+    {
+        final int numNodes = graph.getVertexCount();
+        final int[] q = new int[numNodes];
+        int head = 0;
+        int tail = 0;
+        boolean unlinked = false;
+        for (int node = 0; node < numNodes; node++)
+        {
+            if (weights[node] == Double.MAX_VALUE)
+            {
+                continue;
+            }
+            if (node == source || predecessors[node] >= 0)
+            {
+                q[tail++] = node;
+            }
+            else
+            {
+                unlinked = true;
+            }
+        }
+        if (!unlinked)
+        {
+            return;
+        }
+
+        while (head < tail)
+        {
+            final int node = q[head++];
+            for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+            {
+                final int adjacent = graph.getTarget(edge);
+                if (adjacent != source && predecessors[adjacent] < 0
+                        && graph.getWeight(edge) == 0
+                        && weights[adjacent] == weights[node])
+                {
+                    predecessors[adjacent] = node;
+                    q[tail++] = adjacent;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package cabkata.graphs;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable result of a depth first search of a whole {@link CompactGraph}:
+ * discovery and finish times, the forest of search trees and the vertices in
+ * reverse finishing order, which is a topological order when the graph is
+ * acyclic. Safe to share between threads.
+ *
+ * @param <V>
+ */
+public final class DepthFirstForest<V> {
+    private final CompactGraph<V> graph;
+    final int[] startTime;
+    final int[] finishTime;
+    final int[] predecessors;
+    private final int[] order;
+
+    DepthFirstForest(CompactGraph<V> graph, int[] startTime, int[] finishTime,
+            int[] predecessors, int[] order)
+    {
+        this.graph = graph;
+        this.startTime = startTime;
+        this.finishTime = finishTime;
+        this.predecessors = predecessors;
+        this.order = order;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @param v
+     * @return time v was discovered, 1 based
+     */
+    public int getStart(V v)
+    {
+        return startTime[indexOf(v)];
+    }
+
+    /**
+     * @param v
+     * @return time v was finished
+     */
+    public int getFinish(V v)
+    {
+        return finishTime[indexOf(v)];
+    }
+
+    /**
+     * @param v
+     * @return parent of v in its search tree, null for tree roots
+     */
+    public V getPredecessor(V v)
+    {
+        final int predecessor = predecessors[indexOf(v)];
+        return predecessor < 0 ? null : graph.getVertex(predecessor);
+    }
+
+    /**
+     * @return vertices by decreasing finish time, a read only view
+     */
+    public List<V> getTopologicalOrder()
+    {
+        return new TopologicalOrder();
+    }
+
+    private int indexOf(V v)
+    {
+        final int index = graph.indexOf(v);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return index;
+    }
+
+    private final class TopologicalOrder extends AbstractList<V> implements
+            RandomAccess {
+        @Override
+        public V get(int index)
+        {
+            return graph.getVertex(order[index]);
+        }
+
+        @Override
+        public int size()
+        {
+            return order.length;
+        }
+    }
+}
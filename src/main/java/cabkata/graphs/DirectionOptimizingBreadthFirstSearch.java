@@ -0,0 +1,290 @@
+package cabkata.graphs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel direction optimizing breadth first search (Beamer, Asanovic &
+ * Patterson).
+ *
+ * Small frontiers are expanded top down: every frontier vertex claims its
+ * unvisited neighbours by setting their bit in the visited bitmap with a
+ * compare and set. Once the edges leaving the frontier outnumber the edges
+ * left to explore by ALPHA the search turns bottom up: every unvisited vertex
+ * scans its in edges, {@link CompactGraph#reverse()}, for a parent in the
+ * frontier bitmap and stops at the first one, which skips most edges on low
+ * diameter graphs. When the frontier shrinks below 1/BETA of the vertices it
+ * turns top down again. Bottom up tasks own whole 64 vertex words of the
+ * bitmaps so they never contend.
+ */
+final class DirectionOptimizingBreadthFirstSearch {
+    static final int ALPHA = 15;
+    static final int BETA = 18;
+    private static final int VERTEX_GRAIN = 512;
+    private static final int WORD_GRAIN = 64;
+
+    /**
+     * Fills distances and predecessors for every vertex reached from source,
+     * entries of unreached vertices are left untouched
+     */
+    static void search(CompactGraph<?> graph, int source, ForkJoinPool pool,
+            int[] distances, int[] predecessors)
+    {
+        final int numNodes = graph.getVertexCount();
+        final int words = (numNodes + 63) >>> 6;
+        final AtomicLongArray visited = new AtomicLongArray(words);
+        long[] frontierBits = null;
+
+        visited.set(source >>> 6, 1L << source);
+        distances[source] = 0;
+        int[] frontier = { source };
+        int frontierSize = 1;
+        long frontierEdges = graph.getOutDegree(source);
+        long unexploredEdges = graph.getEdgeCount();
+        int depth = 0;
+        boolean bottomUp = false;
+
+        while (frontierSize > 0)
+        {
+            depth++;
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA)
+            {
+                bottomUp = true;
+                frontierBits = toBits(frontier, words);
+            }
+            else if (bottomUp && frontierSize < numNodes / BETA)
+            {
+                bottomUp = false;
+                frontier = toVertices(frontierBits, frontierSize);
+            }
+
+            if (bottomUp)
+            {
+                final long[] nextBits = new long[words];
+                frontierSize = pool.invoke(new BottomUpTask(graph.reverse(),
+                        visited, frontierBits, nextBits, distances,
+                        predecessors, depth, 0, words)).intValue();
+                frontierBits = nextBits;
+                unexploredEdges -= frontierEdges;
+                frontierEdges = 0;
+                for (int word = 0; word < words; word++)
+                {
+                    long bits = nextBits[word];
+                    while (bits != 0)
+                    {
+                        final int v = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        frontierEdges += graph.getOutDegree(v);
+                        bits &= bits - 1;
+                    }
+                }
+            }
+            else
+            {
+                final IntList next = pool.invoke(new TopDownTask(graph,
+                        visited, frontier, distances, predecessors, depth, 0,
+                        frontier.length));
+                frontier = next.toArray();
+                frontierSize = frontier.length;
+                unexploredEdges -= frontierEdges;
+                frontierEdges = 0;
+                for (int v : frontier)
+                {
+                    frontierEdges += graph.getOutDegree(v);
+                }
+            }
+        }
+    }
+
+    private static long[] toBits(int[] vertices, int words)
+    {
+        final long[] bits = new long[words];
+        for (int v : vertices)
+        {
+            bits[v >>> 6] |= 1L << v;
+        }
+        return bits;
+    }
+
+    private static int[] toVertices(long[] bits, int count)
+    {
+        final int[] vertices = new int[count];
+        int i = 0;
+        for (int word = 0; word < bits.length; word++)
+        {
+            long w = bits[word];
+            while (w != 0)
+            {
+                vertices[i++] = (word << 6) + Long.numberOfTrailingZeros(w);
+                w &= w - 1;
+            }
+        }
+        return vertices;
+    }
+
+    /**
+     * Sets the bit of v, returning false if another task set it first
+     */
+    private static boolean claim(AtomicLongArray visited, int v)
+    {
+        final int word = v >>> 6;
+        final long mask = 1L << v;
+        long bits = visited.get(word);
+        while ((bits & mask) == 0)
+        {
+            if (visited.compareAndSet(word, bits, bits | mask))
+            {
+                return true;
+            }
+            bits = visited.get(word);
+        }
+        return false;
+    }
+
+    private static final class TopDownTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> graph;
+        private final AtomicLongArray visited;
+        private final int[] frontier;
+        private final int[] distances;
+        private final int[] predecessors;
+        private final int depth;
+        private final int from;
+        private final int to;
+
+        TopDownTask(CompactGraph<?> graph, AtomicLongArray visited,
+                int[] frontier, int[] distances, int[] predecessors, int depth,
+                int from, int to)
+        {
+            this.graph = graph;
+            this.visited = visited;
+            this.frontier = frontier;
+            this.distances = distances;
+            this.predecessors = predecessors;
+            this.depth = depth;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntList compute()
+        {
+            if (to - from > VERTEX_GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                TopDownTask left = new TopDownTask(graph, visited, frontier,
+                        distances, predecessors, depth, from, mid);
+                left.fork();
+                IntList right = new TopDownTask(graph, visited, frontier,
+                        distances, predecessors, depth, mid, to).compute();
+                IntList next = left.join();
+                next.addAll(right);
+                return next;
+            }
+
+            IntList next = new IntList();
+            for (int i = from; i < to; i++)
+            {
+                final int node = frontier[i];
+                for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+                {
+                    final int adjacent = graph.getTarget(edge);
+                    if (claim(visited, adjacent))
+                    {
+                        distances[adjacent] = depth;
+                        predecessors[adjacent] = node;
+                        next.add(adjacent);
+                    }
+                }
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Looks for a frontier parent of every unvisited vertex in the words
+     * [fromWord, toWord), returning how many were found
+     */
+    private static final class BottomUpTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> reverse;
+        private final AtomicLongArray visited;
+        private final long[] frontierBits;
+        private final long[] nextBits;
+        private final int[] distances;
+        private final int[] predecessors;
+        private final int depth;
+        private final int fromWord;
+        private final int toWord;
+
+        BottomUpTask(CompactGraph<?> reverse, AtomicLongArray visited,
+                long[] frontierBits, long[] nextBits, int[] distances,
+                int[] predecessors, int depth, int fromWord, int toWord)
+        {
+            this.reverse = reverse;
+            this.visited = visited;
+            this.frontierBits = frontierBits;
+            this.nextBits = nextBits;
+            this.distances = distances;
+            this.predecessors = predecessors;
+            this.depth = depth;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            if (toWord - fromWord > WORD_GRAIN)
+            {
+                final int mid = (fromWord + toWord) >>> 1;
+                BottomUpTask left = new BottomUpTask(reverse, visited,
+                        frontierBits, nextBits, distances, predecessors, depth,
+                        fromWord, mid);
+                left.fork();
+                int right = new BottomUpTask(reverse, visited, frontierBits,
+                        nextBits, distances, predecessors, depth, mid, toWord)
+                        .compute().intValue();
+                return Integer.valueOf(left.join().intValue() + right);
+            }
+
+            final int numNodes = reverse.getVertexCount();
+            int found = 0;
+            for (int word = fromWord; word < toWord; word++)
+            {
+                final long seen = visited.get(word);
+                long next = 0;
+                final int last = Math.min(numNodes, (word + 1) << 6);
+                for (int v = word << 6; v < last; v++)
+                {
+                    if ((seen & (1L << v)) != 0)
+                    {
+                        continue;
+                    }
+                    for (int edge = reverse.edgeBegin(v), end = reverse.edgeEnd(v); edge < end; edge++)
+                    {
+                        final int parent = reverse.getTarget(edge);
+                        if ((frontierBits[parent >>> 6] & (1L << parent)) != 0)
+                        {
+                            distances[v] = depth;
+                            predecessors[v] = parent;
+                            next |= 1L << v;
+                            found++;
+                            break;
+                        }
+                    }
+                }
+                if (next != 0)
+                {
+                    nextBits[word] = next;
+                    visited.set(word, seen | next);
+                }
+            }
+            return Integer.valueOf(found);
+        }
+    }
+
+    private DirectionOptimizingBreadthFirstSearch()
+    {
+    }
+}
@@ -0,0 +1,637 @@
+package cabkata.graphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import cabkata.graphs.Graph.EdgeType;
+
+/**
+ * Loads an edge list file straight into a {@link CompactGraph}.
+ *
+ * The file has the format read by {@link Graph#graphFromStringEdges}, one
+ * {fromValue,toValue,OptionalWeight} per line, UTF-8 encoded; blank lines are
+ * skipped and an empty vertex name is an error. It is memory mapped and parsed byte by byte: vertex names are
+ * interned from the raw bytes so a String is only created the first time a
+ * vertex is seen, and weights are parsed without going through a String.
+ *
+ * With a pool the file is cut into chunks at line boundaries which are
+ * parsed in parallel, each into its own primitive edge arrays. The chunks are
+ * then stitched into CSR form by a counting sort on the source vertex.
+ * Vertices are numbered in order of first appearance and each vertex keeps
+ * its edges in file order; as in {@link Graph} a repeated edge keeps the
+ * weight it was first seen with.
+ */
+public final class EdgeListLoader {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    // the most one mapping may hold; files are cut at half of it, so that
+    // only a line longer than that can push a chunk past it
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final long CHUNK_SIZE = MAX_CHUNK_SIZE / 2;
+    private static final int BOUNDARY_SCAN_SIZE = 4096;
+
+    private final EdgeType edgeType;
+    private final ForkJoinPool pool;
+
+    /**
+     * Loader that parses on the calling thread
+     *
+     * @param edgeType
+     */
+    public EdgeListLoader(EdgeType edgeType)
+    {
+        this(edgeType, null);
+    }
+
+    /**
+     * @param edgeType
+     * @param pool chunks are parsed in parallel on pool, null to parse on the
+     *            calling thread
+     */
+    public EdgeListLoader(EdgeType edgeType, ForkJoinPool pool)
+    {
+        if (edgeType == null)
+        {
+            throw new IllegalArgumentException("edgeType is null");
+        }
+        this.edgeType = edgeType;
+        this.pool = pool;
+    }
+
+    public CompactGraph<String> load(File file) throws IOException
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("file is null");
+        }
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = randomAccessFile.getChannel();
+            long[] boundaries = chunkBoundaries(channel);
+            final ChunkParser[] parsers = new ChunkParser[boundaries.length - 1];
+            for (int i = 0; i < parsers.length; i++)
+            {
+                MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, boundaries[i],
+                        boundaries[i + 1] - boundaries[i]);
+                parsers[i] = new ChunkParser(buffer);
+            }
+
+            if (pool != null && parsers.length > 1)
+            {
+                pool.invoke(new ParseTask(parsers, 0, parsers.length));
+            }
+            else
+            {
+                for (ChunkParser parser : parsers)
+                {
+                    parser.parse();
+                }
+            }
+            return link(parsers);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Cuts the file into at least one chunk per pool worker, and chunks small
+     * enough to be mapped, each starting at the beginning of a line
+     */
+    private long[] chunkBoundaries(FileChannel channel) throws IOException
+    {
+        final long size = channel.size();
+        int chunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        if (pool != null)
+        {
+            chunks = Math.max(chunks, pool.getParallelism());
+        }
+        chunks = (int) Math.max(1, Math.min(chunks, size / BOUNDARY_SCAN_SIZE));
+
+        long[] boundaries = new long[chunks + 1];
+        int count = 1;
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        for (int i = 1; i < chunks; i++)
+        {
+            long boundary = nextLineStart(channel, size * i / chunks, scan);
+            if (boundary > boundaries[count - 1] && boundary < size)
+            {
+                boundaries[count++] = boundary;
+            }
+        }
+        boundaries[count++] = size;
+        long[] result = Arrays.copyOf(boundaries, count);
+        for (int i = 1; i < result.length; i++)
+        {
+            if (result[i] - result[i - 1] > MAX_CHUNK_SIZE)
+            {
+                throw new IOException("chunk of " + (result[i] - result[i - 1])
+                        + " bytes over the limit of " + MAX_CHUNK_SIZE
+                        + ", a line is longer than " + CHUNK_SIZE + " bytes");
+            }
+        }
+        return result;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position,
+            ByteBuffer scan) throws IOException
+    {
+        long offset = position - 1;
+        while (true)
+        {
+            scan.clear();
+            int read = channel.read(scan, offset);
+            if (read <= 0)
+            {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++)
+            {
+                if (scan.get(i) == '\n')
+                {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Numbers the vertices of all chunks globally in order of first
+     * appearance and lays the edges out by source vertex
+     */
+    private CompactGraph<String> link(ChunkParser[] parsers)
+    {
+        final Map<String, Integer> indices = new HashMap<String, Integer>();
+        final List<String> vertices = new ArrayList<String>();
+        final int[][] globalIds = new int[parsers.length][];
+        long totalEdges = 0;
+        for (int c = 0; c < parsers.length; c++)
+        {
+            ChunkParser parser = parsers[c];
+            globalIds[c] = new int[parser.vertexCount];
+            for (int local = 0; local < parser.vertexCount; local++)
+            {
+                String value = parser.vertexValue(local);
+                Integer index = indices.get(value);
+                if (index == null)
+                {
+                    index = Integer.valueOf(vertices.size());
+                    indices.put(value, index);
+                    vertices.add(value);
+                }
+                globalIds[c][local] = index.intValue();
+            }
+            totalEdges += parser.edgeCount;
+        }
+        if (edgeType == EdgeType.UNDIRECTED)
+        {
+            totalEdges *= 2;
+        }
+        if (totalEdges > Integer.MAX_VALUE - 8)
+        {
+            throw new IllegalArgumentException("too many edges for a CompactGraph: " + totalEdges);
+        }
+
+        final int numNodes = vertices.size();
+        final int[] offsets = new int[numNodes + 1];
+        for (int c = 0; c < parsers.length; c++)
+        {
+            final ChunkParser parser = parsers[c];
+            final int[] ids = globalIds[c];
+            for (int e = 0; e < parser.edgeCount; e++)
+            {
+                offsets[ids[parser.from[e]] + 1]++;
+                if (edgeType == EdgeType.UNDIRECTED)
+                {
+                    offsets[ids[parser.to[e]] + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < numNodes; v++)
+        {
+            offsets[v + 1] += offsets[v];
+        }
+
+        final int[] next = Arrays.copyOf(offsets, numNodes);
+        final int[] targets = new int[(int) totalEdges];
+        final double[] weights = new double[(int) totalEdges];
+        for (int c = 0; c < parsers.length; c++)
+        {
+            final ChunkParser parser = parsers[c];
+            final int[] ids = globalIds[c];
+            for (int e = 0; e < parser.edgeCount; e++)
+            {
+                final int from = ids[parser.from[e]];
+                final int to = ids[parser.to[e]];
+                int slot = next[from]++;
+                targets[slot] = to;
+                weights[slot] = parser.weights[e];
+                if (edgeType == EdgeType.UNDIRECTED)
+                {
+                    slot = next[to]++;
+                    targets[slot] = from;
+                    weights[slot] = parser.weights[e];
+                }
+            }
+        }
+
+        return removeDuplicateEdges(vertices, indices, offsets, targets, weights);
+    }
+
+    /**
+     * Keeps only the first edge from each vertex to each target, compacting
+     * the arrays in place
+     */
+    private static CompactGraph<String> removeDuplicateEdges(
+            List<String> vertices, Map<String, Integer> indices, int[] offsets,
+            int[] targets, double[] weights)
+    {
+        final int numNodes = vertices.size();
+        final int[] lastSource = new int[numNodes];
+        Arrays.fill(lastSource, -1);
+        int write = 0;
+        int begin = 0;
+        for (int v = 0; v < numNodes; v++)
+        {
+            final int end = offsets[v + 1];
+            offsets[v] = write;
+            for (int e = begin; e < end; e++)
+            {
+                final int target = targets[e];
+                if (lastSource[target] != v)
+                {
+                    lastSource[target] = v;
+                    targets[write] = target;
+                    weights[write] = weights[e];
+                    write++;
+                }
+            }
+            begin = end;
+        }
+        offsets[numNodes] = write;
+        return new CompactGraph<String>(vertices, indices, offsets,
+                write == targets.length ? targets : Arrays.copyOf(targets, write),
+                write == weights.length ? weights : Arrays.copyOf(weights, write));
+    }
+
+    private static final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final ChunkParser[] parsers;
+        private final int from;
+        private final int to;
+
+        ParseTask(ChunkParser[] parsers, int from, int to)
+        {
+            this.parsers = parsers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1)
+            {
+                parsers[from].parse();
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new ParseTask(parsers, from, mid), new ParseTask(parsers, mid, to));
+        }
+    }
+
+    /**
+     * Parses one line aligned chunk into chunk local vertex ids and primitive
+     * edge arrays. Vertex names are interned in an open addressing table over
+     * their bytes, which are copied once into a byte pool.
+     */
+    private static final class ChunkParser {
+        private final ByteBuffer buffer;
+        private final int[] fieldStarts = new int[3];
+        private final int[] fieldEnds = new int[3];
+
+        private int vertexCount;
+        private int[] slots = new int[1024];
+        private int[] vertexHashes = new int[512];
+        private int[] vertexOffsets = new int[513];
+        private byte[] pool = new byte[4096];
+
+        private int edgeCount;
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private double[] weights = new double[1024];
+
+        ChunkParser(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        void parse()
+        {
+            final ByteBuffer buf = buffer;
+            final int limit = buf.limit();
+            int pos = 0;
+            while (pos < limit)
+            {
+                final int lineStart = pos;
+                while (pos < limit && buf.get(pos) != '\n')
+                {
+                    pos++;
+                }
+                int lineEnd = pos;
+                if (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r')
+                {
+                    lineEnd--;
+                }
+                pos++;
+                parseLine(buf, lineStart, lineEnd);
+            }
+        }
+
+        private void parseLine(ByteBuffer buf, int start, int end)
+        {
+            if (start == end)
+            {
+                return;
+            }
+
+            int fields = 0;
+            int fieldStart = start;
+            for (int i = start; i <= end; i++)
+            {
+                if (i == end || buf.get(i) == ',')
+                {
+                    if (fields == 3)
+                    {
+                        // more than three fields is only legal if they are empty
+                        if (i > fieldStart)
+                        {
+                            throw formatError();
+                        }
+                    }
+                    else
+                    {
+                        fieldStarts[fields] = fieldStart;
+                        fieldEnds[fields] = i;
+                        fields++;
+                    }
+                    fieldStart = i + 1;
+                }
+            }
+            // like String.split, trailing empty fields do not count
+            while (fields > 1 && fieldStarts[fields - 1] == fieldEnds[fields - 1])
+            {
+                fields--;
+            }
+
+            // String.split drops an empty line like ",", and Graph would
+            // take an empty name for a vertex
+            for (int field = 0; field < Math.min(fields, 2); field++)
+            {
+                if (fieldStarts[field] == fieldEnds[field])
+                {
+                    throw formatError();
+                }
+            }
+            final int fromId = intern(buf, fieldStarts[0], fieldEnds[0]);
+            if (fields == 1)
+            {
+                return;
+            }
+            final int toId = intern(buf, fieldStarts[1], fieldEnds[1]);
+            final double weight = fields == 3 ? parseWeight(buf,
+                    fieldStarts[2], fieldEnds[2]) : 0.0;
+            addEdge(fromId, toId, weight);
+        }
+
+        private void addEdge(int fromId, int toId, double weight)
+        {
+            if (edgeCount == from.length)
+            {
+                from = Arrays.copyOf(from, edgeCount * 2);
+                to = Arrays.copyOf(to, edgeCount * 2);
+                weights = Arrays.copyOf(weights, edgeCount * 2);
+            }
+            from[edgeCount] = fromId;
+            to[edgeCount] = toId;
+            weights[edgeCount] = weight;
+            edgeCount++;
+        }
+
+        private int intern(ByteBuffer buf, int start, int end)
+        {
+            int hash = 1;
+            for (int i = start; i < end; i++)
+            {
+                hash = 31 * hash + buf.get(i);
+            }
+            hash ^= hash >>> 16;
+
+            final int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (true)
+            {
+                final int candidate = slots[slot] - 1;
+                if (candidate < 0)
+                {
+                    break;
+                }
+                if (vertexHashes[candidate] == hash
+                        && sameBytes(buf, start, end, candidate))
+                {
+                    return candidate;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            final int id = vertexCount++;
+            final int length = end - start;
+            if (id == vertexHashes.length)
+            {
+                vertexHashes = Arrays.copyOf(vertexHashes, id * 2);
+                vertexOffsets = Arrays.copyOf(vertexOffsets, id * 2 + 1);
+            }
+            final int poolOffset = vertexOffsets[id];
+            if (poolOffset + length > pool.length)
+            {
+                pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolOffset + length));
+            }
+            for (int i = 0; i < length; i++)
+            {
+                pool[poolOffset + i] = buf.get(start + i);
+            }
+            vertexOffsets[id + 1] = poolOffset + length;
+            vertexHashes[id] = hash;
+            slots[slot] = id + 1;
+            if (vertexCount * 2 > slots.length)
+            {
+                rehash();
+            }
+            return id;
+        }
+
+        private boolean sameBytes(ByteBuffer buf, int start, int end, int id)
+        {
+            int offset = vertexOffsets[id];
+            if (vertexOffsets[id + 1] - offset != end - start)
+            {
+                return false;
+            }
+            for (int i = start; i < end; i++)
+            {
+                if (pool[offset++] != buf.get(i))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash()
+        {
+            slots = new int[slots.length * 2];
+            final int mask = slots.length - 1;
+            for (int id = 0; id < vertexCount; id++)
+            {
+                int slot = vertexHashes[id] & mask;
+                while (slots[slot] != 0)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+
+        String vertexValue(int id)
+        {
+            return new String(pool, vertexOffsets[id], vertexOffsets[id + 1]
+                    - vertexOffsets[id], UTF_8);
+        }
+    }
+
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+            1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+            1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * Parses [sign]digits[.digits][(e|E)[sign]digits]. When the digits fit in
+     * a double exactly and the scale is an exact power of ten a single
+     * multiply or divide gives the correctly rounded value, anything else is
+     * handed to Double.parseDouble so results match Double.valueOf.
+     */
+    static double parseWeight(ByteBuffer buf, int start, int end)
+    {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf.get(i) == '-' || buf.get(i) == '+'))
+        {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean exact = true;
+        boolean seenDigit = false;
+        for (; i < end && isDigit(buf.get(i)); i++)
+        {
+            seenDigit = true;
+            exact &= accumulate(digits++, mantissa);
+            mantissa = mantissa * 10 + (buf.get(i) - '0');
+        }
+        if (i < end && buf.get(i) == '.')
+        {
+            for (i++; i < end && isDigit(buf.get(i)); i++)
+            {
+                seenDigit = true;
+                exact &= accumulate(digits++, mantissa);
+                mantissa = mantissa * 10 + (buf.get(i) - '0');
+                scale--;
+            }
+        }
+        if (seenDigit && i < end && (buf.get(i) == 'e' || buf.get(i) == 'E'))
+        {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (buf.get(i) == '-' || buf.get(i) == '+'))
+            {
+                negativeExponent = buf.get(i) == '-';
+                i++;
+            }
+            int exponent = 0;
+            boolean seenExponentDigit = false;
+            for (; i < end && isDigit(buf.get(i)); i++)
+            {
+                seenExponentDigit = true;
+                exponent = Math.min(exponent * 10 + (buf.get(i) - '0'), 100000);
+            }
+            if (!seenExponentDigit)
+            {
+                throw formatError();
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        if (!seenDigit || i != end)
+        {
+            return slowParse(buf, start, end);
+        }
+        if (!exact || mantissa > (1L << 53) || scale < -22 || scale > 22)
+        {
+            return slowParse(buf, start, end);
+        }
+        double value = mantissa;
+        value = scale < 0 ? value / POWERS_OF_TEN[-scale] : value * POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private static boolean accumulate(int digits, long mantissa)
+    {
+        return digits < 18 || mantissa == 0;
+    }
+
+    private static boolean isDigit(byte b)
+    {
+        return b >= '0' && b <= '9';
+    }
+
+    private static double slowParse(ByteBuffer buf, int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = buf.get(start + i);
+        }
+        try
+        {
+            return Double.parseDouble(new String(bytes, UTF_8));
+        }
+        catch (NumberFormatException e)
+        {
+            throw formatError();
+        }
+    }
+
+    private static IllegalArgumentException formatError()
+    {
+        return new IllegalArgumentException(
+                "Edges format: {fromValue,toValue,OptionalWeight}");
+    }
+}
@@ -1,19 +1,30 @@
 package cabkata.graphs;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
+ * Directed weighted graph; an undirected edge is a pair of edges in opposite
+ * directions. Graphs are built by {@link #graphFromStringEdges} or edited in
+ * place with {@link #addNode(Object)}, {@link #addEdge(Object, Object, double)}
+ * and {@link #removeEdge(Object, Object)}, which notify the registered
+ * {@link GraphListener}s and advance {@link #getVersion()}. Not thread safe.
  * 
  * @param <V>
  */
 public final class Graph<V> {
     private final Map<V, Node<V>> nodes = new HashMap<V, Node<V>>();
     private final Set<WeightedEdge<V>> edges = new HashSet<WeightedEdge<V>>();
+    private final List<GraphListener<V>> listeners = new ArrayList<GraphListener<V>>();
+    private long version;
+    // whether every node's incoming edges are indexed, see indexIncomingEdges
+    private boolean incomingIndexed;
 
     public static enum EdgeType
     {
@@ -36,6 +47,123 @@ public final class Graph<V> {
         return nodes.get(v);
     }
 
+    /**
+     * @param value
+     * @return the node of value, added if the graph did not have one
+     */
+    public Node<V> addNode(V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("value is null");
+        }
+        Node<V> node = nodes.get(value);
+        if (node == null)
+        {
+            node = new Node<V>(this, value);
+            nodes.put(value, node);
+            version++;
+            for (GraphListener<V> listener : listeners)
+            {
+                listener.nodeAdded(value);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Adds the directed edge from -> to, adding missing nodes first. An
+     * existing edge between the same nodes keeps its weight; remove it first
+     * to change the weight.
+     * 
+     * @param from
+     * @param to
+     * @param weight
+     * @return true if the edge was added
+     */
+    public boolean addEdge(V from, V to, double weight)
+    {
+        final Node<V> fromNode = addNode(from);
+        final Node<V> toNode = addNode(to);
+        final WeightedEdge<V> edge = new WeightedEdge<V>(fromNode, toNode, weight);
+        if (!edges.add(edge))
+        {
+            return false;
+        }
+        fromNode.incidentEdges.add(edge);
+        if (incomingIndexed)
+        {
+            toNode.incomingEdges.add(edge);
+        }
+        version++;
+        for (GraphListener<V> listener : listeners)
+        {
+            listener.edgeAdded(from, to, weight);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the directed edge from -> to, the nodes stay in the graph
+     * 
+     * @param from
+     * @param to
+     * @return true if the edge was removed
+     */
+    public boolean removeEdge(V from, V to)
+    {
+        final Node<V> fromNode = nodes.get(from);
+        final Node<V> toNode = nodes.get(to);
+        if (fromNode == null || toNode == null)
+        {
+            return false;
+        }
+        final WeightedEdge<V> edge = new WeightedEdge<V>(fromNode, toNode, 0.0);
+        if (!edges.remove(edge))
+        {
+            return false;
+        }
+        fromNode.incidentEdges.remove(edge);
+        if (incomingIndexed)
+        {
+            toNode.incomingEdges.remove(edge);
+        }
+        version++;
+        for (GraphListener<V> listener : listeners)
+        {
+            listener.edgeRemoved(from, to);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of changes made to the graph, so results computed from
+     *         it can tell when they are stale
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Registers listener to be called after every change to the graph
+     * 
+     * @param listener
+     */
+    public void addGraphListener(GraphListener<V> listener)
+    {
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener is null");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeGraphListener(GraphListener<V> listener)
+    {
+        listeners.remove(listener);
+    }
+
     /**
      * Returns the collection of edges in the graph note that modifiying this
      * list has no effect on the graph as it's copy. Limiting mutable state!
@@ -47,6 +175,105 @@ public final class Graph<V> {
         return Collections.unmodifiableSet(edges);
     }
 
+    /**
+     * Freezes the graph into a {@link CompactGraph}. Vertices are numbered in
+     * the iteration order of {@link #getNodes()} and each vertex's edges keep
+     * the iteration order of its adjacency list, so algorithms run over the
+     * snapshot visit the graph in the same order as they do over the nodes.
+     * 
+     * @return CompactGraph<V>
+     */
+    public CompactGraph<V> compile()
+    {
+        final int numNodes = nodes.size();
+        final List<V> vertices = new ArrayList<V>(numNodes);
+        final Map<V, Integer> indices = new HashMap<V, Integer>(
+                numNodes * 4 / 3 + 1);
+        for (V value : nodes.keySet())
+        {
+            indices.put(value, Integer.valueOf(vertices.size()));
+            vertices.add(value);
+        }
+
+        final int[] offsets = new int[numNodes + 1];
+        final int[] targets = new int[edges.size()];
+        final double[] weights = new double[edges.size()];
+        int edge = 0;
+        int vertex = 0;
+        for (Node<V> node : nodes.values())
+        {
+            offsets[vertex++] = edge;
+            for (WeightedEdge<V> incidentEdge : node.incidentEdges)
+            {
+                targets[edge] = indices.get(incidentEdge.to.value).intValue();
+                weights[edge] = incidentEdge.weight;
+                edge++;
+            }
+        }
+        offsets[numNodes] = edge;
+        return new CompactGraph<V>(vertices, indices, offsets, targets, weights);
+    }
+
+    /**
+     * Thaws a compact graph in one pass over its edges, which must be unique
+     * per (from, to) so none is looked up before it is added
+     */
+    static <V> Graph<V> fromUniqueEdges(CompactGraph<V> compact)
+    {
+        final Graph<V> graph = new Graph<V>();
+        final int numNodes = compact.getVertexCount();
+        final List<Node<V>> nodes = new ArrayList<Node<V>>(numNodes);
+        for (int v = 0; v < numNodes; v++)
+        {
+            final Node<V> node = new Node<V>(graph, compact.getVertex(v));
+            graph.nodes.put(node.value, node);
+            nodes.add(node);
+        }
+        for (int v = 0; v < numNodes; v++)
+        {
+            final Node<V> from = nodes.get(v);
+            for (int edge = compact.edgeBegin(v), end = compact.edgeEnd(v); edge < end; edge++)
+            {
+                final Node<V> to = nodes.get(compact.getTarget(edge));
+                final WeightedEdge<V> weightedEdge = new WeightedEdge<V>(from,
+                        to, compact.getWeight(edge));
+                graph.edges.add(weightedEdge);
+                from.incidentEdges.add(weightedEdge);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Indexes the incoming edges of every node in one pass over the edges.
+     * Most users only follow edges forwards, so the index is built the first
+     * time a node is asked for its incoming edges and kept up to date by
+     * every change from then on.
+     */
+    private void indexIncomingEdges()
+    {
+        for (Node<V> node : nodes.values())
+        {
+            node.incomingEdges = new HashSet<WeightedEdge<V>>();
+        }
+        for (WeightedEdge<V> edge : edges)
+        {
+            edge.to.incomingEdges.add(edge);
+        }
+        incomingIndexed = true;
+    }
+
+    /**
+     * Creates an edge whose endpoints are not attached to any graph. It is
+     * equal to the edge between the same values in any graph, which is all
+     * the compact algorithms need to hand back WeightedEdges.
+     */
+    static <T> WeightedEdge<T> detachedEdge(T from, T to, double weight)
+    {
+        return new WeightedEdge<T>(new Node<T>(null, from), new Node<T>(null,
+                to), weight);
+    }
+
     public final static class WeightedEdge<T> {
         private final Node<T> from;
         private final Node<T> to;
@@ -113,11 +340,20 @@ public final class Graph<V> {
         // TODO: is incident the right term? i feel like adjacent refers to the
         // node
         private final Set<WeightedEdge<T>> incidentEdges;
+        // null until the graph indexes incoming edges
+        private Set<WeightedEdge<T>> incomingEdges;
+        // null for the endpoints of a detached edge
+        private final Graph<T> graph;
 
-        private Node(T value)
+        private Node(Graph<T> graph, T value)
         {
+            this.graph = graph;
             this.value = value;
             this.incidentEdges = new HashSet<WeightedEdge<T>>();
+            if (graph != null && graph.incomingIndexed)
+            {
+                this.incomingEdges = new HashSet<WeightedEdge<T>>();
+            }
         }
 
         public T getValue()
@@ -130,6 +366,25 @@ public final class Graph<V> {
             return Collections.unmodifiableSet(incidentEdges);
         }
 
+        /**
+         * The first call on any node of a graph indexes the incoming edges of
+         * all its nodes in O(V + E); later calls are O(1).
+         *
+         * @return edges ending at this node
+         */
+        public Collection<WeightedEdge<T>> getIncomingEdges()
+        {
+            if (incomingEdges == null)
+            {
+                if (graph == null)
+                {
+                    return Collections.emptySet();
+                }
+                graph.indexIncomingEdges();
+            }
+            return Collections.unmodifiableSet(incomingEdges);
+        }
+
         @Override
         public boolean equals(Object o)
         {
@@ -182,60 +437,36 @@ public final class Graph<V> {
             final String fromValue = parts.length > 0 ? parts[0] : null;
             final String toValue = parts.length > 1 ? parts[1] : null;
 
-            Node<String> fromNode = null;
-            Node<String> toNode = null;
             double weight = 0.0;
 
             if (fromValue != null)
             {
-                fromNode = createNode(graph, fromValue);
+                graph.addNode(fromValue);
             }
 
             if (toValue != null)
             {
-                toNode = createNode(graph, toValue);
+                graph.addNode(toValue);
             }
 
-            if (fromNode != null && toNode != null)
+            if (fromValue != null && toValue != null)
             {
                 if (parts.length == 3)
                 {
                     weight = Double.valueOf(parts[2]);
                 }
-                addEdge(graph, fromNode, toNode, weight);
+                graph.addEdge(fromValue, toValue, weight);
 
                 if (edgeType.equals(EdgeType.UNDIRECTED))
                 {
-                    addEdge(graph, toNode, fromNode, weight);
+                    graph.addEdge(toValue, fromValue, weight);
                 }
             }
         }
         return graph;
     }
 
-    private static void addEdge(Graph<String> graph, Node<String> fromNode,
-            Node<String> toNode, double weight)
-    {
-        final WeightedEdge<String> edge1 = new WeightedEdge<String>(fromNode, toNode, weight);
-        if (!graph.edges.contains(edge1))
-        {
-            graph.edges.add(edge1);
-            fromNode.incidentEdges.add(edge1);
-        }
-    }
-
-    private static Node<String> createNode(Graph<String> graph, String value)
-    {
-        Node<String> fromNode = graph.nodes.get(value);
-        if (fromNode == null)
-        {
-            fromNode = new Node<String>(value);
-            graph.nodes.put(value, fromNode);
-        }
-        return fromNode;
-    }
-
-    private Graph()
+    public Graph()
     {
     }
 }
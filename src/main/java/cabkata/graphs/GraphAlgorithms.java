@@ -1,30 +1,57 @@
 package cabkata.graphs;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
+import cabkata.graphs.AlgorithmMetrics.Algorithm;
 import cabkata.graphs.Graph.Node;
 import cabkata.graphs.Graph.WeightedEdge;
+import cabkata.heap.IndexedMinHeap;
 import cabkata.sets.DisjointSet;
 
+/**
+ * Graph searches that keep the results of the last run for the getters, so
+ * an instance answers one query at a time and is not thread safe. Concurrent
+ * queries over a {@link CompactGraph} should use
+ * {@link CompactGraphAlgorithms}, which returns immutable results.
+ *
+ * @param <V>
+ */
 public final class GraphAlgorithms<V> {
     private final Map<V, NodeSate> nodeState;
     private final Map<V, V> predecessors;
     private final Map<V, Integer> finishTime;
     private final Map<V, Integer> startTime;
     private final Map<V, Integer> distances;
-    private final Map<Node<V>, Double> nodeKeys;
+    private final Map<V, Double> nodeKeys;
     private int time;
+
+    // state of the last run over a CompactGraph or an OffHeapGraph, indexed
+    // by vertex id
+    private VertexIndex<V> compactGraph;
+    private int[] compactPredecessors;
+    private int[] compactStartTime;
+    private int[] compactFinishTime;
+    private int[] compactDistances;
+    private double[] compactKeys;
+    private List<V> negativeCycle = Collections.emptyList();
+    // null when runs are not instrumented
+    private final AlgorithmMetrics metrics;
     
     private final static Comparator<WeightedEdge<? extends Object>> EDGE_COMPARATOR = new Comparator<WeightedEdge<? extends Object>>()
     {
@@ -53,14 +80,38 @@ public final class GraphAlgorithms<V> {
 
     public GraphAlgorithms()
     {
+        this(null);
+    }
+
+    /**
+     * @param metrics receives counters and timings of every breadth first
+     *            search, topological sort, minimum spanning tree and
+     *            Bellman-Ford run, null for none
+     */
+    public GraphAlgorithms(AlgorithmMetrics metrics)
+    {
+        this.metrics = metrics;
         nodeState = new HashMap<V, NodeSate>();
         predecessors = new HashMap<V, V>(); //BFS,DFS
         finishTime = new HashMap<V, Integer>(); //DFS
         startTime = new HashMap<V, Integer>(); //DFS
         distances = new HashMap<V, Integer>(); //BFS, PRIM
-        nodeKeys = new HashMap<Node<V>, Double>(); //PRIM
+        nodeKeys = new HashMap<V, Double>(); //PRIM, SHORTEST PATHS
         time = 0; //DFS
     }
+
+    /**
+     * @return metrics the runs report into, null if they are not instrumented
+     */
+    public AlgorithmMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    private AlgorithmStats stats(Algorithm algorithm)
+    {
+        return metrics == null ? null : metrics.get(algorithm);
+    }
     
     /**
      * Performs a topological sort
@@ -70,9 +121,12 @@ public final class GraphAlgorithms<V> {
      */
     public List<V> toplogicalSort(Graph<V> graph)
     {
+        final AlgorithmStats stats = stats(Algorithm.TOPOLOGICAL_SORT);
+        final long start = stats == null ? 0L : System.nanoTime();
         validateGraphNotNull(graph);
-        List<V> topologicalSort = new ArrayList<V>();
+        List<V> topologicalSort = new ArrayList<V>(graph.getNodes().size());
         initializeAlgoState(graph);
+        final long setupEnd = stats == null ? 0L : System.nanoTime();
 
         for (Node<V> node : graph.getNodes())
         {
@@ -81,9 +135,194 @@ public final class GraphAlgorithms<V> {
                 visit(node, topologicalSort);
             }
         }
+        // nodes were collected by finish time, latest finish sorts first
+        Collections.reverse(topologicalSort);
+        if (stats != null)
+        {
+            // every node is visited and every edge followed once
+            long edges = 0;
+            for (Node<V> node : graph.getNodes())
+            {
+                edges += node.getAdjacentyList().size();
+            }
+            stats.record(start, setupEnd, topologicalSort.size(), edges, 0, 0);
+        }
         return topologicalSort;
     }
 
+    /**
+     * Kahn's topological sort, level by level. Level 0 holds the nodes
+     * without incoming edges and level i + 1 the nodes whose last predecessor
+     * is in level i, so the nodes of one level never depend on each other and
+     * can be scheduled together.
+     * 
+     * @param graph
+     * @return levels of graph elements V
+     * @throws IllegalArgumentException if the graph has a cycle
+     */
+    public List<List<V>> topologicalLevels(Graph<V> graph)
+    {
+        validateGraphNotNull(graph);
+        return topologicalLevels(graph.compile());
+    }
+
+    /**
+     * @param graph
+     * @return levels of graph elements V
+     * @throws IllegalArgumentException if the graph has a cycle
+     * @see #topologicalLevels(Graph)
+     */
+    public List<List<V>> topologicalLevels(CompactGraph<V> graph)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        return toValueLevels(graph, TopologicalLevels.levels(graph, null));
+    }
+
+    /**
+     * Kahn's topological sort, level by level, counting in-degrees and
+     * releasing the next level in parallel on pool
+     * 
+     * @param graph
+     * @param pool
+     * @return levels of graph elements V
+     * @throws IllegalArgumentException if the graph has a cycle
+     * @see #topologicalLevels(Graph)
+     */
+    public List<List<V>> topologicalLevels(CompactGraph<V> graph,
+            ForkJoinPool pool)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        return toValueLevels(graph, TopologicalLevels.levels(graph, pool));
+    }
+
+    private List<List<V>> toValueLevels(CompactGraph<V> graph, int[][] levels)
+    {
+        List<List<V>> valueLevels = new ArrayList<List<V>>(levels.length);
+        for (int[] level : levels)
+        {
+            List<V> values = new ArrayList<V>(level.length);
+            for (int node : level)
+            {
+                values.add(graph.getVertex(node));
+            }
+            valueLevels.add(values);
+        }
+        return valueLevels;
+    }
+
+    /**
+     * Strongly connected components by Tarjan's algorithm, see
+     * {@link #stronglyConnectedComponents(CompactGraph)}
+     * 
+     * @param graph
+     * @return component of every value
+     */
+    public StronglyConnectedComponents<V> stronglyConnectedComponents(Graph<V> graph)
+    {
+        validateGraphNotNull(graph);
+        return stronglyConnectedComponents(graph.compile());
+    }
+
+    /**
+     * Strongly connected components by Tarjan's algorithm on explicit stacks,
+     * O(V + E). Component ids follow the topological order of the
+     * condensation, which {@link StronglyConnectedComponents#getCondensation()}
+     * returns as a DAG ready for
+     * <code>new GraphAlgorithms&lt;Integer&gt;().toplogicalSort(..)</code>.
+     * 
+     * @param graph
+     * @return component of every value
+     * @see CompactGraphAlgorithms#stronglyConnectedComponents(CompactGraph)
+     */
+    public StronglyConnectedComponents<V> stronglyConnectedComponents(CompactGraph<V> graph)
+    {
+        return CompactGraphAlgorithms.stronglyConnectedComponents(graph);
+    }
+
+    /**
+     * Strongly connected components on pool: trimming, a forward-backward
+     * search for the giant component and coloring rounds for the rest.
+     * Component ids are in no particular order.
+     * 
+     * @param graph
+     * @param pool
+     * @return component of every value
+     */
+    public StronglyConnectedComponents<V> stronglyConnectedComponents(
+            CompactGraph<V> graph, ForkJoinPool pool)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        return ParallelStronglyConnectedComponents.search(graph, pool);
+    }
+
+    /**
+     * Weakly connected components on pool, see
+     * {@link #connectedComponents(CompactGraph, ForkJoinPool)}
+     *
+     * @param graph
+     * @param pool
+     * @return component of every value
+     */
+    public ConnectedComponents<V> connectedComponents(Graph<V> graph,
+            ForkJoinPool pool)
+    {
+        validateGraphNotNull(graph);
+        return connectedComponents(graph.compile(), pool);
+    }
+
+    /**
+     * Weakly connected components on pool by lock free union-find over
+     * chunks of edges, O(E) work in all. Edge directions are ignored.
+     * Component ids follow the smallest vertex id of each component.
+     *
+     * @param graph
+     * @param pool
+     * @return component and component sizes of every value
+     */
+    public ConnectedComponents<V> connectedComponents(CompactGraph<V> graph,
+            ForkJoinPool pool)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        return ParallelConnectedComponents.search(graph, pool);
+    }
+
+    /**
+     * Performs a topological sort of a compact graph
+     * 
+     * @param graph
+     * @return toplogical sort of graph elements V
+     * @see CompactGraphAlgorithms#depthFirstSearch(CompactGraph)
+     */
+    public List<V> toplogicalSort(CompactGraph<V> graph)
+    {
+        final AlgorithmStats stats = stats(Algorithm.TOPOLOGICAL_SORT);
+        final long start = stats == null ? 0L : System.nanoTime();
+        DepthFirstForest<V> forest = CompactGraphAlgorithms.depthFirstSearch(graph);
+        if (stats != null)
+        {
+            stats.record(start, start, graph.getVertexCount(),
+                    graph.getEdgeCount(), 0, 0);
+        }
+        resetCompactState(graph);
+        compactStartTime = forest.startTime;
+        compactFinishTime = forest.finishTime;
+        compactPredecessors = forest.predecessors;
+        time = 2 * graph.getVertexCount();
+        return new ArrayList<V>(forest.getTopologicalOrder());
+    }
+
     private void validateGraphNotNull(Graph<V> graph)
     {
         if(graph == null)
@@ -124,22 +363,46 @@ public final class GraphAlgorithms<V> {
         predecessors.put(node.getValue(), parent.getValue());
     }
 
-    private void visit(Node<V> node, List<V> topologicalSort)
+    /**
+     * Depth first visit from node. The recursion of the textbook version is
+     * replaced by a stack of (node, remaining adjacency) frames so long paths
+     * cannot overflow the thread stack; nodes are appended to finished in the
+     * order they finish.
+     */
+    private void visit(Node<V> node, List<V> finished)
     {
+        Deque<Node<V>> nodes = new ArrayDeque<Node<V>>();
+        Deque<Iterator<WeightedEdge<V>>> edges = new ArrayDeque<Iterator<WeightedEdge<V>>>();
         time++;
         markNodeVisited(node, time);
-        for (WeightedEdge<V> edge : node.getAdjacentyList())
+        nodes.push(node);
+        edges.push(node.getAdjacentyList().iterator());
+
+        while (!nodes.isEmpty())
         {
-            Node<V> adjacentNode = edge.getTo();
-            if (isNodeUnvisted(adjacentNode))
+            Node<V> currentNode = nodes.peek();
+            Iterator<WeightedEdge<V>> remaining = edges.peek();
+            if (remaining.hasNext())
             {
-                markPredecessor(adjacentNode, node);
-                visit(adjacentNode, topologicalSort);
+                Node<V> adjacentNode = remaining.next().getTo();
+                if (isNodeUnvisted(adjacentNode))
+                {
+                    markPredecessor(adjacentNode, currentNode);
+                    time++;
+                    markNodeVisited(adjacentNode, time);
+                    nodes.push(adjacentNode);
+                    edges.push(adjacentNode.getAdjacentyList().iterator());
+                }
+            }
+            else
+            {
+                nodes.pop();
+                edges.pop();
+                time++;
+                markNodeFinished(currentNode, time);
+                finished.add(currentNode.getValue());
             }
         }
-        time++;
-        markNodeFinished(node, time);
-        topologicalSort.add(0, node.getValue());
     }
 
     private void initializeAlgoState(Graph<V> graph)
@@ -147,11 +410,14 @@ public final class GraphAlgorithms<V> {
         validateGraphNotNull(graph);
         
         time = 0;
+        compactGraph = null;
+        negativeCycle = Collections.emptyList();
         nodeState.clear();
         predecessors.clear();
         finishTime.clear();
         startTime.clear();
         distances.clear();
+        nodeKeys.clear();
 
         for (Node<V> node : graph.getNodes())
         {
@@ -160,22 +426,50 @@ public final class GraphAlgorithms<V> {
             finishTime.put(node.getValue(), Integer.valueOf(0));
             startTime.put(node.getValue(), Integer.valueOf(0));
             distances.put(node.getValue(), Integer.valueOf(0));
-            nodeKeys.put(node, Double.MAX_VALUE);
+            nodeKeys.put(node.getValue(), Double.MAX_VALUE);
         }
     }
 
+    /**
+     * Points the getters at a compact run over graph, the run fills in the
+     * arrays it produces and leaves the others null
+     */
+    private void resetCompactState(VertexIndex<V> graph)
+    {
+        time = 0;
+        compactGraph = graph;
+        compactPredecessors = null;
+        compactStartTime = null;
+        compactFinishTime = null;
+        compactDistances = null;
+        compactKeys = null;
+        negativeCycle = Collections.emptyList();
+    }
+
     public int getStart(V v)
     {
+        if (compactGraph != null)
+        {
+            final int index = compactGraph.indexOf(v);
+            return index < 0 || compactStartTime == null ? 0 : compactStartTime[index];
+        }
         return startTime.containsKey(v) ? startTime.get(v).intValue() : 0;
     }
 
     public int getFinish(V v)
     {
+        if (compactGraph != null)
+        {
+            final int index = compactGraph.indexOf(v);
+            return index < 0 || compactFinishTime == null ? 0 : compactFinishTime[index];
+        }
         return finishTime.containsKey(v) ? finishTime.get(v).intValue() : 0;
     }
 
     public void breadthFirstSearch(Graph<V> graph, V source)
     {
+        final AlgorithmStats stats = stats(Algorithm.BREADTH_FIRST_SEARCH);
+        final long start = stats == null ? 0L : System.nanoTime();
         validateGraphAndSourceNotNull(graph, source);
         initializeAlgoState(graph);
         Queue<Node<V>> q = new LinkedList<Node<V>>();
@@ -183,6 +477,7 @@ public final class GraphAlgorithms<V> {
         nodeState.put(sourceNode.getValue(), NodeSate.VISITED);
         distances.put(sourceNode.getValue(), Integer.valueOf(0));
         q.offer(sourceNode);
+        final long setupEnd = stats == null ? 0L : System.nanoTime();
 
         while (!q.isEmpty())
         {
@@ -203,15 +498,222 @@ public final class GraphAlgorithms<V> {
             }
             nodeState.put(currentNode.getValue(), NodeSate.FINISHED);
         }
+        if (stats != null)
+        {
+            // every finished node was expanded once
+            long visited = 0;
+            long scanned = 0;
+            for (Node<V> node : graph.getNodes())
+            {
+                if (nodeState.get(node.getValue()) == NodeSate.FINISHED)
+                {
+                    visited++;
+                    scanned += node.getAdjacentyList().size();
+                }
+            }
+            stats.record(start, setupEnd, visited, scanned, visited - 1, 0);
+        }
+    }
+
+    /**
+     * Lazy breadth first search: vertices are found as they are pulled from
+     * the traversal, which can stop early, at a depth or skip vertices
+     *
+     * @param graph
+     * @param source
+     * @return vertices reachable from source in order of depth
+     */
+    public Traversal<V> breadthFirstTraversal(Graph<V> graph, V source)
+    {
+        return Traversal.breadthFirst(graph, source);
+    }
+
+    /**
+     * Lazy depth first search, see {@link #breadthFirstTraversal(Graph, Object)}
+     *
+     * @param graph
+     * @param source
+     * @return vertices reachable from source in depth first preorder
+     */
+    public Traversal<V> depthFirstTraversal(Graph<V> graph, V source)
+    {
+        return Traversal.depthFirst(graph, source);
+    }
+
+    /**
+     * Breadth first search over a compact graph, using an array backed queue
+     * and primitive distance and predecessor arrays
+     * 
+     * @param graph
+     * @param source
+     * @see CompactGraphAlgorithms#breadthFirstSearch(CompactGraph, Object)
+     */
+    public void breadthFirstSearch(CompactGraph<V> graph, V source)
+    {
+        final AlgorithmStats stats = stats(Algorithm.BREADTH_FIRST_SEARCH);
+        final long start = stats == null ? 0L : System.nanoTime();
+        BreadthFirstTree<V> tree = CompactGraphAlgorithms.breadthFirstSearch(
+                graph, source);
+        if (stats != null)
+        {
+            recordBreadthFirstTree(stats, start, tree);
+        }
+        setBreadthFirstTree(tree);
+    }
+
+    /**
+     * Parallel breadth first search over a compact graph on pool. Switches
+     * per level between expanding the frontier top down and searching parents
+     * bottom up, keeping the frontier and the visited set as bitmaps; results
+     * are read through {@link #getDistance(Object)} and
+     * {@link #getPredecessor(Object)} as usual. Predecessors are valid BFS
+     * parents but may differ from the sequential search when several exist.
+     * 
+     * @param graph
+     * @param source
+     * @param pool
+     */
+    public void breadthFirstSearch(CompactGraph<V> graph, V source,
+            ForkJoinPool pool)
+    {
+        final AlgorithmStats stats = stats(Algorithm.BREADTH_FIRST_SEARCH);
+        final long start = stats == null ? 0L : System.nanoTime();
+        BreadthFirstTree<V> tree = CompactGraphAlgorithms.breadthFirstSearch(
+                graph, source, pool);
+        if (stats != null)
+        {
+            recordBreadthFirstTree(stats, start, tree);
+        }
+        setBreadthFirstTree(tree);
+    }
+
+    /**
+     * Breadth first search reading the edges of an off heap graph in place
+     * 
+     * @param graph
+     * @param source
+     */
+    public void breadthFirstSearch(OffHeapGraph<V> graph, V source)
+    {
+        final AlgorithmStats stats = stats(Algorithm.BREADTH_FIRST_SEARCH);
+        final long start = stats == null ? 0L : System.nanoTime();
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        final int numNodes = graph.getVertexCount();
+        final int[] distances = new int[numNodes];
+        final int[] predecessors = new int[numNodes];
+        Arrays.fill(distances, -1);
+        Arrays.fill(predecessors, -1);
+
+        final int[] q = Scratch.get().queue(numNodes);
+        int head = 0;
+        int tail = 0;
+        distances[sourceIndex] = 0;
+        q[tail++] = sourceIndex;
+        while (head < tail)
+        {
+            final int currentNode = q[head++];
+            for (long edge = graph.edgeBegin(currentNode), end = graph
+                    .edgeEnd(currentNode); edge < end; edge++)
+            {
+                final int adjacentNode = graph.getTarget(edge);
+                if (distances[adjacentNode] < 0)
+                {
+                    distances[adjacentNode] = distances[currentNode] + 1;
+                    predecessors[adjacentNode] = currentNode;
+                    q[tail++] = adjacentNode;
+                }
+            }
+        }
+        if (stats != null)
+        {
+            // the queue still holds every expanded vertex
+            long scanned = 0;
+            for (int i = 0; i < tail; i++)
+            {
+                scanned += graph.edgeEnd(q[i]) - graph.edgeBegin(q[i]);
+            }
+            stats.record(start, start, tail, scanned, tail - 1, 0);
+        }
+        resetCompactState(graph);
+        compactDistances = distances;
+        compactPredecessors = predecessors;
+    }
+
+    /**
+     * Counts what a compact search did from its result, so the search itself
+     * stays untouched: every reached vertex was expanded once
+     */
+    private static void recordBreadthFirstTree(AlgorithmStats stats, long start,
+            BreadthFirstTree<?> tree)
+    {
+        final CompactGraph<?> graph = tree.getGraph();
+        long visited = 0;
+        long scanned = 0;
+        for (int v = 0; v < tree.distances.length; v++)
+        {
+            if (tree.distances[v] >= 0)
+            {
+                visited++;
+                scanned += graph.getOutDegree(v);
+            }
+        }
+        stats.record(start, start, visited, scanned, visited - 1, 0);
+    }
+
+    /**
+     * Breadth first search across the worker processes of a sharded graph,
+     * one superstep per level
+     * 
+     * @param graph
+     * @param source
+     * @throws IOException if a worker fails
+     * @see ShardedGraph#breadthFirstSearch(Object)
+     */
+    public void breadthFirstSearch(ShardedGraph<V> graph, V source)
+            throws IOException
+    {
+        setBreadthFirstTree(graph.breadthFirstSearch(source));
+    }
+
+    /**
+     * Breadth first search answered from cache when it holds the tree of
+     * source for the current version of its graph
+     * 
+     * @param cache
+     * @param source
+     * @see ShortestPathCache#breadthFirstSearch(Object)
+     */
+    public void breadthFirstSearch(ShortestPathCache<V> cache, V source)
+    {
+        if (cache == null)
+        {
+            throw new IllegalArgumentException("cache is null");
+        }
+        setBreadthFirstTree(cache.breadthFirstSearch(source));
+    }
+
+    private void setBreadthFirstTree(BreadthFirstTree<V> tree)
+    {
+        resetCompactState(tree.getGraph());
+        compactDistances = tree.distances;
+        compactPredecessors = tree.predecessors;
     }
 
     public int getDistance(V v)
     {
+        if (compactGraph != null)
+        {
+            // unreached values report 0 like the object graph search
+            return compactDistances == null ? 0 : Math.max(0,
+                    compactDistances[compactGraph.indexOf(v)]);
+        }
         return distances.get(v).intValue();
     }
     
     public Set<WeightedEdge<V>> minimumSpanningTreeKruskal(Graph<V> graph)
     {
+        final AlgorithmStats stats = stats(Algorithm.KRUSKAL);
+        final long start = stats == null ? 0L : System.nanoTime();
         Set<WeightedEdge<V>> mst = new HashSet<WeightedEdge<V>>();
         List<WeightedEdge<V>> edges = new ArrayList<WeightedEdge<V>>(
                 graph.getEdges());
@@ -226,6 +728,7 @@ public final class GraphAlgorithms<V> {
 
         // edges are now sorted by weight
         Collections.sort(edges, EDGE_COMPARATOR);
+        final long setupEnd = stats == null ? 0L : System.nanoTime();
 
         for (WeightedEdge<V> edge : edges)
         {
@@ -240,13 +743,33 @@ public final class GraphAlgorithms<V> {
                 mst.add(edge);
             }
         }
+        if (stats != null)
+        {
+            stats.record(start, setupEnd, nodes.size(), edges.size(), mst.size(), 0);
+        }
 
         return mst;
     }
 
+    public Set<WeightedEdge<V>> minimumSpanningTreeKruskal(CompactGraph<V> graph)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        Set<WeightedEdge<V>> mst = new HashSet<WeightedEdge<V>>();
+        IntList sources = new IntList();
+        final int[] forest = CompactGraphAlgorithms.kruskal(graph,
+                stats(Algorithm.KRUSKAL), sources);
+        for (int i = 0; i < forest.length; i++)
+        {
+            mst.add(graph.toWeightedEdge(sources.get(i), forest[i]));
+        }
+        return mst;
+    }
+
     public Set<WeightedEdge<V>> minimumSpanningTreePrim(Graph<V> graph,
             V rootValue)
     {
+        final AlgorithmStats stats = stats(Algorithm.PRIM);
+        final long start = stats == null ? 0L : System.nanoTime();
         validateGraphAndSourceNotNull(graph, rootValue);
         
         Node<V> rootNode = graph.getNode(rootValue);
@@ -256,105 +779,624 @@ public final class GraphAlgorithms<V> {
         initializeAlgoState(graph);
         HashMap<V, WeightedEdge<V>> mst = new HashMap<V, WeightedEdge<V>>();
 
-        PriorityQueue<Node<V>> priorityQ = new PriorityQueue<Node<V>>(graph
-                .getNodes().size(), new Comparator<Node<V>>()
+        Map<Node<V>, Integer> ids = new HashMap<Node<V>, Integer>();
+        List<Node<V>> nodes = indexNodes(graph, ids);
+        IndexedMinHeap priorityQ = new IndexedMinHeap(nodes.size());
+        for (int id = 0; id < nodes.size(); id++)
         {
-            @Override
-            public int compare(Node<V> o1, Node<V> o2)
-            {
-                return getNodeKey(o1).compareTo(getNodeKey(o2));
-            }
-        });
-        priorityQ.addAll(graph.getNodes());
-        updateNodeKeyAndQ(rootNode, priorityQ, 0);
+            priorityQ.insert(id, Double.MAX_VALUE);
+        }
+        priorityQ.decreaseKey(ids.get(rootNode).intValue(), 0);
+        final long setupEnd = stats == null ? 0L : System.nanoTime();
+        long decreased = 0;
 
         while (!priorityQ.isEmpty())
         {
-            Node<V> currentNode = priorityQ.poll();
+            final int currentId = priorityQ.poll();
+            Node<V> currentNode = nodes.get(currentId);
+            setNodeKey(currentNode, priorityQ.getKey(currentId));
             for (WeightedEdge<V> edge : currentNode.getAdjacentyList())
             {
                 Node<V> adjacentNode = edge.getTo();
+                final int adjacentId = ids.get(adjacentNode).intValue();
 
-                if (priorityQ.contains(adjacentNode)
-                        && edge.getWeight() < getNodeKey(adjacentNode))
+                if (priorityQ.contains(adjacentId)
+                        && edge.getWeight() < priorityQ.getKey(adjacentId))
                 {
                     predecessors.put(adjacentNode.getValue(), currentNode.getValue());
                     mst.put(adjacentNode.getValue(), edge);
-                    updateNodeKeyAndQ(adjacentNode, priorityQ, edge.getWeight());
+                    priorityQ.decreaseKey(adjacentId, edge.getWeight());
+                    decreased++;
                 }
             }
         }
+        if (stats != null)
+        {
+            // every node is inserted, polled and scanned once, the root's
+            // key lowered
+            long scanned = 0;
+            for (Node<V> node : nodes)
+            {
+                scanned += node.getAdjacentyList().size();
+            }
+            stats.record(start, setupEnd, nodes.size(), scanned, decreased,
+                    2L * nodes.size() + 1 + decreased);
+        }
 
         return new HashSet<WeightedEdge<V>>(mst.values());
     }
 
-    private Double getNodeKey(Node<V> adjacentNode)
+    public Set<WeightedEdge<V>> minimumSpanningTreePrim(
+            CompactGraph<V> graph, V rootValue)
     {
-        return nodeKeys.get(adjacentNode);
-    }
+        final AlgorithmStats stats = stats(Algorithm.PRIM);
+        final long start = stats == null ? 0L : System.nanoTime();
+        final int rootIndex = CompactGraphAlgorithms.validateGraphAndSource(graph, rootValue);
+        resetCompactState(graph);
+        final int numNodes = graph.getVertexCount();
+        compactPredecessors = new int[numNodes];
+        compactKeys = new double[numNodes];
+        final int[] mstEdges = new int[numNodes];
+        Arrays.fill(compactPredecessors, -1);
+        Arrays.fill(compactKeys, Double.MAX_VALUE);
+        Arrays.fill(mstEdges, -1);
 
-    private void updateNodeKeyAndQ(Node<V> node,
-            PriorityQueue<Node<V>> priorityQ, double value)
-    {
-        setNodeKey(node, value);
-        priorityQ.remove(node);
-        priorityQ.add(node);
+        IndexedMinHeap priorityQ = Scratch.get().heap(numNodes);
+        for (int node = 0; node < numNodes; node++)
+        {
+            priorityQ.insert(node, Double.MAX_VALUE);
+        }
+        priorityQ.decreaseKey(rootIndex, 0);
+        final long setupEnd = stats == null ? 0L : System.nanoTime();
+        long decreased = 0;
+
+        while (!priorityQ.isEmpty())
+        {
+            final int currentNode = priorityQ.poll();
+            compactKeys[currentNode] = priorityQ.getKey(currentNode);
+            for (int edge = graph.edgeBegin(currentNode), end = graph
+                    .edgeEnd(currentNode); edge < end; edge++)
+            {
+                final int adjacentNode = graph.getTarget(edge);
+                if (priorityQ.contains(adjacentNode)
+                        && graph.getWeight(edge) < priorityQ.getKey(adjacentNode))
+                {
+                    compactPredecessors[adjacentNode] = currentNode;
+                    mstEdges[adjacentNode] = edge;
+                    priorityQ.decreaseKey(adjacentNode, graph.getWeight(edge));
+                    decreased++;
+                }
+            }
+        }
+        if (stats != null)
+        {
+            // every vertex is inserted and polled once, the root's key lowered
+            stats.record(start, setupEnd, numNodes, graph.getEdgeCount(),
+                    decreased, 2L * numNodes + 1 + decreased);
+        }
+
+        Set<WeightedEdge<V>> mst = new HashSet<WeightedEdge<V>>();
+        for (int node = 0; node < numNodes; node++)
+        {
+            if (mstEdges[node] >= 0)
+            {
+                mst.add(graph.toWeightedEdge(compactPredecessors[node],
+                        mstEdges[node]));
+            }
+        }
+        return mst;
     }
 
-    private void setNodeKey(Node<V> node, double value)
+    /**
+     * Numbers the nodes of graph 0..n-1 so they can live in an
+     * {@link IndexedMinHeap}
+     * 
+     * @param graph
+     * @param ids filled with the id of every node
+     * @return nodes by id
+     */
+    private List<Node<V>> indexNodes(Graph<V> graph, Map<Node<V>, Integer> ids)
     {
-        nodeKeys.put(node, Double.valueOf(value));
+        List<Node<V>> nodes = new ArrayList<Node<V>>(graph.getNodes());
+        for (int id = 0; id < nodes.size(); id++)
+        {
+            ids.put(nodes.get(id), Integer.valueOf(id));
+        }
+        return nodes;
     }
 
     /**
+     * Dijkstra's single source shortest paths. Every node is settled once,
+     * taken off an indexed heap whose keys are lowered in place, so the run is
+     * O((V + E) log V). Edge weights must not be negative, use
+     * {@link #singleSourceShortestPathBellmanFord(Graph, Object)} otherwise.
      * 
      * @param graph
      * @param source
-     * @return boolean indicating whether the graph contains negative cycles
      */
-    public boolean singleSourceShortestPathBellmanFord(Graph<V> graph, V source)
+    public void singleSourceShortestPathDijkstra(Graph<V> graph, V source)
     {
-        validateGraphAndSourceNotNull(graph, source);     
+        validateGraphAndSourceNotNull(graph, source);
         initializeAlgoState(graph);
-        final int numNodes = graph.getNodes().size();
         Node<V> sourceNode = graph.getNode(source);
         
         if(sourceNode == null)
         {
             throw new IllegalArgumentException("source value not found in graph");
         }
-        
-        setNodeKey(sourceNode, 0.0);  
-        //The shortest path can be at longest |V| - 1 edges
-        for(int i = 1; i < numNodes -1; i++)
+
+        Map<Node<V>, Integer> ids = new HashMap<Node<V>, Integer>();
+        List<Node<V>> nodes = indexNodes(graph, ids);
+        IndexedMinHeap priorityQ = new IndexedMinHeap(nodes.size());
+        setNodeKey(sourceNode, 0.0);
+        priorityQ.insert(ids.get(sourceNode).intValue(), 0.0);
+
+        while (!priorityQ.isEmpty())
         {
-            for(WeightedEdge<V> edge : graph.getEdges())
+            final int currentId = priorityQ.poll();
+            final Node<V> currentNode = nodes.get(currentId);
+            final double currentCost = priorityQ.getKey(currentId);
+            for (WeightedEdge<V> edge : currentNode.getAdjacentyList())
             {
-                relaxEdge(edge);
+                validateNonNegativeWeight(edge.getWeight());
+                final double totalCost = currentCost + edge.getWeight();
+                final Node<V> adjacentNode = edge.getTo();
+                if (totalCost < getNodeKey(adjacentNode))
+                {
+                    predecessors.put(adjacentNode.getValue(), currentNode.getValue());
+                    setNodeKey(adjacentNode, totalCost);
+                    priorityQ.offer(ids.get(adjacentNode).intValue(), totalCost);
+                }
             }
         }
-        
-        //first |V| - 1 passes should have converged on the shortest path
-        //any further ability to relax indicates a negative cycle
-        for(WeightedEdge<V> edge : graph.getEdges())
+    }
+
+    /**
+     * Dijkstra's single source shortest paths over a compact graph
+     * 
+     * @param graph
+     * @param source
+     * @see #singleSourceShortestPathDijkstra(Graph, Object)
+     * @see CompactGraphAlgorithms#dijkstra(CompactGraph, Object)
+     */
+    public void singleSourceShortestPathDijkstra(CompactGraph<V> graph, V source)
+    {
+        setShortestPaths(CompactGraphAlgorithms.dijkstra(graph, source));
+    }
+
+    /**
+     * Dijkstra's single source shortest paths reading the edges of an off
+     * heap graph in place
+     * 
+     * @param graph
+     * @param source
+     * @see #singleSourceShortestPathDijkstra(Graph, Object)
+     */
+    public void singleSourceShortestPathDijkstra(OffHeapGraph<V> graph, V source)
+    {
+        final int sourceIndex = validateGraphAndSource(graph, source);
+        final int numNodes = graph.getVertexCount();
+        final double[] weights = new double[numNodes];
+        final int[] predecessors = new int[numNodes];
+        Arrays.fill(weights, Double.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+
+        final IndexedMinHeap priorityQ = Scratch.get().heap(numNodes);
+        weights[sourceIndex] = 0.0;
+        priorityQ.insert(sourceIndex, 0.0);
+        while (!priorityQ.isEmpty())
         {
-            if(relaxEdge(edge))
+            final int currentNode = priorityQ.poll();
+            final double currentCost = weights[currentNode];
+            final long end = graph.edgeEnd(currentNode);
+            for (long edge = graph.edgeBegin(currentNode); edge < end; edge++)
             {
-                return true;
+                final double weight = graph.getWeight(edge);
+                if (weight < 0)
+                {
+                    priorityQ.clear();
+                    throw new IllegalArgumentException(
+                            "Dijkstra requires non negative edge weights");
+                }
+                final double totalCost = currentCost + weight;
+                final int adjacentNode = graph.getTarget(edge);
+                if (totalCost < weights[adjacentNode])
+                {
+                    predecessors[adjacentNode] = currentNode;
+                    weights[adjacentNode] = totalCost;
+                    priorityQ.offer(adjacentNode, totalCost);
+                }
             }
         }
-        return false;
+        resetCompactState(graph);
+        compactKeys = weights;
+        compactPredecessors = predecessors;
     }
 
-    private boolean relaxEdge(WeightedEdge<V> edge)
+    private static <V> int validateGraphAndSource(OffHeapGraph<V> graph, V source)
     {
-        final double totalCost = edge.getWeight() + getNodeKey(edge.getFrom()).doubleValue();
-        if(totalCost < getNodeKey(edge.getTo()))
+        if (graph == null)
         {
-            predecessors.put(edge.getTo().getValue(), edge.getFrom().getValue());
-            setNodeKey(edge.getTo(), totalCost);
-            return true;
+            throw new IllegalArgumentException("graph is null");
+        }
+        if (source == null)
+        {
+            throw new IllegalArgumentException("source is null");
         }
-        return false;
+        final int sourceIndex = graph.indexOf(source);
+        if (sourceIndex < 0)
+        {
+            throw new IllegalArgumentException("source value not found in graph");
+        }
+        return sourceIndex;
+    }
+
+    private void setShortestPaths(ShortestPaths<V> paths)
+    {
+        resetCompactState(paths.getGraph());
+        compactKeys = paths.weights;
+        compactPredecessors = paths.predecessors;
+        negativeCycle = paths.getNegativeCycle();
+    }
+
+    private static void validateNonNegativeWeight(double weight)
+    {
+        if (weight < 0)
+        {
+            throw new IllegalArgumentException(
+                    "Dijkstra requires non negative edge weights");
+        }
+    }
+
+    /**
+     * Weight of the shortest path from the source of the last shortest path
+     * run, or the key of v in the last Prim run
+     * 
+     * @param v
+     * @return path weight, Double.MAX_VALUE if v was not reached
+     */
+    public double getPathWeight(V v)
+    {
+        if (compactGraph != null)
+        {
+            return compactKeys == null ? Double.MAX_VALUE
+                    : compactKeys[compactGraph.indexOf(v)];
+        }
+        return nodeKeys.get(v).doubleValue();
+    }
+
+    /**
+     * @param v
+     * @return predecessor of v in the search tree of the last run, null for
+     *         the source and for unreached values
+     */
+    public V getPredecessor(V v)
+    {
+        if (compactGraph != null)
+        {
+            final int predecessor = compactPredecessors == null ? -1
+                    : compactPredecessors[compactGraph.indexOf(v)];
+            return predecessor < 0 ? null : compactGraph.getVertex(predecessor);
+        }
+        return predecessors.get(v);
+    }
+
+    private Double getNodeKey(Node<V> adjacentNode)
+    {
+        return nodeKeys.get(adjacentNode.getValue());
+    }
+
+    private void setNodeKey(Node<V> node, double value)
+    {
+        nodeKeys.put(node.getValue(), Double.valueOf(value));
+    }
+
+    /**
+     * Bellman-Ford over a snapshot of graph, see
+     * {@link #singleSourceShortestPathBellmanFord(CompactGraph, Object)}
+     * 
+     * @param graph
+     * @param source
+     * @return boolean indicating whether the graph contains negative cycles
+     */
+    public boolean singleSourceShortestPathBellmanFord(Graph<V> graph, V source)
+    {
+        validateGraphAndSourceNotNull(graph, source);
+        return singleSourceShortestPathBellmanFord(graph.compile(), source);
+    }
+
+    /**
+     * Queue based Bellman-Ford over a compact graph. Only vertices whose
+     * distance dropped are relaxed again and the run stops once nothing
+     * changes; a negative cycle is kept for {@link #getNegativeCycle()}.
+     * 
+     * @param graph
+     * @param source
+     * @return boolean indicating whether the graph contains negative cycles
+     * @see CompactGraphAlgorithms#bellmanFord(CompactGraph, Object)
+     */
+    public boolean singleSourceShortestPathBellmanFord(CompactGraph<V> graph, V source)
+    {
+        ShortestPaths<V> paths = CompactGraphAlgorithms.bellmanFord(graph,
+                source, stats(Algorithm.BELLMAN_FORD));
+        setShortestPaths(paths);
+        return paths.hasNegativeCycle();
+    }
+
+    /**
+     * Bellman-Ford with every round of relaxations split over pool
+     * 
+     * @param graph
+     * @param source
+     * @param pool
+     * @return boolean indicating whether the graph contains negative cycles
+     * @see CompactGraphAlgorithms#bellmanFord(CompactGraph, Object, ForkJoinPool)
+     */
+    public boolean singleSourceShortestPathBellmanFord(CompactGraph<V> graph,
+            V source, ForkJoinPool pool)
+    {
+        ShortestPaths<V> paths = CompactGraphAlgorithms.bellmanFord(graph,
+                source, pool);
+        setShortestPaths(paths);
+        return paths.hasNegativeCycle();
+    }
+
+    /**
+     * Bellman-Ford across the worker processes of a sharded graph
+     * 
+     * @param graph
+     * @param source
+     * @return boolean indicating whether the graph contains negative cycles
+     * @throws IOException if a worker fails
+     * @see ShardedGraph#singleSourceShortestPath(Object)
+     */
+    public boolean singleSourceShortestPathBellmanFord(ShardedGraph<V> graph,
+            V source) throws IOException
+    {
+        ShortestPaths<V> paths = graph.singleSourceShortestPath(source);
+        setShortestPaths(paths);
+        return paths.hasNegativeCycle();
+    }
+
+    /**
+     * Bellman-Ford answered from cache when it holds the paths of source for
+     * the current version of its graph
+     * 
+     * @param cache
+     * @param source
+     * @return boolean indicating whether the graph contains negative cycles
+     * @see ShortestPathCache#singleSourceShortestPath(Object)
+     */
+    public boolean singleSourceShortestPathBellmanFord(ShortestPathCache<V> cache,
+            V source)
+    {
+        if (cache == null)
+        {
+            throw new IllegalArgumentException("cache is null");
+        }
+        ShortestPaths<V> paths = cache.singleSourceShortestPath(source);
+        setShortestPaths(paths);
+        return paths.hasNegativeCycle();
+    }
+
+    /**
+     * Point to point shortest path by A* with the landmark lower bounds, see
+     * {@link Landmarks#compute(CompactGraph, int, ForkJoinPool)}
+     * 
+     * @param landmarks
+     * @param source
+     * @param target
+     * @return shortest path from source to target
+     * @see CompactGraphAlgorithms#aStar(Landmarks, Object, Object)
+     */
+    public PointToPointPath<V> shortestPathAStar(Landmarks<V> landmarks,
+            V source, V target)
+    {
+        return CompactGraphAlgorithms.aStar(landmarks, source, target);
+    }
+
+    /**
+     * Point to point shortest path by the upward searches of a contraction
+     * hierarchy
+     * 
+     * @param hierarchy
+     * @param source
+     * @param target
+     * @return shortest path from source to target
+     * @see ContractionHierarchy#shortestPath(Object, Object)
+     */
+    public PointToPointPath<V> shortestPathContractionHierarchy(
+            ContractionHierarchy<V> hierarchy, V source, V target)
+    {
+        if (hierarchy == null)
+        {
+            throw new IllegalArgumentException("hierarchy is null");
+        }
+        return hierarchy.shortestPath(source, target);
+    }
+
+    /**
+     * Fewest hops path by breadth first search from both ends, the backward
+     * one over {@link Node#getIncomingEdges()}, so the graph is not compiled
+     * and a query only touches the vertices it explores, see
+     * {@link #shortestPathBidirectionalBreadthFirst(CompactGraph, Object, Object, int)}
+     *
+     * @param graph
+     * @param source
+     * @param target
+     * @return path with the fewest edges from source to target
+     */
+    public PointToPointPath<V> shortestPathBidirectionalBreadthFirst(
+            Graph<V> graph, V source, V target)
+    {
+        return shortestPathBidirectionalBreadthFirst(graph, source, target,
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxHops longest path to look for
+     * @return path of at most maxHops edges, not reachable if there is none
+     */
+    public PointToPointPath<V> shortestPathBidirectionalBreadthFirst(
+            Graph<V> graph, V source, V target, int maxHops)
+    {
+        return GraphBidirectionalSearch.breadthFirst(graph, source, target,
+                maxHops);
+    }
+
+    public PointToPointPath<V> shortestPathBidirectionalBreadthFirst(
+            CompactGraph<V> graph, V source, V target)
+    {
+        return shortestPathBidirectionalBreadthFirst(graph, source, target,
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * Fewest hops path by breadth first search from both ends; the path's
+     * weight is its number of edges. Only the vertices within about half the
+     * distance of either end are visited.
+     *
+     * @param graph
+     * @param source
+     * @param target
+     * @param maxHops longest path to look for
+     * @return path of at most maxHops edges, not reachable if there is none
+     * @see CompactGraphAlgorithms#bidirectionalBreadthFirstSearch(CompactGraph,
+     *      Object, Object, int)
+     */
+    public PointToPointPath<V> shortestPathBidirectionalBreadthFirst(
+            CompactGraph<V> graph, V source, V target, int maxHops)
+    {
+        return CompactGraphAlgorithms.bidirectionalBreadthFirstSearch(graph,
+                source, target, maxHops);
+    }
+
+    /**
+     * Point to point shortest path by Dijkstra from both ends, the backward
+     * search over {@link Node#getIncomingEdges()} like
+     * {@link #shortestPathBidirectionalBreadthFirst(Graph, Object, Object)}
+     *
+     * @param graph
+     * @param source
+     * @param target
+     * @return shortest path from source to target
+     */
+    public PointToPointPath<V> shortestPathBidirectionalDijkstra(
+            Graph<V> graph, V source, V target)
+    {
+        return GraphBidirectionalSearch.dijkstra(graph, source, target);
+    }
+
+    /**
+     * Point to point shortest path by Dijkstra from both ends
+     *
+     * @param graph
+     * @param source
+     * @param target
+     * @return shortest path from source to target
+     * @see CompactGraphAlgorithms#bidirectionalDijkstra(CompactGraph, Object,
+     *      Object)
+     */
+    public PointToPointPath<V> shortestPathBidirectionalDijkstra(
+            CompactGraph<V> graph, V source, V target)
+    {
+        return CompactGraphAlgorithms.bidirectionalDijkstra(graph, source,
+                target);
+    }
+
+    /**
+     * All pairs shortest paths, one Floyd-Warshall over the whole graph
+     * instead of a Bellman-Ford per source
+     * 
+     * @param graph
+     * @param keepPredecessors whether paths can be rebuilt from the result
+     * @return path weights between all pairs
+     * @see CompactGraphAlgorithms#allPairsShortestPaths(CompactGraph, boolean)
+     */
+    public AllPairsShortestPaths<V> allPairsShortestPaths(CompactGraph<V> graph,
+            boolean keepPredecessors)
+    {
+        return CompactGraphAlgorithms.allPairsShortestPaths(graph, keepPredecessors);
+    }
+
+    /**
+     * All pairs shortest paths with the tiles of each Floyd-Warshall round
+     * relaxed in parallel on pool
+     * 
+     * @param graph
+     * @param keepPredecessors whether paths can be rebuilt from the result
+     * @param pool
+     * @return path weights between all pairs
+     */
+    public AllPairsShortestPaths<V> allPairsShortestPaths(CompactGraph<V> graph,
+            boolean keepPredecessors, ForkJoinPool pool)
+    {
+        return CompactGraphAlgorithms.allPairsShortestPaths(graph,
+                keepPredecessors, pool);
+    }
+
+    /**
+     * PageRank by parallel power iteration over the compiled graph
+     *
+     * @param graph
+     * @param damping probability of following an edge, in [0, 1)
+     * @param tolerance stop once the ranks moved by at most this much in total
+     * @param maxIterations
+     * @param pool
+     * @return rank of every vertex
+     * @see PageRank#pageRank(CompactGraph, double, double, int, ForkJoinPool)
+     */
+    public VertexValues<V> pageRank(Graph<V> graph, double damping,
+            double tolerance, int maxIterations, ForkJoinPool pool)
+    {
+        validateGraphNotNull(graph);
+        return PageRank.pageRank(graph.compile(), damping, tolerance,
+                maxIterations, pool);
+    }
+
+    /**
+     * PageRank of a surfer that jumps back to sources only
+     *
+     * @param graph
+     * @param sources
+     * @param damping probability of following an edge, in [0, 1)
+     * @param tolerance stop once the ranks moved by at most this much in total
+     * @param maxIterations
+     * @param pool
+     * @return rank of every vertex relative to sources
+     */
+    public VertexValues<V> personalizedPageRank(Graph<V> graph,
+            Collection<V> sources, double damping, double tolerance,
+            int maxIterations, ForkJoinPool pool)
+    {
+        validateGraphNotNull(graph);
+        return PageRank.personalizedPageRank(graph.compile(), sources, damping,
+                tolerance, maxIterations, pool);
+    }
+
+    /**
+     * Communities by synchronous label propagation over the compiled graph
+     *
+     * @param graph
+     * @param maxIterations
+     * @param pool
+     * @return community label of every vertex
+     * @see LabelPropagation#detect(CompactGraph, int, ForkJoinPool)
+     */
+    public Communities<V> labelPropagation(Graph<V> graph, int maxIterations,
+            ForkJoinPool pool)
+    {
+        validateGraphNotNull(graph);
+        return LabelPropagation.detect(graph.compile(), maxIterations, pool);
+    }
+
+    /**
+     * @return the negative cycle found by the last Bellman-Ford run, each
+     *         value followed by the next one along the cycle; empty if there
+     *         was none
+     */
+    public List<V> getNegativeCycle()
+    {
+        return negativeCycle;
     }
 }
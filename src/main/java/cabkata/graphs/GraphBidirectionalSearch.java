@@ -0,0 +1,300 @@
+package cabkata.graphs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cabkata.graphs.Graph.Node;
+import cabkata.graphs.Graph.WeightedEdge;
+import cabkata.heap.IndexedMinHeap;
+
+/**
+ * Bidirectional breadth first search and Dijkstra over the nodes of a
+ * {@link Graph}, the same searches as
+ * {@link CompactGraphAlgorithms#bidirectionalBreadthFirstSearch(CompactGraph, Object, Object, int)}
+ * and {@link CompactGraphAlgorithms#bidirectionalDijkstra(CompactGraph, Object, Object)}
+ * without compiling the graph first.
+ *
+ * The forward search follows the adjacency lists and the backward one
+ * {@link Node#getIncomingEdges()}, which the graph indexes once and then
+ * keeps up to date as it changes. Labels live in hash maps holding only the
+ * vertices a search reached, so a query costs what it explores rather than
+ * O(V + E).
+ */
+final class GraphBidirectionalSearch {
+    private GraphBidirectionalSearch()
+    {
+    }
+
+    /**
+     * @see CompactGraphAlgorithms#bidirectionalBreadthFirstSearch(CompactGraph,
+     *      Object, Object, int)
+     */
+    static <V> PointToPointPath<V> breadthFirst(Graph<V> graph, V source,
+            V target, int maxHops)
+    {
+        final Node<V> sourceNode = validate(graph, source, target);
+        final Node<V> targetNode = graph.getNode(target);
+        if (maxHops < 0)
+        {
+            throw new IllegalArgumentException("maxHops may not be negative");
+        }
+        if (sourceNode == targetNode)
+        {
+            return PointToPointPath.fromVertices(source, target, 0.0,
+                    Collections.singletonList(source), 0);
+        }
+        final Side<V> forward = new Side<V>(true);
+        final Side<V> backward = new Side<V>(false);
+        forward.label(sourceNode, 0.0, null);
+        backward.label(targetNode, 0.0, null);
+        ArrayDeque<Node<V>> forwardLevel = new ArrayDeque<Node<V>>();
+        ArrayDeque<Node<V>> backwardLevel = new ArrayDeque<Node<V>>();
+        forwardLevel.add(sourceNode);
+        backwardLevel.add(targetNode);
+
+        int hops = 0;
+        double best = Double.MAX_VALUE;
+        Node<V> last = null;
+        Node<V> first = null;
+        int settled = 0;
+        while (hops < maxHops && !forwardLevel.isEmpty()
+                && !backwardLevel.isEmpty())
+        {
+            final boolean isForward = forwardLevel.size() <= backwardLevel
+                    .size();
+            final Side<V> space = isForward ? forward : backward;
+            final Side<V> other = isForward ? backward : forward;
+            final ArrayDeque<Node<V>> level = isForward ? forwardLevel
+                    : backwardLevel;
+            final ArrayDeque<Node<V>> nextLevel = new ArrayDeque<Node<V>>();
+            for (Node<V> currentNode : level)
+            {
+                final double hopsToNext = space.distance(currentNode) + 1.0;
+                settled++;
+                for (WeightedEdge<V> edge : space.edges(currentNode))
+                {
+                    final Node<V> adjacentNode = space.far(edge);
+                    final Label<V> met = other.labels.get(adjacentNode);
+                    if (met != null && hopsToNext + met.distance < best)
+                    {
+                        best = hopsToNext + met.distance;
+                        last = isForward ? currentNode : adjacentNode;
+                        first = isForward ? adjacentNode : currentNode;
+                    }
+                    if (!space.labels.containsKey(adjacentNode))
+                    {
+                        space.label(adjacentNode, hopsToNext, currentNode);
+                        nextLevel.add(adjacentNode);
+                    }
+                }
+            }
+            if (isForward)
+            {
+                forwardLevel = nextLevel;
+            }
+            else
+            {
+                backwardLevel = nextLevel;
+            }
+            hops++;
+            if (last != null)
+            {
+                break;
+            }
+        }
+        return result(source, target, best, forward, last, backward, first,
+                settled);
+    }
+
+    /**
+     * Settles ids handed out as the sides reach vertices, so the heaps can
+     * be the thread's scratch heaps, cleared in O(size) after the query
+     *
+     * @see CompactGraphAlgorithms#bidirectionalDijkstra(CompactGraph, Object,
+     *      Object)
+     */
+    static <V> PointToPointPath<V> dijkstra(Graph<V> graph, V source, V target)
+    {
+        final Node<V> sourceNode = validate(graph, source, target);
+        final Node<V> targetNode = graph.getNode(target);
+        final int numNodes = graph.getNodes().size();
+        final Scratch scratch = Scratch.get();
+        final IndexedMinHeap forwardQ = scratch.heap(numNodes);
+        final IndexedMinHeap backwardQ = scratch.backwardHeap(numNodes);
+        final Side<V> forward = new Side<V>(true);
+        final Side<V> backward = new Side<V>(false);
+        forwardQ.insert(forward.label(sourceNode, 0.0, null).id, 0.0);
+        backwardQ.insert(backward.label(targetNode, 0.0, null).id, 0.0);
+
+        double best = sourceNode == targetNode ? 0.0 : Double.MAX_VALUE;
+        Node<V> last = sourceNode == targetNode ? sourceNode : null;
+        Node<V> first = last;
+        int settled = 0;
+        try
+        {
+            while (!forwardQ.isEmpty() && !backwardQ.isEmpty())
+            {
+                final double forwardMin = forwardQ.getKey(forwardQ.peek());
+                final double backwardMin = backwardQ.getKey(backwardQ.peek());
+                if (forwardMin + backwardMin >= best)
+                {
+                    break;
+                }
+                final boolean isForward = forwardMin <= backwardMin;
+                final Side<V> space = isForward ? forward : backward;
+                final Side<V> other = isForward ? backward : forward;
+                final IndexedMinHeap priorityQ = isForward ? forwardQ
+                        : backwardQ;
+                final Node<V> currentNode = space.nodes.get(priorityQ.poll());
+                final double currentCost = space.distance(currentNode);
+                settled++;
+                for (WeightedEdge<V> edge : space.edges(currentNode))
+                {
+                    final double weight = edge.getWeight();
+                    if (weight < 0)
+                    {
+                        throw new IllegalArgumentException(
+                                "Dijkstra requires non negative edge weights");
+                    }
+                    final double totalCost = currentCost + weight;
+                    final Node<V> adjacentNode = space.far(edge);
+                    Label<V> label = space.labels.get(adjacentNode);
+                    if (label == null || totalCost < label.distance)
+                    {
+                        label = space.label(adjacentNode, totalCost,
+                                currentNode);
+                        priorityQ.offer(label.id, totalCost);
+                    }
+                    final Label<V> met = other.labels.get(adjacentNode);
+                    if (met != null && totalCost + met.distance < best)
+                    {
+                        best = totalCost + met.distance;
+                        last = isForward ? currentNode : adjacentNode;
+                        first = isForward ? adjacentNode : currentNode;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            forwardQ.clear();
+            backwardQ.clear();
+        }
+        return result(source, target, best, forward, last, backward, first,
+                settled);
+    }
+
+    private static <V> Node<V> validate(Graph<V> graph, V source, V target)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        if (source == null)
+        {
+            throw new IllegalArgumentException("source is null");
+        }
+        if (target == null)
+        {
+            throw new IllegalArgumentException("target is null");
+        }
+        final Node<V> sourceNode = graph.getNode(source);
+        if (sourceNode == null)
+        {
+            throw new IllegalArgumentException("source value not found in graph");
+        }
+        if (graph.getNode(target) == null)
+        {
+            throw new IllegalArgumentException("target value not found in graph");
+        }
+        return sourceNode;
+    }
+
+    /**
+     * Joins the forward path up to last with the backward path from first
+     * on; last and first are the same node or the ends of an edge
+     */
+    private static <V> PointToPointPath<V> result(V source, V target,
+            double best, Side<V> forward, Node<V> last, Side<V> backward,
+            Node<V> first, int settled)
+    {
+        if (last == null)
+        {
+            return PointToPointPath.fromVertices(source, target,
+                    Double.MAX_VALUE, Collections.<V> emptyList(), settled);
+        }
+        List<V> path = new ArrayList<V>();
+        for (Node<V> v = last; v != null; v = forward.labels.get(v).predecessor)
+        {
+            path.add(v.getValue());
+        }
+        Collections.reverse(path);
+        for (Node<V> v = last == first ? backward.labels.get(first).predecessor
+                : first; v != null; v = backward.labels.get(v).predecessor)
+        {
+            path.add(v.getValue());
+        }
+        return PointToPointPath.fromVertices(source, target, best, path,
+                settled);
+    }
+
+    private static final class Label<V> {
+        final int id;
+        double distance;
+        Node<V> predecessor;
+
+        Label(int id)
+        {
+            this.id = id;
+        }
+    }
+
+    /**
+     * The labels of one search and the nodes by heap id
+     */
+    private static final class Side<V> {
+        final boolean isForward;
+        final Map<Node<V>, Label<V>> labels = new HashMap<Node<V>, Label<V>>();
+        final List<Node<V>> nodes = new ArrayList<Node<V>>();
+
+        Side(boolean isForward)
+        {
+            this.isForward = isForward;
+        }
+
+        Label<V> label(Node<V> node, double distance, Node<V> predecessor)
+        {
+            Label<V> label = labels.get(node);
+            if (label == null)
+            {
+                label = new Label<V>(nodes.size());
+                labels.put(node, label);
+                nodes.add(node);
+            }
+            label.distance = distance;
+            label.predecessor = predecessor;
+            return label;
+        }
+
+        double distance(Node<V> node)
+        {
+            return labels.get(node).distance;
+        }
+
+        Collection<WeightedEdge<V>> edges(Node<V> node)
+        {
+            return isForward ? node.getAdjacentyList() : node
+                    .getIncomingEdges();
+        }
+
+        Node<V> far(WeightedEdge<V> edge)
+        {
+            return isForward ? edge.getTo() : edge.getFrom();
+        }
+    }
+}
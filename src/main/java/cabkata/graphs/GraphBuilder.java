@@ -0,0 +1,352 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import cabkata.graphs.Graph.EdgeType;
+
+/**
+ * Builds a graph from edges added in primitive batches, without an object or
+ * a hash lookup per edge.
+ *
+ * Edges go into growable arrays. Building counting sorts them by source and
+ * then sorts the edges of every vertex by target, vertex ranges in parallel
+ * on a fork join pool, so repeats of a (from, to) pair end up side by side
+ * and merge into one edge weighing the minimum, maximum or sum of their
+ * weights. The merged edges are then emitted in one pass into a
+ * {@link CompactGraph}, or thawed into a {@link Graph}. Vertices are numbered
+ * in the order they were added. Not thread safe; building leaves the builder
+ * as it was, so more edges may be added and built again.
+ *
+ * @param <V>
+ */
+public final class GraphBuilder<V> {
+    private static final int GRAIN = 1024;
+
+    /**
+     * Weight kept when the same (from, to) edge is added more than once
+     */
+    public static enum DuplicateWeight
+    {
+        MIN, MAX, SUM
+    }
+
+    private final EdgeType edgeType;
+    private final DuplicateWeight duplicateWeight;
+    private final List<V> vertices = new ArrayList<V>();
+    private final Map<V, Integer> indices = new HashMap<V, Integer>();
+    private final CsrBuilder edges;
+
+    public GraphBuilder(EdgeType edgeType, DuplicateWeight duplicateWeight)
+    {
+        this(edgeType, duplicateWeight, 16);
+    }
+
+    /**
+     * @param edgeType UNDIRECTED adds every edge in both directions
+     * @param duplicateWeight
+     * @param expectedEdges edges to make room for up front
+     */
+    public GraphBuilder(EdgeType edgeType, DuplicateWeight duplicateWeight,
+            int expectedEdges)
+    {
+        if (edgeType == null)
+        {
+            throw new IllegalArgumentException("edgeType is null");
+        }
+        if (duplicateWeight == null)
+        {
+            throw new IllegalArgumentException("duplicateWeight is null");
+        }
+        this.edgeType = edgeType;
+        this.duplicateWeight = duplicateWeight;
+        this.edges = new CsrBuilder(edgeType == EdgeType.UNDIRECTED
+                ? expectedEdges * 2 : expectedEdges);
+    }
+
+    /**
+     * @param value
+     * @return id of value, added if the builder did not have it
+     */
+    public int addVertex(V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("value is null");
+        }
+        final Integer index = indices.get(value);
+        if (index != null)
+        {
+            return index.intValue();
+        }
+        indices.put(value, Integer.valueOf(vertices.size()));
+        vertices.add(value);
+        return vertices.size() - 1;
+    }
+
+    public int getVertexCount()
+    {
+        return vertices.size();
+    }
+
+    /**
+     * @return directed edges added so far, duplicates included
+     */
+    public int getEdgeCount()
+    {
+        return edges.size();
+    }
+
+    /**
+     * @param from id returned by {@link #addVertex(Object)}
+     * @param to id returned by {@link #addVertex(Object)}
+     * @param weight
+     */
+    public void addEdge(int from, int to, double weight)
+    {
+        validateId(from);
+        validateId(to);
+        add(from, to, weight);
+    }
+
+    /**
+     * Adds the edges from[i] -> to[i] weighing weights[i] for i in [offset,
+     * offset + length)
+     *
+     * @param from
+     * @param to
+     * @param weights null for edges of weight 0
+     * @param offset
+     * @param length
+     */
+    public void addEdges(int[] from, int[] to, double[] weights, int offset,
+            int length)
+    {
+        if (from == null)
+        {
+            throw new IllegalArgumentException("from is null");
+        }
+        if (to == null)
+        {
+            throw new IllegalArgumentException("to is null");
+        }
+        if (offset < 0 || length < 0 || offset + length < 0
+                || offset + length > from.length || offset + length > to.length
+                || (weights != null && offset + length > weights.length))
+        {
+            throw new IllegalArgumentException("offset and length out of range");
+        }
+        for (int i = offset, end = offset + length; i < end; i++)
+        {
+            validateId(from[i]);
+            validateId(to[i]);
+        }
+        for (int i = offset, end = offset + length; i < end; i++)
+        {
+            add(from[i], to[i], weights == null ? 0.0 : weights[i]);
+        }
+    }
+
+    /**
+     * Builds the graph, merging duplicates on the calling thread
+     */
+    public CompactGraph<V> buildCompact()
+    {
+        return merge(null);
+    }
+
+    /**
+     * @param pool sorts and merges the edges of vertex ranges in parallel
+     */
+    public CompactGraph<V> buildCompact(ForkJoinPool pool)
+    {
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        return merge(pool);
+    }
+
+    /**
+     * Builds the graph as a {@link Graph}, merging duplicates on the calling
+     * thread
+     */
+    public Graph<V> build()
+    {
+        return Graph.fromUniqueEdges(merge(null));
+    }
+
+    /**
+     * @param pool sorts and merges the edges of vertex ranges in parallel
+     */
+    public Graph<V> build(ForkJoinPool pool)
+    {
+        return Graph.fromUniqueEdges(buildCompact(pool));
+    }
+
+    private void validateId(int id)
+    {
+        if (id < 0 || id >= vertices.size())
+        {
+            throw new IllegalArgumentException("vertex id out of range");
+        }
+    }
+
+    private void add(int from, int to, double weight)
+    {
+        edges.add(from, to, weight);
+        if (edgeType == EdgeType.UNDIRECTED && from != to)
+        {
+            edges.add(to, from, weight);
+        }
+    }
+
+    private CompactGraph<V> merge(ForkJoinPool pool)
+    {
+        final int numNodes = vertices.size();
+        final int[] targets = new int[edges.size()];
+        final double[] weights = new double[edges.size()];
+        final int[] offsets = edges.sortBySource(numNodes, targets, weights);
+        final int[] degrees = new int[numNodes];
+        final MergeTask task = new MergeTask(duplicateWeight, offsets,
+                targets, weights, degrees, 0, numNodes);
+        if (pool == null)
+        {
+            task.mergeRange();
+        }
+        else
+        {
+            pool.invoke(task);
+        }
+
+        final int[] mergedOffsets = new int[numNodes + 1];
+        for (int v = 0; v < numNodes; v++)
+        {
+            mergedOffsets[v + 1] = mergedOffsets[v] + degrees[v];
+        }
+        final List<V> values = new ArrayList<V>(vertices);
+        final Map<V, Integer> valueIndices = new HashMap<V, Integer>(indices);
+        final int count = mergedOffsets[numNodes];
+        if (count == targets.length)
+        {
+            return new CompactGraph<V>(values, valueIndices, mergedOffsets,
+                    targets, weights);
+        }
+        final int[] mergedTargets = new int[count];
+        final double[] mergedWeights = new double[count];
+        for (int v = 0; v < numNodes; v++)
+        {
+            System.arraycopy(targets, offsets[v], mergedTargets,
+                    mergedOffsets[v], degrees[v]);
+            System.arraycopy(weights, offsets[v], mergedWeights,
+                    mergedOffsets[v], degrees[v]);
+        }
+        return new CompactGraph<V>(values, valueIndices, mergedOffsets,
+                mergedTargets, mergedWeights);
+    }
+
+    /**
+     * Sorts the edges of each vertex in [from, to) by target and merges
+     * duplicates to the front of the vertex's slots, recording how many are
+     * left in degrees
+     */
+    private static final class MergeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final DuplicateWeight duplicateWeight;
+        private final int[] offsets;
+        private final int[] targets;
+        private final double[] weights;
+        private final int[] degrees;
+        private final int from;
+        private final int to;
+
+        MergeTask(DuplicateWeight duplicateWeight, int[] offsets, int[] targets,
+                double[] weights, int[] degrees, int from, int to)
+        {
+            this.duplicateWeight = duplicateWeight;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+            this.degrees = degrees;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                MergeTask left = new MergeTask(duplicateWeight, offsets,
+                        targets, weights, degrees, from, mid);
+                left.fork();
+                new MergeTask(duplicateWeight, offsets, targets, weights,
+                        degrees, mid, to).compute();
+                left.join();
+                return;
+            }
+            mergeRange();
+        }
+
+        void mergeRange()
+        {
+            int maxDegree = 0;
+            for (int v = from; v < to; v++)
+            {
+                maxDegree = Math.max(maxDegree, offsets[v + 1] - offsets[v]);
+            }
+            // target in the high half, position in the low half: sorting
+            // groups equal targets and keeps them in the order added
+            final long[] keys = new long[maxDegree];
+            final double[] added = new double[maxDegree];
+            for (int v = from; v < to; v++)
+            {
+                final int begin = offsets[v];
+                final int degree = offsets[v + 1] - begin;
+                for (int i = 0; i < degree; i++)
+                {
+                    keys[i] = ((long) targets[begin + i] << 32) | i;
+                    added[i] = weights[begin + i];
+                }
+                Arrays.sort(keys, 0, degree);
+                int merged = 0;
+                for (int i = 0; i < degree; i++)
+                {
+                    final int target = (int) (keys[i] >>> 32);
+                    final double weight = added[(int) keys[i]];
+                    if (merged > 0 && targets[begin + merged - 1] == target)
+                    {
+                        final int slot = begin + merged - 1;
+                        weights[slot] = combine(weights[slot], weight);
+                    }
+                    else
+                    {
+                        targets[begin + merged] = target;
+                        weights[begin + merged] = weight;
+                        merged++;
+                    }
+                }
+                degrees[v] = merged;
+            }
+        }
+
+        private double combine(double kept, double weight)
+        {
+            switch (duplicateWeight)
+            {
+            case MIN:
+                return Math.min(kept, weight);
+            case MAX:
+                return Math.max(kept, weight);
+            default:
+                return kept + weight;
+            }
+        }
+    }
+}
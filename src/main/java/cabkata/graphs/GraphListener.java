@@ -0,0 +1,16 @@
+package cabkata.graphs;
+
+/**
+ * Called by a {@link Graph} after each change, so derived results can be
+ * kept up to date instead of recomputed
+ * 
+ * @param <V>
+ */
+public interface GraphListener<V> {
+
+    void nodeAdded(V value);
+
+    void edgeAdded(V from, V to, double weight);
+
+    void edgeRemoved(V from, V to);
+}
@@ -0,0 +1,204 @@
+package cabkata.graphs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The out edges of the vertices one shard owns, in compressed sparse row
+ * form over local ids with edge targets kept as global ids, and the file a
+ * worker process loads it from.
+ *
+ * File layout, big endian: magic, version, shard index, the {@link ShardMap},
+ * local vertex and edge counts, then offsets[local + 1], targets[edges] and
+ * weights[edges].
+ */
+final class GraphShard {
+    static final int MAGIC = 0x43475348; // "CGSH"
+    static final int VERSION = 1;
+
+    private final int index;
+    private final ShardMap map;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    private GraphShard(int index, ShardMap map, int[] offsets, int[] targets,
+            double[] weights)
+    {
+        this.index = index;
+        this.map = map;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    int getIndex()
+    {
+        return index;
+    }
+
+    ShardMap getMap()
+    {
+        return map;
+    }
+
+    int getLocalCount()
+    {
+        return offsets.length - 1;
+    }
+
+    int edgeBegin(int local)
+    {
+        return offsets[local];
+    }
+
+    int edgeEnd(int local)
+    {
+        return offsets[local + 1];
+    }
+
+    /**
+     * @return global id of the target of edge
+     */
+    int getTarget(int edge)
+    {
+        return targets[edge];
+    }
+
+    double getWeight(int edge)
+    {
+        return weights[edge];
+    }
+
+    /**
+     * Writes the part of graph that map assigns to shard
+     */
+    static void write(CompactGraph<?> graph, ShardMap map, int shard, File file)
+            throws IOException
+    {
+        final int localCount = map.localCount(shard);
+        long edgeCount = 0;
+        for (int local = 0; local < localCount; local++)
+        {
+            edgeCount += graph.getOutDegree(map.global(shard, local));
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 1 << 16));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(shard);
+            map.write(out);
+            out.writeInt(localCount);
+            out.writeInt((int) edgeCount);
+            int offset = 0;
+            out.writeInt(offset);
+            for (int local = 0; local < localCount; local++)
+            {
+                offset += graph.getOutDegree(map.global(shard, local));
+                out.writeInt(offset);
+            }
+            for (int local = 0; local < localCount; local++)
+            {
+                final int v = map.global(shard, local);
+                for (int edge = graph.edgeBegin(v), end = graph.edgeEnd(v); edge < end; edge++)
+                {
+                    out.writeInt(graph.getTarget(edge));
+                }
+            }
+            for (int local = 0; local < localCount; local++)
+            {
+                final int v = map.global(shard, local);
+                for (int edge = graph.edgeBegin(v), end = graph.edgeEnd(v); edge < end; edge++)
+                {
+                    out.writeDouble(graph.getWeight(edge));
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads only the header of file, not its edges
+     *
+     * @return the map shared by all the shards of the graph
+     */
+    static ShardMap readMap(File file, int shard) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 10));
+        try
+        {
+            final int index = readIndex(in, file);
+            if (index != shard)
+            {
+                throw new IOException(file + " holds shard " + index
+                        + ", not " + shard);
+            }
+            return ShardMap.read(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static int readIndex(DataInputStream in, File file)
+            throws IOException
+    {
+        if (in.readInt() != MAGIC)
+        {
+            throw new IOException("not a graph shard file: " + file);
+        }
+        final int version = in.readInt();
+        if (version != VERSION)
+        {
+            throw new IOException("unsupported graph shard version " + version);
+        }
+        return in.readInt();
+    }
+
+    static GraphShard read(File file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 16));
+        try
+        {
+            final int index = readIndex(in, file);
+            final ShardMap map = ShardMap.read(in);
+            final int localCount = in.readInt();
+            final int edgeCount = in.readInt();
+            int[] offsets = new int[localCount + 1];
+            for (int i = 0; i <= localCount; i++)
+            {
+                offsets[i] = in.readInt();
+            }
+            int[] targets = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++)
+            {
+                targets[i] = in.readInt();
+            }
+            double[] weights = new double[edgeCount];
+            for (int i = 0; i < edgeCount; i++)
+            {
+                weights[i] = in.readDouble();
+            }
+            return new GraphShard(index, map, offsets, targets, weights);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
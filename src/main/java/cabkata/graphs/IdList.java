@@ -0,0 +1,56 @@
+package cabkata.graphs;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The integers 0..size-1 as a list whose indexOf is O(1), for graphs whose
+ * vertices are their own ids
+ */
+final class IdList extends AbstractList<Integer> implements RandomAccess {
+    private final int size;
+
+    IdList(int size)
+    {
+        this.size = size;
+    }
+
+    @Override
+    public Integer get(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return Integer.valueOf(index);
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public int indexOf(Object o)
+    {
+        if (!(o instanceof Integer))
+        {
+            return -1;
+        }
+        final int id = ((Integer) o).intValue();
+        return id >= 0 && id < size ? id : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o)
+    {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        return indexOf(o) >= 0;
+    }
+}
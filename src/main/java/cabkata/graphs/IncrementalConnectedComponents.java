@@ -0,0 +1,218 @@
+package cabkata.graphs;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import cabkata.graphs.Graph.Node;
+import cabkata.graphs.Graph.WeightedEdge;
+
+/**
+ * Connected components of a {@link Graph}, ignoring edge direction, that
+ * follow its changes as they happen.
+ *
+ * An added edge between two components relabels the smaller one, so a value
+ * is relabeled O(log V) times over any sequence of additions. A removed edge
+ * starts a search from each endpoint, one vertex at a time in turn: when the
+ * searches meet the component is still whole, when one runs out first it has
+ * found the part that broke off, which is relabeled. A split therefore costs
+ * at most twice the smaller part and never the rest of the component.
+ * Not thread safe.
+ *
+ * @param <V>
+ */
+public final class IncrementalConnectedComponents<V> implements GraphListener<V> {
+    private final Graph<V> graph;
+    private final Map<V, Integer> labels = new HashMap<V, Integer>();
+    private final Map<Integer, Set<V>> components = new HashMap<Integer, Set<V>>();
+    private int nextLabel;
+
+    /**
+     * Labels the components of graph and starts following it
+     *
+     * @param graph
+     */
+    public IncrementalConnectedComponents(Graph<V> graph)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        this.graph = graph;
+        for (Node<V> node : graph.getNodes())
+        {
+            if (!labels.containsKey(node.getValue()))
+            {
+                final Integer label = Integer.valueOf(nextLabel++);
+                Set<V> component = new HashSet<V>();
+                component.add(node.getValue());
+                Queue<V> q = new ArrayDeque<V>();
+                q.add(node.getValue());
+                while (!q.isEmpty())
+                {
+                    expand(q, component, Collections.<V> emptySet());
+                }
+                for (V value : component)
+                {
+                    labels.put(value, label);
+                }
+                components.put(label, component);
+            }
+        }
+        graph.addGraphListener(this);
+    }
+
+    /**
+     * Stops following the graph
+     */
+    public void detach()
+    {
+        graph.removeGraphListener(this);
+    }
+
+    public boolean connected(V v1, V v2)
+    {
+        return labelOf(v1).equals(labelOf(v2));
+    }
+
+    /**
+     * @param v
+     * @return values in the component of v
+     */
+    public Set<V> getComponent(V v)
+    {
+        return Collections.unmodifiableSet(components.get(labelOf(v)));
+    }
+
+    /**
+     * @return number of connected components
+     */
+    public int count()
+    {
+        return components.size();
+    }
+
+    @Override
+    public void nodeAdded(V value)
+    {
+        final Integer label = Integer.valueOf(nextLabel++);
+        Set<V> component = new HashSet<V>();
+        component.add(value);
+        labels.put(value, label);
+        components.put(label, component);
+    }
+
+    @Override
+    public void edgeAdded(V from, V to, double weight)
+    {
+        Integer label = labelOf(from);
+        Integer otherLabel = labelOf(to);
+        if (label.equals(otherLabel))
+        {
+            return;
+        }
+        if (components.get(label).size() < components.get(otherLabel).size())
+        {
+            final Integer swap = label;
+            label = otherLabel;
+            otherLabel = swap;
+        }
+        final Set<V> smaller = components.remove(otherLabel);
+        for (V value : smaller)
+        {
+            labels.put(value, label);
+        }
+        components.get(label).addAll(smaller);
+    }
+
+    @Override
+    public void edgeRemoved(V from, V to)
+    {
+        if (from.equals(to)
+                || graph.getNode(from).getIncomingEdges()
+                        .contains(Graph.detachedEdge(to, from, 0.0)))
+        {
+            // a self loop, or still adjacent through the opposite edge
+            return;
+        }
+
+        Set<V> fromSide = new HashSet<V>();
+        Set<V> toSide = new HashSet<V>();
+        Queue<V> fromQueue = new ArrayDeque<V>();
+        Queue<V> toQueue = new ArrayDeque<V>();
+        fromSide.add(from);
+        toSide.add(to);
+        fromQueue.add(from);
+        toQueue.add(to);
+        while (!fromQueue.isEmpty() && !toQueue.isEmpty())
+        {
+            if (expand(fromQueue, fromSide, toSide) || expand(toQueue, toSide, fromSide))
+            {
+                return;
+            }
+        }
+
+        // the side that ran out is a component of its own now
+        final Set<V> brokenOff = fromQueue.isEmpty() ? fromSide : toSide;
+        final Integer label = Integer.valueOf(nextLabel++);
+        components.get(labelOf(from)).removeAll(brokenOff);
+        for (V value : brokenOff)
+        {
+            labels.put(value, label);
+        }
+        components.put(label, brokenOff);
+    }
+
+    /**
+     * Visits the neighbours of the next vertex of one search
+     *
+     * @return true if the search reached the other one
+     */
+    private boolean expand(Queue<V> q, Set<V> side, Set<V> otherSide)
+    {
+        final Node<V> node = graph.getNode(q.remove());
+        for (WeightedEdge<V> edge : node.getAdjacentyList())
+        {
+            if (visit(edge.getTo().getValue(), q, side, otherSide))
+            {
+                return true;
+            }
+        }
+        for (WeightedEdge<V> edge : node.getIncomingEdges())
+        {
+            if (visit(edge.getFrom().getValue(), q, side, otherSide))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <V> boolean visit(V adjacent, Queue<V> q, Set<V> side,
+            Set<V> otherSide)
+    {
+        if (otherSide.contains(adjacent))
+        {
+            return true;
+        }
+        if (side.add(adjacent))
+        {
+            q.add(adjacent);
+        }
+        return false;
+    }
+
+    private Integer labelOf(V v)
+    {
+        final Integer label = labels.get(v);
+        if (label == null)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return label;
+    }
+}
@@ -0,0 +1,345 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import cabkata.graphs.Graph.Node;
+import cabkata.graphs.Graph.WeightedEdge;
+import cabkata.heap.IndexedMinHeap;
+
+/**
+ * Single source shortest paths of a {@link Graph} that follow its changes.
+ *
+ * Edge changes are collected as they happen and applied in one batch at the
+ * next query. Removing a tree edge cuts off the subtree below it: those
+ * vertices are reset, seeded from their remaining in edges and settled with
+ * Dijkstra inside the subtree. Added edges that shorten a path seed the same
+ * Dijkstra, which stops where distances no longer improve. The work is
+ * proportional to the vertices whose distance or predecessor changes and
+ * their edges, not to the graph.
+ *
+ * Edge weights must not be negative; an update that meets a negative edge
+ * throws, and the next one computes the paths again from scratch.
+ * {@link #hops(Graph, Object)} counts
+ * every edge as 1, which gives BFS distances. Not thread safe.
+ *
+ * @param <V>
+ */
+public final class IncrementalShortestPaths<V> implements GraphListener<V> {
+    private final Graph<V> graph;
+    private final V source;
+    private final boolean hops;
+    private final Map<V, Integer> ids = new HashMap<V, Integer>();
+    private final List<Node<V>> nodes = new ArrayList<Node<V>>();
+    private double[] weights;
+    private int[] predecessors;
+    private int[] marks;
+    private int epoch;
+    private IndexedMinHeap priorityQ;
+    // an update failed part way, the next one starts from scratch
+    private boolean stale;
+
+    // changes since the last update, removals as from, to pairs
+    private final List<V> removedEdges = new ArrayList<V>();
+    private final Map<WeightedEdge<V>, Double> addedEdges = new LinkedHashMap<WeightedEdge<V>, Double>();
+
+    /**
+     * Computes the shortest paths from source and starts following graph
+     *
+     * @param graph
+     * @param source
+     */
+    public IncrementalShortestPaths(Graph<V> graph, V source)
+    {
+        this(graph, source, false);
+    }
+
+    /**
+     * @param graph
+     * @param source
+     * @return hop distances from source that follow graph
+     */
+    public static <V> IncrementalShortestPaths<V> hops(Graph<V> graph, V source)
+    {
+        return new IncrementalShortestPaths<V>(graph, source, true);
+    }
+
+    private IncrementalShortestPaths(Graph<V> graph, V source, boolean hops)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        if (source == null)
+        {
+            throw new IllegalArgumentException("source is null");
+        }
+        if (graph.getNode(source) == null)
+        {
+            throw new IllegalArgumentException("source value not found in graph");
+        }
+        this.graph = graph;
+        this.source = source;
+        this.hops = hops;
+
+        final int numNodes = graph.getNodes().size();
+        weights = new double[numNodes];
+        predecessors = new int[numNodes];
+        marks = new int[numNodes];
+        Arrays.fill(weights, Double.MAX_VALUE);
+        Arrays.fill(predecessors, -1);
+        for (Node<V> node : graph.getNodes())
+        {
+            ids.put(node.getValue(), Integer.valueOf(nodes.size()));
+            nodes.add(node);
+        }
+
+        priorityQ = new IndexedMinHeap(numNodes);
+        final int sourceId = idOf(source);
+        weights[sourceId] = 0.0;
+        priorityQ.insert(sourceId, 0.0);
+        settle();
+        graph.addGraphListener(this);
+    }
+
+    /**
+     * Stops following the graph
+     */
+    public void detach()
+    {
+        graph.removeGraphListener(this);
+    }
+
+    public V getSource()
+    {
+        return source;
+    }
+
+    /**
+     * @param v
+     * @return path weight, or number of edges for {@link #hops}, from the
+     *         source to v; Double.MAX_VALUE if v is not reachable
+     */
+    public double getPathWeight(V v)
+    {
+        update();
+        return weights[idOf(v)];
+    }
+
+    /**
+     * @param v
+     * @return predecessor of v in the shortest path tree, null for the source
+     *         and for unreachable values
+     */
+    public V getPredecessor(V v)
+    {
+        update();
+        final int predecessor = predecessors[idOf(v)];
+        return predecessor < 0 ? null : nodes.get(predecessor).getValue();
+    }
+
+    public boolean isReachable(V v)
+    {
+        return getPathWeight(v) != Double.MAX_VALUE;
+    }
+
+    @Override
+    public void nodeAdded(V value)
+    {
+        final int id = nodes.size();
+        if (id == weights.length)
+        {
+            final int capacity = Math.max(16, id * 2);
+            weights = Arrays.copyOf(weights, capacity);
+            predecessors = Arrays.copyOf(predecessors, capacity);
+            marks = Arrays.copyOf(marks, capacity);
+        }
+        weights[id] = Double.MAX_VALUE;
+        predecessors[id] = -1;
+        ids.put(value, Integer.valueOf(id));
+        nodes.add(graph.getNode(value));
+    }
+
+    @Override
+    public void edgeAdded(V from, V to, double weight)
+    {
+        addedEdges.put(Graph.detachedEdge(from, to, weight), Double.valueOf(weight));
+    }
+
+    @Override
+    public void edgeRemoved(V from, V to)
+    {
+        addedEdges.remove(Graph.detachedEdge(from, to, 0.0));
+        removedEdges.add(from);
+        removedEdges.add(to);
+    }
+
+    /**
+     * Applies the changes made to the graph since the last update. Queries
+     * call this, so it only needs calling to choose when the work is done.
+     *
+     * @throws IllegalArgumentException if an added edge, or an edge of a
+     *             vertex the changes make reachable, has a negative weight
+     */
+    public void update()
+    {
+        if (!stale && removedEdges.isEmpty() && addedEdges.isEmpty())
+        {
+            return;
+        }
+        for (Map.Entry<WeightedEdge<V>, Double> entry : addedEdges.entrySet())
+        {
+            validateWeight(entry.getValue().doubleValue());
+        }
+        if (priorityQ.capacity() < nodes.size())
+        {
+            priorityQ = new IndexedMinHeap(weights.length);
+        }
+
+        // the changes stay pending until settled, and a throw from settle
+        // leaves the distances partly updated
+        final boolean fromScratch = stale;
+        stale = true;
+        if (fromScratch)
+        {
+            Arrays.fill(weights, Double.MAX_VALUE);
+            Arrays.fill(predecessors, -1);
+            final int sourceId = idOf(source);
+            weights[sourceId] = 0.0;
+            priorityQ.insert(sourceId, 0.0);
+        }
+        else
+        {
+            repairRemovedTreeEdges();
+            for (Map.Entry<WeightedEdge<V>, Double> entry : addedEdges
+                    .entrySet())
+            {
+                final WeightedEdge<V> edge = entry.getKey();
+                final int from = idOf(edge.getFrom().getValue());
+                if (weights[from] != Double.MAX_VALUE)
+                {
+                    offer(idOf(edge.getTo().getValue()), from, weights[from]
+                            + weight(entry.getValue().doubleValue()));
+                }
+            }
+        }
+        settle();
+        removedEdges.clear();
+        addedEdges.clear();
+        stale = false;
+    }
+
+    /**
+     * Resets the vertices below removed tree edges and offers them the best
+     * distance over their in edges from the rest of the tree
+     */
+    private void repairRemovedTreeEdges()
+    {
+        epoch++;
+        final IntList affected = new IntList();
+        for (int i = 0; i < removedEdges.size(); i += 2)
+        {
+            final int to = idOf(removedEdges.get(i + 1));
+            if (predecessors[to] == idOf(removedEdges.get(i)) && marks[to] != epoch)
+            {
+                marks[to] = epoch;
+                affected.add(to);
+            }
+        }
+        if (affected.isEmpty())
+        {
+            return;
+        }
+
+        // the subtrees hang off the affected roots by tree edges still in the graph
+        for (int i = 0; i < affected.size(); i++)
+        {
+            final int node = affected.get(i);
+            for (WeightedEdge<V> edge : nodes.get(node).getAdjacentyList())
+            {
+                final int adjacent = idOf(edge.getTo().getValue());
+                if (predecessors[adjacent] == node && marks[adjacent] != epoch)
+                {
+                    marks[adjacent] = epoch;
+                    affected.add(adjacent);
+                }
+            }
+        }
+        for (int i = 0; i < affected.size(); i++)
+        {
+            final int node = affected.get(i);
+            weights[node] = Double.MAX_VALUE;
+            predecessors[node] = -1;
+        }
+        for (int i = 0; i < affected.size(); i++)
+        {
+            final int node = affected.get(i);
+            for (WeightedEdge<V> edge : nodes.get(node).getIncomingEdges())
+            {
+                final int from = idOf(edge.getFrom().getValue());
+                if (marks[from] != epoch && weights[from] != Double.MAX_VALUE)
+                {
+                    offer(node, from, weights[from] + weight(edge.getWeight()));
+                }
+            }
+        }
+    }
+
+    private void offer(int node, int predecessor, double totalCost)
+    {
+        if (totalCost < weights[node])
+        {
+            weights[node] = totalCost;
+            predecessors[node] = predecessor;
+            priorityQ.offer(node, totalCost);
+        }
+    }
+
+    /**
+     * Dijkstra from the queued vertices until no distance improves
+     */
+    private void settle()
+    {
+        while (!priorityQ.isEmpty())
+        {
+            final int currentNode = priorityQ.poll();
+            final double currentCost = weights[currentNode];
+            for (WeightedEdge<V> edge : nodes.get(currentNode).getAdjacentyList())
+            {
+                final double weight = edge.getWeight();
+                validateWeight(weight);
+                offer(idOf(edge.getTo().getValue()), currentNode, currentCost
+                        + weight(weight));
+            }
+        }
+    }
+
+    private double weight(double weight)
+    {
+        return hops ? 1.0 : weight;
+    }
+
+    private void validateWeight(double weight)
+    {
+        if (!hops && weight < 0)
+        {
+            priorityQ.clear();
+            throw new IllegalArgumentException(
+                    "incremental shortest paths require non negative edge weights");
+        }
+    }
+
+    private int idOf(V v)
+    {
+        final Integer id = ids.get(v);
+        if (id == null)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return id.intValue();
+    }
+}
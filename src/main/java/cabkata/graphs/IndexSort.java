@@ -0,0 +1,143 @@
+package cabkata.graphs;
+
+/**
+ * Sorts arrays of int indices by a double key per index without boxing. Used
+ * to order compact edge ids by weight.
+ */
+final class IndexSort {
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * Sorts indices[from, to) so that keys[indices[i]] is non decreasing.
+     * Quicksort with median of three pivots, falling back to heapsort when the
+     * recursion gets too deep (introsort), so worst case is O(n log n).
+     */
+    static void sortByKey(int[] indices, int from, int to, double[] keys)
+    {
+        int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+        introSort(indices, from, to - 1, keys, depthLimit);
+    }
+
+    static void sortByKey(int[] indices, double[] keys)
+    {
+        sortByKey(indices, 0, indices.length, keys);
+    }
+
+    private static void introSort(int[] a, int lo, int hi, double[] keys,
+            int depthLimit)
+    {
+        while (hi - lo >= INSERTION_SORT_THRESHOLD)
+        {
+            if (depthLimit-- == 0)
+            {
+                heapSort(a, lo, hi, keys);
+                return;
+            }
+
+            int p = partition(a, lo, hi, keys);
+            // recurse into the smaller half to bound the stack
+            if (p - lo < hi - p)
+            {
+                introSort(a, lo, p - 1, keys, depthLimit);
+                lo = p + 1;
+            }
+            else
+            {
+                introSort(a, p + 1, hi, keys, depthLimit);
+                hi = p - 1;
+            }
+        }
+        insertionSort(a, lo, hi, keys);
+    }
+
+    private static int partition(int[] a, int lo, int hi, double[] keys)
+    {
+        int mid = (lo + hi) >>> 1;
+        if (keys[a[mid]] < keys[a[lo]])
+            swap(a, lo, mid);
+        if (keys[a[hi]] < keys[a[lo]])
+            swap(a, lo, hi);
+        if (keys[a[hi]] < keys[a[mid]])
+            swap(a, mid, hi);
+        // median now at mid, park it just before hi
+        swap(a, mid, hi - 1);
+        final double pivot = keys[a[hi - 1]];
+
+        int i = lo;
+        int j = hi - 1;
+        while (true)
+        {
+            while (keys[a[++i]] < pivot)
+                ;
+            while (pivot < keys[a[--j]])
+                ;
+            if (i >= j)
+                break;
+            swap(a, i, j);
+        }
+        swap(a, i, hi - 1);
+        return i;
+    }
+
+    private static void insertionSort(int[] a, int lo, int hi, double[] keys)
+    {
+        for (int i = lo + 1; i <= hi; i++)
+        {
+            int value = a[i];
+            double key = keys[value];
+            int j = i - 1;
+            while (j >= lo && keys[a[j]] > key)
+            {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    private static void heapSort(int[] a, int lo, int hi, double[] keys)
+    {
+        int n = hi - lo + 1;
+        for (int i = n / 2 - 1; i >= 0; i--)
+        {
+            siftDown(a, lo, i, n, keys);
+        }
+        for (int end = n - 1; end > 0; end--)
+        {
+            swap(a, lo, lo + end);
+            siftDown(a, lo, 0, end, keys);
+        }
+    }
+
+    private static void siftDown(int[] a, int lo, int i, int n, double[] keys)
+    {
+        int value = a[lo + i];
+        double key = keys[value];
+        int child;
+        while ((child = 2 * i + 1) < n)
+        {
+            if (child + 1 < n && keys[a[lo + child + 1]] > keys[a[lo + child]])
+            {
+                child++;
+            }
+            if (key >= keys[a[lo + child]])
+            {
+                break;
+            }
+            a[lo + i] = a[lo + child];
+            i = child;
+        }
+        a[lo + i] = value;
+    }
+
+    private static void swap(int[] a, int i, int j)
+    {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private IndexSort()
+    {
+    }
+}
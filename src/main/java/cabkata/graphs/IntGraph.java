@@ -0,0 +1,196 @@
+package cabkata.graphs;
+
+/**
+ * Immutable directed graph whose vertices are the dense ids 0..n-1.
+ *
+ * Edges live in the int and double arrays of a compressed sparse row layout,
+ * 12 bytes per edge plus 4 per vertex, with no Node, WeightedEdge or boxed
+ * id behind them. Built with {@link Builder}. {@link #asCompactGraph()} views
+ * the same arrays as a CompactGraph whose vertex values are their ids, so
+ * every algorithm over compact graphs runs on it as well; results are then
+ * looked up by id. Safe to share between threads.
+ */
+public final class IntGraph {
+    private final CompactGraph<Integer> graph;
+
+    private IntGraph(CompactGraph<Integer> graph)
+    {
+        this.graph = graph;
+    }
+
+    public int getVertexCount()
+    {
+        return graph.getVertexCount();
+    }
+
+    public int getEdgeCount()
+    {
+        return graph.getEdgeCount();
+    }
+
+    /**
+     * @param vertex
+     * @return id of the first out edge of vertex
+     */
+    public int edgeBegin(int vertex)
+    {
+        return graph.edgeBegin(vertex);
+    }
+
+    /**
+     * @param vertex
+     * @return id after the last out edge of vertex
+     */
+    public int edgeEnd(int vertex)
+    {
+        return graph.edgeEnd(vertex);
+    }
+
+    public int getOutDegree(int vertex)
+    {
+        return graph.getOutDegree(vertex);
+    }
+
+    /**
+     * @param edge
+     * @return vertex the edge leaves, O(log V)
+     */
+    public int getSource(int edge)
+    {
+        return graph.getSource(edge);
+    }
+
+    public int getTarget(int edge)
+    {
+        return graph.getTarget(edge);
+    }
+
+    public double getWeight(int edge)
+    {
+        return graph.getWeight(edge);
+    }
+
+    /**
+     * @return this graph as a CompactGraph whose vertex values are the ids,
+     *         sharing the edge arrays
+     */
+    public CompactGraph<Integer> asCompactGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @param source
+     * @return hop distances and search tree from source
+     */
+    public BreadthFirstTree<Integer> breadthFirstSearch(int source)
+    {
+        return CompactGraphAlgorithms.breadthFirstSearch(graph, Integer.valueOf(source));
+    }
+
+    /**
+     * @return discovery and finish times and the topological order
+     */
+    public DepthFirstForest<Integer> depthFirstSearch()
+    {
+        return CompactGraphAlgorithms.depthFirstSearch(graph);
+    }
+
+    /**
+     * @param source
+     * @return Dijkstra shortest path tree from source
+     * @throws IllegalArgumentException on a negative edge weight
+     */
+    public ShortestPaths<Integer> dijkstra(int source)
+    {
+        return CompactGraphAlgorithms.dijkstra(graph, Integer.valueOf(source));
+    }
+
+    /**
+     * @param source
+     * @return Bellman-Ford shortest path tree from source, or a negative
+     *         cycle
+     */
+    public ShortestPaths<Integer> bellmanFord(int source)
+    {
+        return CompactGraphAlgorithms.bellmanFord(graph, Integer.valueOf(source));
+    }
+
+    /**
+     * Kruskal's minimum spanning forest, edge directions ignored
+     *
+     * @return edge ids of the forest
+     */
+    public int[] minimumSpanningForest()
+    {
+        return CompactGraphAlgorithms.kruskal(graph);
+    }
+
+    /**
+     * Collects edges in primitive arrays and lays them out by source once in
+     * {@link #build()}. Parallel edges are kept.
+     */
+    public static final class Builder {
+        private final CsrBuilder edges;
+        private int vertexCount;
+
+        public Builder()
+        {
+            this(16);
+        }
+
+        /**
+         * @param expectedEdges
+         */
+        public Builder(int expectedEdges)
+        {
+            edges = new CsrBuilder(expectedEdges);
+        }
+
+        /**
+         * Makes sure the graph has vertices 0..vertex, for isolated vertices
+         *
+         * @param vertex
+         * @return this builder
+         */
+        public Builder addVertex(int vertex)
+        {
+            if (vertex < 0)
+            {
+                throw new IllegalArgumentException("vertex ids may not be negative");
+            }
+            vertexCount = Math.max(vertexCount, vertex + 1);
+            return this;
+        }
+
+        /**
+         * @param from
+         * @param to
+         * @param weight
+         * @return this builder
+         */
+        public Builder addEdge(int from, int to, double weight)
+        {
+            addVertex(from);
+            addVertex(to);
+            edges.add(from, to, weight);
+            return this;
+        }
+
+        /**
+         * Adds the edges from -> to and to -> from
+         *
+         * @return this builder
+         */
+        public Builder addUndirectedEdge(int from, int to, double weight)
+        {
+            addEdge(from, to, weight);
+            return addEdge(to, from, weight);
+        }
+
+        public IntGraph build()
+        {
+            return new IntGraph(edges.build(new IdList(vertexCount)));
+        }
+    }
+}
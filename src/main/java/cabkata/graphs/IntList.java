@@ -0,0 +1,79 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive ints, the unboxed ArrayList<Integer> the
+ * parallel algorithms use for frontiers and per task output.
+ */
+final class IntList {
+    private int[] values;
+    private int size;
+
+    IntList()
+    {
+        this(16);
+    }
+
+    IntList(int capacity)
+    {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int value)
+    {
+        if (size == values.length)
+        {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    void addAll(IntList other)
+    {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    int get(int index)
+    {
+        return values[index];
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes and returns the last value, for use as a stack
+     */
+    int removeLast()
+    {
+        return values[--size];
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    void clear()
+    {
+        size = 0;
+    }
+
+    int[] toArray()
+    {
+        return Arrays.copyOf(values, size);
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > values.length)
+        {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+        }
+    }
+}
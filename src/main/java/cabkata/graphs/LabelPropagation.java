@@ -0,0 +1,116 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Community detection by synchronous label propagation on a
+ * {@link VertexCentricEngine}.
+ *
+ * Every vertex starts with its own id as its label and then repeatedly takes
+ * the label that is most frequent among itself and its distinct neighbours
+ * along edges in either direction, the smallest such label on a tie. Each
+ * neighbour counts once, however many edges join them, so on an undirected
+ * edge the vertex weighs as much as its neighbour; counting its own label and
+ * breaking ties the same way everywhere keeps two neighbours from swapping
+ * labels forever. The run converges once no label changes;
+ * vertices sharing a label form a community. Edge weights are ignored.
+ */
+public final class LabelPropagation {
+
+    /**
+     * @param graph
+     * @param maxIterations
+     * @param pool
+     * @return label of every vertex, the id of a vertex of its community
+     */
+    public static <V> Communities<V> detect(CompactGraph<V> graph,
+            int maxIterations, ForkJoinPool pool)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        // labels are exact in doubles, and any change moves one by at least 1
+        VertexValues<V> values = new VertexCentricEngine<V>(graph, pool).run(
+                new Program(graph), maxIterations, 0.0);
+        final int[] labels = new int[values.values.length];
+        for (int v = 0; v < labels.length; v++)
+        {
+            labels[v] = (int) values.values[v];
+        }
+        return new Communities<V>(graph, labels, values.getIterations(),
+                values.isConverged());
+    }
+
+    private static final class Program implements VertexProgram {
+        private final CompactGraph<?> out;
+
+        Program(CompactGraph<?> out)
+        {
+            this.out = out;
+        }
+
+        @Override
+        public double initialValue(int vertex)
+        {
+            return vertex;
+        }
+
+        @Override
+        public void beforeIteration(double[] values)
+        {
+        }
+
+        @Override
+        public double compute(int vertex, CompactGraph<?> in, double[] values)
+        {
+            final int count = in.getOutDegree(vertex) + out.getOutDegree(vertex);
+            final Scratch scratch = Scratch.get();
+            final int[] neighbours = scratch.queue(count);
+            int size = 0;
+            for (int edge = in.edgeBegin(vertex), end = in.edgeEnd(vertex); edge < end; edge++)
+            {
+                neighbours[size++] = in.getTarget(edge);
+            }
+            for (int edge = out.edgeBegin(vertex), end = out.edgeEnd(vertex); edge < end; edge++)
+            {
+                neighbours[size++] = out.getTarget(edge);
+            }
+            // an undirected edge is an in and an out edge, and parallel edges
+            // repeat a neighbour: each counts once, as the vertex itself does
+            Arrays.sort(neighbours, 0, size);
+            final int[] labels = scratch.stack(size + 1);
+            int labelCount = 0;
+            labels[labelCount++] = (int) values[vertex];
+            for (int i = 0; i < size; i++)
+            {
+                final int neighbour = neighbours[i];
+                if (neighbour != vertex && (i == 0 || neighbour != neighbours[i - 1]))
+                {
+                    labels[labelCount++] = (int) values[neighbour];
+                }
+            }
+            // runs of equal labels, the first longest run has the smallest
+            Arrays.sort(labels, 0, labelCount);
+            int best = labels[0];
+            int bestRun = 0;
+            for (int i = 0; i < labelCount;)
+            {
+                int j = i + 1;
+                while (j < labelCount && labels[j] == labels[i])
+                {
+                    j++;
+                }
+                if (j - i > bestRun)
+                {
+                    best = labels[i];
+                    bestRun = j - i;
+                }
+                i = j;
+            }
+            return best;
+        }
+    }
+
+    private LabelPropagation()
+    {
+    }
+}
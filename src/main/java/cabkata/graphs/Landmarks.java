@@ -0,0 +1,337 @@
+package cabkata.graphs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Precomputed shortest path weights from and to a few landmark vertices of a
+ * {@link CompactGraph}, the heuristic of the ALT (A*, landmarks, triangle
+ * inequality) point to point search.
+ *
+ * For a landmark L the triangle inequality gives d(v, t) >= d(L, t) - d(L, v)
+ * and d(v, t) >= d(v, L) - d(t, L); the largest of these over all landmarks
+ * is a lower bound on the remaining distance that never overestimates and is
+ * consistent, so A* with it settles every vertex at most once. Landmarks are
+ * picked one at a time as the vertex farthest in hops from those already
+ * picked, which puts them on the edges of the graph where the bounds are
+ * tightest. Tables are stored per vertex, so a bound reads one contiguous
+ * run of 2 * count doubles. Weights must not be negative.
+ *
+ * @param <V>
+ */
+public final class Landmarks<V> {
+    static final int MAGIC = 0x43414c54; // "CALT"
+    static final int VERSION = 1;
+
+    private final CompactGraph<V> graph;
+    private final int[] landmarks;
+    // d(L_i, v) and d(v, L_i) at v * count + i, POSITIVE_INFINITY if none
+    private final double[] fromLandmark;
+    private final double[] toLandmark;
+    private final int count;
+
+    private Landmarks(CompactGraph<V> graph, int[] landmarks,
+            double[] fromLandmark, double[] toLandmark)
+    {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+        this.count = landmarks.length;
+    }
+
+    /**
+     * Picks count landmarks with breadth first searches on pool, then runs
+     * the 2 * count Dijkstra searches that fill the tables in parallel
+     *
+     * @param graph
+     * @param count number of landmarks, 8 to 16 is typical
+     * @param pool
+     * @return landmark tables of graph
+     * @throws IllegalArgumentException on a negative edge weight
+     */
+    public static <V> Landmarks<V> compute(CompactGraph<V> graph, int count,
+            ForkJoinPool pool)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        if (count < 1)
+        {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        final int numNodes = graph.getVertexCount();
+        final int[] landmarks = selectFarthest(graph, Math.min(count, numNodes), pool);
+        final int k = landmarks.length;
+        if ((long) numNodes * k > Integer.MAX_VALUE - 8)
+        {
+            throw new IllegalArgumentException("too many landmarks for graph");
+        }
+        final double[] fromLandmark = new double[numNodes * k];
+        final double[] toLandmark = new double[numNodes * k];
+        final CompactGraph<V> reverse = graph.reverse();
+        List<TableTask<V>> tasks = new ArrayList<TableTask<V>>();
+        for (int i = 0; i < k; i++)
+        {
+            tasks.add(new TableTask<V>(graph, landmarks[i], fromLandmark, i, k));
+            tasks.add(new TableTask<V>(reverse, landmarks[i], toLandmark, i, k));
+        }
+        pool.invoke(new AllTablesTask<V>(tasks));
+        return new Landmarks<V>(graph, landmarks, fromLandmark, toLandmark);
+    }
+
+    /**
+     * Farthest point selection on hop distances: each landmark is a vertex
+     * that is the most hops away from all landmarks picked before it, or not
+     * reachable from them at all
+     */
+    private static int[] selectFarthest(CompactGraph<?> graph, int count,
+            ForkJoinPool pool)
+    {
+        final int numNodes = graph.getVertexCount();
+        final int[] landmarks = new int[count];
+        if (count == 0)
+        {
+            return landmarks;
+        }
+        final int[] minHops = new int[numNodes];
+        int[] distances = hops(graph, 0, pool);
+        int next = 0;
+        for (int v = 0; v < numNodes; v++)
+        {
+            if (distances[v] > distances[next])
+            {
+                next = v;
+            }
+        }
+        Arrays.fill(minHops, Integer.MAX_VALUE);
+        for (int i = 0; i < count; i++)
+        {
+            landmarks[i] = next;
+            distances = hops(graph, next, pool);
+            minHops[next] = 0;
+            for (int v = 0; v < numNodes; v++)
+            {
+                if (distances[v] >= 0 && distances[v] < minHops[v])
+                {
+                    minHops[v] = distances[v];
+                }
+            }
+            for (int v = 0; v < numNodes; v++)
+            {
+                if (minHops[v] > minHops[next])
+                {
+                    next = v;
+                }
+            }
+        }
+        return landmarks;
+    }
+
+    private static <V> int[] hops(CompactGraph<V> graph, int source,
+            ForkJoinPool pool)
+    {
+        return CompactGraphAlgorithms.breadthFirstSearch(graph,
+                graph.getVertex(source), pool).distances;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @return the landmark vertices in the order they were picked
+     */
+    public List<V> getLandmarks()
+    {
+        List<V> values = new ArrayList<V>(count);
+        for (int landmark : landmarks)
+        {
+            values.add(graph.getVertex(landmark));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * @return lower bound on the path weight from v to target
+     */
+    double lowerBound(int v, int target)
+    {
+        double bound = 0.0;
+        final int vRow = v * count;
+        final int targetRow = target * count;
+        for (int i = 0; i < count; i++)
+        {
+            final double landmarkToV = fromLandmark[vRow + i];
+            final double landmarkToTarget = fromLandmark[targetRow + i];
+            if (landmarkToV != Double.POSITIVE_INFINITY
+                    && landmarkToTarget != Double.POSITIVE_INFINITY)
+            {
+                bound = Math.max(bound, landmarkToTarget - landmarkToV);
+            }
+            final double vToLandmark = toLandmark[vRow + i];
+            final double targetToLandmark = toLandmark[targetRow + i];
+            if (vToLandmark != Double.POSITIVE_INFINITY
+                    && targetToLandmark != Double.POSITIVE_INFINITY)
+            {
+                bound = Math.max(bound, vToLandmark - targetToLandmark);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Writes the landmark tables so query servers can load them with
+     * {@link #read(CompactGraph, File)} instead of computing them
+     *
+     * @param file overwritten with the tables
+     * @throws IOException
+     */
+    public void write(File file) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 1 << 16));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(graph.getVertexCount());
+            out.writeInt(graph.getEdgeCount());
+            out.writeInt(count);
+            for (int landmark : landmarks)
+            {
+                out.writeInt(landmark);
+            }
+            for (double weight : fromLandmark)
+            {
+                out.writeDouble(weight);
+            }
+            for (double weight : toLandmark)
+            {
+                out.writeDouble(weight);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * @param graph the graph the tables were computed for
+     * @param file written by {@link #write(File)}
+     * @return landmark tables of graph
+     * @throws IOException if the file is not a landmark file or was written
+     *             for a graph of another size
+     */
+    public static <V> Landmarks<V> read(CompactGraph<V> graph, File file)
+            throws IOException
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 1 << 16));
+        try
+        {
+            if (in.readInt() != MAGIC)
+            {
+                throw new IOException("not a landmark file: " + file);
+            }
+            final int version = in.readInt();
+            if (version != VERSION)
+            {
+                throw new IOException("unsupported landmark file version " + version);
+            }
+            if (in.readInt() != graph.getVertexCount()
+                    || in.readInt() != graph.getEdgeCount())
+            {
+                throw new IOException("landmarks were computed for another graph");
+            }
+            final int k = in.readInt();
+            final int[] landmarks = new int[k];
+            for (int i = 0; i < k; i++)
+            {
+                landmarks[i] = in.readInt();
+            }
+            final double[] fromLandmark = new double[graph.getVertexCount() * k];
+            for (int i = 0; i < fromLandmark.length; i++)
+            {
+                fromLandmark[i] = in.readDouble();
+            }
+            final double[] toLandmark = new double[fromLandmark.length];
+            for (int i = 0; i < toLandmark.length; i++)
+            {
+                toLandmark[i] = in.readDouble();
+            }
+            return new Landmarks<V>(graph, landmarks, fromLandmark, toLandmark);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Fills column column of table with the Dijkstra distances from landmark
+     */
+    private static final class TableTask<V> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<V> graph;
+        private final int landmark;
+        private final double[] table;
+        private final int column;
+        private final int count;
+
+        TableTask(CompactGraph<V> graph, int landmark, double[] table,
+                int column, int count)
+        {
+            this.graph = graph;
+            this.landmark = landmark;
+            this.table = table;
+            this.column = column;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute()
+        {
+            final double[] weights = CompactGraphAlgorithms.dijkstra(graph,
+                    graph.getVertex(landmark)).weights;
+            for (int v = 0; v < weights.length; v++)
+            {
+                table[v * count + column] = weights[v] == Double.MAX_VALUE ? Double.POSITIVE_INFINITY
+                        : weights[v];
+            }
+        }
+    }
+
+    private static final class AllTablesTask<V> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<TableTask<V>> tasks;
+
+        AllTablesTask(List<TableTask<V>> tasks)
+        {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute()
+        {
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package cabkata.graphs;
+
+/**
+ * Immutable directed graph whose vertices are arbitrary long ids.
+ *
+ * The ids are numbered 0..n-1 in the order they were first added, and the
+ * edges between those numbers are laid out as in {@link IntGraph}: 12 bytes
+ * per edge, plus 16 to 24 per vertex for its 8 byte id and the two to four
+ * int slots per id of an open addressing index. The entry points take and
+ * the results report the long ids boxed as Long, since they are shared with
+ * {@link CompactGraph}; edge ids from {@link #minimumSpanningForest()} stay
+ * primitive. Built with {@link Builder}. Safe to share between threads.
+ */
+public final class LongGraph {
+    private final LongIdList ids;
+    private final CompactGraph<Long> graph;
+
+    private LongGraph(LongIdList ids, CompactGraph<Long> graph)
+    {
+        this.ids = ids;
+        this.graph = graph;
+    }
+
+    public int getVertexCount()
+    {
+        return graph.getVertexCount();
+    }
+
+    public int getEdgeCount()
+    {
+        return graph.getEdgeCount();
+    }
+
+    /**
+     * @param id
+     * @return vertex number of id, -1 if it is not in the graph
+     */
+    public int indexOf(long id)
+    {
+        return ids.indexOf(id);
+    }
+
+    /**
+     * @param vertex
+     * @return id of the vertex numbered vertex
+     */
+    public long getId(int vertex)
+    {
+        return ids.getId(vertex);
+    }
+
+    /**
+     * @param vertex
+     * @return id of the first out edge of vertex
+     */
+    public int edgeBegin(int vertex)
+    {
+        return graph.edgeBegin(vertex);
+    }
+
+    /**
+     * @param vertex
+     * @return id after the last out edge of vertex
+     */
+    public int edgeEnd(int vertex)
+    {
+        return graph.edgeEnd(vertex);
+    }
+
+    public int getOutDegree(int vertex)
+    {
+        return graph.getOutDegree(vertex);
+    }
+
+    /**
+     * @param edge
+     * @return vertex number the edge leaves, O(log V)
+     */
+    public int getSource(int edge)
+    {
+        return graph.getSource(edge);
+    }
+
+    /**
+     * @param edge
+     * @return vertex number the edge enters
+     */
+    public int getTarget(int edge)
+    {
+        return graph.getTarget(edge);
+    }
+
+    public double getWeight(int edge)
+    {
+        return graph.getWeight(edge);
+    }
+
+    /**
+     * @return this graph as a CompactGraph whose vertex values are the ids,
+     *         sharing the edge arrays
+     */
+    public CompactGraph<Long> asCompactGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @param source
+     * @return hop distances and search tree from source
+     */
+    public BreadthFirstTree<Long> breadthFirstSearch(long source)
+    {
+        return CompactGraphAlgorithms.breadthFirstSearch(graph, Long.valueOf(source));
+    }
+
+    /**
+     * @return discovery and finish times and the topological order
+     */
+    public DepthFirstForest<Long> depthFirstSearch()
+    {
+        return CompactGraphAlgorithms.depthFirstSearch(graph);
+    }
+
+    /**
+     * @param source
+     * @return Dijkstra shortest path tree from source
+     * @throws IllegalArgumentException on a negative edge weight
+     */
+    public ShortestPaths<Long> dijkstra(long source)
+    {
+        return CompactGraphAlgorithms.dijkstra(graph, Long.valueOf(source));
+    }
+
+    /**
+     * @param source
+     * @return Bellman-Ford shortest path tree from source, or a negative
+     *         cycle
+     */
+    public ShortestPaths<Long> bellmanFord(long source)
+    {
+        return CompactGraphAlgorithms.bellmanFord(graph, Long.valueOf(source));
+    }
+
+    /**
+     * Kruskal's minimum spanning forest, edge directions ignored
+     *
+     * @return edge ids of the forest
+     */
+    public int[] minimumSpanningForest()
+    {
+        return CompactGraphAlgorithms.kruskal(graph);
+    }
+
+    /**
+     * Numbers ids as they are first seen and collects edges in primitive
+     * arrays, laid out by source once in {@link #build()}. Parallel edges are
+     * kept. A builder can be used for one graph.
+     */
+    public static final class Builder {
+        private final LongIdList ids;
+        private final CsrBuilder edges;
+        private boolean built;
+
+        public Builder()
+        {
+            this(16, 16);
+        }
+
+        /**
+         * @param expectedVertices
+         * @param expectedEdges
+         */
+        public Builder(int expectedVertices, int expectedEdges)
+        {
+            ids = new LongIdList(expectedVertices);
+            edges = new CsrBuilder(expectedEdges);
+        }
+
+        /**
+         * Adds id if it is new, for isolated vertices
+         *
+         * @param id
+         * @return this builder
+         */
+        public Builder addVertex(long id)
+        {
+            checkNotBuilt();
+            ids.add(id);
+            return this;
+        }
+
+        /**
+         * @param from
+         * @param to
+         * @param weight
+         * @return this builder
+         */
+        public Builder addEdge(long from, long to, double weight)
+        {
+            checkNotBuilt();
+            edges.add(ids.add(from), ids.add(to), weight);
+            return this;
+        }
+
+        /**
+         * Adds the edges from -> to and to -> from
+         *
+         * @return this builder
+         */
+        public Builder addUndirectedEdge(long from, long to, double weight)
+        {
+            addEdge(from, to, weight);
+            return addEdge(to, from, weight);
+        }
+
+        public LongGraph build()
+        {
+            checkNotBuilt();
+            built = true;
+            return new LongGraph(ids, edges.build(ids));
+        }
+
+        private void checkNotBuilt()
+        {
+            if (built)
+            {
+                throw new IllegalStateException("graph already built");
+            }
+        }
+    }
+}
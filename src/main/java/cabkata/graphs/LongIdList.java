@@ -0,0 +1,140 @@
+package cabkata.graphs;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of distinct long ids in the order they were first added,
+ * indexed by an open addressing table of longs so indexOf is O(1) without a
+ * boxed key or an entry object per id
+ */
+final class LongIdList extends AbstractList<Long> implements RandomAccess {
+    private static final int EMPTY = -1;
+
+    private long[] ids;
+    // slot -> index into ids, EMPTY if free; kept at most half full
+    private int[] table;
+    private int size;
+
+    LongIdList(int capacity)
+    {
+        ids = new long[Math.max(capacity, 16)];
+        table = new int[tableSize(ids.length)];
+        Arrays.fill(table, EMPTY);
+    }
+
+    /**
+     * @param id
+     * @return index of id, added at the end if it is new
+     */
+    int add(long id)
+    {
+        int slot = slot(id, table);
+        while (table[slot] != EMPTY)
+        {
+            if (ids[table[slot]] == id)
+            {
+                return table[slot];
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        if (size == ids.length)
+        {
+            ids = Arrays.copyOf(ids, size * 2);
+            rehash(tableSize(ids.length));
+            slot = slot(id, table);
+            while (table[slot] != EMPTY)
+            {
+                slot = (slot + 1) & (table.length - 1);
+            }
+        }
+        ids[size] = id;
+        table[slot] = size;
+        return size++;
+    }
+
+    /**
+     * @param id
+     * @return index of id, -1 if absent
+     */
+    int indexOf(long id)
+    {
+        for (int slot = slot(id, table); table[slot] != EMPTY; slot = (slot + 1)
+                & (table.length - 1))
+        {
+            if (ids[table[slot]] == id)
+            {
+                return table[slot];
+            }
+        }
+        return -1;
+    }
+
+    long getId(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return ids[index];
+    }
+
+    @Override
+    public Long get(int index)
+    {
+        return Long.valueOf(getId(index));
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public int indexOf(Object o)
+    {
+        return o instanceof Long ? indexOf(((Long) o).longValue()) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o)
+    {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        return indexOf(o) >= 0;
+    }
+
+    private void rehash(int length)
+    {
+        final int[] rehashed = new int[length];
+        Arrays.fill(rehashed, EMPTY);
+        for (int i = 0; i < size; i++)
+        {
+            int slot = slot(ids[i], rehashed);
+            while (rehashed[slot] != EMPTY)
+            {
+                slot = (slot + 1) & (length - 1);
+            }
+            rehashed[slot] = i;
+        }
+        table = rehashed;
+    }
+
+    private static int tableSize(int capacity)
+    {
+        return Integer.highestOneBit(capacity) << 2;
+    }
+
+    private static int slot(long id, int[] table)
+    {
+        // spread the bits of sequential and strided ids over the table
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (table.length - 1);
+    }
+}
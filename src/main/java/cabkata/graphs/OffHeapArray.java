@@ -0,0 +1,191 @@
+package cabkata.graphs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Array of ints, longs or doubles outside the Java heap, indexed by long.
+ *
+ * A ByteBuffer holds at most 2GB, so the elements are spread over segments
+ * of 2^segmentShift bytes; element sizes divide the segment size, so no
+ * element straddles two segments and an index splits into a segment and an
+ * offset with a shift and a mask. Segments are direct buffers, grown on
+ * demand with only the last one smaller than full size, or read only
+ * mappings of a file. The garbage collector sees a handful of buffer objects
+ * whatever the length. Values are little endian, so a direct array written
+ * to a file maps back unchanged. Absolute reads only: safe to read from many
+ * threads once filled.
+ */
+final class OffHeapArray {
+    static final int SEGMENT_SHIFT = 30;
+    private static final int MIN_SEGMENT_SIZE = 1 << 12;
+
+    private final int elementShift;
+    private final int segmentShift;
+    private final long segmentMask;
+    private ByteBuffer[] segments;
+    private int segmentCount;
+    private long capacityBytes;
+
+    private OffHeapArray(int elementShift, int segmentShift)
+    {
+        this.elementShift = elementShift;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+        this.segments = new ByteBuffer[4];
+    }
+
+    /**
+     * @param elementShift log2 of the element size, 2 for ints and 3 for
+     *            longs and doubles
+     * @param segmentShift log2 of the bytes per segment
+     * @return empty array that allocates direct memory as it is grown
+     */
+    static OffHeapArray allocate(int elementShift, int segmentShift)
+    {
+        return new OffHeapArray(elementShift, segmentShift);
+    }
+
+    /**
+     * Maps length elements of channel starting at position, read only
+     *
+     * @throws IOException
+     */
+    static OffHeapArray map(FileChannel channel, long position, long length,
+            int elementShift) throws IOException
+    {
+        OffHeapArray array = new OffHeapArray(elementShift, SEGMENT_SHIFT);
+        final long bytes = length << elementShift;
+        final long segmentSize = 1L << SEGMENT_SHIFT;
+        for (long at = 0; at < bytes; at += segmentSize)
+        {
+            ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                    position + at, Math.min(segmentSize, bytes - at));
+            array.addSegment(segment.order(ByteOrder.LITTLE_ENDIAN));
+        }
+        return array;
+    }
+
+    /**
+     * Makes room for length elements, allocating direct memory as needed
+     */
+    void ensureCapacity(long length)
+    {
+        final long bytes = length << elementShift;
+        final int segmentSize = 1 << segmentShift;
+        while (capacityBytes < bytes)
+        {
+            final ByteBuffer last = segmentCount == 0 ? null : segments[segmentCount - 1];
+            final long missing = bytes - capacityBytes;
+            if (last == null || last.capacity() == segmentSize)
+            {
+                addSegment(allocateSegment(size(missing, 0)));
+            }
+            else
+            {
+                // the last segment doubles until it is full size
+                final ByteBuffer grown = allocateSegment(size(missing,
+                        last.capacity()));
+                ByteBuffer source = last.duplicate();
+                source.clear();
+                grown.put(source);
+                segments[segmentCount - 1] = grown;
+                capacityBytes += grown.capacity() - last.capacity();
+            }
+        }
+    }
+
+    /**
+     * @return size of a segment that holds missing more bytes than current
+     */
+    private int size(long missing, int current)
+    {
+        long size = Math.max(MIN_SEGMENT_SIZE, current * 2L);
+        while (size < current + missing && size < (1L << segmentShift))
+        {
+            size <<= 1;
+        }
+        return (int) Math.min(size, 1L << segmentShift);
+    }
+
+    private static ByteBuffer allocateSegment(int size)
+    {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void addSegment(ByteBuffer segment)
+    {
+        if (segmentCount == segments.length)
+        {
+            segments = Arrays.copyOf(segments, segmentCount * 2);
+        }
+        segments[segmentCount++] = segment;
+        capacityBytes += segment.capacity();
+    }
+
+    int getInt(long index)
+    {
+        final long position = index << elementShift;
+        return segments[(int) (position >>> segmentShift)]
+                .getInt((int) (position & segmentMask));
+    }
+
+    long getLong(long index)
+    {
+        final long position = index << elementShift;
+        return segments[(int) (position >>> segmentShift)]
+                .getLong((int) (position & segmentMask));
+    }
+
+    double getDouble(long index)
+    {
+        final long position = index << elementShift;
+        return segments[(int) (position >>> segmentShift)]
+                .getDouble((int) (position & segmentMask));
+    }
+
+    void putInt(long index, int value)
+    {
+        final long position = index << elementShift;
+        segments[(int) (position >>> segmentShift)].putInt(
+                (int) (position & segmentMask), value);
+    }
+
+    void putLong(long index, long value)
+    {
+        final long position = index << elementShift;
+        segments[(int) (position >>> segmentShift)].putLong(
+                (int) (position & segmentMask), value);
+    }
+
+    void putDouble(long index, double value)
+    {
+        final long position = index << elementShift;
+        segments[(int) (position >>> segmentShift)].putDouble(
+                (int) (position & segmentMask), value);
+    }
+
+    /**
+     * Writes the first length elements to channel at its position
+     *
+     * @throws IOException
+     */
+    void write(FileChannel channel, long length) throws IOException
+    {
+        long remaining = length << elementShift;
+        for (int i = 0; i < segmentCount && remaining > 0; i++)
+        {
+            ByteBuffer source = segments[i].duplicate();
+            source.clear();
+            source.limit((int) Math.min(source.capacity(), remaining));
+            remaining -= source.limit();
+            while (source.hasRemaining())
+            {
+                channel.write(source);
+            }
+        }
+    }
+}
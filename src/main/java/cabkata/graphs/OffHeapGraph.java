@@ -0,0 +1,454 @@
+package cabkata.graphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable compressed sparse row graph whose edges live outside the Java
+ * heap, for graphs too large for {@link CompactGraph}.
+ *
+ * The layout is the one of CompactGraph, but edge ids and offsets are longs,
+ * so the edge count is not capped at Integer.MAX_VALUE, and the offsets,
+ * targets and weights are segmented direct buffers or mappings of a file
+ * (see {@link OffHeapArray}). A billion edges then take 12GB that the
+ * garbage collector never scans or copies; only the vertex values and their
+ * index stay on the heap. Build one with {@link Builder} or
+ * {@link #copyOf(CompactGraph)}, store it with {@link #write(File)} and map
+ * it back with {@link #open(File, List)}. The breadth first search and
+ * Dijkstra of {@link GraphAlgorithms} read it directly.
+ *
+ * <pre>
+ * header    magic, version, vertex count, edge count (long)
+ * offsets   long[vertexCount + 1]
+ * targets   int[edgeCount]
+ * weights   double[edgeCount]
+ * </pre>
+ *
+ * Values are little endian and sections start 8 byte aligned. Safe to share
+ * between threads.
+ *
+ * @param <V>
+ */
+public final class OffHeapGraph<V> implements VertexIndex<V> {
+    public static final int MAGIC = 0x47484f43; // "COHG" read little endian
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+
+    private final List<V> vertices;
+    private final Map<V, Integer> indices;
+    private final OffHeapArray offsets;
+    private final OffHeapArray targets;
+    private final OffHeapArray weights;
+    private final long edgeCount;
+
+    private OffHeapGraph(List<V> vertices, Map<V, Integer> indices,
+            OffHeapArray offsets, OffHeapArray targets, OffHeapArray weights,
+            long edgeCount)
+    {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * @param vertexCount
+     * @return builder of a graph over the vertices 0..vertexCount-1, which
+     *         need no index on the heap
+     */
+    public static Builder<Integer> builder(int vertexCount)
+    {
+        if (vertexCount < 0)
+        {
+            throw new IllegalArgumentException("vertexCount may not be negative");
+        }
+        return new Builder<Integer>(new IdList(vertexCount), null,
+                OffHeapArray.SEGMENT_SHIFT);
+    }
+
+    /**
+     * @param graph
+     * @return off heap copy of graph
+     */
+    public static <V> OffHeapGraph<V> copyOf(CompactGraph<V> graph)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        Builder<V> builder = new Builder<V>(graph.getVertices());
+        for (int v = 0; v < graph.getVertexCount(); v++)
+        {
+            for (int edge = graph.edgeBegin(v), end = graph.edgeEnd(v); edge < end; edge++)
+            {
+                builder.addEdge(v, graph.getTarget(edge), graph.getWeight(edge));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param graph
+     * @return off heap copy of a snapshot of graph
+     */
+    public static <V> OffHeapGraph<V> copyOf(Graph<V> graph)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        return copyOf(graph.compile());
+    }
+
+    public int getVertexCount()
+    {
+        return vertices.size();
+    }
+
+    public long getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    @Override
+    public V getVertex(int index)
+    {
+        return vertices.get(index);
+    }
+
+    @Override
+    public int indexOf(V v)
+    {
+        if (indices == null)
+        {
+            return vertices.indexOf(v);
+        }
+        Integer index = indices.get(v);
+        return index == null ? -1 : index.intValue();
+    }
+
+    public List<V> getVertices()
+    {
+        return Collections.unmodifiableList(vertices);
+    }
+
+    /**
+     * @param vertex
+     * @return id of the first out edge of vertex
+     */
+    public long edgeBegin(int vertex)
+    {
+        return offsets.getLong(vertex);
+    }
+
+    /**
+     * @param vertex
+     * @return one past the id of the last out edge of vertex
+     */
+    public long edgeEnd(int vertex)
+    {
+        return offsets.getLong(vertex + 1);
+    }
+
+    public long getOutDegree(int vertex)
+    {
+        return offsets.getLong(vertex + 1) - offsets.getLong(vertex);
+    }
+
+    public int getTarget(long edge)
+    {
+        return targets.getInt(edge);
+    }
+
+    public double getWeight(long edge)
+    {
+        return weights.getDouble(edge);
+    }
+
+    /**
+     * Writes the edges to file; the vertex values are not stored and are
+     * given again to {@link #open(File, List)}
+     *
+     * @param file overwritten with the graph
+     * @throws IOException
+     */
+    public void write(File file) throws IOException
+    {
+        final int numNodes = getVertexCount();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            randomAccessFile.setLength(0);
+            final FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(
+                    ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(numNodes).putInt(0)
+                    .putLong(edgeCount);
+            header.clear();
+            while (header.hasRemaining())
+            {
+                channel.write(header);
+            }
+            offsets.write(channel, numNodes + 1L);
+            channel.position(targetsAt(numNodes));
+            targets.write(channel, edgeCount);
+            channel.position(weightsAt(numNodes, edgeCount));
+            weights.write(channel, edgeCount);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Maps a graph written by {@link #write(File)} over the vertices 0..n-1
+     *
+     * @param file
+     * @return graph reading straight from the mapped file
+     * @throws IOException if the file is not a graph file of a known version
+     */
+    public static OffHeapGraph<Integer> open(File file) throws IOException
+    {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final int numNodes = readVertexCount(file, channel);
+            return map(file, channel, new IdList(numNodes), null);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Maps a graph written by {@link #write(File)}. The mapping outlives the
+     * file handle and is released when the graph is garbage collected.
+     *
+     * @param file
+     * @param vertices values of the vertices in id order, as the written
+     *            graph had them
+     * @return graph reading straight from the mapped file
+     * @throws IOException if the file is not a graph file of a known version
+     */
+    public static <V> OffHeapGraph<V> open(File file, List<V> vertices)
+            throws IOException
+    {
+        if (vertices == null)
+        {
+            throw new IllegalArgumentException("vertices is null");
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final int numNodes = readVertexCount(file, channel);
+            if (vertices.size() != numNodes)
+            {
+                throw new IOException(file + " has " + numNodes
+                        + " vertices, not " + vertices.size());
+            }
+            final List<V> values = new ArrayList<V>(vertices);
+            return map(file, channel, values, index(values));
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    private static int readVertexCount(File file, FileChannel channel)
+            throws IOException
+    {
+        if (channel.size() < HEADER_SIZE)
+        {
+            throw new IOException(file + " is not an off heap graph file");
+        }
+        final ByteBuffer header = header(channel);
+        if (header.getInt(0) != MAGIC)
+        {
+            throw new IOException(file + " is not an off heap graph file");
+        }
+        if (header.getInt(4) != VERSION)
+        {
+            throw new IOException(file
+                    + " has unsupported off heap graph format version "
+                    + header.getInt(4));
+        }
+        final int numNodes = header.getInt(8);
+        if (numNodes < 0)
+        {
+            throw new IOException(file + " is corrupt");
+        }
+        return numNodes;
+    }
+
+    private static ByteBuffer header(FileChannel channel) throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(
+                ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static <V> OffHeapGraph<V> map(File file, FileChannel channel,
+            List<V> vertices, Map<V, Integer> indices) throws IOException
+    {
+        final int numNodes = vertices.size();
+        final long numEdges = header(channel).getLong(16);
+        if (numEdges < 0
+                || channel.size() < weightsAt(numNodes, numEdges) + 8 * numEdges)
+        {
+            throw new IOException(file + " is truncated");
+        }
+        return new OffHeapGraph<V>(vertices, indices, OffHeapArray.map(channel,
+                HEADER_SIZE, numNodes + 1L, 3), OffHeapArray.map(channel,
+                targetsAt(numNodes), numEdges, 2), OffHeapArray.map(channel,
+                weightsAt(numNodes, numEdges), numEdges, 3), numEdges);
+    }
+
+    private static long targetsAt(int numNodes)
+    {
+        return HEADER_SIZE + 8L * (numNodes + 1);
+    }
+
+    private static long weightsAt(int numNodes, long numEdges)
+    {
+        return (targetsAt(numNodes) + 4 * numEdges + 7) & ~7L;
+    }
+
+    private static <V> Map<V, Integer> index(List<V> vertices)
+    {
+        Map<V, Integer> indices = new HashMap<V, Integer>(vertices.size() * 2);
+        for (int v = 0; v < vertices.size(); v++)
+        {
+            if (indices.put(vertices.get(v), Integer.valueOf(v)) != null)
+            {
+                throw new IllegalArgumentException("duplicate vertex "
+                        + vertices.get(v));
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Appends edges grouped by source in ascending order, the order of an
+     * edge list sorted by source, straight into direct memory, so nothing
+     * per edge is ever held on the heap. A builder can be used for one
+     * graph.
+     *
+     * @param <V>
+     */
+    public static final class Builder<V> {
+        private final List<V> vertices;
+        private final Map<V, Integer> indices;
+        private final OffHeapArray offsets;
+        private final OffHeapArray targets;
+        private final OffHeapArray weights;
+        private long edgeCount;
+        // vertices before this one have all their edges
+        private int nextSource;
+        private boolean built;
+
+        /**
+         * @param vertices values of the vertex ids 0..n-1
+         */
+        public Builder(List<V> vertices)
+        {
+            this(copy(vertices), OffHeapArray.SEGMENT_SHIFT);
+        }
+
+        Builder(List<V> vertices, int segmentShift)
+        {
+            this(vertices, index(vertices), segmentShift);
+        }
+
+        /**
+         * @param indices null if vertices answers indexOf in constant time
+         */
+        Builder(List<V> vertices, Map<V, Integer> indices, int segmentShift)
+        {
+            this.vertices = vertices;
+            this.indices = indices;
+            offsets = OffHeapArray.allocate(3, segmentShift);
+            targets = OffHeapArray.allocate(2, segmentShift);
+            weights = OffHeapArray.allocate(3, segmentShift);
+            offsets.ensureCapacity(vertices.size() + 1L);
+        }
+
+        /**
+         * @param from may not be lower than the source of the previous edge
+         * @param to
+         * @param weight
+         * @return this builder
+         */
+        public Builder<V> addEdge(int from, int to, double weight)
+        {
+            if (built)
+            {
+                throw new IllegalStateException("graph already built");
+            }
+            if (from < 0 || from >= vertices.size() || to < 0
+                    || to >= vertices.size())
+            {
+                throw new IllegalArgumentException("edge " + from + " -> " + to
+                        + " outside of " + vertices.size() + " vertices");
+            }
+            if (from + 1 < nextSource)
+            {
+                throw new IllegalArgumentException(
+                        "edges must be added in order of their source");
+            }
+            closeUpTo(from);
+            targets.ensureCapacity(edgeCount + 1);
+            weights.ensureCapacity(edgeCount + 1);
+            targets.putInt(edgeCount, to);
+            weights.putDouble(edgeCount, weight);
+            edgeCount++;
+            return this;
+        }
+
+        /**
+         * Ends the edge lists of the vertices before source
+         */
+        private void closeUpTo(int source)
+        {
+            while (nextSource <= source)
+            {
+                offsets.putLong(nextSource, edgeCount);
+                nextSource++;
+            }
+        }
+
+        public OffHeapGraph<V> build()
+        {
+            if (built)
+            {
+                throw new IllegalStateException("graph already built");
+            }
+            built = true;
+            closeUpTo(vertices.size() - 1);
+            offsets.putLong(vertices.size(), edgeCount);
+            return new OffHeapGraph<V>(vertices, indices, offsets, targets,
+                    weights, edgeCount);
+        }
+
+        private static <V> List<V> copy(List<V> vertices)
+        {
+            if (vertices == null)
+            {
+                throw new IllegalArgumentException("vertices is null");
+            }
+            return new ArrayList<V>(vertices);
+        }
+    }
+}
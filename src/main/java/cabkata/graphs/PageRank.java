@@ -0,0 +1,157 @@
+package cabkata.graphs;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * PageRank and personalized PageRank by power iteration on a
+ * {@link VertexCentricEngine}.
+ *
+ * A random surfer follows a uniformly chosen out edge with probability
+ * damping and otherwise jumps according to the teleport distribution: to any
+ * vertex for PageRank, to one of the given sources for personalized
+ * PageRank. From a vertex without out edges it always jumps. Each vertex
+ * pulls rank / out degree from the sources of its in edges; edge weights are
+ * ignored and parallel edges count as often as they occur. The ranks sum to
+ * 1.
+ */
+public final class PageRank {
+    public static final double DEFAULT_DAMPING = 0.85;
+
+    /**
+     * @param graph
+     * @param damping probability of following an edge, in [0, 1)
+     * @param tolerance stop once the ranks moved by at most this much in
+     *            total, 1e-9 is typical
+     * @param maxIterations
+     * @param pool
+     * @return rank of every vertex
+     */
+    public static <V> VertexValues<V> pageRank(CompactGraph<V> graph,
+            double damping, double tolerance, int maxIterations, ForkJoinPool pool)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        validateDamping(damping);
+        return new VertexCentricEngine<V>(graph, pool).run(new Program(graph,
+                damping, null), maxIterations, tolerance);
+    }
+
+    /**
+     * @param graph
+     * @param sources vertices the surfer jumps back to, uniformly
+     * @param damping probability of following an edge, in [0, 1)
+     * @param tolerance stop once the ranks moved by at most this much in
+     *            total
+     * @param maxIterations
+     * @param pool
+     * @return rank of every vertex relative to sources
+     */
+    public static <V> VertexValues<V> personalizedPageRank(CompactGraph<V> graph,
+            Collection<V> sources, double damping, double tolerance,
+            int maxIterations, ForkJoinPool pool)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        validateDamping(damping);
+        if (sources == null || sources.isEmpty())
+        {
+            throw new IllegalArgumentException("sources are null or empty");
+        }
+        final double[] teleport = new double[graph.getVertexCount()];
+        int count = 0;
+        for (V source : sources)
+        {
+            final int index = CompactGraphAlgorithms.validateGraphAndSource(graph, source);
+            if (teleport[index] == 0.0)
+            {
+                teleport[index] = 1.0;
+                count++;
+            }
+        }
+        for (int v = 0; v < teleport.length; v++)
+        {
+            teleport[v] /= count;
+        }
+        return new VertexCentricEngine<V>(graph, pool).run(new Program(graph,
+                damping, teleport), maxIterations, tolerance);
+    }
+
+    private static void validateDamping(double damping)
+    {
+        if (!(damping >= 0.0 && damping < 1.0))
+        {
+            throw new IllegalArgumentException("damping must be in [0, 1)");
+        }
+    }
+
+    private static final class Program implements VertexProgram {
+        private final double damping;
+        // null for the uniform distribution
+        private final double[] teleport;
+        private final double uniform;
+        private final double[] inverseOutDegree;
+        private final int[] dangling;
+        private double danglingRank;
+
+        Program(CompactGraph<?> graph, double damping, double[] teleport)
+        {
+            final int numNodes = graph.getVertexCount();
+            this.damping = damping;
+            this.teleport = teleport;
+            this.uniform = 1.0 / numNodes;
+            this.inverseOutDegree = new double[numNodes];
+            IntList dangling = new IntList();
+            for (int v = 0; v < numNodes; v++)
+            {
+                final int degree = graph.getOutDegree(v);
+                if (degree == 0)
+                {
+                    dangling.add(v);
+                }
+                else
+                {
+                    inverseOutDegree[v] = 1.0 / degree;
+                }
+            }
+            this.dangling = dangling.toArray();
+        }
+
+        private double teleport(int vertex)
+        {
+            return teleport == null ? uniform : teleport[vertex];
+        }
+
+        @Override
+        public double initialValue(int vertex)
+        {
+            return teleport(vertex);
+        }
+
+        @Override
+        public void beforeIteration(double[] values)
+        {
+            double rank = 0.0;
+            for (int v : dangling)
+            {
+                rank += values[v];
+            }
+            danglingRank = rank;
+        }
+
+        @Override
+        public double compute(int vertex, CompactGraph<?> in, double[] values)
+        {
+            double pulled = 0.0;
+            for (int edge = in.edgeBegin(vertex), end = in.edgeEnd(vertex); edge < end; edge++)
+            {
+                final int source = in.getTarget(edge);
+                pulled += values[source] * inverseOutDegree[source];
+            }
+            final double jump = teleport(vertex);
+            return (1.0 - damping) * jump + damping * (pulled + danglingRank * jump);
+        }
+    }
+
+    private PageRank()
+    {
+    }
+}
@@ -0,0 +1,149 @@
+package cabkata.graphs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Round synchronous Bellman-Ford on a fork-join pool.
+ *
+ * Each round reads the distances of the previous round and writes the next
+ * ones: every vertex scans its in edges, {@link CompactGraph#reverse()}, and
+ * keeps the cheapest offer of a neighbour that changed in the previous round.
+ * Tasks own whole 64 vertex words of the change bitmaps, so all writes are
+ * private and the predecessor of a vertex always matches its distance. After
+ * k rounds every path of up to k edges is accounted for, which gives the same
+ * |V| - 1 round bound as the sequential passes.
+ */
+final class ParallelBellmanFord {
+    private static final int WORD_GRAIN = 16;
+
+    /**
+     * @param weights filled with Double.MAX_VALUE, receives the distances
+     * @param predecessors filled with -1, receives the predecessors
+     * @return vertex ids of a negative cycle in path order, null if there is
+     *         none
+     */
+    static int[] search(CompactGraph<?> graph, int source, ForkJoinPool pool,
+            double[] weights, int[] predecessors)
+    {
+        final int numNodes = graph.getVertexCount();
+        final int words = (numNodes + 63) >>> 6;
+        final CompactGraph<?> reverse = graph.reverse();
+        weights[source] = 0.0;
+        double[] current = weights;
+        double[] next = weights.clone();
+        long[] changed = new long[words];
+        changed[source >>> 6] = 1L << source;
+
+        int[] cycle = null;
+        for (int round = 1;; round++)
+        {
+            final long[] nextChanged = new long[words];
+            final int improved = pool.invoke(new RelaxTask(reverse, current,
+                    next, predecessors, changed, nextChanged, 0, words)).intValue();
+            final double[] swap = current;
+            current = next;
+            next = swap;
+            changed = nextChanged;
+            if (improved == 0)
+            {
+                break;
+            }
+            if (round >= numNodes)
+            {
+                cycle = CompactGraphAlgorithms.findPredecessorCycle(predecessors);
+                if (cycle != null)
+                {
+                    break;
+                }
+            }
+        }
+        if (current != weights)
+        {
+            System.arraycopy(current, 0, weights, 0, numNodes);
+        }
+        return cycle;
+    }
+
+    /**
+     * Computes the next distances of the vertices in the words [fromWord,
+     * toWord), returning how many of them dropped
+     */
+    private static final class RelaxTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> reverse;
+        private final double[] current;
+        private final double[] next;
+        private final int[] predecessors;
+        private final long[] changed;
+        private final long[] nextChanged;
+        private final int fromWord;
+        private final int toWord;
+
+        RelaxTask(CompactGraph<?> reverse, double[] current, double[] next,
+                int[] predecessors, long[] changed, long[] nextChanged,
+                int fromWord, int toWord)
+        {
+            this.reverse = reverse;
+            this.current = current;
+            this.next = next;
+            this.predecessors = predecessors;
+            this.changed = changed;
+            this.nextChanged = nextChanged;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            if (toWord - fromWord > WORD_GRAIN)
+            {
+                final int mid = (fromWord + toWord) >>> 1;
+                RelaxTask left = new RelaxTask(reverse, current, next,
+                        predecessors, changed, nextChanged, fromWord, mid);
+                left.fork();
+                int right = new RelaxTask(reverse, current, next, predecessors,
+                        changed, nextChanged, mid, toWord).compute().intValue();
+                return Integer.valueOf(left.join().intValue() + right);
+            }
+
+            final int numNodes = reverse.getVertexCount();
+            int improved = 0;
+            for (int word = fromWord; word < toWord; word++)
+            {
+                long dropped = 0;
+                final int last = Math.min(numNodes, (word + 1) << 6);
+                for (int v = word << 6; v < last; v++)
+                {
+                    double best = current[v];
+                    for (int edge = reverse.edgeBegin(v), end = reverse.edgeEnd(v); edge < end; edge++)
+                    {
+                        final int from = reverse.getTarget(edge);
+                        if ((changed[from >>> 6] & (1L << from)) != 0)
+                        {
+                            final double totalCost = current[from] + reverse.getWeight(edge);
+                            if (totalCost < best)
+                            {
+                                best = totalCost;
+                                predecessors[v] = from;
+                            }
+                        }
+                    }
+                    next[v] = best;
+                    if (best < current[v])
+                    {
+                        dropped |= 1L << v;
+                        improved++;
+                    }
+                }
+                nextChanged[word] = dropped;
+            }
+            return Integer.valueOf(improved);
+        }
+    }
+
+    private ParallelBellmanFord()
+    {
+    }
+}
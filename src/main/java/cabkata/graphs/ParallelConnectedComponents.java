@@ -0,0 +1,139 @@
+package cabkata.graphs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import cabkata.sets.ConcurrentIntDisjointSet;
+
+/**
+ * Parallel weakly connected components by lock free union-find.
+ *
+ * The edges are split into chunks of whole vertices on the pool and every
+ * edge unions its endpoints in a shared {@link ConcurrentIntDisjointSet}, so
+ * no state is reset between components and the direction of an edge does not
+ * matter. Afforest style, a first pass links every vertex to its first
+ * neighbour only: that already merges most vertices into a few large trees
+ * cheaply, and the full pass then mostly finds endpoints in the same set.
+ * The roots are snapshot in parallel and numbered in one pass in the order
+ * of their smallest vertex.
+ */
+final class ParallelConnectedComponents {
+    private static final int VERTEX_GRAIN = 1024;
+    private static final int EDGE_GRAIN = 1 << 14;
+
+    static <V> ConnectedComponents<V> search(CompactGraph<V> graph,
+            ForkJoinPool pool)
+    {
+        final int numNodes = graph.getVertexCount();
+        final ConcurrentIntDisjointSet sets = new ConcurrentIntDisjointSet(numNodes);
+        pool.invoke(new UnionTask(graph, sets, 1, 0, numNodes));
+        pool.invoke(new UnionTask(graph, sets, Integer.MAX_VALUE, 0, numNodes));
+
+        final int[] roots = new int[numNodes];
+        pool.invoke(new RootTask(sets, roots, 0, numNodes));
+
+        final int[] ids = new int[numNodes];
+        final int[] sizes = new int[sets.count()];
+        int count = 0;
+        for (int node = 0; node < numNodes; node++)
+        {
+            final int root = roots[node];
+            // ids are one based so the zeroed array means not numbered yet
+            if (ids[root] == 0)
+            {
+                ids[root] = ++count;
+            }
+            final int component = ids[root] - 1;
+            roots[node] = component;
+            sizes[component]++;
+        }
+        return new ConnectedComponents<V>(graph, roots, sizes);
+    }
+
+    /**
+     * Unions each vertex in [from, to) with the targets of its first
+     * maxEdges edges
+     */
+    private static final class UnionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> graph;
+        private final ConcurrentIntDisjointSet sets;
+        private final int maxEdges;
+        private final int from;
+        private final int to;
+
+        UnionTask(CompactGraph<?> graph, ConcurrentIntDisjointSet sets,
+                int maxEdges, int from, int to)
+        {
+            this.graph = graph;
+            this.sets = sets;
+            this.maxEdges = maxEdges;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            // split on edges too, so a few hubs do not serialize the pass
+            if (to - from > 1
+                    && (to - from > VERTEX_GRAIN * 8 || graph.edgeEnd(to - 1)
+                            - graph.edgeBegin(from) > EDGE_GRAIN))
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new UnionTask(graph, sets, maxEdges, from, mid),
+                        new UnionTask(graph, sets, maxEdges, mid, to));
+                return;
+            }
+            for (int node = from; node < to; node++)
+            {
+                final int begin = graph.edgeBegin(node);
+                final int end = (int) Math.min(graph.edgeEnd(node), (long) begin
+                        + maxEdges);
+                for (int edge = begin; edge < end; edge++)
+                {
+                    sets.union(node, graph.getTarget(edge));
+                }
+            }
+        }
+    }
+
+    /**
+     * Snapshots the root of every vertex in [from, to) once all unions are done
+     */
+    private static final class RootTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final ConcurrentIntDisjointSet sets;
+        private final int[] roots;
+        private final int from;
+        private final int to;
+
+        RootTask(ConcurrentIntDisjointSet sets, int[] roots, int from, int to)
+        {
+            this.sets = sets;
+            this.roots = roots;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > VERTEX_GRAIN * 8)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new RootTask(sets, roots, from, mid), new RootTask(
+                        sets, roots, mid, to));
+                return;
+            }
+            for (int node = from; node < to; node++)
+            {
+                roots[node] = sets.find(node);
+            }
+        }
+    }
+
+    private ParallelConnectedComponents()
+    {
+    }
+}
@@ -0,0 +1,248 @@
+package cabkata.graphs;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import cabkata.graphs.Graph.WeightedEdge;
+import cabkata.sets.ConcurrentIntDisjointSet;
+
+/**
+ * Parallel minimum spanning forest by Boruvka rounds on a fork-join pool.
+ *
+ * Each round labels every vertex with its component, then scans all edges in
+ * parallel and keeps the lightest edge leaving every component in an atomic
+ * slot per component. The kept edges are joined through a
+ * {@link ConcurrentIntDisjointSet}; an edge whose endpoints are already
+ * connected, like the second of two equally light edges closing a cycle, is
+ * dropped. Every round at least halves the number of components that still
+ * have edges leaving them, so there are at most log V rounds of O(E) work.
+ *
+ * Edges are treated as undirected as in
+ * {@link GraphAlgorithms#minimumSpanningTreeKruskal(CompactGraph)}, and a
+ * disconnected graph yields a spanning tree of every component. Instances
+ * hold no per run state and may be shared between threads.
+ */
+public final class ParallelMinimumSpanningTree {
+    private static final int VERTEX_GRAIN = 1024;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Runs on the common pool, which needs no shutting down
+     */
+    public ParallelMinimumSpanningTree()
+    {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelMinimumSpanningTree(ForkJoinPool pool)
+    {
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * @param graph
+     * @return edges of a minimum spanning forest
+     */
+    public <V> Set<WeightedEdge<V>> minimumSpanningTree(CompactGraph<V> graph)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+
+        final int numNodes = graph.getVertexCount();
+        final ConcurrentIntDisjointSet components = new ConcurrentIntDisjointSet(numNodes);
+        final int[] labels = new int[numNodes];
+        final AtomicIntegerArray cheapest = new AtomicIntegerArray(numNodes);
+        final IntList mstEdges = new IntList();
+        while (components.count() > 1)
+        {
+            pool.invoke(new LabelTask(components, labels, cheapest, 0, numNodes));
+            pool.invoke(new CheapestTask(graph, labels, cheapest, 0, numNodes));
+            final IntList joined = pool.invoke(new JoinTask(graph, components,
+                    cheapest, 0, numNodes));
+            if (joined.isEmpty())
+            {
+                // the remaining components have no edges between them
+                break;
+            }
+            mstEdges.addAll(joined);
+        }
+
+        Set<WeightedEdge<V>> mst = new HashSet<WeightedEdge<V>>();
+        for (int i = 0; i < mstEdges.size(); i++)
+        {
+            final int edge = mstEdges.get(i);
+            mst.add(graph.toWeightedEdge(graph.getSource(edge), edge));
+        }
+        return mst;
+    }
+
+    /**
+     * Orders edges by weight and then by id so every component agrees on the
+     * lightest of several equal edges
+     */
+    private static boolean isLighter(CompactGraph<?> graph, int edge, int other)
+    {
+        final double weight = graph.getWeight(edge);
+        final double otherWeight = graph.getWeight(other);
+        return weight < otherWeight || (weight == otherWeight && edge < other);
+    }
+
+    /**
+     * Snapshots the component of every vertex and clears its cheapest edge
+     */
+    private static final class LabelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final ConcurrentIntDisjointSet components;
+        private final int[] labels;
+        private final AtomicIntegerArray cheapest;
+        private final int from;
+        private final int to;
+
+        LabelTask(ConcurrentIntDisjointSet components, int[] labels,
+                AtomicIntegerArray cheapest, int from, int to)
+        {
+            this.components = components;
+            this.labels = labels;
+            this.cheapest = cheapest;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > VERTEX_GRAIN * 8)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new LabelTask(components, labels, cheapest, from, mid),
+                        new LabelTask(components, labels, cheapest, mid, to));
+                return;
+            }
+            for (int node = from; node < to; node++)
+            {
+                labels[node] = components.find(node);
+                cheapest.set(node, -1);
+            }
+        }
+    }
+
+    /**
+     * Offers every edge between two components to both of them
+     */
+    private static final class CheapestTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> graph;
+        private final int[] labels;
+        private final AtomicIntegerArray cheapest;
+        private final int from;
+        private final int to;
+
+        CheapestTask(CompactGraph<?> graph, int[] labels,
+                AtomicIntegerArray cheapest, int from, int to)
+        {
+            this.graph = graph;
+            this.labels = labels;
+            this.cheapest = cheapest;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > VERTEX_GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new CheapestTask(graph, labels, cheapest, from, mid),
+                        new CheapestTask(graph, labels, cheapest, mid, to));
+                return;
+            }
+            for (int node = from; node < to; node++)
+            {
+                final int component = labels[node];
+                for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+                {
+                    final int adjacentComponent = labels[graph.getTarget(edge)];
+                    if (adjacentComponent != component)
+                    {
+                        offer(component, edge);
+                        offer(adjacentComponent, edge);
+                    }
+                }
+            }
+        }
+
+        private void offer(int component, int edge)
+        {
+            int current = cheapest.get(component);
+            while (current < 0 || isLighter(graph, edge, current))
+            {
+                if (cheapest.compareAndSet(component, current, edge))
+                {
+                    return;
+                }
+                current = cheapest.get(component);
+            }
+        }
+    }
+
+    /**
+     * Unions along the cheapest edge of every component, returning the edges
+     * that joined two components
+     */
+    private static final class JoinTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> graph;
+        private final ConcurrentIntDisjointSet components;
+        private final AtomicIntegerArray cheapest;
+        private final int from;
+        private final int to;
+
+        JoinTask(CompactGraph<?> graph, ConcurrentIntDisjointSet components,
+                AtomicIntegerArray cheapest, int from, int to)
+        {
+            this.graph = graph;
+            this.components = components;
+            this.cheapest = cheapest;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntList compute()
+        {
+            if (to - from > VERTEX_GRAIN * 8)
+            {
+                final int mid = (from + to) >>> 1;
+                JoinTask left = new JoinTask(graph, components, cheapest, from, mid);
+                left.fork();
+                IntList joined = new JoinTask(graph, components, cheapest, mid, to).compute();
+                joined.addAll(left.join());
+                return joined;
+            }
+
+            IntList joined = new IntList();
+            for (int component = from; component < to; component++)
+            {
+                final int edge = cheapest.get(component);
+                if (edge >= 0
+                        && components.union(graph.getSource(edge), graph.getTarget(edge)))
+                {
+                    joined.add(edge);
+                }
+            }
+            return joined;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package cabkata.graphs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Parallel strongly connected components in the multistep style of Slota,
+ * Rajamanickam & Madduri.
+ *
+ * Trimming first labels the vertices without an in or out edge among the
+ * unlabeled ones, each its own component. A forward-backward search from the
+ * vertex with the most in and out edges then takes out the giant component:
+ * the vertices both reachable from the pivot and reaching it. The rest is
+ * colored: every vertex starts with its own id as color and the highest color
+ * is pushed along the edges until nothing changes, so each color is the
+ * highest id that reaches the vertex. A vertex that kept its own color is the
+ * root of a component made of the vertices of its color that reach it, which
+ * one backward search per root finds. Coloring repeats until every vertex is
+ * labeled.
+ *
+ * All searches run in parallel on the pool; the roots of one coloring round
+ * own disjoint colors so their backward searches never meet.
+ */
+final class ParallelStronglyConnectedComponents {
+    private static final int VERTEX_GRAIN = 1024;
+    private static final int ROOT_GRAIN = 64;
+    private static final int TRIM_ROUNDS = 3;
+    private static final int UNLABELED = -1;
+
+    static <V> StronglyConnectedComponents<V> search(CompactGraph<V> graph,
+            ForkJoinPool pool)
+    {
+        final int numNodes = graph.getVertexCount();
+        final CompactGraph<V> reverse = graph.reverse();
+        final AtomicIntegerArray components = new AtomicIntegerArray(numNodes);
+        final AtomicInteger count = new AtomicInteger();
+        final IntList remaining = new IntList(numNodes);
+        for (int node = 0; node < numNodes; node++)
+        {
+            components.lazySet(node, UNLABELED);
+            remaining.add(node);
+        }
+
+        int[] vertices = remaining.toArray();
+        for (int round = 0; round < TRIM_ROUNDS && vertices.length > 0; round++)
+        {
+            final int trimmed = pool.invoke(new TrimTask(graph, reverse,
+                    components, count, vertices, 0, vertices.length)).intValue();
+            vertices = unlabeled(components, vertices);
+            if (trimmed == 0)
+            {
+                break;
+            }
+        }
+
+        if (vertices.length > 0)
+        {
+            takeOutPivotComponent(graph, reverse, components, count,
+                    pivot(graph, reverse, vertices), pool);
+            vertices = unlabeled(components, vertices);
+        }
+
+        final AtomicIntegerArray colors = new AtomicIntegerArray(numNodes);
+        final AtomicIntegerArray queued = new AtomicIntegerArray(numNodes);
+        int round = 0;
+        while (vertices.length > 0)
+        {
+            for (int node : vertices)
+            {
+                colors.set(node, node);
+            }
+            int[] frontier = vertices;
+            while (frontier.length > 0)
+            {
+                round++;
+                frontier = pool.invoke(new ColorTask(graph, components, colors,
+                        queued, round, frontier, 0, frontier.length)).toArray();
+            }
+
+            IntList roots = new IntList();
+            for (int node : vertices)
+            {
+                if (colors.get(node) == node)
+                {
+                    roots.add(node);
+                }
+            }
+            final int[] rootArray = roots.toArray();
+            pool.invoke(new RootTask(reverse, components, colors, count,
+                    rootArray, 0, rootArray.length));
+            vertices = unlabeled(components, vertices);
+        }
+
+        final int[] labels = new int[numNodes];
+        for (int node = 0; node < numNodes; node++)
+        {
+            labels[node] = components.get(node);
+        }
+        return new StronglyConnectedComponents<V>(graph, labels, count.get());
+    }
+
+    private static int[] unlabeled(AtomicIntegerArray components, int[] vertices)
+    {
+        IntList unlabeled = new IntList();
+        for (int node : vertices)
+        {
+            if (components.get(node) == UNLABELED)
+            {
+                unlabeled.add(node);
+            }
+        }
+        return unlabeled.toArray();
+    }
+
+    /**
+     * @return vertex with the largest product of in and out degree, the most
+     *         likely member of a giant component
+     */
+    private static int pivot(CompactGraph<?> graph, CompactGraph<?> reverse,
+            int[] vertices)
+    {
+        int pivot = vertices[0];
+        long best = -1;
+        for (int node : vertices)
+        {
+            final long degree = (long) graph.getOutDegree(node)
+                    * reverse.getOutDegree(node);
+            if (degree > best)
+            {
+                best = degree;
+                pivot = node;
+            }
+        }
+        return pivot;
+    }
+
+    /**
+     * Labels the vertices both reachable from pivot and reaching it
+     */
+    private static void takeOutPivotComponent(CompactGraph<?> graph,
+            CompactGraph<?> reverse, AtomicIntegerArray components,
+            AtomicInteger count, int pivot, ForkJoinPool pool)
+    {
+        final int numNodes = graph.getVertexCount();
+        final AtomicIntegerArray marks = new AtomicIntegerArray(numNodes);
+        // forward marks 0 -> 1, backward only walks marked vertices 1 -> 2
+        marks.set(pivot, 2);
+        int[] frontier = { pivot };
+        while (frontier.length > 0)
+        {
+            frontier = pool.invoke(new ReachTask(graph, components, marks, 0,
+                    1, frontier, 0, frontier.length)).toArray();
+        }
+        frontier = new int[] { pivot };
+        while (frontier.length > 0)
+        {
+            frontier = pool.invoke(new ReachTask(reverse, components, marks, 1,
+                    2, frontier, 0, frontier.length)).toArray();
+        }
+        final int label = count.getAndIncrement();
+        for (int node = 0; node < numNodes; node++)
+        {
+            if (marks.get(node) == 2)
+            {
+                components.set(node, label);
+            }
+        }
+    }
+
+    private static boolean hasUnlabeledNeighbour(CompactGraph<?> graph,
+            AtomicIntegerArray components, int node)
+    {
+        for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+        {
+            final int adjacent = graph.getTarget(edge);
+            if (adjacent != node && components.get(adjacent) == UNLABELED)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Labels the vertices without an unlabeled in or out neighbour, returning
+     * how many there were
+     */
+    private static final class TrimTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> graph;
+        private final CompactGraph<?> reverse;
+        private final AtomicIntegerArray components;
+        private final AtomicInteger count;
+        private final int[] vertices;
+        private final int from;
+        private final int to;
+
+        TrimTask(CompactGraph<?> graph, CompactGraph<?> reverse,
+                AtomicIntegerArray components, AtomicInteger count,
+                int[] vertices, int from, int to)
+        {
+            this.graph = graph;
+            this.reverse = reverse;
+            this.components = components;
+            this.count = count;
+            this.vertices = vertices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            if (to - from > VERTEX_GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                TrimTask left = new TrimTask(graph, reverse, components, count,
+                        vertices, from, mid);
+                left.fork();
+                int right = new TrimTask(graph, reverse, components, count,
+                        vertices, mid, to).compute().intValue();
+                return Integer.valueOf(left.join().intValue() + right);
+            }
+
+            int trimmed = 0;
+            for (int i = from; i < to; i++)
+            {
+                final int node = vertices[i];
+                // a neighbour trimmed concurrently only delays this one
+                if (!hasUnlabeledNeighbour(graph, components, node)
+                        || !hasUnlabeledNeighbour(reverse, components, node))
+                {
+                    components.set(node, count.getAndIncrement());
+                    trimmed++;
+                }
+            }
+            return Integer.valueOf(trimmed);
+        }
+    }
+
+    /**
+     * One level of a search over unlabeled vertices, moving their mark from
+     * expected to mark
+     */
+    private static final class ReachTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> graph;
+        private final AtomicIntegerArray components;
+        private final AtomicIntegerArray marks;
+        private final int expected;
+        private final int mark;
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+
+        ReachTask(CompactGraph<?> graph, AtomicIntegerArray components,
+                AtomicIntegerArray marks, int expected, int mark,
+                int[] frontier, int from, int to)
+        {
+            this.graph = graph;
+            this.components = components;
+            this.marks = marks;
+            this.expected = expected;
+            this.mark = mark;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntList compute()
+        {
+            if (to - from > VERTEX_GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                ReachTask left = new ReachTask(graph, components, marks,
+                        expected, mark, frontier, from, mid);
+                left.fork();
+                IntList next = new ReachTask(graph, components, marks,
+                        expected, mark, frontier, mid, to).compute();
+                next.addAll(left.join());
+                return next;
+            }
+
+            IntList next = new IntList();
+            for (int i = from; i < to; i++)
+            {
+                final int node = frontier[i];
+                for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+                {
+                    final int adjacent = graph.getTarget(edge);
+                    if (components.get(adjacent) == UNLABELED
+                            && marks.compareAndSet(adjacent, expected, mark))
+                    {
+                        next.add(adjacent);
+                    }
+                }
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Pushes the colors of the frontier along their out edges, returning the
+     * vertices whose color rose
+     */
+    private static final class ColorTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> graph;
+        private final AtomicIntegerArray components;
+        private final AtomicIntegerArray colors;
+        private final AtomicIntegerArray queued;
+        private final int round;
+        private final int[] frontier;
+        private final int from;
+        private final int to;
+
+        ColorTask(CompactGraph<?> graph, AtomicIntegerArray components,
+                AtomicIntegerArray colors, AtomicIntegerArray queued, int round,
+                int[] frontier, int from, int to)
+        {
+            this.graph = graph;
+            this.components = components;
+            this.colors = colors;
+            this.queued = queued;
+            this.round = round;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntList compute()
+        {
+            if (to - from > VERTEX_GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                ColorTask left = new ColorTask(graph, components, colors,
+                        queued, round, frontier, from, mid);
+                left.fork();
+                IntList next = new ColorTask(graph, components, colors, queued,
+                        round, frontier, mid, to).compute();
+                next.addAll(left.join());
+                return next;
+            }
+
+            IntList next = new IntList();
+            for (int i = from; i < to; i++)
+            {
+                final int node = frontier[i];
+                final int color = colors.get(node);
+                for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+                {
+                    final int adjacent = graph.getTarget(edge);
+                    if (components.get(adjacent) == UNLABELED
+                            && raise(adjacent, color)
+                            && queued.getAndSet(adjacent, round) != round)
+                    {
+                        next.add(adjacent);
+                    }
+                }
+            }
+            return next;
+        }
+
+        private boolean raise(int node, int color)
+        {
+            int current = colors.get(node);
+            while (current < color)
+            {
+                if (colors.compareAndSet(node, current, color))
+                {
+                    return true;
+                }
+                current = colors.get(node);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Labels the component of every root: the vertices of its color that
+     * reach it
+     */
+    private static final class RootTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> reverse;
+        private final AtomicIntegerArray components;
+        private final AtomicIntegerArray colors;
+        private final AtomicInteger count;
+        private final int[] roots;
+        private final int from;
+        private final int to;
+
+        RootTask(CompactGraph<?> reverse, AtomicIntegerArray components,
+                AtomicIntegerArray colors, AtomicInteger count, int[] roots,
+                int from, int to)
+        {
+            this.reverse = reverse;
+            this.components = components;
+            this.colors = colors;
+            this.count = count;
+            this.roots = roots;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > ROOT_GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new RootTask(reverse, components, colors, count,
+                        roots, from, mid), new RootTask(reverse, components,
+                        colors, count, roots, mid, to));
+                return;
+            }
+
+            IntList q = new IntList();
+            for (int i = from; i < to; i++)
+            {
+                final int root = roots[i];
+                final int label = count.getAndIncrement();
+                q.clear();
+                q.add(root);
+                components.set(root, label);
+                for (int head = 0; head < q.size(); head++)
+                {
+                    final int node = q.get(head);
+                    for (int edge = reverse.edgeBegin(node), end = reverse.edgeEnd(node); edge < end; edge++)
+                    {
+                        final int adjacent = reverse.getTarget(edge);
+                        if (colors.get(adjacent) == root
+                                && components.get(adjacent) == UNLABELED)
+                        {
+                            components.set(adjacent, label);
+                            q.add(adjacent);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private ParallelStronglyConnectedComponents()
+    {
+    }
+}
@@ -0,0 +1,168 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of a shortest path query between two vertices: the path,
+ * its weight and how many vertices the search settled to find it. Results of
+ * a {@link CompactGraph} name vertices through that graph; results of a
+ * {@link Graph} keep only the vertices of the path, or its two ends if the
+ * target is not reachable. Safe to share between threads.
+ *
+ * @param <V>
+ */
+public final class PointToPointPath<V> {
+    private final CompactGraph<V> graph;
+    private final int source;
+    private final int target;
+    private final double weight;
+    private final int[] path;
+    private final int settled;
+
+    /**
+     * @param weight Double.MAX_VALUE if target is not reachable
+     * @param path vertex ids from source to target, empty if not reachable
+     */
+    PointToPointPath(CompactGraph<V> graph, int source, int target,
+            double weight, int[] path, int settled)
+    {
+        this.graph = graph;
+        this.source = source;
+        this.target = target;
+        this.weight = weight;
+        this.path = path;
+        this.settled = settled;
+    }
+
+    /**
+     * Follows the predecessors of space back from target
+     */
+    static <V> PointToPointPath<V> fromSearchSpace(CompactGraph<V> graph,
+            int source, int target, SearchSpace space, int settled)
+    {
+        if (!space.isLabeled(target))
+        {
+            return new PointToPointPath<V>(graph, source, target,
+                    Double.MAX_VALUE, new int[0], settled);
+        }
+        IntList reversed = new IntList();
+        for (int v = target; v >= 0; v = space.predecessor(v))
+        {
+            reversed.add(v);
+        }
+        final int[] path = new int[reversed.size()];
+        for (int i = 0; i < path.length; i++)
+        {
+            path[i] = reversed.get(path.length - 1 - i);
+        }
+        return new PointToPointPath<V>(graph, source, target,
+                space.distance(target), path, settled);
+    }
+
+    /**
+     * Joins the path of forward up to last with the path of backward, a
+     * search over the reverse graph from target, from first on; last and
+     * first are the same vertex or the ends of an edge
+     */
+    static <V> PointToPointPath<V> fromSearchSpaces(CompactGraph<V> graph,
+            int source, int target, double weight, SearchSpace forward,
+            int last, SearchSpace backward, int first, int settled)
+    {
+        IntList vertices = new IntList();
+        for (int v = last; v >= 0; v = forward.predecessor(v))
+        {
+            vertices.add(v);
+        }
+        final int forwardLength = vertices.size();
+        for (int v = last == first ? backward.predecessor(first) : first; v >= 0; v = backward
+                .predecessor(v))
+        {
+            vertices.add(v);
+        }
+        final int[] path = new int[vertices.size()];
+        for (int i = 0; i < forwardLength; i++)
+        {
+            path[i] = vertices.get(forwardLength - 1 - i);
+        }
+        for (int i = forwardLength; i < path.length; i++)
+        {
+            path[i] = vertices.get(i);
+        }
+        return new PointToPointPath<V>(graph, source, target, weight, path,
+                settled);
+    }
+
+    /**
+     * A result not tied to a compiled graph: it only keeps the vertices of
+     * the path, or the two ends if target is not reachable
+     *
+     * @param path vertices from source to target, empty if not reachable
+     */
+    static <V> PointToPointPath<V> fromVertices(V source, V target,
+            double weight, List<V> path, int settled)
+    {
+        List<V> vertices = new ArrayList<V>(path);
+        if (vertices.isEmpty())
+        {
+            vertices.add(source);
+            vertices.add(target);
+        }
+        final int[] ids = new int[path.size()];
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = i;
+        }
+        // no edges; only getVertex is ever asked of it
+        CompactGraph<V> graph = new CompactGraph<V>(vertices, null,
+                new int[vertices.size() + 1], new int[0], new double[0]);
+        return new PointToPointPath<V>(graph, 0, vertices.size() - 1, weight,
+                ids, settled);
+    }
+
+    public V getSource()
+    {
+        return graph.getVertex(source);
+    }
+
+    public V getTarget()
+    {
+        return graph.getVertex(target);
+    }
+
+    public boolean isReachable()
+    {
+        return path.length > 0;
+    }
+
+    /**
+     * @return path weight, Double.MAX_VALUE if the target is not reachable
+     */
+    public double getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * @return vertices from the source to the target, empty if the target is
+     *         not reachable
+     */
+    public List<V> getPath()
+    {
+        List<V> vertices = new ArrayList<V>(path.length);
+        for (int v : path)
+        {
+            vertices.add(graph.getVertex(v));
+        }
+        return Collections.unmodifiableList(vertices);
+    }
+
+    /**
+     * @return number of vertices the search settled, a measure of its work
+     */
+    public int getSettledCount()
+    {
+        return settled;
+    }
+}
@@ -0,0 +1,143 @@
+package cabkata.graphs;
+
+import cabkata.heap.IndexedMinHeap;
+
+/**
+ * Per thread working memory of the {@link CompactGraphAlgorithms}: queues,
+ * DFS stacks, heaps and point to point search spaces that do not outlive a
+ * run. Each is grown to the
+ * largest graph the thread has searched and then reused, so repeated queries
+ * only allocate the arrays of the results they return. A run must not start
+ * another run on the same thread while it still uses its scratch.
+ */
+final class Scratch {
+    private static final int[] EMPTY = new int[0];
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>()
+    {
+        @Override
+        protected Scratch initialValue()
+        {
+            return new Scratch();
+        }
+    };
+
+    private int[] queue = EMPTY;
+    private int[] backwardQueue = EMPTY;
+    private int[] stack = EMPTY;
+    private int[] cursor = EMPTY;
+    private IndexedMinHeap heap;
+    private IndexedMinHeap backwardHeap;
+    private final SearchSpace forward = new SearchSpace();
+    private final SearchSpace backward = new SearchSpace();
+
+    static Scratch get()
+    {
+        return SCRATCH.get();
+    }
+
+    /**
+     * Drops the calling thread's buffers
+     */
+    static void release()
+    {
+        SCRATCH.remove();
+    }
+
+    /**
+     * @return array of at least size ints, contents undefined
+     */
+    int[] queue(int size)
+    {
+        if (queue.length < size)
+        {
+            queue = new int[size];
+        }
+        return queue;
+    }
+
+    /**
+     * Second queue for searches that grow from both ends, see
+     * {@link #queue(int)}
+     */
+    int[] backwardQueue(int size)
+    {
+        if (backwardQueue.length < size)
+        {
+            backwardQueue = new int[size];
+        }
+        return backwardQueue;
+    }
+
+    int[] stack(int size)
+    {
+        if (stack.length < size)
+        {
+            stack = new int[size];
+        }
+        return stack;
+    }
+
+    int[] cursor(int size)
+    {
+        if (cursor.length < size)
+        {
+            cursor = new int[size];
+        }
+        return cursor;
+    }
+
+    /**
+     * @return empty heap for ids below capacity
+     */
+    IndexedMinHeap heap(int capacity)
+    {
+        if (heap == null || heap.capacity() < capacity)
+        {
+            heap = new IndexedMinHeap(capacity);
+        }
+        else
+        {
+            heap.clear();
+        }
+        return heap;
+    }
+
+    /**
+     * Second heap for searches that grow from both ends, see
+     * {@link #heap(int)}
+     */
+    IndexedMinHeap backwardHeap(int capacity)
+    {
+        if (backwardHeap == null || backwardHeap.capacity() < capacity)
+        {
+            backwardHeap = new IndexedMinHeap(capacity);
+        }
+        else
+        {
+            backwardHeap.clear();
+        }
+        return backwardHeap;
+    }
+
+    /**
+     * @return search space with no labels for ids below size
+     */
+    SearchSpace forward(int size)
+    {
+        forward.reset(size);
+        return forward;
+    }
+
+    /**
+     * @return second search space, for the search from the other end
+     */
+    SearchSpace backward(int size)
+    {
+        backward.reset(size);
+        return backward;
+    }
+
+    private Scratch()
+    {
+    }
+}
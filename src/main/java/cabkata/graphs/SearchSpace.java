@@ -0,0 +1,63 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+
+/**
+ * Distances and predecessors of a point to point search that only touches
+ * part of the graph. Entries are valid when their stamp matches the current
+ * epoch, so starting the next search is O(1) instead of refilling V entries,
+ * which would cost more than the search itself on a large graph.
+ */
+final class SearchSpace {
+    private double[] distances = new double[0];
+    private int[] predecessors = new int[0];
+    private int[] stamps = new int[0];
+    private int epoch;
+
+    /**
+     * Forgets every label and makes room for ids below size
+     */
+    void reset(int size)
+    {
+        if (stamps.length < size)
+        {
+            distances = new double[size];
+            predecessors = new int[size];
+            stamps = new int[size];
+            epoch = 0;
+        }
+        if (++epoch == Integer.MAX_VALUE)
+        {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+    }
+
+    boolean isLabeled(int v)
+    {
+        return stamps[v] == epoch;
+    }
+
+    /**
+     * @return distance of v, Double.MAX_VALUE if it has none yet
+     */
+    double distance(int v)
+    {
+        return stamps[v] == epoch ? distances[v] : Double.MAX_VALUE;
+    }
+
+    /**
+     * @return predecessor of v, -1 if it has none
+     */
+    int predecessor(int v)
+    {
+        return stamps[v] == epoch ? predecessors[v] : -1;
+    }
+
+    void label(int v, double distance, int predecessor)
+    {
+        stamps[v] = epoch;
+        distances[v] = distance;
+        predecessors[v] = predecessor;
+    }
+}
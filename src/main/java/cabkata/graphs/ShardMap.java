@@ -0,0 +1,137 @@
+package cabkata.graphs;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Assignment of the vertex ids of a graph to shards, and of each vertex to
+ * its local id inside the shard that owns it. Either by hash, vertex v goes
+ * to shard v % shards, or by contiguous id ranges that hold roughly the same
+ * number of vertices plus edges each, which keeps the edges of graphs with
+ * locality in their ids inside one shard.
+ */
+final class ShardMap {
+    private final int vertexCount;
+    private final int shards;
+    // first vertex id of every shard and vertexCount last, null when hashed
+    private final int[] boundaries;
+
+    private ShardMap(int vertexCount, int shards, int[] boundaries)
+    {
+        this.vertexCount = vertexCount;
+        this.shards = shards;
+        this.boundaries = boundaries;
+    }
+
+    static ShardMap hash(int vertexCount, int shards)
+    {
+        return new ShardMap(vertexCount, shards, null);
+    }
+
+    /**
+     * Cuts the ids into ranges of about (V + E) / shards vertices and edges
+     */
+    static ShardMap range(CompactGraph<?> graph, int shards)
+    {
+        final int numNodes = graph.getVertexCount();
+        final long total = (long) numNodes + graph.getEdgeCount();
+        int[] boundaries = new int[shards + 1];
+        long cost = 0;
+        int shard = 1;
+        for (int v = 0; v < numNodes && shard < shards; v++)
+        {
+            cost += 1 + graph.getOutDegree(v);
+            while (shard < shards && cost >= total * shard / shards)
+            {
+                boundaries[shard++] = v + 1;
+            }
+        }
+        for (; shard <= shards; shard++)
+        {
+            boundaries[shard] = numNodes;
+        }
+        return new ShardMap(numNodes, shards, boundaries);
+    }
+
+    int getVertexCount()
+    {
+        return vertexCount;
+    }
+
+    int getShards()
+    {
+        return shards;
+    }
+
+    int owner(int vertex)
+    {
+        if (boundaries == null)
+        {
+            return vertex % shards;
+        }
+        // the last boundary at or below vertex, skipping empty shards
+        int index = Arrays.binarySearch(boundaries, vertex);
+        if (index < 0)
+        {
+            return -index - 2;
+        }
+        while (index < shards - 1 && boundaries[index + 1] == vertex)
+        {
+            index++;
+        }
+        return index;
+    }
+
+    int local(int vertex)
+    {
+        return boundaries == null ? vertex / shards : vertex
+                - boundaries[owner(vertex)];
+    }
+
+    int global(int shard, int local)
+    {
+        return boundaries == null ? local * shards + shard : boundaries[shard]
+                + local;
+    }
+
+    int localCount(int shard)
+    {
+        if (boundaries == null)
+        {
+            return (vertexCount - shard + shards - 1) / shards;
+        }
+        return boundaries[shard + 1] - boundaries[shard];
+    }
+
+    void write(DataOutputStream out) throws IOException
+    {
+        out.writeInt(vertexCount);
+        out.writeInt(shards);
+        out.writeBoolean(boundaries != null);
+        if (boundaries != null)
+        {
+            for (int boundary : boundaries)
+            {
+                out.writeInt(boundary);
+            }
+        }
+    }
+
+    static ShardMap read(DataInputStream in) throws IOException
+    {
+        final int vertexCount = in.readInt();
+        final int shards = in.readInt();
+        int[] boundaries = null;
+        if (in.readBoolean())
+        {
+            boundaries = new int[shards + 1];
+            for (int i = 0; i <= shards; i++)
+            {
+                boundaries[i] = in.readInt();
+            }
+        }
+        return new ShardMap(vertexCount, shards, boundaries);
+    }
+}
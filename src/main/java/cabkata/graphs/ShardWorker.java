@@ -0,0 +1,235 @@
+package cabkata.graphs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Worker process of a {@link ShardedGraph}. Loads one shard file, connects
+ * back to the coordinator and answers its supersteps until told to stop.
+ *
+ * The worker holds the value and predecessor of every vertex it owns. Edges
+ * to its own vertices are relaxed in place and those vertices searched from
+ * in the next superstep; for edges to other shards it sends the coordinator
+ * only the smallest (target, value, from) message per target.
+ *
+ * Usage: ShardWorker port shard-file
+ */
+public final class ShardWorker {
+    // coordinator commands
+    static final byte RESET = 1;
+    static final byte STEP = 2;
+    static final byte SHUTDOWN = 3;
+    static final byte COLLECT = 4;
+
+    private final GraphShard shard;
+    private final double[] values;
+    private final int[] predecessors;
+    private final boolean[] active;
+    // searched from in the next superstep
+    private IntList frontier = new IntList();
+    private IntList current = new IntList();
+    private boolean hops;
+    // messages to other shards: target << 32 | message index, sorted to
+    // keep the smallest per target
+    private long[] outKeys = new long[16];
+    private double[] outValues = new double[16];
+    private int[] outFroms = new int[16];
+    private int outSize;
+
+    ShardWorker(GraphShard shard)
+    {
+        this.shard = shard;
+        values = new double[shard.getLocalCount()];
+        predecessors = new int[shard.getLocalCount()];
+        active = new boolean[shard.getLocalCount()];
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            System.err.println("usage: ShardWorker port shard-file");
+            System.exit(2);
+        }
+        final GraphShard shard = GraphShard.read(new File(args[1]));
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(args[0]));
+        try
+        {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    socket.getOutputStream(), 1 << 16));
+            out.writeInt(shard.getIndex());
+            out.flush();
+            new ShardWorker(shard).serve(in, out);
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    /**
+     * Answers commands until SHUTDOWN or the end of the stream
+     */
+    void serve(DataInputStream in, DataOutputStream out) throws IOException
+    {
+        for (;;)
+        {
+            final byte command = in.readByte();
+            switch (command)
+            {
+            case RESET:
+                hops = in.readBoolean();
+                Arrays.fill(values, Double.MAX_VALUE);
+                Arrays.fill(predecessors, -1);
+                Arrays.fill(active, false);
+                frontier.clear();
+                break;
+            case STEP:
+                step(in, out);
+                break;
+            case COLLECT:
+                collect(out);
+                break;
+            case SHUTDOWN:
+                return;
+            default:
+                throw new IOException("unknown command " + command);
+            }
+        }
+    }
+
+    /**
+     * Reads the (target, value, from) messages of a superstep and relaxes the
+     * out edges of the vertices that improved, here or in the previous
+     * superstep. Answers with the size of the next frontier and the messages
+     * for other shards.
+     */
+    private void step(DataInputStream in, DataOutputStream out) throws IOException
+    {
+        final ShardMap map = shard.getMap();
+        final int index = shard.getIndex();
+        for (int messages = in.readInt(); messages > 0; messages--)
+        {
+            final int local = map.local(in.readInt());
+            final double value = in.readDouble();
+            improve(local, value, in.readInt());
+        }
+
+        final IntList swap = current;
+        current = frontier;
+        frontier = swap;
+        for (int i = 0; i < current.size(); i++)
+        {
+            active[current.get(i)] = false;
+        }
+        for (int i = 0; i < current.size(); i++)
+        {
+            final int local = current.get(i);
+            final int from = map.global(index, local);
+            for (int edge = shard.edgeBegin(local), end = shard.edgeEnd(local); edge < end; edge++)
+            {
+                final int target = shard.getTarget(edge);
+                final double value = values[local]
+                        + (hops ? 1.0 : shard.getWeight(edge));
+                if (map.owner(target) == index)
+                {
+                    improve(map.local(target), value, from);
+                }
+                else
+                {
+                    send(target, value, from);
+                }
+            }
+        }
+        current.clear();
+
+        out.writeInt(frontier.size());
+        flushMessages(out);
+        out.flush();
+    }
+
+    private void improve(int local, double value, int from)
+    {
+        if (value < values[local])
+        {
+            values[local] = value;
+            predecessors[local] = from;
+            if (!active[local])
+            {
+                active[local] = true;
+                frontier.add(local);
+            }
+        }
+    }
+
+    private void send(int target, double value, int from)
+    {
+        if (outSize == outKeys.length)
+        {
+            outKeys = Arrays.copyOf(outKeys, outSize * 2);
+            outValues = Arrays.copyOf(outValues, outSize * 2);
+            outFroms = Arrays.copyOf(outFroms, outSize * 2);
+        }
+        outKeys[outSize] = (long) target << 32 | outSize;
+        outValues[outSize] = value;
+        outFroms[outSize] = from;
+        outSize++;
+    }
+
+    /**
+     * Writes the count and then the smallest message of every target
+     */
+    private void flushMessages(DataOutputStream out) throws IOException
+    {
+        Arrays.sort(outKeys, 0, outSize);
+        int targets = 0;
+        for (int i = 0; i < outSize; i++)
+        {
+            if (i == 0 || outKeys[i] >>> 32 != outKeys[i - 1] >>> 32)
+            {
+                targets++;
+            }
+        }
+        out.writeInt(targets);
+        for (int i = 0; i < outSize;)
+        {
+            final long target = outKeys[i] >>> 32;
+            int best = (int) outKeys[i];
+            for (i++; i < outSize && outKeys[i] >>> 32 == target; i++)
+            {
+                if (outValues[(int) outKeys[i]] < outValues[best])
+                {
+                    best = (int) outKeys[i];
+                }
+            }
+            out.writeInt((int) target);
+            out.writeDouble(outValues[best]);
+            out.writeInt(outFroms[best]);
+        }
+        outSize = 0;
+    }
+
+    /**
+     * Writes the value and predecessor of every vertex in local id order
+     */
+    private void collect(DataOutputStream out) throws IOException
+    {
+        for (int local = 0; local < values.length; local++)
+        {
+            out.writeDouble(values[local]);
+            out.writeInt(predecessors[local]);
+        }
+        out.flush();
+    }
+}
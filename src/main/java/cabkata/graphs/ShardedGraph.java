@@ -0,0 +1,517 @@
+package cabkata.graphs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link CompactGraph} split into shards, each served by a worker process
+ * on this machine, that searches it in bulk synchronous supersteps.
+ *
+ * Every worker holds the edges, values and predecessors of the vertices it
+ * owns. In each superstep it relaxes the out edges of the vertices that
+ * improved, applies those into its own vertices itself and answers with the
+ * smallest message per target in other shards, so only cut edges cost
+ * traffic. The coordinator, this object, keeps no state per vertex while a
+ * search runs: it routes the messages to the owners of their targets in the
+ * next superstep, and the search ends when no worker has a vertex left to
+ * search from and no message is under way. Workers talk to the coordinator
+ * over loopback sockets, so one superstep costs two message rounds however
+ * many shards there are.
+ *
+ * The graph only needs to fit in memory to be partitioned;
+ * {@link #open(File, List)} starts workers on the shard files of an earlier
+ * {@link #start(CompactGraph, int, Partitioning, File, List)}. Results come
+ * back as the same {@link BreadthFirstTree} and {@link ShortestPaths} the in
+ * process searches return, collected from the workers when the search ends.
+ * Searches are serialized on this object; {@link #close()} stops the
+ * workers.
+ *
+ * @param <V>
+ */
+public final class ShardedGraph<V> implements Closeable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 60000;
+    private static final int SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    public enum Partitioning
+    {
+        /** vertex v goes to shard v % shards */
+        HASH,
+        /**
+         * contiguous id ranges of about the same number of vertices plus
+         * edges; when ids have locality fewer edges are cut, and only cut
+         * edges send messages between workers
+         */
+        RANGE
+    }
+
+    // the vertices without their edges, to name the vertices of results
+    private final CompactGraph<V> vertices;
+    private final ShardMap map;
+    private final List<Process> processes = new ArrayList<Process>();
+    private final Socket[] sockets;
+    private final DataInputStream[] inputs;
+    private final DataOutputStream[] outputs;
+    private final List<File> files = new ArrayList<File>();
+    private final File directory;
+    private final boolean deleteDirectory;
+    private boolean closed;
+
+    private ShardedGraph(CompactGraph<V> vertices, ShardMap map,
+            File directory, boolean deleteDirectory)
+    {
+        this.vertices = vertices;
+        this.map = map;
+        this.directory = directory;
+        this.deleteDirectory = deleteDirectory;
+        sockets = new Socket[map.getShards()];
+        inputs = new DataInputStream[map.getShards()];
+        outputs = new DataOutputStream[map.getShards()];
+    }
+
+    /**
+     * Partitions graph into shard files in a temporary directory and starts a
+     * worker process for each
+     *
+     * @param graph
+     * @param shards
+     * @param partitioning
+     * @return the running sharded graph, to be closed after use
+     * @throws IOException if the workers cannot be started
+     */
+    public static <V> ShardedGraph<V> start(CompactGraph<V> graph, int shards,
+            Partitioning partitioning) throws IOException
+    {
+        File directory = File.createTempFile("shards", "");
+        if (!directory.delete() || !directory.mkdir())
+        {
+            throw new IOException("cannot create shard directory " + directory);
+        }
+        return start(graph, shards, partitioning, directory, true,
+                new ArrayList<String>());
+    }
+
+    /**
+     * Partitions graph into shard files in directory and starts a worker
+     * process for each
+     *
+     * @param graph
+     * @param shards
+     * @param partitioning
+     * @param directory where the shard files are written, kept on close
+     * @param jvmOptions options for the worker JVMs, such as -Xmx
+     * @return the running sharded graph, to be closed after use
+     * @throws IOException if the workers cannot be started
+     */
+    public static <V> ShardedGraph<V> start(CompactGraph<V> graph, int shards,
+            Partitioning partitioning, File directory, List<String> jvmOptions)
+            throws IOException
+    {
+        return start(graph, shards, partitioning, directory, false, jvmOptions);
+    }
+
+    private static <V> ShardedGraph<V> start(CompactGraph<V> graph, int shards,
+            Partitioning partitioning, File directory, boolean deleteDirectory,
+            List<String> jvmOptions) throws IOException
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        if (shards < 1)
+        {
+            throw new IllegalArgumentException("shards must be positive");
+        }
+        if (partitioning == null)
+        {
+            throw new IllegalArgumentException("partitioning is null");
+        }
+        final ShardMap map = partitioning == Partitioning.HASH ? ShardMap.hash(
+                graph.getVertexCount(), shards) : ShardMap.range(graph, shards);
+        ShardedGraph<V> sharded = new ShardedGraph<V>(graph.withoutEdges(),
+                map, directory, deleteDirectory);
+        try
+        {
+            for (int shard = 0; shard < shards; shard++)
+            {
+                File file = shardFile(directory, shard);
+                sharded.files.add(file);
+                GraphShard.write(graph, map, shard, file);
+            }
+            sharded.launch(jvmOptions);
+        }
+        catch (IOException e)
+        {
+            sharded.close();
+            throw e;
+        }
+        return sharded;
+    }
+
+    /**
+     * Starts a worker process for each shard file that
+     * {@link #start(CompactGraph, int, Partitioning, File, List)} left in
+     * directory, without loading the graph here. Vertices are known by their
+     * ids in the partitioned graph.
+     *
+     * @param directory holding the shard files, kept on close
+     * @param jvmOptions options for the worker JVMs, such as -Xmx
+     * @return the running sharded graph, to be closed after use
+     * @throws IOException if a shard file cannot be read or the workers
+     *             cannot be started
+     */
+    public static ShardedGraph<Integer> open(File directory,
+            List<String> jvmOptions) throws IOException
+    {
+        if (directory == null)
+        {
+            throw new IllegalArgumentException("directory is null");
+        }
+        if (jvmOptions == null)
+        {
+            throw new IllegalArgumentException("jvmOptions is null");
+        }
+        final ShardMap map = GraphShard.readMap(shardFile(directory, 0), 0);
+        final int numNodes = map.getVertexCount();
+        ShardedGraph<Integer> sharded = new ShardedGraph<Integer>(
+                new CompactGraph<Integer>(new IdList(numNodes), null,
+                        new int[numNodes + 1], new int[0], new double[0]),
+                map, directory, false);
+        try
+        {
+            for (int shard = 0; shard < map.getShards(); shard++)
+            {
+                File file = shardFile(directory, shard);
+                ShardMap other = GraphShard.readMap(file, shard);
+                if (other.getShards() != map.getShards()
+                        || other.getVertexCount() != numNodes)
+                {
+                    throw new IOException(file
+                            + " belongs to another partitioning");
+                }
+                sharded.files.add(file);
+            }
+            sharded.launch(jvmOptions);
+        }
+        catch (IOException e)
+        {
+            sharded.close();
+            throw e;
+        }
+        return sharded;
+    }
+
+    private static File shardFile(File directory, int shard)
+    {
+        return new File(directory, "shard-" + shard + ".bin");
+    }
+
+    /**
+     * Starts a worker process for every file of files
+     */
+    private void launch(List<String> jvmOptions) throws IOException
+    {
+        ServerSocket server = new ServerSocket(0, map.getShards(),
+                InetAddress.getLoopbackAddress());
+        try
+        {
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            final String java = System.getProperty("java.home") + File.separator
+                    + "bin" + File.separator + "java";
+            for (File file : files)
+            {
+                List<String> command = new ArrayList<String>();
+                command.add(java);
+                command.addAll(jvmOptions);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(ShardWorker.class.getName());
+                command.add(Integer.toString(server.getLocalPort()));
+                command.add(file.getAbsolutePath());
+                processes.add(new ProcessBuilder(command)
+                        .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT).start());
+            }
+            for (int i = 0; i < map.getShards(); i++)
+            {
+                Socket socket;
+                try
+                {
+                    socket = server.accept();
+                }
+                catch (SocketTimeoutException e)
+                {
+                    throw new IOException("shard workers did not connect", e);
+                }
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        socket.getInputStream(), 1 << 16));
+                final int shard = in.readInt();
+                sockets[shard] = socket;
+                inputs[shard] = in;
+                outputs[shard] = new DataOutputStream(new BufferedOutputStream(
+                        socket.getOutputStream(), 1 << 16));
+            }
+        }
+        finally
+        {
+            server.close();
+        }
+    }
+
+    public int getVertexCount()
+    {
+        return map.getVertexCount();
+    }
+
+    public int getShards()
+    {
+        return map.getShards();
+    }
+
+    /**
+     * Breadth first search across the shards, one superstep per level
+     *
+     * @param source
+     * @return hop distances and search tree
+     * @throws IOException if a worker fails
+     */
+    public synchronized BreadthFirstTree<V> breadthFirstSearch(V source)
+            throws IOException
+    {
+        final int sourceId = indexOf(source);
+        double[] values = new double[map.getVertexCount()];
+        int[] predecessors = new int[map.getVertexCount()];
+        search(sourceId, true, values, predecessors);
+        int[] distances = new int[values.length];
+        for (int v = 0; v < values.length; v++)
+        {
+            distances[v] = values[v] == Double.MAX_VALUE ? -1 : (int) values[v];
+        }
+        return new BreadthFirstTree<V>(vertices, sourceId, distances,
+                predecessors);
+    }
+
+    /**
+     * Bellman-Ford across the shards: supersteps run until no distance
+     * improves, which takes at most one per edge of the longest shortest
+     * path. Negative weights are allowed and a reachable negative cycle is
+     * reported in the result.
+     *
+     * @param source
+     * @return shortest path weights and tree
+     * @throws IOException if a worker fails
+     */
+    public synchronized ShortestPaths<V> singleSourceShortestPath(V source)
+            throws IOException
+    {
+        final int sourceId = indexOf(source);
+        double[] weights = new double[map.getVertexCount()];
+        int[] predecessors = new int[map.getVertexCount()];
+        final int[] cycle = search(sourceId, false, weights, predecessors);
+        return new ShortestPaths<V>(vertices, sourceId, weights, predecessors,
+                cycle);
+    }
+
+    /**
+     * Runs supersteps from source until no value improves, then collects
+     * the values and predecessors from the workers
+     *
+     * @return vertex ids of a negative cycle, null if there is none
+     */
+    private int[] search(int source, boolean hops, double[] values,
+            int[] predecessors) throws IOException
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("sharded graph is closed");
+        }
+        final int numNodes = map.getVertexCount();
+        final int shards = map.getShards();
+        for (int shard = 0; shard < shards; shard++)
+        {
+            outputs[shard].writeByte(ShardWorker.RESET);
+            outputs[shard].writeBoolean(hops);
+        }
+
+        // (target, value, from) messages for the next superstep, by owner
+        ByteArrayOutputStream[] pending = new ByteArrayOutputStream[shards];
+        DataOutputStream[] pendingOut = new DataOutputStream[shards];
+        int[] pendingCounts = new int[shards];
+        for (int shard = 0; shard < shards; shard++)
+        {
+            pending[shard] = new ByteArrayOutputStream();
+            pendingOut[shard] = new DataOutputStream(pending[shard]);
+        }
+        final int sourceOwner = map.owner(source);
+        pendingOut[sourceOwner].writeInt(source);
+        pendingOut[sourceOwner].writeDouble(0.0);
+        pendingOut[sourceOwner].writeInt(-1);
+        pendingCounts[sourceOwner]++;
+        long active = 0;
+
+        for (int superstep = 1;; superstep++)
+        {
+            if (active == 0 && isEmpty(pendingCounts))
+            {
+                collect(values, predecessors);
+                return null;
+            }
+            for (int shard = 0; shard < shards; shard++)
+            {
+                final DataOutputStream out = outputs[shard];
+                out.writeByte(ShardWorker.STEP);
+                out.writeInt(pendingCounts[shard]);
+                pending[shard].writeTo(out);
+                out.flush();
+                pending[shard].reset();
+                pendingCounts[shard] = 0;
+            }
+
+            active = 0;
+            for (int shard = 0; shard < shards; shard++)
+            {
+                final DataInputStream in = inputs[shard];
+                active += in.readInt();
+                for (int messages = in.readInt(); messages > 0; messages--)
+                {
+                    final int target = in.readInt();
+                    final int owner = map.owner(target);
+                    pendingOut[owner].writeInt(target);
+                    pendingOut[owner].writeDouble(in.readDouble());
+                    pendingOut[owner].writeInt(in.readInt());
+                    pendingCounts[owner]++;
+                }
+            }
+
+            // values still improving after |V| supersteps go round a
+            // negative cycle, which shows in the predecessors once closed
+            if (!hops && superstep >= numNodes)
+            {
+                collect(values, predecessors);
+                final int[] cycle = CompactGraphAlgorithms
+                        .findPredecessorCycle(predecessors);
+                if (cycle != null)
+                {
+                    return cycle;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills values and predecessors, by global id, from every worker
+     */
+    private void collect(double[] values, int[] predecessors)
+            throws IOException
+    {
+        for (int shard = 0; shard < map.getShards(); shard++)
+        {
+            outputs[shard].writeByte(ShardWorker.COLLECT);
+            outputs[shard].flush();
+        }
+        for (int shard = 0; shard < map.getShards(); shard++)
+        {
+            final DataInputStream in = inputs[shard];
+            for (int local = 0; local < map.localCount(shard); local++)
+            {
+                final int v = map.global(shard, local);
+                values[v] = in.readDouble();
+                predecessors[v] = in.readInt();
+            }
+        }
+    }
+
+    private static boolean isEmpty(int[] pendingCounts)
+    {
+        for (int count : pendingCounts)
+        {
+            if (count > 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(V source)
+    {
+        if (source == null)
+        {
+            throw new IllegalArgumentException("source is null");
+        }
+        final int index = vertices.indexOf(source);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("source value not found in graph");
+        }
+        return index;
+    }
+
+    /**
+     * Stops the workers, killing those that have not exited within
+     * {@value #SHUTDOWN_TIMEOUT_MILLIS} ms, and deletes the shard files it
+     * created
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        for (int shard = 0; shard < sockets.length; shard++)
+        {
+            if (sockets[shard] != null)
+            {
+                try
+                {
+                    outputs[shard].writeByte(ShardWorker.SHUTDOWN);
+                    outputs[shard].flush();
+                }
+                catch (IOException e)
+                {
+                    // the worker is gone already
+                }
+                sockets[shard].close();
+            }
+        }
+        for (Process process : processes)
+        {
+            try
+            {
+                if (!process.waitFor(SHUTDOWN_TIMEOUT_MILLIS,
+                        TimeUnit.MILLISECONDS))
+                {
+                    process.destroyForcibly();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (deleteDirectory)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package cabkata.graphs;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Memoizes per source breadth first trees and shortest path trees of a
+ * {@link Graph} under a memory budget.
+ *
+ * Results are computed on a compiled snapshot of the graph and weighed by
+ * the bytes of their arrays; once the budget is full the least recently used
+ * ones are evicted. Every query compares {@link Graph#getVersion()} with the
+ * version the snapshot was compiled at, and a changed graph drops every
+ * result and is compiled again, so a query never answers from a graph that
+ * has since been modified. The cache is safe to query from several threads
+ * as long as the graph is not modified concurrently; the graph itself is not
+ * thread safe.
+ *
+ * @param <V>
+ */
+public final class ShortestPathCache<V> {
+    // array headers and the result object itself
+    private static final int RESULT_OVERHEAD = 64;
+
+    private final Graph<V> graph;
+    private final Cache<Key<V>, Object> results;
+    private CompactGraph<V> compiled;
+    private long compiledVersion;
+    private long invalidationCount;
+
+    /**
+     * @param graph
+     * @param maxBytes memory the cached distance and predecessor arrays may
+     *            take
+     */
+    public ShortestPathCache(Graph<V> graph, long maxBytes)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        if (maxBytes < 0)
+        {
+            throw new IllegalArgumentException("maxBytes may not be negative");
+        }
+        this.graph = graph;
+        // one segment: results are large and a segmented cache splits the
+        // budget, so none bigger than a fraction of it would be kept
+        this.results = CacheBuilder.newBuilder().concurrencyLevel(1)
+                .maximumWeight(maxBytes).weigher(new ResultWeigher<V>())
+                .recordStats().build();
+    }
+
+    /**
+     * @param source
+     * @return breadth first tree from source, cached or computed
+     */
+    public BreadthFirstTree<V> breadthFirstSearch(V source)
+    {
+        final CompactGraph<V> snapshot = snapshot();
+        @SuppressWarnings("unchecked")
+        BreadthFirstTree<V> tree = (BreadthFirstTree<V>) get(new Key<V>(source,
+                true), snapshot);
+        return tree;
+    }
+
+    /**
+     * @param source
+     * @return Bellman-Ford shortest path tree from source, cached or computed;
+     *         negative weights are allowed
+     */
+    public ShortestPaths<V> singleSourceShortestPath(V source)
+    {
+        final CompactGraph<V> snapshot = snapshot();
+        @SuppressWarnings("unchecked")
+        ShortestPaths<V> paths = (ShortestPaths<V>) get(new Key<V>(source,
+                false), snapshot);
+        return paths;
+    }
+
+    private Object get(final Key<V> key, final CompactGraph<V> snapshot)
+    {
+        CompactGraphAlgorithms.validateGraphAndSource(snapshot, key.source);
+        try
+        {
+            return results.get(key, new Callable<Object>()
+            {
+                @Override
+                public Object call()
+                {
+                    return key.hops ? CompactGraphAlgorithms.breadthFirstSearch(
+                            snapshot, key.source) : CompactGraphAlgorithms
+                            .bellmanFord(snapshot, key.source);
+                }
+            });
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException(e.getCause());
+        }
+        catch (UncheckedExecutionException e)
+        {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * @return the compiled graph, compiled again and with the results dropped
+     *         if the graph changed since
+     */
+    private synchronized CompactGraph<V> snapshot()
+    {
+        final long version = graph.getVersion();
+        if (compiled == null || version != compiledVersion)
+        {
+            if (compiled != null)
+            {
+                results.invalidateAll();
+                invalidationCount++;
+            }
+            compiled = graph.compile();
+            compiledVersion = version;
+        }
+        return compiled;
+    }
+
+    /**
+     * Drops every cached result
+     */
+    public void clear()
+    {
+        results.invalidateAll();
+    }
+
+    public long getHitCount()
+    {
+        return results.stats().hitCount();
+    }
+
+    public long getMissCount()
+    {
+        return results.stats().missCount();
+    }
+
+    /**
+     * @return 1.0 when nothing was asked for yet
+     */
+    public double getHitRate()
+    {
+        return results.stats().hitRate();
+    }
+
+    /**
+     * @return results dropped to stay within the memory budget
+     */
+    public long getEvictionCount()
+    {
+        return results.stats().evictionCount();
+    }
+
+    /**
+     * @return times all results were dropped because the graph changed
+     */
+    public synchronized long getInvalidationCount()
+    {
+        return invalidationCount;
+    }
+
+    /**
+     * @return number of results currently cached
+     */
+    public long size()
+    {
+        return results.size();
+    }
+
+    private static final class Key<V> {
+        private final V source;
+        private final boolean hops;
+
+        Key(V source, boolean hops)
+        {
+            this.source = source;
+            this.hops = hops;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return source.hashCode() * 31 + (hops ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key<?> other = (Key<?>) obj;
+            return hops == other.hops && source.equals(other.source);
+        }
+    }
+
+    /**
+     * Bytes of the arrays of a result: 4 per vertex for the distances or the
+     * predecessors of a breadth first tree, 8 per vertex for path weights
+     */
+    private static final class ResultWeigher<V> implements Weigher<Key<V>, Object> {
+        @Override
+        public int weigh(Key<V> key, Object value)
+        {
+            final long bytes;
+            if (value instanceof BreadthFirstTree)
+            {
+                bytes = 8L * ((BreadthFirstTree<?>) value).distances.length;
+            }
+            else
+            {
+                bytes = 12L * ((ShortestPaths<?>) value).weights.length;
+            }
+            return (int) Math.min(Integer.MAX_VALUE, bytes + RESULT_OVERHEAD);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable single source shortest path tree over a {@link CompactGraph}.
+ * Answers the same getPathWeight/getPredecessor queries as
+ * {@link GraphAlgorithms} but can be shared freely between threads.
+ *
+ * @param <V>
+ */
+public final class ShortestPaths<V> {
+    private final CompactGraph<V> graph;
+    private final int source;
+    final double[] weights;
+    final int[] predecessors;
+    private final int[] negativeCycle;
+
+    /**
+     * @param negativeCycle vertex ids of a negative cycle in path order, null
+     *            if there is none
+     */
+    ShortestPaths(CompactGraph<V> graph, int source, double[] weights,
+            int[] predecessors, int[] negativeCycle)
+    {
+        this.graph = graph;
+        this.source = source;
+        this.weights = weights;
+        this.predecessors = predecessors;
+        this.negativeCycle = negativeCycle;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    public V getSource()
+    {
+        return graph.getVertex(source);
+    }
+
+    /**
+     * @return true if a negative cycle is reachable from the source, path
+     *         weights are then not shortest and predecessors may loop
+     */
+    public boolean hasNegativeCycle()
+    {
+        return negativeCycle != null;
+    }
+
+    /**
+     * @return vertices of a negative cycle reachable from the source, each
+     *         followed by the next one along the cycle and the last by the
+     *         first; empty if there is none
+     */
+    public List<V> getNegativeCycle()
+    {
+        if (negativeCycle == null)
+        {
+            return Collections.emptyList();
+        }
+        List<V> cycle = new ArrayList<V>(negativeCycle.length);
+        for (int vertex : negativeCycle)
+        {
+            cycle.add(graph.getVertex(vertex));
+        }
+        return cycle;
+    }
+
+    /**
+     * @param v
+     * @return path weight, Double.MAX_VALUE if v was not reached
+     */
+    public double getPathWeight(V v)
+    {
+        return weights[indexOf(v)];
+    }
+
+    /**
+     * @param v
+     * @return predecessor of v in the shortest path tree, null for the source
+     *         and for unreached values
+     */
+    public V getPredecessor(V v)
+    {
+        final int predecessor = predecessors[indexOf(v)];
+        return predecessor < 0 ? null : graph.getVertex(predecessor);
+    }
+
+    public boolean isReachable(V v)
+    {
+        return weights[indexOf(v)] != Double.MAX_VALUE;
+    }
+
+    /**
+     * @param v
+     * @return vertices from the source to v, empty if v was not reached
+     */
+    public List<V> getPath(V v)
+    {
+        int index = indexOf(v);
+        if (weights[index] == Double.MAX_VALUE)
+        {
+            return Collections.emptyList();
+        }
+        if (negativeCycle != null)
+        {
+            throw new IllegalStateException("paths are undefined with a negative cycle");
+        }
+        List<V> path = new ArrayList<V>();
+        for (; index >= 0; index = predecessors[index])
+        {
+            path.add(graph.getVertex(index));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private int indexOf(V v)
+    {
+        final int index = graph.indexOf(v);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,176 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable strongly connected components of a {@link CompactGraph}, each
+ * vertex labeled with the id 0..count-1 of its component. Safe to share
+ * between threads.
+ *
+ * @param <V>
+ */
+public final class StronglyConnectedComponents<V> {
+    private final CompactGraph<V> graph;
+    final int[] components;
+    private final int count;
+
+    StronglyConnectedComponents(CompactGraph<V> graph, int[] components, int count)
+    {
+        this.graph = graph;
+        this.components = components;
+        this.count = count;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @return number of components
+     */
+    public int count()
+    {
+        return count;
+    }
+
+    /**
+     * @param v
+     * @return id of the component of v
+     */
+    public int getComponent(V v)
+    {
+        final int index = graph.indexOf(v);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return components[index];
+    }
+
+    public boolean isStronglyConnected(V v1, V v2)
+    {
+        return getComponent(v1) == getComponent(v2);
+    }
+
+    /**
+     * @return true if some component has more than one vertex or a vertex has
+     *         an edge to itself
+     */
+    public boolean hasCycle()
+    {
+        if (count < graph.getVertexCount())
+        {
+            return true;
+        }
+        for (int node = 0; node < graph.getVertexCount(); node++)
+        {
+            for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+            {
+                if (graph.getTarget(edge) == node)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return members of every component, indexed by component id
+     */
+    public List<List<V>> getComponents()
+    {
+        List<List<V>> members = new ArrayList<List<V>>(count);
+        for (int i = 0; i < count; i++)
+        {
+            members.add(new ArrayList<V>());
+        }
+        for (int node = 0; node < components.length; node++)
+        {
+            members.get(components[node]).add(graph.getVertex(node));
+        }
+        return members;
+    }
+
+    /**
+     * The condensation: one vertex per component, named by its id, and one
+     * edge between two components for all the edges between their members,
+     * weighted by the lightest of them. It is acyclic, so it can be passed to
+     * {@link GraphAlgorithms#toplogicalSort(CompactGraph)} or
+     * {@link GraphAlgorithms#topologicalLevels(CompactGraph)}. Built in
+     * O(V + E) on every call.
+     * 
+     * @return CompactGraph<Integer> of the components
+     */
+    public CompactGraph<Integer> getCondensation()
+    {
+        final int numNodes = graph.getVertexCount();
+        final int[] offsets = new int[count + 1];
+        for (int node = 0; node < numNodes; node++)
+        {
+            final int component = components[node];
+            for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+            {
+                if (components[graph.getTarget(edge)] != component)
+                {
+                    offsets[component + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++)
+        {
+            offsets[i + 1] += offsets[i];
+        }
+
+        // bucket the crossing edges by source component
+        final int[] next = Arrays.copyOf(offsets, count);
+        final int[] targets = new int[offsets[count]];
+        final double[] weights = new double[offsets[count]];
+        for (int node = 0; node < numNodes; node++)
+        {
+            final int component = components[node];
+            for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+            {
+                final int target = components[graph.getTarget(edge)];
+                if (target != component)
+                {
+                    final int slot = next[component]++;
+                    targets[slot] = target;
+                    weights[slot] = graph.getWeight(edge);
+                }
+            }
+        }
+
+        // keep one edge per target component, compacting in place
+        final int[] slotOfTarget = new int[count];
+        Arrays.fill(slotOfTarget, -1);
+        final int[] compactOffsets = new int[count + 1];
+        int kept = 0;
+        for (int component = 0; component < count; component++)
+        {
+            compactOffsets[component] = kept;
+            for (int slot = offsets[component]; slot < offsets[component + 1]; slot++)
+            {
+                final int target = targets[slot];
+                final int keptSlot = slotOfTarget[target];
+                if (keptSlot >= compactOffsets[component])
+                {
+                    weights[keptSlot] = Math.min(weights[keptSlot], weights[slot]);
+                }
+                else
+                {
+                    slotOfTarget[target] = kept;
+                    targets[kept] = target;
+                    weights[kept] = weights[slot];
+                    kept++;
+                }
+            }
+        }
+        compactOffsets[count] = kept;
+        return new CompactGraph<Integer>(new IdList(count), null, compactOffsets,
+                Arrays.copyOf(targets, kept), Arrays.copyOf(weights, kept));
+    }
+}
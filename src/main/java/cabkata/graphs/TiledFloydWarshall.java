@@ -0,0 +1,229 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Floyd-Warshall over a flat row major distance matrix, cut into square tiles
+ * small enough that the three tiles one update touches stay in cache.
+ *
+ * Round kb of the blocked algorithm runs in three phases: the diagonal tile
+ * (kb, kb) relaxes through its own vertices, then the other tiles of row and
+ * column kb relax through the diagonal one, then every remaining tile (i, j)
+ * relaxes through (i, kb) and (kb, j). Tiles of one phase write disjoint
+ * parts of the matrix and only read tiles that phase does not write, so each
+ * phase runs its tiles in parallel without locking. The result is the same
+ * as the textbook triple loop.
+ */
+final class TiledFloydWarshall {
+    static final int TILE = 64;
+    private static final int TILE_GRAIN = 2;
+
+    /**
+     * @return V * V, checked before any matrix is allocated
+     * @throws IllegalArgumentException if the matrix would not fit an array
+     */
+    static int matrixSize(CompactGraph<?> graph)
+    {
+        final int n = graph.getVertexCount();
+        if ((long) n * n > Integer.MAX_VALUE - 8)
+        {
+            throw new IllegalArgumentException(
+                    "graph too large for an all pairs matrix");
+        }
+        return n * n;
+    }
+
+    /**
+     * @return the distance matrix of graph, Double.POSITIVE_INFINITY where
+     *         there is no edge, fills predecessors when not null
+     */
+    static double[] initialize(CompactGraph<?> graph, int[] predecessors)
+    {
+        final int n = graph.getVertexCount();
+        final double[] distances = new double[matrixSize(graph)];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        if (predecessors != null)
+        {
+            Arrays.fill(predecessors, -1);
+        }
+        for (int i = 0; i < n; i++)
+        {
+            distances[i * n + i] = 0.0;
+        }
+        for (int i = 0; i < n; i++)
+        {
+            for (int edge = graph.edgeBegin(i), end = graph.edgeEnd(i); edge < end; edge++)
+            {
+                final int j = graph.getTarget(edge);
+                final double weight = graph.getWeight(edge);
+                if (weight < distances[i * n + j])
+                {
+                    distances[i * n + j] = weight;
+                    if (predecessors != null && i != j)
+                    {
+                        predecessors[i * n + j] = i;
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    static void search(double[] distances, int[] predecessors, int n)
+    {
+        final int tiles = (n + TILE - 1) / TILE;
+        for (int kb = 0; kb < tiles; kb++)
+        {
+            relax(distances, predecessors, n, kb, kb, kb);
+            for (int t = 0; t < 2 * (tiles - 1); t++)
+            {
+                relaxCross(distances, predecessors, n, tiles, kb, t);
+            }
+            for (int t = 0; t < (tiles - 1) * (tiles - 1); t++)
+            {
+                relaxRest(distances, predecessors, n, tiles, kb, t);
+            }
+        }
+    }
+
+    static void search(double[] distances, int[] predecessors, int n,
+            ForkJoinPool pool)
+    {
+        final int tiles = (n + TILE - 1) / TILE;
+        for (int kb = 0; kb < tiles; kb++)
+        {
+            relax(distances, predecessors, n, kb, kb, kb);
+            pool.invoke(new PhaseTask(distances, predecessors, n, tiles, kb,
+                    true, 0, 2 * (tiles - 1)));
+            pool.invoke(new PhaseTask(distances, predecessors, n, tiles, kb,
+                    false, 0, (tiles - 1) * (tiles - 1)));
+        }
+    }
+
+    /**
+     * Relaxes tile t of row and column kb: the first tiles - 1 lie in row kb,
+     * the rest in column kb
+     */
+    private static void relaxCross(double[] distances, int[] predecessors,
+            int n, int tiles, int kb, int t)
+    {
+        if (t < tiles - 1)
+        {
+            relax(distances, predecessors, n, kb, skip(t, kb), kb);
+        }
+        else
+        {
+            relax(distances, predecessors, n, skip(t - (tiles - 1), kb), kb, kb);
+        }
+    }
+
+    /**
+     * Relaxes tile t of those outside row and column kb
+     */
+    private static void relaxRest(double[] distances, int[] predecessors,
+            int n, int tiles, int kb, int t)
+    {
+        relax(distances, predecessors, n, skip(t / (tiles - 1), kb),
+                skip(t % (tiles - 1), kb), kb);
+    }
+
+    private static int skip(int tile, int kb)
+    {
+        return tile < kb ? tile : tile + 1;
+    }
+
+    /**
+     * Relaxes the paths of tile (ib, jb) through the vertices of tile kb
+     */
+    private static void relax(double[] distances, int[] predecessors, int n,
+            int ib, int jb, int kb)
+    {
+        final int iEnd = Math.min(n, (ib + 1) * TILE);
+        final int jBegin = jb * TILE;
+        final int jEnd = Math.min(n, jBegin + TILE);
+        final int kEnd = Math.min(n, (kb + 1) * TILE);
+        for (int k = kb * TILE; k < kEnd; k++)
+        {
+            final int kRow = k * n;
+            for (int i = ib * TILE; i < iEnd; i++)
+            {
+                final int iRow = i * n;
+                final double ik = distances[iRow + k];
+                if (ik == Double.POSITIVE_INFINITY)
+                {
+                    continue;
+                }
+                for (int j = jBegin; j < jEnd; j++)
+                {
+                    final double totalCost = ik + distances[kRow + j];
+                    if (totalCost < distances[iRow + j])
+                    {
+                        distances[iRow + j] = totalCost;
+                        if (predecessors != null)
+                        {
+                            predecessors[iRow + j] = predecessors[kRow + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Relaxes the tiles [from, to) of phase two (cross) or three of round kb
+     */
+    private static final class PhaseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[] distances;
+        private final int[] predecessors;
+        private final int n;
+        private final int tiles;
+        private final int kb;
+        private final boolean cross;
+        private final int from;
+        private final int to;
+
+        PhaseTask(double[] distances, int[] predecessors, int n, int tiles,
+                int kb, boolean cross, int from, int to)
+        {
+            this.distances = distances;
+            this.predecessors = predecessors;
+            this.n = n;
+            this.tiles = tiles;
+            this.kb = kb;
+            this.cross = cross;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > TILE_GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new PhaseTask(distances, predecessors, n, tiles, kb,
+                        cross, from, mid), new PhaseTask(distances, predecessors,
+                        n, tiles, kb, cross, mid, to));
+                return;
+            }
+            for (int t = from; t < to; t++)
+            {
+                if (cross)
+                {
+                    relaxCross(distances, predecessors, n, tiles, kb, t);
+                }
+                else
+                {
+                    relaxRest(distances, predecessors, n, tiles, kb, t);
+                }
+            }
+        }
+    }
+
+    private TiledFloydWarshall()
+    {
+    }
+}
@@ -0,0 +1,168 @@
+package cabkata.graphs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Kahn's algorithm run one level at a time. Every edge is looked at once when
+ * counting in-degrees and once when its source is released, O(V + E) in
+ * total. With a pool both steps are split over ranges of vertices; the
+ * in-degree counters are atomic so the vertex whose count reaches zero is
+ * released by exactly one task.
+ */
+final class TopologicalLevels {
+    private static final int GRAIN = 1024;
+
+    /**
+     * @param graph
+     * @param pool null to run on the calling thread
+     * @return vertex ids of each level
+     * @throws IllegalArgumentException if the graph has a cycle
+     */
+    static int[][] levels(CompactGraph<?> graph, ForkJoinPool pool)
+    {
+        final int numNodes = graph.getVertexCount();
+        final AtomicIntegerArray inDegrees = new AtomicIntegerArray(numNodes);
+        run(pool, new CountTask(graph, inDegrees, 0, numNodes));
+
+        IntList first = new IntList();
+        for (int node = 0; node < numNodes; node++)
+        {
+            if (inDegrees.get(node) == 0)
+            {
+                first.add(node);
+            }
+        }
+
+        List<int[]> levels = new ArrayList<int[]>();
+        int released = 0;
+        int[] level = first.toArray();
+        while (level.length > 0)
+        {
+            levels.add(level);
+            released += level.length;
+            level = run(pool, new ReleaseTask(graph, inDegrees, level, 0,
+                    level.length)).toArray();
+        }
+        if (released != numNodes)
+        {
+            throw new IllegalArgumentException("graph has a cycle, "
+                    + (numNodes - released) + " nodes are on or behind it");
+        }
+        return levels.toArray(new int[levels.size()][]);
+    }
+
+    private static <T> T run(ForkJoinPool pool, RecursiveTask<T> task)
+    {
+        return pool == null ? task.invoke() : pool.invoke(task);
+    }
+
+    private static void run(ForkJoinPool pool, RecursiveAction task)
+    {
+        if (pool == null)
+        {
+            task.invoke();
+        }
+        else
+        {
+            pool.invoke(task);
+        }
+    }
+
+    private static final class CountTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> graph;
+        private final AtomicIntegerArray inDegrees;
+        private final int from;
+        private final int to;
+
+        CountTask(CompactGraph<?> graph, AtomicIntegerArray inDegrees,
+                int from, int to)
+        {
+            this.graph = graph;
+            this.inDegrees = inDegrees;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > GRAIN && getPool() != null)
+            {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new CountTask(graph, inDegrees, from, mid),
+                        new CountTask(graph, inDegrees, mid, to));
+                return;
+            }
+            for (int node = from; node < to; node++)
+            {
+                for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+                {
+                    inDegrees.incrementAndGet(graph.getTarget(edge));
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the out edges of one level, returning the nodes left without
+     * incoming edges
+     */
+    private static final class ReleaseTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+        private final CompactGraph<?> graph;
+        private final AtomicIntegerArray inDegrees;
+        private final int[] level;
+        private final int from;
+        private final int to;
+
+        ReleaseTask(CompactGraph<?> graph, AtomicIntegerArray inDegrees,
+                int[] level, int from, int to)
+        {
+            this.graph = graph;
+            this.inDegrees = inDegrees;
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntList compute()
+        {
+            if (to - from > GRAIN && getPool() != null)
+            {
+                final int mid = (from + to) >>> 1;
+                ReleaseTask left = new ReleaseTask(graph, inDegrees, level, from, mid);
+                left.fork();
+                IntList right = new ReleaseTask(graph, inDegrees, level, mid, to).compute();
+                IntList released = left.join();
+                released.addAll(right);
+                return released;
+            }
+
+            IntList released = new IntList();
+            for (int i = from; i < to; i++)
+            {
+                final int node = level[i];
+                for (int edge = graph.edgeBegin(node), end = graph.edgeEnd(node); edge < end; edge++)
+                {
+                    final int adjacent = graph.getTarget(edge);
+                    if (inDegrees.decrementAndGet(adjacent) == 0)
+                    {
+                        released.add(adjacent);
+                    }
+                }
+            }
+            return released;
+        }
+    }
+
+    private TopologicalLevels()
+    {
+    }
+}
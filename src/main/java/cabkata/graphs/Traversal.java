@@ -0,0 +1,291 @@
+package cabkata.graphs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import cabkata.graphs.Graph.Node;
+import cabkata.graphs.Graph.WeightedEdge;
+
+/**
+ * Lazy breadth or depth first traversal of the vertices reachable from a
+ * source of a {@link Graph}.
+ *
+ * Nothing is searched up front: an iterator discovers vertices as they are
+ * pulled, so a caller can stop after the first few and only pays for what it
+ * read. A traversal may stop at a depth, the number of edges from the source,
+ * and skip vertices failing a filter, which also keeps the search from going
+ * through them. Each reachable vertex is returned once. Traversals are
+ * immutable and every iterator starts a new search; the graph must not change
+ * while one runs.
+ *
+ * The breadth first {@link #spliterator()} splits the frontier, so
+ * {@link #parallelStream()} searches from parts of it on several threads and
+ * returns the vertices in no particular order.
+ *
+ * @param <V>
+ */
+public final class Traversal<V> implements Iterable<V> {
+    private final Graph<V> graph;
+    private final V source;
+    private final boolean breadthFirst;
+    private final int maxDepth;
+    private final Predicate<? super V> filter;
+
+    private Traversal(Graph<V> graph, V source, boolean breadthFirst,
+            int maxDepth, Predicate<? super V> filter)
+    {
+        this.graph = graph;
+        this.source = source;
+        this.breadthFirst = breadthFirst;
+        this.maxDepth = maxDepth;
+        this.filter = filter;
+    }
+
+    /**
+     * @param graph
+     * @param source
+     * @return vertices reachable from source, in order of depth
+     */
+    public static <V> Traversal<V> breadthFirst(Graph<V> graph, V source)
+    {
+        validateGraphAndSource(graph, source);
+        return new Traversal<V>(graph, source, true, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @param graph
+     * @param source
+     * @return vertices reachable from source, in the preorder of a depth
+     *         first search
+     */
+    public static <V> Traversal<V> depthFirst(Graph<V> graph, V source)
+    {
+        validateGraphAndSource(graph, source);
+        return new Traversal<V>(graph, source, false, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * A depth first traversal counts the depth along the path it first found
+     * a vertex by, which may be longer than the shortest one, so it can miss
+     * vertices a breadth first traversal of the same depth returns.
+     *
+     * @param depth
+     * @return this traversal stopping at vertices depth edges from the source
+     */
+    public Traversal<V> withMaxDepth(int depth)
+    {
+        if (depth < 0)
+        {
+            throw new IllegalArgumentException("depth may not be negative");
+        }
+        return new Traversal<V>(graph, source, breadthFirst, depth, filter);
+    }
+
+    /**
+     * @param vertexFilter vertices it rejects are neither returned nor
+     *            searched through, the source included
+     * @return this traversal restricted to vertexFilter
+     */
+    public Traversal<V> withFilter(Predicate<? super V> vertexFilter)
+    {
+        if (vertexFilter == null)
+        {
+            throw new IllegalArgumentException("vertexFilter is null");
+        }
+        return new Traversal<V>(graph, source, breadthFirst, maxDepth,
+                vertexFilter);
+    }
+
+    @Override
+    public Iterator<V> iterator()
+    {
+        return breadthFirst ? new BreadthFirstIterator() : new DepthFirstIterator();
+    }
+
+    /**
+     * Breadth first, the spliterator splits off half of its frontier at a
+     * time; depth first, it splits off batches of the sequential order.
+     */
+    @Override
+    public Spliterator<V> spliterator()
+    {
+        if (breadthFirst)
+        {
+            return new BreadthFirstSpliterator<V>(graph, source, maxDepth,
+                    filter);
+        }
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT
+                        | Spliterator.NONNULL);
+    }
+
+    public Stream<V> stream()
+    {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<V> parallelStream()
+    {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * @return values of the edges leaving value that pass the filter
+     */
+    static <V> List<V> neighbours(Graph<V> graph, V value,
+            Predicate<? super V> filter)
+    {
+        final Node<V> node = graph.getNode(value);
+        final List<V> neighbours = new ArrayList<V>(node.getAdjacentyList()
+                .size());
+        for (WeightedEdge<V> edge : node.getAdjacentyList())
+        {
+            final V to = edge.getTo().getValue();
+            if (filter == null || filter.test(to))
+            {
+                neighbours.add(to);
+            }
+        }
+        return neighbours;
+    }
+
+    private static <V> void validateGraphAndSource(Graph<V> graph, V source)
+    {
+        if (graph == null)
+        {
+            throw new IllegalArgumentException("graph is null");
+        }
+        if (source == null)
+        {
+            throw new IllegalArgumentException("source is null");
+        }
+        if (graph.getNode(source) == null)
+        {
+            throw new IllegalArgumentException("source value not found in graph");
+        }
+    }
+
+    private boolean accepts(V value)
+    {
+        return filter == null || filter.test(value);
+    }
+
+    /**
+     * Expands a vertex when it is returned, so the queue only ever holds the
+     * frontier
+     */
+    private final class BreadthFirstIterator implements Iterator<V> {
+        private final Set<V> discovered = new HashSet<V>();
+        private ArrayDeque<V> level = new ArrayDeque<V>();
+        private ArrayDeque<V> nextLevel = new ArrayDeque<V>();
+        private int depth;
+
+        BreadthFirstIterator()
+        {
+            if (accepts(source))
+            {
+                discovered.add(source);
+                level.add(source);
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (level.isEmpty() && !nextLevel.isEmpty())
+            {
+                final ArrayDeque<V> swap = level;
+                level = nextLevel;
+                nextLevel = swap;
+                depth++;
+            }
+            return !level.isEmpty();
+        }
+
+        @Override
+        public V next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            final V value = level.poll();
+            if (depth < maxDepth)
+            {
+                for (V neighbour : neighbours(graph, value, filter))
+                {
+                    if (discovered.add(neighbour))
+                    {
+                        nextLevel.add(neighbour);
+                    }
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Keeps one edge iterator per vertex on the current path, advancing the
+     * top one only as far as the next undiscovered vertex
+     */
+    private final class DepthFirstIterator implements Iterator<V> {
+        private final Set<V> discovered = new HashSet<V>();
+        private final ArrayDeque<Iterator<WeightedEdge<V>>> path = new ArrayDeque<Iterator<WeightedEdge<V>>>();
+        private V next;
+
+        DepthFirstIterator()
+        {
+            if (accepts(source))
+            {
+                discovered.add(source);
+                next = source;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public V next()
+        {
+            if (next == null)
+            {
+                throw new NoSuchElementException();
+            }
+            final V value = next;
+            if (path.size() < maxDepth)
+            {
+                path.push(graph.getNode(value).getAdjacentyList().iterator());
+            }
+            next = null;
+            while (next == null && !path.isEmpty())
+            {
+                final Iterator<WeightedEdge<V>> edges = path.peek();
+                if (!edges.hasNext())
+                {
+                    path.pop();
+                    continue;
+                }
+                final V to = edges.next().getTo().getValue();
+                if (accepts(to) && discovered.add(to))
+                {
+                    next = to;
+                }
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package cabkata.graphs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs a {@link VertexProgram} over a {@link CompactGraph} until it
+ * converges.
+ *
+ * Values live in two double arrays, one read and one written per iteration
+ * and then swapped, so no vertex sees a value of the iteration in progress
+ * and no locks are needed. Each vertex pulls from its in edges through the
+ * cached {@link CompactGraph#reverse()}, writing only its own slot. An
+ * iteration splits the vertex ids into ranges on a fork join pool, and the
+ * ranges also sum how far the values moved, so the run stops once the sum
+ * of |new - old| is at most the tolerance or after maxIterations.
+ *
+ * @param <V>
+ */
+public final class VertexCentricEngine<V> {
+    private static final int GRAIN = 1024;
+
+    private final CompactGraph<V> graph;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param graph
+     * @param pool runs the iterations
+     */
+    public VertexCentricEngine(CompactGraph<V> graph, ForkJoinPool pool)
+    {
+        CompactGraphAlgorithms.validateGraphNotNull(graph);
+        if (pool == null)
+        {
+            throw new IllegalArgumentException("pool is null");
+        }
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @param program
+     * @param maxIterations
+     * @param tolerance the run converged once the values moved by at most
+     *            this much in total over one iteration
+     * @return values after the last iteration
+     */
+    public VertexValues<V> run(VertexProgram program, int maxIterations,
+            double tolerance)
+    {
+        if (program == null)
+        {
+            throw new IllegalArgumentException("program is null");
+        }
+        if (maxIterations < 0)
+        {
+            throw new IllegalArgumentException("maxIterations may not be negative");
+        }
+        if (tolerance < 0 || Double.isNaN(tolerance))
+        {
+            throw new IllegalArgumentException("tolerance may not be negative");
+        }
+        final int numNodes = graph.getVertexCount();
+        final CompactGraph<V> in = graph.reverse();
+        double[] current = new double[numNodes];
+        double[] next = new double[numNodes];
+        for (int v = 0; v < numNodes; v++)
+        {
+            current[v] = program.initialValue(v);
+        }
+        int iterations = 0;
+        boolean converged = false;
+        while (iterations < maxIterations && !converged)
+        {
+            program.beforeIteration(current);
+            final double delta = pool.invoke(new StepTask(program, in, current,
+                    next, 0, numNodes));
+            final double[] swap = current;
+            current = next;
+            next = swap;
+            iterations++;
+            converged = delta <= tolerance;
+        }
+        return new VertexValues<V>(graph, current, iterations, converged);
+    }
+
+    /**
+     * Computes the next values of vertices [from, to)
+     *
+     * @return sum of how far they moved
+     */
+    private static final class StepTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        private final VertexProgram program;
+        private final CompactGraph<?> in;
+        private final double[] current;
+        private final double[] next;
+        private final int from;
+        private final int to;
+
+        StepTask(VertexProgram program, CompactGraph<?> in, double[] current,
+                double[] next, int from, int to)
+        {
+            this.program = program;
+            this.in = in;
+            this.current = current;
+            this.next = next;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute()
+        {
+            if (to - from > GRAIN)
+            {
+                final int mid = (from + to) >>> 1;
+                StepTask left = new StepTask(program, in, current, next, from, mid);
+                left.fork();
+                final double right = new StepTask(program, in, current, next,
+                        mid, to).compute().doubleValue();
+                return Double.valueOf(left.join().doubleValue() + right);
+            }
+            double delta = 0.0;
+            for (int v = from; v < to; v++)
+            {
+                final double value = program.compute(v, in, current);
+                delta += Math.abs(value - current[v]);
+                next[v] = value;
+            }
+            return Double.valueOf(delta);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package cabkata.graphs;
+
+/**
+ * Numbering of the vertices of an indexed graph, what results of a run need
+ * to translate between values and ids
+ *
+ * @param <V>
+ */
+interface VertexIndex<V> {
+
+    /**
+     * @param v
+     * @return index of vertex v or -1 if v is not in the graph
+     */
+    int indexOf(V v);
+
+    /**
+     * @param index
+     * @return vertex value stored at index
+     */
+    V getVertex(int index);
+}
@@ -0,0 +1,33 @@
+package cabkata.graphs;
+
+/**
+ * Per vertex update of an iterative computation run by
+ * {@link VertexCentricEngine}. Every iteration computes the new value of each
+ * vertex from the values all vertices had after the previous one, so compute
+ * only reads values and may be called for different vertices on several
+ * threads at once.
+ */
+public interface VertexProgram {
+    /**
+     * @param vertex
+     * @return value of vertex before the first iteration
+     */
+    double initialValue(int vertex);
+
+    /**
+     * Called on one thread before each iteration, to aggregate what every
+     * vertex needs such as the rank held by vertices without out edges
+     *
+     * @param values values after the previous iteration
+     */
+    void beforeIteration(double[] values);
+
+    /**
+     * @param vertex
+     * @param in the transposed graph, whose edges from vertex lead to the
+     *            sources of the edges into it
+     * @param values values after the previous iteration, not to be modified
+     * @return value of vertex after this iteration
+     */
+    double compute(int vertex, CompactGraph<?> in, double[] values);
+}
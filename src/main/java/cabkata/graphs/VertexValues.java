@@ -0,0 +1,73 @@
+package cabkata.graphs;
+
+import java.util.Arrays;
+
+/**
+ * Immutable per vertex values computed by a {@link VertexCentricEngine} run,
+ * such as PageRank scores
+ *
+ * @param <V>
+ */
+public final class VertexValues<V> {
+    private final CompactGraph<V> graph;
+    final double[] values;
+    private final int iterations;
+    private final boolean converged;
+
+    VertexValues(CompactGraph<V> graph, double[] values, int iterations,
+            boolean converged)
+    {
+        this.graph = graph;
+        this.values = values;
+        this.iterations = iterations;
+        this.converged = converged;
+    }
+
+    public CompactGraph<V> getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * @param v
+     * @return value of v
+     */
+    public double getValue(V v)
+    {
+        return values[indexOf(v)];
+    }
+
+    /**
+     * @return copy of the values indexed by vertex id
+     */
+    public double[] toArray()
+    {
+        return Arrays.copyOf(values, values.length);
+    }
+
+    /**
+     * @return iterations run
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * @return false if the run stopped at the iteration limit
+     */
+    public boolean isConverged()
+    {
+        return converged;
+    }
+
+    private int indexOf(V v)
+    {
+        final int index = graph.indexOf(v);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("value not found in graph");
+        }
+        return index;
+    }
+}
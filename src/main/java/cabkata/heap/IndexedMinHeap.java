@@ -0,0 +1,220 @@
+package cabkata.heap;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A d-ary min heap of the integer ids 0..capacity-1 keyed by doubles.
+ *
+ * Every id remembers its position in the heap, so besides insert and poll in
+ * O(d log_d n) it supports contains in O(1) and decreaseKey in O(log_d n),
+ * which is what Dijkstra and Prim need. A higher arity makes the tree
+ * shallower, trading cheaper decreaseKeys for more comparisons per poll.
+ */
+public final class IndexedMinHeap {
+    public static final int DEFAULT_ARITY = 4;
+
+    private final int arity;
+    private final int[] heap;
+    private final int[] positions;
+    private final double[] keys;
+    private int size;
+
+    public IndexedMinHeap(int capacity)
+    {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    public IndexedMinHeap(int capacity, int arity)
+    {
+        if (capacity < 0)
+        {
+            throw new IllegalArgumentException("capacity may not be negative");
+        }
+        if (arity < 2)
+        {
+            throw new IllegalArgumentException("arity must be at least 2");
+        }
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int capacity()
+    {
+        return heap.length;
+    }
+
+    public boolean contains(int id)
+    {
+        return positions[id] >= 0;
+    }
+
+    /**
+     * @param id
+     * @return key of id, only meaningful while id is in the heap
+     */
+    public double getKey(int id)
+    {
+        return keys[id];
+    }
+
+    public void insert(int id, double key)
+    {
+        if (contains(id))
+        {
+            throw new IllegalArgumentException("id " + id + " is already in the heap");
+        }
+        keys[id] = key;
+        heap[size] = id;
+        positions[id] = size;
+        siftUp(size++);
+    }
+
+    public void decreaseKey(int id, double key)
+    {
+        if (!contains(id))
+        {
+            throw new IllegalArgumentException("id " + id + " is not in the heap");
+        }
+        if (key > keys[id])
+        {
+            throw new IllegalArgumentException("key may not increase");
+        }
+        keys[id] = key;
+        siftUp(positions[id]);
+    }
+
+    /**
+     * Inserts id or lowers its key if it is already queued with a larger one
+     *
+     * @param id
+     * @param key
+     * @return true if the heap changed
+     */
+    public boolean offer(int id, double key)
+    {
+        if (!contains(id))
+        {
+            insert(id, key);
+            return true;
+        }
+        if (key < keys[id])
+        {
+            decreaseKey(id, key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return id with the smallest key
+     */
+    public int peek()
+    {
+        if (size == 0)
+        {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    /**
+     * Removes and returns the id with the smallest key, its key stays
+     * readable through {@link #getKey(int)} until it is inserted again
+     */
+    public int poll()
+    {
+        final int min = peek();
+        positions[min] = -1;
+        size--;
+        if (size > 0)
+        {
+            final int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Empties the heap in O(size) so it can be reused
+     */
+    public void clear()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position)
+    {
+        final int id = heap[position];
+        final double key = keys[id];
+        while (position > 0)
+        {
+            final int parentPosition = (position - 1) / arity;
+            final int parent = heap[parentPosition];
+            if (keys[parent] <= key)
+            {
+                break;
+            }
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void siftDown(int position)
+    {
+        final int id = heap[position];
+        final double key = keys[id];
+        while (true)
+        {
+            final int firstChild = position * arity + 1;
+            if (firstChild >= size)
+            {
+                break;
+            }
+            final int lastChild = Math.min(firstChild + arity, size);
+            int minChild = firstChild;
+            double minKey = keys[heap[firstChild]];
+            for (int child = firstChild + 1; child < lastChild; child++)
+            {
+                final double childKey = keys[heap[child]];
+                if (childKey < minKey)
+                {
+                    minChild = child;
+                    minKey = childKey;
+                }
+            }
+            if (key <= minKey)
+            {
+                break;
+            }
+            final int child = heap[minChild];
+            heap[position] = child;
+            positions[child] = position;
+            position = minChild;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+}
@@ -0,0 +1,114 @@
+package cabkata.sets;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock free disjoint set forest over the dense integer elements 0..size-1,
+ * safe to {@link #find(int)} and {@link #union(int, int)} from any number of
+ * threads. Roots are linked with a compare and set on their parent slot,
+ * always below the root with the larger index so no cycle can form, and
+ * finds halve the paths they walk with the same compare and set.
+ */
+public final class ConcurrentIntDisjointSet {
+    private final AtomicIntegerArray parent;
+    private final AtomicInteger count;
+
+    public ConcurrentIntDisjointSet(int size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("size may not be negative");
+        }
+        parent = new AtomicIntegerArray(size);
+        count = new AtomicInteger(size);
+        for (int i = 0; i < size; i++)
+        {
+            parent.lazySet(i, i);
+        }
+    }
+
+    /**
+     * @param element
+     * @return representative of the set containing element, which may change
+     *         as soon as another thread merges the set
+     */
+    public int find(int element)
+    {
+        int x = element;
+        int p = parent.get(x);
+        while (p != x)
+        {
+            final int grandparent = parent.get(p);
+            // losing this race only means another thread shortened the path
+            parent.compareAndSet(x, p, grandparent);
+            x = grandparent;
+            p = parent.get(x);
+        }
+        return x;
+    }
+
+    /**
+     * Merges the sets containing item1 and item2
+     *
+     * @param item1
+     * @param item2
+     * @return true if this call merged two different sets
+     */
+    public boolean union(int item1, int item2)
+    {
+        while (true)
+        {
+            final int root1 = find(item1);
+            final int root2 = find(item2);
+            if (root1 == root2)
+            {
+                return false;
+            }
+            final int child = Math.min(root1, root2);
+            final int root = Math.max(root1, root2);
+            if (parent.compareAndSet(child, child, root))
+            {
+                count.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param item1
+     * @param item2
+     * @return true if the items are in the same set, exact only while no
+     *         other thread is merging sets
+     */
+    public boolean connected(int item1, int item2)
+    {
+        while (true)
+        {
+            final int root1 = find(item1);
+            final int root2 = find(item2);
+            if (root1 == root2)
+            {
+                return true;
+            }
+            // root1 is still a root, so the two sets were disjoint
+            if (parent.get(root1) == root1)
+            {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return number of disjoint sets
+     */
+    public int count()
+    {
+        return count.get();
+    }
+
+    public int size()
+    {
+        return parent.length();
+    }
+}
@@ -0,0 +1,93 @@
+package cabkata.sets;
+
+/**
+ * Disjoint set forest over the dense integer elements 0..size-1. Union by
+ * rank and path halving keep {@link #find(int)} and {@link #union(int, int)}
+ * at practically constant amortized cost, with no per-element objects.
+ */
+public final class IntDisjointSet {
+    private final int[] parent;
+    private final byte[] rank;
+    private int count;
+
+    public IntDisjointSet(int size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("size may not be negative");
+        }
+        parent = new int[size];
+        rank = new byte[size];
+        count = size;
+        for (int i = 0; i < size; i++)
+        {
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * @param element
+     * @return representative of the set containing element
+     */
+    public int find(int element)
+    {
+        int x = element;
+        while (parent[x] != x)
+        {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /**
+     * Merges the sets containing item1 and item2
+     *
+     * @param item1
+     * @param item2
+     * @return true if the two items were in different sets
+     */
+    public boolean union(int item1, int item2)
+    {
+        int root1 = find(item1);
+        int root2 = find(item2);
+        if (root1 == root2)
+        {
+            return false;
+        }
+
+        if (rank[root1] < rank[root2])
+        {
+            parent[root1] = root2;
+        }
+        else if (rank[root1] > rank[root2])
+        {
+            parent[root2] = root1;
+        }
+        else
+        {
+            parent[root2] = root1;
+            rank[root1]++;
+        }
+        count--;
+        return true;
+    }
+
+    public boolean connected(int item1, int item2)
+    {
+        return find(item1) == find(item2);
+    }
+
+    /**
+     * @return number of disjoint sets
+     */
+    public int count()
+    {
+        return count;
+    }
+
+    public int size()
+    {
+        return parent.length;
+    }
+}
@@ -0,0 +1,131 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import cabkata.graphs.AlgorithmMetrics.Algorithm;
+import cabkata.graphs.Graph.EdgeType;
+
+public final class AlgorithmMetricsTest {
+
+    private static Graph<String> graph()
+    {
+        // a -> b -> c -> d, a -> c, e unreachable
+        return Graph.graphFromStringEdges(Arrays.asList("a,b,1", "b,c,1",
+                "c,d,1", "a,c,5", "e,"), EdgeType.DIRECTED);
+    }
+
+    @Test
+    public void testBreadthFirstSearch()
+    {
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>(metrics);
+        algo.breadthFirstSearch(graph(), "a");
+        algo.breadthFirstSearch(graph().compile(), "a");
+        AlgorithmStats stats = metrics.get(Algorithm.BREADTH_FIRST_SEARCH);
+        assertEquals(2, stats.getRuns());
+        assertEquals(8, stats.getVerticesVisited());
+        assertEquals(8, stats.getEdgesScanned());
+        assertEquals(6, stats.getEdgesRelaxed());
+        assertTrue(stats.getTotalTimeNanos() >= stats.getSetupTimeNanos());
+        assertTrue(stats.getMaxTimeNanos() <= stats.getTotalTimeNanos());
+        assertEquals(stats.getTotalTimeNanos() / 2, stats.getAverageTimeNanos());
+        assertEquals(0, metrics.get(Algorithm.PRIM).getRuns());
+    }
+
+    @Test
+    public void testTopologicalSort()
+    {
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>(metrics);
+        algo.toplogicalSort(graph());
+        algo.toplogicalSort(graph().compile());
+        AlgorithmStats stats = metrics.get(Algorithm.TOPOLOGICAL_SORT);
+        assertEquals(2, stats.getRuns());
+        assertEquals(10, stats.getVerticesVisited());
+        assertEquals(8, stats.getEdgesScanned());
+    }
+
+    @Test
+    public void testMinimumSpanningTrees()
+    {
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>(metrics);
+        Graph<String> graph = Graph.graphFromStringEdges(Arrays.asList(
+                "a,b,1", "b,c,2", "a,c,3", "c,d,1"), EdgeType.UNDIRECTED);
+        algo.minimumSpanningTreeKruskal(graph);
+        algo.minimumSpanningTreeKruskal(graph.compile());
+        AlgorithmStats kruskal = metrics.get(Algorithm.KRUSKAL);
+        assertEquals(2, kruskal.getRuns());
+        assertEquals(6, kruskal.getEdgesRelaxed());
+
+        algo.minimumSpanningTreePrim(graph, "a");
+        algo.minimumSpanningTreePrim(graph.compile(), "a");
+        AlgorithmStats prim = metrics.get(Algorithm.PRIM);
+        assertEquals(2, prim.getRuns());
+        assertEquals(8, prim.getVerticesVisited());
+        assertEquals(16, prim.getEdgesScanned());
+        assertTrue(prim.getEdgesRelaxed() >= 6);
+        assertEquals(2 * 9 + prim.getEdgesRelaxed(), prim.getHeapOperations());
+    }
+
+    @Test
+    public void testBellmanFord()
+    {
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>(metrics);
+        algo.singleSourceShortestPathBellmanFord(graph(), "a");
+        AlgorithmStats stats = metrics.get(Algorithm.BELLMAN_FORD);
+        assertEquals(1, stats.getRuns());
+        assertTrue(stats.getVerticesVisited() >= 4);
+        assertTrue(stats.getEdgesRelaxed() >= 3);
+        assertTrue(stats.getEdgesScanned() >= 4);
+
+        algo.singleSourceShortestPathBellmanFord(Graph.graphFromStringEdges(
+                Arrays.asList("a,b,1", "b,c,-2", "c,b,1"), EdgeType.DIRECTED), "a");
+        assertEquals(2, stats.getRuns());
+        metrics.reset();
+        assertEquals(0, stats.getRuns());
+        assertEquals(0, stats.getEdgesRelaxed());
+    }
+
+    @Test
+    public void testUninstrumented()
+    {
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>();
+        assertNull(algo.getMetrics());
+        algo.breadthFirstSearch(graph(), "a");
+        assertEquals(2, algo.getDistance("d"));
+    }
+
+    @Test
+    public void testJmx() throws Exception
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        metrics.register(server, "test");
+        try
+        {
+            new GraphAlgorithms<String>(metrics).breadthFirstSearch(graph(), "a");
+            ObjectName name = new ObjectName(
+                    "cabkata.graphs:type=GraphAlgorithms,name=\"test\",algorithm=BREADTH_FIRST_SEARCH");
+            assertEquals(Long.valueOf(1), server.getAttribute(name, "Runs"));
+            assertEquals(Long.valueOf(4), server.getAttribute(name, "VerticesVisited"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(Long.valueOf(0), server.getAttribute(name, "Runs"));
+        }
+        finally
+        {
+            metrics.unregister();
+        }
+        assertTrue(server.queryNames(new ObjectName(
+                "cabkata.graphs:type=GraphAlgorithms,name=\"test\",*"), null).isEmpty());
+    }
+}
@@ -0,0 +1,138 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class AllPairsShortestPathsTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testMatchesBellmanFord()
+    {
+        // spans several tiles and a partial last one
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(21);
+        for (int i = 0; i < 1500; i++)
+        {
+            edgesAsString.add(random.nextInt(150) + "," + random.nextInt(150)
+                    + "," + random.nextInt(25));
+        }
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+        AllPairsShortestPaths<String> sequential = CompactGraphAlgorithms
+                .allPairsShortestPaths(graph, true);
+        AllPairsShortestPaths<String> parallel = new GraphAlgorithms<String>()
+                .allPairsShortestPaths(graph, true, pool);
+        assertFalse(sequential.hasNegativeCycle());
+        assertFalse(parallel.hasNegativeCycle());
+        for (String from : graph.getVertices())
+        {
+            ShortestPaths<String> expected = CompactGraphAlgorithms.bellmanFord(
+                    graph, from);
+            for (String to : graph.getVertices())
+            {
+                assertEquals(expected.getPathWeight(to),
+                        sequential.getPathWeight(from, to), .0001);
+                assertEquals(expected.getPathWeight(to),
+                        parallel.getPathWeight(from, to), .0001);
+                assertEquals(expected.isReachable(to), parallel.isReachable(from, to));
+                if (parallel.isReachable(from, to))
+                {
+                    assertEquals(parallel.getPathWeight(from, to),
+                            pathWeight(graph, parallel.getPath(from, to)), .0001);
+                }
+            }
+        }
+    }
+
+    private static double pathWeight(CompactGraph<String> graph, List<String> path)
+    {
+        double weight = 0;
+        for (int i = 1; i < path.size(); i++)
+        {
+            final int from = graph.indexOf(path.get(i - 1));
+            final int to = graph.indexOf(path.get(i));
+            double best = Double.MAX_VALUE;
+            for (int edge = graph.edgeBegin(from); edge < graph.edgeEnd(from); edge++)
+            {
+                if (graph.getTarget(edge) == to)
+                {
+                    best = Math.min(best, graph.getWeight(edge));
+                }
+            }
+            assertTrue(best < Double.MAX_VALUE);
+            weight += best;
+        }
+        return weight;
+    }
+
+    @Test
+    public void testPathsAndNegativeWeights()
+    {
+        CompactGraph<String> graph = Graph.graphFromStringEdges(
+                Arrays.asList("a,b,4", "a,c,1", "c,b,-2", "b,d,1", "x,a,1"),
+                EdgeType.DIRECTED).compile();
+        AllPairsShortestPaths<String> paths = CompactGraphAlgorithms
+                .allPairsShortestPaths(graph, true);
+        assertFalse(paths.hasNegativeCycle());
+        assertEquals(0.0, paths.getPathWeight("a", "d"), .0001);
+        assertEquals(Arrays.asList("a", "c", "b", "d"), paths.getPath("a", "d"));
+        assertEquals(Arrays.asList("x", "a", "c", "b"), paths.getPath("x", "b"));
+        assertEquals(Arrays.asList("a"), paths.getPath("a", "a"));
+        assertEquals("c", paths.getPredecessor("a", "b"));
+        assertFalse(paths.isReachable("d", "a"));
+        assertEquals(Double.MAX_VALUE, paths.getPathWeight("d", "a"), 0);
+        assertTrue(paths.getPath("d", "a").isEmpty());
+
+        AllPairsShortestPaths<String> weightsOnly = CompactGraphAlgorithms
+                .allPairsShortestPaths(graph, false);
+        assertFalse(weightsOnly.hasPredecessors());
+        assertEquals(-1.0, weightsOnly.getPathWeight("a", "b"), .0001);
+        try
+        {
+            weightsOnly.getPath("a", "b");
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException expected)
+        {
+        }
+
+        CompactGraph<String> cyclic = Graph.graphFromStringEdges(
+                Arrays.asList("a,b,1", "b,c,-3", "c,a,1"), EdgeType.DIRECTED).compile();
+        assertTrue(CompactGraphAlgorithms.allPairsShortestPaths(cyclic, false,
+                pool).hasNegativeCycle());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLargeWithPredecessors()
+    {
+        // 50000^2 overflows an int, checked before any matrix is allocated
+        CompactGraph<Integer> graph = new IntGraph.Builder().addVertex(49999)
+                .build().asCompactGraph();
+        CompactGraphAlgorithms.allPairsShortestPaths(graph, true);
+    }
+}
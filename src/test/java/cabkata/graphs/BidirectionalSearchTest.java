@@ -0,0 +1,233 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class BidirectionalSearchTest {
+
+    private static CompactGraph<Integer> randomGraph(int nodes, int edges,
+            long seed)
+    {
+        IntGraph.Builder builder = new IntGraph.Builder(edges);
+        builder.addVertex(nodes - 1);
+        Random random = new Random(seed);
+        for (int i = 0; i < edges; i++)
+        {
+            builder.addEdge(random.nextInt(nodes), random.nextInt(nodes),
+                    1 + random.nextInt(10));
+        }
+        return builder.build().asCompactGraph();
+    }
+
+    /**
+     * Checks path is made of edges of graph and returns its weight
+     */
+    private static double pathWeight(CompactGraph<Integer> graph,
+            List<Integer> path)
+    {
+        double weight = 0.0;
+        for (int i = 0; i + 1 < path.size(); i++)
+        {
+            final int from = path.get(i).intValue();
+            final int to = path.get(i + 1).intValue();
+            double lightest = Double.MAX_VALUE;
+            for (int edge = graph.edgeBegin(from); edge < graph.edgeEnd(from); edge++)
+            {
+                if (graph.getTarget(edge) == to)
+                {
+                    lightest = Math.min(lightest, graph.getWeight(edge));
+                }
+            }
+            assertTrue("no edge " + from + "->" + to, lightest < Double.MAX_VALUE);
+            weight += lightest;
+        }
+        return weight;
+    }
+
+    @Test
+    public void testDijkstraMatchesUnidirectional()
+    {
+        CompactGraph<Integer> graph = randomGraph(2000, 6000, 17);
+        GraphAlgorithms<Integer> algo = new GraphAlgorithms<Integer>();
+        Random random = new Random(5);
+        for (int query = 0; query < 50; query++)
+        {
+            final Integer source = Integer.valueOf(random.nextInt(2000));
+            final Integer target = Integer.valueOf(random.nextInt(2000));
+            ShortestPaths<Integer> expected = CompactGraphAlgorithms.dijkstra(
+                    graph, source);
+            PointToPointPath<Integer> path = algo
+                    .shortestPathBidirectionalDijkstra(graph, source, target);
+            assertEquals(expected.isReachable(target), path.isReachable());
+            if (path.isReachable())
+            {
+                assertEquals(expected.getPathWeight(target), path.getWeight(),
+                        1e-9);
+                assertEquals(path.getWeight(), pathWeight(graph, path.getPath()),
+                        1e-9);
+                assertEquals(source, path.getPath().get(0));
+                assertEquals(target, path.getPath().get(path.getPath().size() - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testBreadthFirstMatchesUnidirectional()
+    {
+        CompactGraph<Integer> graph = randomGraph(3000, 9000, 23);
+        GraphAlgorithms<Integer> algo = new GraphAlgorithms<Integer>();
+        Random random = new Random(9);
+        for (int query = 0; query < 50; query++)
+        {
+            final Integer source = Integer.valueOf(random.nextInt(3000));
+            final Integer target = Integer.valueOf(random.nextInt(3000));
+            BreadthFirstTree<Integer> expected = CompactGraphAlgorithms
+                    .breadthFirstSearch(graph, source);
+            PointToPointPath<Integer> path = algo
+                    .shortestPathBidirectionalBreadthFirst(graph, source, target);
+            assertEquals(expected.isReachable(target), path.isReachable());
+            if (path.isReachable())
+            {
+                final int hops = expected.getDistance(target);
+                assertEquals(hops, (int) path.getWeight());
+                assertEquals(hops + 1, path.getPath().size());
+                pathWeight(graph, path.getPath());
+                assertEquals(path.isReachable(), algo
+                        .shortestPathBidirectionalBreadthFirst(graph, source,
+                                target, hops).isReachable());
+                if (hops > 0)
+                {
+                    assertFalse(algo.shortestPathBidirectionalBreadthFirst(
+                            graph, source, target, hops - 1).isReachable());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExploresLessThanFullSearch()
+    {
+        // sparse random graph: the two balls of half the radius are far
+        // smaller than one ball of the full radius
+        CompactGraph<Integer> graph = randomGraph(200000, 600000, 31);
+        final Integer source = Integer.valueOf(1);
+        final Integer target = Integer.valueOf(2);
+        BreadthFirstTree<Integer> tree = CompactGraphAlgorithms
+                .breadthFirstSearch(graph, source);
+        assertTrue(tree.isReachable(target));
+        int reached = 0;
+        for (int v = 0; v < graph.getVertexCount(); v++)
+        {
+            if (tree.isReachable(Integer.valueOf(v)))
+            {
+                reached++;
+            }
+        }
+        PointToPointPath<Integer> path = CompactGraphAlgorithms
+                .bidirectionalBreadthFirstSearch(graph, source, target,
+                        Integer.MAX_VALUE);
+        assertEquals(tree.getDistance(target), (int) path.getWeight());
+        assertTrue(path.getSettledCount() * 10 < reached);
+
+        PointToPointPath<Integer> weighted = CompactGraphAlgorithms
+                .bidirectionalDijkstra(graph, source, target);
+        assertEquals(CompactGraphAlgorithms.dijkstra(graph, source)
+                .getPathWeight(target), weighted.getWeight(), 1e-9);
+        assertTrue(weighted.getSettledCount() * 10 < reached);
+    }
+
+    @Test
+    public void testGraphOverloads()
+    {
+        Graph<String> graph = Graph.graphFromStringEdges(Arrays.asList(
+                "a,b,1", "b,c,1", "a,c,5", "c,d,1", "e,a,1"), EdgeType.DIRECTED);
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>();
+        PointToPointPath<String> path = algo.shortestPathBidirectionalDijkstra(
+                graph, "a", "d");
+        assertEquals(Arrays.asList("a", "b", "c", "d"), path.getPath());
+        assertEquals(3.0, path.getWeight(), 0.0);
+        PointToPointPath<String> hops = algo
+                .shortestPathBidirectionalBreadthFirst(graph, "a", "d");
+        assertEquals(Arrays.asList("a", "c", "d"), hops.getPath());
+        assertFalse(algo.shortestPathBidirectionalBreadthFirst(graph, "d", "a")
+                .isReachable());
+        assertFalse(algo.shortestPathBidirectionalDijkstra(graph, "d", "a")
+                .isReachable());
+        assertEquals(Arrays.asList("e"), algo
+                .shortestPathBidirectionalBreadthFirst(graph, "e", "e").getPath());
+        assertEquals(0.0, algo.shortestPathBidirectionalDijkstra(graph, "e",
+                "e").getWeight(), 0.0);
+
+        // the incoming edges indexed by the queries above follow the change
+        graph.addEdge("d", "a", 1.0);
+        assertEquals(Arrays.asList("d", "a"), algo
+                .shortestPathBidirectionalDijkstra(graph, "d", "a").getPath());
+        assertEquals(Arrays.asList("d", "a"), algo
+                .shortestPathBidirectionalBreadthFirst(graph, "d", "a")
+                .getPath());
+        graph.removeEdge("c", "d");
+        assertFalse(algo.shortestPathBidirectionalDijkstra(graph, "a", "d")
+                .isReachable());
+    }
+
+    @Test
+    public void testGraphOverloadsMatchCompact()
+    {
+        Graph<Integer> graph = new Graph<Integer>();
+        Random random = new Random(41);
+        for (int i = 0; i < 1500; i++)
+        {
+            graph.addEdge(Integer.valueOf(random.nextInt(500)),
+                    Integer.valueOf(random.nextInt(500)), 1 + random.nextInt(10));
+        }
+        CompactGraph<Integer> compact = graph.compile();
+        GraphAlgorithms<Integer> algo = new GraphAlgorithms<Integer>();
+        for (int query = 0; query < 50; query++)
+        {
+            final Integer source = compact.getVertex(random.nextInt(compact
+                    .getVertexCount()));
+            final Integer target = compact.getVertex(random.nextInt(compact
+                    .getVertexCount()));
+            PointToPointPath<Integer> expected = algo
+                    .shortestPathBidirectionalDijkstra(compact, source, target);
+            PointToPointPath<Integer> path = algo
+                    .shortestPathBidirectionalDijkstra(graph, source, target);
+            assertEquals(expected.isReachable(), path.isReachable());
+            assertEquals(expected.getWeight(), path.getWeight(), 1e-9);
+            assertEquals(source, path.getSource());
+            assertEquals(target, path.getTarget());
+            if (path.isReachable())
+            {
+                List<Integer> ids = new ArrayList<Integer>();
+                for (Integer v : path.getPath())
+                {
+                    ids.add(Integer.valueOf(compact.indexOf(v)));
+                }
+                assertEquals(path.getWeight(), pathWeight(compact, ids), 1e-9);
+            }
+            PointToPointPath<Integer> hops = algo
+                    .shortestPathBidirectionalBreadthFirst(graph, source, target);
+            assertEquals(algo.shortestPathBidirectionalBreadthFirst(compact,
+                    source, target).getWeight(), hops.getWeight(), 0.0);
+            assertEquals(hops.isReachable() ? (int) hops.getWeight() + 1 : 0,
+                    hops.getPath().size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeight()
+    {
+        Graph<String> graph = Graph.graphFromStringEdges(
+                Arrays.asList("a,b,-1"), EdgeType.DIRECTED);
+        new GraphAlgorithms<String>().shortestPathBidirectionalDijkstra(graph,
+                "a", "b");
+    }
+}
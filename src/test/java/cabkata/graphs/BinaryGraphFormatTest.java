@@ -0,0 +1,68 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cabkata.graphs.Graph.EdgeType;
+import cabkata.graphs.Graph.WeightedEdge;
+
+public final class BinaryGraphFormatTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndOpen() throws IOException
+    {
+        List<String> edgesAsString = Arrays.asList("a,b,4", "a,h,8", "b,c,8",
+                "b,h,11", "c,d,7", "c,f,4", "d,e,9", "d,f,14", "e,f,10",
+                "f,g,2", "g,i,6", "g,h,1", "h,i,7", "i,c,2", "\u00fcber,");
+        Graph<String> graph = Graph.graphFromStringEdges(edgesAsString, EdgeType.UNDIRECTED);
+        CompactGraph<String> compiled = graph.compile();
+        File file = folder.newFile("graph.bin");
+        BinaryGraphFormat.write(compiled, file);
+
+        CompactGraph<String> mapped = BinaryGraphFormat.open(file);
+        assertEquals(compiled.getVertexCount(), mapped.getVertexCount());
+        assertEquals(compiled.getEdgeCount(), mapped.getEdgeCount());
+        for (int v = 0; v < compiled.getVertexCount(); v++)
+        {
+            assertEquals(compiled.getVertex(v), mapped.getVertex(v));
+            assertEquals(v, mapped.indexOf(compiled.getVertex(v)));
+            assertEquals(compiled.edgeBegin(v), mapped.edgeBegin(v));
+            assertEquals(compiled.edgeEnd(v), mapped.edgeEnd(v));
+        }
+        for (int edge = 0; edge < compiled.getEdgeCount(); edge++)
+        {
+            assertEquals(compiled.getTarget(edge), mapped.getTarget(edge));
+            assertEquals(compiled.getWeight(edge), mapped.getWeight(edge), 0.0);
+        }
+        assertEquals(-1, mapped.indexOf("missing"));
+
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>();
+        Set<WeightedEdge<String>> mst = algo.minimumSpanningTreeKruskal(mapped);
+        assertEquals(8, mst.size());
+        algo.singleSourceShortestPathDijkstra(mapped, "a");
+        assertEquals(14.0, algo.getPathWeight("i"), .0001);
+        assertEquals("c", algo.getPredecessor("i"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException
+    {
+        File file = folder.newFile("other.bin");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[128]);
+        out.close();
+        BinaryGraphFormat.open(file);
+    }
+}
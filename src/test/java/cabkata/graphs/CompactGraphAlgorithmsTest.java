@@ -0,0 +1,258 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class CompactGraphAlgorithmsTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testResults()
+    {
+        List<String> edgesAsString = Arrays.asList("a,b,1", "b,c,2", "a,c,5",
+                "c,d,1", "x,y,1");
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+
+        BreadthFirstTree<String> tree = CompactGraphAlgorithms.breadthFirstSearch(graph, "a");
+        assertEquals("a", tree.getSource());
+        assertEquals(1, tree.getDistance("c"));
+        assertEquals(Arrays.asList("a", "c", "d"), tree.getPath("d"));
+        assertFalse(tree.isReachable("y"));
+
+        ShortestPaths<String> paths = CompactGraphAlgorithms.dijkstra(graph, "a");
+        assertEquals(4.0, paths.getPathWeight("d"), .0001);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), paths.getPath("d"));
+        assertFalse(paths.hasNegativeCycle());
+
+        DepthFirstForest<String> forest = CompactGraphAlgorithms.depthFirstSearch(graph);
+        List<String> order = forest.getTopologicalOrder();
+        assertTrue(order.indexOf("a") < order.indexOf("b"));
+        assertTrue(order.indexOf("b") < order.indexOf("c"));
+        assertTrue(order.indexOf("c") < order.indexOf("d"));
+        assertTrue(order.indexOf("x") < order.indexOf("y"));
+        assertTrue(forest.getStart("d") < forest.getFinish("d"));
+        assertTrue(forest.getFinish("d") < forest.getFinish("a"));
+    }
+
+    @Test
+    public void testNegativeCycle()
+    {
+        List<String> edgesAsString = Arrays.asList("s,a,1", "a,b,-2", "b,a,1");
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+        ShortestPaths<String> paths = CompactGraphAlgorithms.bellmanFord(graph, "s");
+        assertTrue(paths.hasNegativeCycle());
+        assertCycle(Arrays.asList("a", "b"), paths.getNegativeCycle());
+        ShortestPaths<String> parallel = CompactGraphAlgorithms.bellmanFord(
+                graph, "s", pool);
+        assertCycle(Arrays.asList("a", "b"), parallel.getNegativeCycle());
+        try
+        {
+            paths.getPath("b");
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException expected)
+        {
+        }
+    }
+
+    @Test
+    public void testBellmanFordMatchesDijkstra()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(5);
+        for (int i = 0; i < 6000; i++)
+        {
+            edgesAsString.add(random.nextInt(1500) + "," + random.nextInt(1500)
+                    + "," + random.nextInt(40));
+        }
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+        ShortestPaths<String> dijkstra = CompactGraphAlgorithms.dijkstra(graph, "0");
+        ShortestPaths<String> queue = CompactGraphAlgorithms.bellmanFord(graph, "0");
+        ShortestPaths<String> parallel = CompactGraphAlgorithms.bellmanFord(
+                graph, "0", pool);
+        assertFalse(queue.hasNegativeCycle());
+        assertFalse(parallel.hasNegativeCycle());
+        for (String v : graph.getVertices())
+        {
+            assertEquals(dijkstra.getPathWeight(v), queue.getPathWeight(v), .0001);
+            assertEquals(dijkstra.getPathWeight(v), parallel.getPathWeight(v), .0001);
+            if (parallel.isReachable(v) && !v.equals("0"))
+            {
+                String predecessor = parallel.getPredecessor(v);
+                assertTrue(parallel.getPathWeight(predecessor) < Double.MAX_VALUE);
+            }
+        }
+    }
+
+    @Test
+    public void testBellmanFordNegativeWeights()
+    {
+        // edges only run from lower to higher ids, so there is no cycle
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(9);
+        for (int i = 0; i < 3000; i++)
+        {
+            final int from = random.nextInt(499);
+            final int to = from + 1 + random.nextInt(500 - from - 1);
+            edgesAsString.add(from + "," + to + "," + (random.nextInt(21) - 10));
+        }
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+        ShortestPaths<String> queue = CompactGraphAlgorithms.bellmanFord(
+                graph, graph.getVertex(0));
+        ShortestPaths<String> parallel = CompactGraphAlgorithms.bellmanFord(
+                graph, graph.getVertex(0), pool);
+        assertFalse(queue.hasNegativeCycle());
+        assertFalse(parallel.hasNegativeCycle());
+        for (String v : graph.getVertices())
+        {
+            assertEquals(queue.getPathWeight(v), parallel.getPathWeight(v), .0001);
+        }
+
+        CompactGraph<String> cyclic = Graph.graphFromStringEdges(
+                Arrays.asList("s,a,4", "a,b,1", "b,c,1", "c,d,1", "d,b,-5",
+                        "d,e,1"), EdgeType.DIRECTED).compile();
+        assertCycle(Arrays.asList("b", "c", "d"), CompactGraphAlgorithms
+                .bellmanFord(cyclic, "s").getNegativeCycle());
+        assertCycle(Arrays.asList("b", "c", "d"), CompactGraphAlgorithms
+                .bellmanFord(cyclic, "s", pool).getNegativeCycle());
+    }
+
+    /**
+     * Compares cycles up to the vertex they start at
+     */
+    private static void assertCycle(List<String> expected, List<String> cycle)
+    {
+        assertEquals(expected.size(), cycle.size());
+        final int offset = cycle.indexOf(expected.get(0));
+        assertTrue(offset >= 0);
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.get(i), cycle.get((offset + i) % cycle.size()));
+        }
+    }
+
+    @Test
+    public void testScratchSurvivesFailedQuery()
+    {
+        CompactGraph<String> negative = Graph.graphFromStringEdges(
+                Arrays.asList("a,b,1", "b,c,-1", "a,d,1"), EdgeType.DIRECTED).compile();
+        try
+        {
+            CompactGraphAlgorithms.dijkstra(negative, "a");
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+        CompactGraph<String> graph = Graph.graphFromStringEdges(
+                Arrays.asList("a,b,1", "b,c,1"), EdgeType.DIRECTED).compile();
+        assertEquals(2.0, CompactGraphAlgorithms.dijkstra(graph, "a")
+                .getPathWeight("c"), .0001);
+    }
+
+    @Test
+    public void testConcurrentQueries() throws Exception
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(11);
+        for (int i = 0; i < 4000; i++)
+        {
+            edgesAsString.add(random.nextInt(800) + "," + random.nextInt(800)
+                    + "," + random.nextInt(50));
+        }
+        final CompactGraph<String> graph = Graph.graphFromStringEdges(
+                edgesAsString, EdgeType.DIRECTED).compile();
+        final List<String> sources = new ArrayList<String>(graph.getVertices()
+                .subList(0, 40));
+
+        final GraphAlgorithms<String> sequential = new GraphAlgorithms<String>();
+        final double[][] expectedWeights = new double[sources.size()][];
+        final int[][] expectedDistances = new int[sources.size()][];
+        for (int s = 0; s < sources.size(); s++)
+        {
+            sequential.singleSourceShortestPathDijkstra(graph, sources.get(s));
+            expectedWeights[s] = new double[graph.getVertexCount()];
+            for (int v = 0; v < graph.getVertexCount(); v++)
+            {
+                expectedWeights[s][v] = sequential.getPathWeight(graph.getVertex(v));
+            }
+            expectedDistances[s] = CompactGraphAlgorithms.breadthFirstSearch(
+                    graph, sources.get(s)).distances.clone();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++)
+            {
+                final int offset = t;
+                futures.add(executor.submit(new Callable<Boolean>()
+                {
+                    @Override
+                    public Boolean call()
+                    {
+                        for (int i = 0; i < sources.size(); i++)
+                        {
+                            final int s = (i + offset) % sources.size();
+                            ShortestPaths<String> paths = CompactGraphAlgorithms
+                                    .dijkstra(graph, sources.get(s));
+                            BreadthFirstTree<String> tree = CompactGraphAlgorithms
+                                    .breadthFirstSearch(graph, sources.get(s));
+                            for (int v = 0; v < graph.getVertexCount(); v++)
+                            {
+                                String value = graph.getVertex(v);
+                                if (paths.getPathWeight(value) != expectedWeights[s][v]
+                                        || tree.distances[v] != expectedDistances[s][v])
+                                {
+                                    return Boolean.FALSE;
+                                }
+                            }
+                        }
+                        return Boolean.TRUE;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures)
+            {
+                assertTrue(future.get().booleanValue());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
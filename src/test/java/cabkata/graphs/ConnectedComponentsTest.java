@@ -0,0 +1,118 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+import cabkata.sets.IntDisjointSet;
+
+public final class ConnectedComponentsTest {
+
+    @Test
+    public void testComponents()
+    {
+        List<String> edgesAsString = Arrays.asList("a,b", "c,b", "d,e", "f",
+                "g,g");
+        Graph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try
+        {
+            ConnectedComponents<String> components = new GraphAlgorithms<String>()
+                    .connectedComponents(graph, pool);
+            assertEquals(4, components.count());
+            // directions are ignored
+            assertTrue(components.isConnected("a", "c"));
+            assertTrue(components.isConnected("d", "e"));
+            assertFalse(components.isConnected("a", "d"));
+            assertFalse(components.isConnected("f", "g"));
+            assertEquals(3, components.getSize(components.getComponent("b")));
+            assertEquals(1, components.getSize(components.getComponent("f")));
+            assertEquals(7, sum(components.getSizes()));
+            assertEquals(3, components.getComponents()
+                    .get(components.getComponent("a")).size());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMatchesSequentialUnionFind()
+    {
+        final int nodes = 20000;
+        IntGraph.Builder builder = new IntGraph.Builder();
+        builder.addVertex(nodes - 1);
+        IntDisjointSet expected = new IntDisjointSet(nodes);
+        Random random = new Random(7);
+        for (int i = 0; i < 15000; i++)
+        {
+            final int from = random.nextInt(nodes);
+            final int to = random.nextInt(nodes);
+            builder.addEdge(from, to, 1.0);
+            expected.union(from, to);
+        }
+        // a hub with many edges, split over several chunks
+        for (int i = 0; i < 40000; i++)
+        {
+            final int to = random.nextInt(nodes / 2);
+            builder.addEdge(0, to, 1.0);
+            expected.union(0, to);
+        }
+        CompactGraph<Integer> graph = builder.build().asCompactGraph();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            ConnectedComponents<Integer> components = new GraphAlgorithms<Integer>()
+                    .connectedComponents(graph, pool);
+            assertEquals(expected.count(), components.count());
+            final int[] labels = components.toArray();
+            final int[] sizes = new int[components.count()];
+            int next = 0;
+            for (int v = 0; v < nodes; v++)
+            {
+                assertEquals(expected.connected(v, 0), labels[v] == labels[0]);
+                assertEquals(expected.connected(v, nodes - 1),
+                        labels[v] == labels[nodes - 1]);
+                // ids follow the smallest vertex of each component
+                assertTrue(labels[v] <= next);
+                if (labels[v] == next)
+                {
+                    next++;
+                }
+                sizes[labels[v]]++;
+            }
+            assertArrayEquals(sizes, components.getSizes());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullPool()
+    {
+        new GraphAlgorithms<String>().connectedComponents(
+                Graph.graphFromStringEdges(Arrays.asList("a,b"),
+                        EdgeType.DIRECTED), null);
+    }
+
+    private static int sum(int[] values)
+    {
+        int sum = 0;
+        for (int value : values)
+        {
+            sum += value;
+        }
+        return sum;
+    }
+}
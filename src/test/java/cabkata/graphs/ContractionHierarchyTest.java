@@ -0,0 +1,180 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class ContractionHierarchyTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    private static Graph<String> grid(int size, long seed)
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(seed);
+        for (int row = 0; row < size; row++)
+        {
+            for (int column = 0; column < size; column++)
+            {
+                final String v = row + ":" + column;
+                if (column + 1 < size)
+                {
+                    edgesAsString.add(v + "," + row + ":" + (column + 1) + ","
+                            + (1 + random.nextInt(9)));
+                }
+                if (row + 1 < size)
+                {
+                    edgesAsString.add(v + "," + (row + 1) + ":" + column + ","
+                            + (1 + random.nextInt(9)));
+                }
+            }
+        }
+        return Graph.graphFromStringEdges(edgesAsString, EdgeType.UNDIRECTED);
+    }
+
+    private static CompactGraph<String> randomDirected(long seed)
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(seed);
+        for (int i = 0; i < 3000; i++)
+        {
+            edgesAsString.add(random.nextInt(700) + "," + random.nextInt(700)
+                    + "," + random.nextInt(20));
+        }
+        return Graph.graphFromStringEdges(edgesAsString, EdgeType.DIRECTED)
+                .compile();
+    }
+
+    @Test
+    public void testGridMatchesDijkstra()
+    {
+        CompactGraph<String> graph = grid(30, 1).compile();
+        ContractionHierarchy<String> hierarchy = ContractionHierarchy.build(
+                graph, pool);
+        assertTrue(hierarchy.getShortcutCount() > 0);
+        assertQueries(graph, hierarchy, 150, 2);
+    }
+
+    @Test
+    public void testDirectedMatchesDijkstra()
+    {
+        CompactGraph<String> graph = randomDirected(7);
+        ContractionHierarchy<String> hierarchy = ContractionHierarchy.build(
+                graph, pool);
+        assertQueries(graph, hierarchy, 300, 8);
+    }
+
+    private static void assertQueries(CompactGraph<String> graph,
+            ContractionHierarchy<String> hierarchy, int queries, long seed)
+    {
+        Random random = new Random(seed);
+        for (int i = 0; i < queries; i++)
+        {
+            String source = graph.getVertex(random.nextInt(graph.getVertexCount()));
+            String target = graph.getVertex(random.nextInt(graph.getVertexCount()));
+            ShortestPaths<String> expected = CompactGraphAlgorithms.dijkstra(
+                    graph, source);
+            PointToPointPath<String> path = hierarchy.shortestPath(source, target);
+            assertEquals(expected.isReachable(target), path.isReachable());
+            assertEquals(expected.getPathWeight(target), path.getWeight(), .0001);
+            if (path.isReachable())
+            {
+                List<String> vertices = path.getPath();
+                assertEquals(source, vertices.get(0));
+                assertEquals(target, vertices.get(vertices.size() - 1));
+                assertEquals(path.getWeight(), pathWeight(graph, vertices), .0001);
+            }
+        }
+    }
+
+    private static double pathWeight(CompactGraph<String> graph, List<String> path)
+    {
+        double weight = 0;
+        for (int i = 1; i < path.size(); i++)
+        {
+            final int from = graph.indexOf(path.get(i - 1));
+            final int to = graph.indexOf(path.get(i));
+            double best = Double.MAX_VALUE;
+            for (int edge = graph.edgeBegin(from); edge < graph.edgeEnd(from); edge++)
+            {
+                if (graph.getTarget(edge) == to)
+                {
+                    best = Math.min(best, graph.getWeight(edge));
+                }
+            }
+            assertTrue(best < Double.MAX_VALUE);
+            weight += best;
+        }
+        return weight;
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException
+    {
+        Graph<String> graph = grid(10, 5);
+        ContractionHierarchy<String> hierarchy = ContractionHierarchy.build(
+                graph, pool);
+        File file = File.createTempFile("hierarchy", ".bin");
+        try
+        {
+            hierarchy.write(file);
+            ContractionHierarchy<String> read = ContractionHierarchy.read(
+                    hierarchy.getGraph(), file);
+            assertEquals(hierarchy.getShortcutCount(), read.getShortcutCount());
+            assertQueries(hierarchy.getGraph(), read, 50, 6);
+            try
+            {
+                ContractionHierarchy.read(grid(4, 5).compile(), file);
+                fail("expected IOException");
+            }
+            catch (IOException expected)
+            {
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSmallGraph()
+    {
+        CompactGraph<String> graph = Graph.graphFromStringEdges(
+                Arrays.asList("a,b,1", "b,c,1", "a,c,5", "c,d,1", "x,y,1"),
+                EdgeType.DIRECTED).compile();
+        ContractionHierarchy<String> hierarchy = ContractionHierarchy.build(
+                graph, pool);
+        PointToPointPath<String> path = new GraphAlgorithms<String>()
+                .shortestPathContractionHierarchy(hierarchy, "a", "d");
+        assertEquals(3.0, path.getWeight(), .0001);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), path.getPath());
+        assertEquals(Arrays.asList("a"), hierarchy.shortestPath("a", "a").getPath());
+        assertFalse(hierarchy.shortestPath("d", "a").isReachable());
+        assertFalse(hierarchy.shortestPath("a", "y").isReachable());
+    }
+}
@@ -0,0 +1,96 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class DeltaSteppingShortestPathsTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testMatchesDijkstra()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++)
+        {
+            edgesAsString.add(random.nextInt(1000) + "," + random.nextInt(1000)
+                    + "," + random.nextInt(100));
+        }
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+        GraphAlgorithms<String> dijkstra = new GraphAlgorithms<String>();
+        dijkstra.singleSourceShortestPathDijkstra(graph, "0");
+
+        for (double delta : new double[] { 0, 1, 10, 1000 })
+        {
+            ShortestPaths<String> paths = new DeltaSteppingShortestPaths(
+                    pool, delta).singleSourceShortestPath(graph, "0");
+            for (String v : graph.getVertices())
+            {
+                assertEquals(dijkstra.getPathWeight(v), paths.getPathWeight(v), .0001);
+                assertPredecessorIsTight(graph, paths, v);
+            }
+        }
+    }
+
+    @Test
+    public void testZeroWeightEdges()
+    {
+        List<String> edgesAsString = Arrays.asList("s,a,1", "a,b,0", "b,c,0",
+                "c,a,0", "c,d,2", "x,y,1");
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+        ShortestPaths<String> paths = new DeltaSteppingShortestPaths()
+                .singleSourceShortestPath(graph, "s");
+        assertEquals(1.0, paths.getPathWeight("c"), .0001);
+        assertEquals(3.0, paths.getPathWeight("d"), .0001);
+        assertEquals(Arrays.asList("s", "a", "b", "c", "d"), paths.getPath("d"));
+        assertFalse(paths.isReachable("y"));
+        assertNull(paths.getPredecessor("s"));
+    }
+
+    private static void assertPredecessorIsTight(CompactGraph<String> graph,
+            ShortestPaths<String> paths, String v)
+    {
+        String predecessor = paths.getPredecessor(v);
+        if (predecessor == null)
+        {
+            return;
+        }
+        int from = graph.indexOf(predecessor);
+        for (int edge = graph.edgeBegin(from); edge < graph.edgeEnd(from); edge++)
+        {
+            if (graph.getVertex(graph.getTarget(edge)).equals(v)
+                    && paths.getPathWeight(predecessor) + graph.getWeight(edge) == paths
+                            .getPathWeight(v))
+            {
+                return;
+            }
+        }
+        fail("predecessor of " + v + " is not on a shortest path");
+    }
+}
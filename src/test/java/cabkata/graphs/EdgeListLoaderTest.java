@@ -0,0 +1,135 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cabkata.graphs.Graph.EdgeType;
+import cabkata.graphs.Graph.WeightedEdge;
+
+public final class EdgeListLoaderTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoadsSameGraphAsStringEdges() throws IOException
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(3);
+        String[] weights = { "", ",1", ",2.5", ",-0.125", ",1e3", ",3.14159265358979",
+                ",0.1", ",12345678901234567890", ",7E-2" };
+        for (int i = 0; i < 5000; i++)
+        {
+            edgesAsString.add("v" + random.nextInt(700) + ",v" + random.nextInt(700)
+                    + weights[random.nextInt(weights.length)]);
+        }
+        edgesAsString.add("lonely,");
+        edgesAsString.add("\u00e9t\u00e9,v1,4");
+
+        File file = folder.newFile("edges.csv");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        for (int i = 0; i < edgesAsString.size(); i++)
+        {
+            writer.write(edgesAsString.get(i));
+            writer.write(i % 2 == 0 ? "\n" : "\r\n");
+            if (i % 1000 == 0)
+            {
+                writer.write("\n");
+            }
+        }
+        writer.close();
+
+        for (EdgeType edgeType : EdgeType.values())
+        {
+            Graph<String> expected = Graph.graphFromStringEdges(edgesAsString, edgeType);
+            assertSameGraph(expected, new EdgeListLoader(edgeType).load(file));
+            assertSameGraph(expected,
+                    new EdgeListLoader(edgeType, pool).load(file));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTooManyFields() throws IOException
+    {
+        File file = folder.newFile("bad.csv");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        writer.write("a,b,1,2\n");
+        writer.close();
+        new EdgeListLoader(EdgeType.DIRECTED).load(file);
+    }
+
+    @Test
+    public void testRejectsEmptyEndpoints() throws IOException
+    {
+        String[] lines = { ",", ",b", "a,,1", ",,2" };
+        for (int i = 0; i < lines.length; i++)
+        {
+            final String line = lines[i];
+            File file = folder.newFile("empty" + i + ".csv");
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                    "UTF-8");
+            writer.write("a,b\n" + line + "\n");
+            writer.close();
+            try
+            {
+                new EdgeListLoader(EdgeType.DIRECTED).load(file);
+                fail("loaded " + line);
+            }
+            catch (IllegalArgumentException expected)
+            {
+            }
+        }
+    }
+
+    private static void assertSameGraph(Graph<String> expected,
+            CompactGraph<String> actual)
+    {
+        assertEquals(expected.getNodes().size(), actual.getVertexCount());
+        assertEquals(expected.getEdges().size(), actual.getEdgeCount());
+
+        Set<String> expectedEdges = new HashSet<String>();
+        for (WeightedEdge<String> edge : expected.getEdges())
+        {
+            expectedEdges.add(edge.toString());
+        }
+        for (int v = 0; v < actual.getVertexCount(); v++)
+        {
+            assertNotNull(expected.getNode(actual.getVertex(v)));
+            for (int edge = actual.edgeBegin(v); edge < actual.edgeEnd(v); edge++)
+            {
+                assertTrue(expectedEdges.contains(actual.toWeightedEdge(v, edge).toString()));
+            }
+        }
+    }
+}
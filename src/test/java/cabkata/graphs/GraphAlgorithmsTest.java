@@ -2,10 +2,16 @@ package cabkata.graphs;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Arrays;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import cabkata.graphs.Graph.EdgeType;
@@ -13,6 +19,20 @@ import cabkata.graphs.Graph.WeightedEdge;
 
 public final class GraphAlgorithmsTest {
 
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
     @Test
     public void testToplogicalSort()
     {
@@ -59,6 +79,40 @@ public final class GraphAlgorithmsTest {
         assertEquals(3, graphAlgorithms.getDistance("y"));
     }
 
+    @Test
+    public void testParallelBreadthFirstSearch()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(11);
+        for (int i = 0; i < 40000; i++)
+        {
+            edgesAsString.add(random.nextInt(5000) + "," + random.nextInt(5000));
+        }
+        edgesAsString.add("island,");
+        for (EdgeType edgeType : EdgeType.values())
+        {
+            CompactGraph<String> graph = Graph.graphFromStringEdges(
+                    edgesAsString, edgeType).compile();
+            GraphAlgorithms<String> sequential = new GraphAlgorithms<String>();
+            sequential.breadthFirstSearch(graph, "0");
+            GraphAlgorithms<String> parallel = new GraphAlgorithms<String>();
+            parallel.breadthFirstSearch(graph, "0", pool);
+
+            for (String v : graph.getVertices())
+            {
+                assertEquals(sequential.getDistance(v), parallel.getDistance(v));
+                String predecessor = parallel.getPredecessor(v);
+                assertEquals(sequential.getPredecessor(v) == null, predecessor == null);
+                if (predecessor != null)
+                {
+                    assertEquals(parallel.getDistance(v) - 1,
+                            parallel.getDistance(predecessor));
+                }
+            }
+            assertNull(parallel.getPredecessor("island"));
+        }
+    }
+
     private Graph<String> undirectedWeightedGraph()
     {
         List<String> edgesAsString = Arrays.asList("a,b,4", "a,h,8", "b,c,8",
@@ -102,5 +156,187 @@ public final class GraphAlgorithmsTest {
         GraphAlgorithms<String> algo = new GraphAlgorithms<String>();
         algo.singleSourceShortestPathBellmanFord(graph, "a");
     }
-            
+
+    @Test
+    public void testCompactToplogicalSort()
+    {
+        List<String> edgesAsString = Arrays.asList("watch,",
+                "undershorts,shoes", "undershorts,pants", "pants,shoes",
+                "pants,belt", "belt,jacket", "shirt,tie", "shirt,belt",
+                "tie,jacket", "socks,shoes");
+
+        Graph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED);
+        GraphAlgorithms<String> graphAlgorithms = new GraphAlgorithms<String>();
+        List<String> expected = graphAlgorithms.toplogicalSort(graph);
+
+        GraphAlgorithms<String> compactAlgorithms = new GraphAlgorithms<String>();
+        List<String> topologicalSortedList = 
+                compactAlgorithms.toplogicalSort(graph.compile());
+        assertEquals(expected, topologicalSortedList);
+        for (String vertex : expected)
+        {
+            assertEquals(graphAlgorithms.getStart(vertex),
+                    compactAlgorithms.getStart(vertex));
+            assertEquals(graphAlgorithms.getFinish(vertex),
+                    compactAlgorithms.getFinish(vertex));
+        }
+        for (WeightedEdge<String> edge : graph.getEdges())
+        {
+            assertTrue(topologicalSortedList.indexOf(edge.getFrom().getValue()) < 
+                    topologicalSortedList.indexOf(edge.getTo().getValue()));
+        }
+    }
+
+    @Test
+    public void testCompactBreadthFirstSearch()
+    {
+        List<String> edgesAsString = Arrays.asList("r,s", "r,v", "s,w", "w,t",
+                "w,x", "t,x", "t,u", "x,u", "x,y", "u,y");
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.UNDIRECTED).compile();
+        GraphAlgorithms<String> graphAlgorithms = new GraphAlgorithms<String>();
+        graphAlgorithms.breadthFirstSearch(graph, "s");
+        assertEquals(0, graphAlgorithms.getDistance("s"));
+        assertEquals(1, graphAlgorithms.getDistance("r"));
+        assertEquals(1, graphAlgorithms.getDistance("w"));
+        assertEquals(2, graphAlgorithms.getDistance("v"));
+        assertEquals(2, graphAlgorithms.getDistance("t"));
+        assertEquals(2, graphAlgorithms.getDistance("x"));
+        assertEquals(3, graphAlgorithms.getDistance("u"));
+        assertEquals(3, graphAlgorithms.getDistance("y"));
+    }
+
+    @Test
+    public void testCompactMinimumSpanningTree()
+    {
+        Graph<String> graph = undirectedWeightedGraph();
+        CompactGraph<String> compactGraph = graph.compile();
+        assertEquals(28, compactGraph.getEdgeCount());
+        GraphAlgorithms<String> graphAlgo = new GraphAlgorithms<String>();
+        Set<WeightedEdge<String>> mstEdges = 
+                graphAlgo.minimumSpanningTreeKruskal(compactGraph);
+        assertEquals(8, mstEdges.size());
+        assertTrue(graph.getEdges().containsAll(mstEdges));
+        assertEquals(37.0, totalWeight(mstEdges), .0001);
+
+        mstEdges = graphAlgo.minimumSpanningTreePrim(compactGraph, "a");
+        assertEquals(8, mstEdges.size());
+        assertTrue(graph.getEdges().containsAll(mstEdges));
+        assertEquals(37.0, totalWeight(mstEdges), .0001);
+    }
+
+    @Test
+    public void testCompactSingleSourceShortestPath()
+    {
+        Graph<String> graph = undirectedWeightedGraph();
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>();
+        assertFalse(algo.singleSourceShortestPathBellmanFord(graph.compile(), "a"));
+
+        List<String> edgesAsString = Arrays.asList("a,b,1", "b,c,-3", "c,a,1");
+        graph = Graph.graphFromStringEdges(edgesAsString, EdgeType.DIRECTED);
+        assertTrue(algo.singleSourceShortestPathBellmanFord(graph.compile(), "a"));
+        assertEquals(3, algo.getNegativeCycle().size());
+        assertTrue(algo.getNegativeCycle().containsAll(Arrays.asList("a", "b", "c")));
+
+        assertTrue(algo.singleSourceShortestPathBellmanFord(graph, "a"));
+        assertEquals(3, algo.getNegativeCycle().size());
+        algo.singleSourceShortestPathDijkstra(undirectedWeightedGraph(), "a");
+        assertTrue(algo.getNegativeCycle().isEmpty());
+    }
+
+    @Test
+    public void testSingleSourceShortestPathDijkstra()
+    {
+        Graph<String> graph = undirectedWeightedGraph();
+        GraphAlgorithms<String> bellmanFord = new GraphAlgorithms<String>();
+        assertFalse(bellmanFord.singleSourceShortestPathBellmanFord(graph, "a"));
+        GraphAlgorithms<String> dijkstra = new GraphAlgorithms<String>();
+        dijkstra.singleSourceShortestPathDijkstra(graph, "a");
+        GraphAlgorithms<String> compactDijkstra = new GraphAlgorithms<String>();
+        compactDijkstra.singleSourceShortestPathDijkstra(graph.compile(), "a");
+
+        assertEquals(0.0, dijkstra.getPathWeight("a"), .0001);
+        assertEquals(4.0, dijkstra.getPathWeight("b"), .0001);
+        assertEquals(12.0, dijkstra.getPathWeight("c"), .0001);
+        assertEquals(21.0, dijkstra.getPathWeight("e"), .0001);
+        assertEquals(14.0, dijkstra.getPathWeight("i"), .0001);
+        assertEquals("h", dijkstra.getPredecessor("g"));
+        assertNull(dijkstra.getPredecessor("a"));
+        for (Graph.Node<String> node : graph.getNodes())
+        {
+            String v = node.getValue();
+            assertEquals(bellmanFord.getPathWeight(v), dijkstra.getPathWeight(v), .0001);
+            assertEquals(bellmanFord.getPathWeight(v), compactDijkstra.getPathWeight(v), .0001);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDijkstraRejectsNegativeWeights()
+    {
+        List<String> edgesAsString = Arrays.asList("a,b,1", "b,c,-3");
+        Graph<String> graph = Graph.graphFromStringEdges(edgesAsString, EdgeType.DIRECTED);
+        new GraphAlgorithms<String>().singleSourceShortestPathDijkstra(graph, "a");
+    }
+
+    @Test
+    public void testToplogicalSortOfDeepChain()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        for (int i = 0; i < 200000; i++)
+        {
+            edgesAsString.add(i + "," + (i + 1));
+        }
+        Graph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED);
+        List<String> sorted = new GraphAlgorithms<String>().toplogicalSort(graph);
+        assertEquals(200001, sorted.size());
+        for (int i = 0; i < sorted.size(); i++)
+        {
+            assertEquals(String.valueOf(i), sorted.get(i));
+        }
+        assertEquals(sorted, new GraphAlgorithms<String>().toplogicalSort(graph.compile()));
+    }
+
+    @Test
+    public void testTopologicalLevels()
+    {
+        List<String> edgesAsString = Arrays.asList("watch,",
+                "undershorts,shoes", "undershorts,pants", "pants,shoes",
+                "pants,belt", "belt,jacket", "shirt,tie", "shirt,belt",
+                "tie,jacket", "socks,shoes");
+        Graph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED);
+        GraphAlgorithms<String> graphAlgorithms = new GraphAlgorithms<String>();
+        List<List<String>> levels = graphAlgorithms.topologicalLevels(graph);
+        assertEquals(4, levels.size());
+        assertEquals(new HashSet<String>(Arrays.asList("watch", "undershorts",
+                "shirt", "socks")), new HashSet<String>(levels.get(0)));
+        assertEquals(new HashSet<String>(Arrays.asList("pants", "tie")),
+                new HashSet<String>(levels.get(1)));
+        assertEquals(new HashSet<String>(Arrays.asList("shoes", "belt")),
+                new HashSet<String>(levels.get(2)));
+        assertEquals(Arrays.asList("jacket"), levels.get(3));
+        assertEquals(levels, graphAlgorithms.topologicalLevels(graph.compile(),
+                pool));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTopologicalLevelsRejectsCycles()
+    {
+        List<String> edgesAsString = Arrays.asList("a,b", "b,c", "c,a", "x,a");
+        Graph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED);
+        new GraphAlgorithms<String>().topologicalLevels(graph);
+    }
+
+    private static double totalWeight(Set<WeightedEdge<String>> edges)
+    {
+        double sum = 0;
+        for (WeightedEdge<String> edge : edges)
+        {
+            sum += edge.getWeight();
+        }
+        return sum;
+    }
 }
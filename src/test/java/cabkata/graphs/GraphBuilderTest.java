@@ -0,0 +1,186 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+import cabkata.graphs.Graph.WeightedEdge;
+import cabkata.graphs.GraphBuilder.DuplicateWeight;
+
+public final class GraphBuilderTest {
+
+    private static GraphBuilder<String> duplicates(DuplicateWeight duplicateWeight)
+    {
+        GraphBuilder<String> builder = new GraphBuilder<String>(
+                EdgeType.DIRECTED, duplicateWeight);
+        final int a = builder.addVertex("a");
+        final int b = builder.addVertex("b");
+        final int c = builder.addVertex("c");
+        builder.addEdges(new int[] { a, a, b, a, a }, new int[] { b, c, c, b,
+                b }, new double[] { 4.0, 1.0, 2.0, 1.5, 7.0 }, 0, 5);
+        return builder;
+    }
+
+    private static double weight(CompactGraph<String> graph, String from,
+            String to)
+    {
+        final int source = graph.indexOf(from);
+        final int target = graph.indexOf(to);
+        for (int edge = graph.edgeBegin(source); edge < graph.edgeEnd(source); edge++)
+        {
+            if (graph.getTarget(edge) == target)
+            {
+                return graph.getWeight(edge);
+            }
+        }
+        fail("no edge " + from + "->" + to);
+        return 0.0;
+    }
+
+    @Test
+    public void testDuplicateWeights()
+    {
+        CompactGraph<String> min = duplicates(DuplicateWeight.MIN).buildCompact();
+        assertEquals(3, min.getEdgeCount());
+        assertEquals(1.5, weight(min, "a", "b"), 0.0);
+        assertEquals(1.0, weight(min, "a", "c"), 0.0);
+        assertEquals(2.0, weight(min, "b", "c"), 0.0);
+
+        CompactGraph<String> max = duplicates(DuplicateWeight.MAX).buildCompact();
+        assertEquals(3, max.getEdgeCount());
+        assertEquals(7.0, weight(max, "a", "b"), 0.0);
+
+        CompactGraph<String> sum = duplicates(DuplicateWeight.SUM).buildCompact();
+        assertEquals(3, sum.getEdgeCount());
+        assertEquals(12.5, weight(sum, "a", "b"), 0.0);
+    }
+
+    @Test
+    public void testEdgesSortedByTarget()
+    {
+        GraphBuilder<String> builder = duplicates(DuplicateWeight.MIN);
+        CompactGraph<String> graph = builder.buildCompact();
+        assertEquals(1, graph.getTarget(graph.edgeBegin(0)));
+        assertEquals(2, graph.getTarget(graph.edgeBegin(0) + 1));
+        assertEquals(0, graph.getOutDegree(2));
+        // building leaves the added edges alone
+        assertEquals(5, builder.getEdgeCount());
+        builder.addEdge(2, 0, 3.0);
+        assertEquals(4, builder.buildCompact().getEdgeCount());
+    }
+
+    @Test
+    public void testUndirected()
+    {
+        GraphBuilder<String> builder = new GraphBuilder<String>(
+                EdgeType.UNDIRECTED, DuplicateWeight.SUM);
+        final int a = builder.addVertex("a");
+        final int b = builder.addVertex("b");
+        assertEquals(a, builder.addVertex("a"));
+        builder.addEdge(a, b, 1.0);
+        builder.addEdge(b, a, 2.0);
+        builder.addEdge(a, a, 5.0);
+        CompactGraph<String> graph = builder.buildCompact();
+        assertEquals(3, graph.getEdgeCount());
+        assertEquals(3.0, weight(graph, "a", "b"), 0.0);
+        assertEquals(3.0, weight(graph, "b", "a"), 0.0);
+        assertEquals(5.0, weight(graph, "a", "a"), 0.0);
+    }
+
+    @Test
+    public void testParallelMatchesReference()
+    {
+        final int nodes = 5000;
+        GraphBuilder<Integer> builder = new GraphBuilder<Integer>(
+                EdgeType.DIRECTED, DuplicateWeight.MAX, 40000);
+        for (int v = 0; v < nodes; v++)
+        {
+            builder.addVertex(Integer.valueOf(v));
+        }
+        Random random = new Random(42);
+        final int[] from = new int[40000];
+        final int[] to = new int[from.length];
+        final double[] weights = new double[from.length];
+        Map<Long, Double> expected = new HashMap<Long, Double>();
+        for (int i = 0; i < from.length; i++)
+        {
+            from[i] = random.nextInt(nodes);
+            // few targets per source, so there are plenty of duplicates
+            to[i] = random.nextInt(20);
+            weights[i] = random.nextInt(100);
+            final Long key = Long.valueOf((long) from[i] * nodes + to[i]);
+            final Double kept = expected.get(key);
+            if (kept == null || kept.doubleValue() < weights[i])
+            {
+                expected.put(key, Double.valueOf(weights[i]));
+            }
+        }
+        builder.addEdges(from, to, weights, 0, from.length);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            CompactGraph<Integer> graph = builder.buildCompact(pool);
+            assertEquals(expected.size(), graph.getEdgeCount());
+            for (int v = 0; v < nodes; v++)
+            {
+                int previous = -1;
+                for (int edge = graph.edgeBegin(v); edge < graph.edgeEnd(v); edge++)
+                {
+                    final int target = graph.getTarget(edge);
+                    assertTrue(target > previous);
+                    previous = target;
+                    assertEquals(
+                            expected.get(Long.valueOf((long) v * nodes + target)),
+                            Double.valueOf(graph.getWeight(edge)));
+                }
+            }
+
+            Graph<Integer> thawed = builder.build(pool);
+            assertEquals(nodes, thawed.getNodes().size());
+            assertEquals(expected.size(), thawed.getEdges().size());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBuildGraph()
+    {
+        Graph<String> graph = duplicates(DuplicateWeight.MIN).build();
+        assertEquals(3, graph.getNodes().size());
+        assertEquals(3, graph.getEdges().size());
+        assertEquals(2, graph.getNode("a").getAdjacentyList().size());
+        for (WeightedEdge<String> edge : graph.getNode("a").getAdjacentyList())
+        {
+            if (edge.getTo().getValue().equals("b"))
+            {
+                assertEquals(1.5, edge.getWeight(), 0.0);
+            }
+        }
+        // the thawed graph is a normal editable graph
+        assertFalse(graph.addEdge("a", "b", 9.0));
+        assertTrue(graph.addEdge("c", "a", 9.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownVertex()
+    {
+        duplicates(DuplicateWeight.MIN).addEdge(0, 3, 1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchOutOfRange()
+    {
+        duplicates(DuplicateWeight.MIN).addEdges(new int[2], new int[2], null,
+                1, 2);
+    }
+}
@@ -0,0 +1,92 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class GraphTest {
+
+    @Test
+    public void testAddAndRemoveEdges()
+    {
+        Graph<Integer> graph = new Graph<Integer>();
+        final List<String> changes = new ArrayList<String>();
+        graph.addGraphListener(new GraphListener<Integer>()
+        {
+            @Override
+            public void nodeAdded(Integer value)
+            {
+                changes.add("+" + value);
+            }
+
+            @Override
+            public void edgeAdded(Integer from, Integer to, double weight)
+            {
+                changes.add(from + "->" + to);
+            }
+
+            @Override
+            public void edgeRemoved(Integer from, Integer to)
+            {
+                changes.add(from + "-/>" + to);
+            }
+        });
+
+        assertTrue(graph.addEdge(1, 2, 1.0));
+        assertFalse(graph.addEdge(1, 2, 5.0));
+        assertTrue(graph.addEdge(2, 3, 1.0));
+        graph.addNode(4);
+        assertEquals(4, graph.getNodes().size());
+        assertEquals(1, graph.getNode(2).getIncomingEdges().size());
+        assertEquals(1.0, graph.getNode(1).getAdjacentyList().iterator().next()
+                .getWeight(), .0001);
+
+        assertTrue(graph.removeEdge(1, 2));
+        assertFalse(graph.removeEdge(1, 2));
+        assertFalse(graph.removeEdge(1, 9));
+        assertTrue(graph.getNode(1).getAdjacentyList().isEmpty());
+        assertTrue(graph.getNode(2).getIncomingEdges().isEmpty());
+        assertEquals(1, graph.getEdges().size());
+        assertEquals(1, graph.compile().getEdgeCount());
+
+        assertEquals("[+1, +2, 1->2, +3, 2->3, +4, 1-/>2]", changes.toString());
+    }
+
+    @Test
+    public void testIncomingEdgesAfterIndexing()
+    {
+        Graph<String> graph = Graph.graphFromStringEdges(
+                Arrays.asList("a,b", "c,b"), EdgeType.DIRECTED);
+        assertEquals(2, graph.getNode("b").getIncomingEdges().size());
+        // the index built by the first call follows later changes
+        graph.addEdge("d", "b", 1.0);
+        graph.addEdge("b", "e", 1.0);
+        assertEquals(3, graph.getNode("b").getIncomingEdges().size());
+        assertEquals(1, graph.getNode("e").getIncomingEdges().size());
+        assertTrue(graph.getNode("d").getIncomingEdges().isEmpty());
+        graph.removeEdge("a", "b");
+        assertEquals(2, graph.getNode("b").getIncomingEdges().size());
+    }
+
+    @Test
+    public void testVersion()
+    {
+        Graph<Integer> graph = new Graph<Integer>();
+        final long initial = graph.getVersion();
+        graph.addEdge(1, 2, 1.0);
+        final long added = graph.getVersion();
+        assertTrue(added > initial);
+        graph.addEdge(1, 2, 3.0);
+        graph.addNode(1);
+        graph.removeEdge(2, 1);
+        assertEquals(added, graph.getVersion());
+        graph.removeEdge(1, 2);
+        assertTrue(graph.getVersion() > added);
+    }
+}
@@ -0,0 +1,79 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.Node;
+import cabkata.graphs.Graph.WeightedEdge;
+
+public final class IncrementalConnectedComponentsTest {
+
+    @Test
+    public void testFollowsChanges()
+    {
+        Graph<String> graph = new Graph<String>();
+        graph.addEdge("a", "b", 1);
+        graph.addEdge("b", "c", 1);
+        graph.addEdge("x", "y", 1);
+        IncrementalConnectedComponents<String> components = new IncrementalConnectedComponents<String>(graph);
+        assertEquals(2, components.count());
+        assertTrue(components.connected("a", "c"));
+
+        graph.addEdge("c", "x", 1);
+        assertEquals(1, components.count());
+        assertEquals(5, components.getComponent("y").size());
+
+        graph.addEdge("a", "c", 1);
+        graph.removeEdge("b", "c");
+        assertTrue(components.connected("b", "y"));
+        graph.removeEdge("c", "x");
+        assertEquals(2, components.count());
+        assertFalse(components.connected("a", "y"));
+
+        graph.addNode("z");
+        assertEquals(3, components.count());
+    }
+
+    @Test
+    public void testMatchesRecomputation()
+    {
+        Random random = new Random(17);
+        Graph<Integer> graph = new Graph<Integer>();
+        final int numNodes = 200;
+        for (int i = 0; i < 250; i++)
+        {
+            graph.addEdge(random.nextInt(numNodes), random.nextInt(numNodes), 1);
+        }
+        IncrementalConnectedComponents<Integer> components = new IncrementalConnectedComponents<Integer>(graph);
+        for (int change = 0; change < 1000; change++)
+        {
+            if (random.nextInt(3) == 0)
+            {
+                graph.addEdge(random.nextInt(numNodes), random.nextInt(numNodes), 1);
+            }
+            else if (!graph.getEdges().isEmpty())
+            {
+                List<WeightedEdge<Integer>> edges = new ArrayList<WeightedEdge<Integer>>(graph.getEdges());
+                WeightedEdge<Integer> edge = edges.get(random.nextInt(edges.size()));
+                graph.removeEdge(edge.getFrom().getValue(), edge.getTo().getValue());
+            }
+
+            if (change % 50 == 0)
+            {
+                IncrementalConnectedComponents<Integer> expected = new IncrementalConnectedComponents<Integer>(graph);
+                expected.detach();
+                assertEquals(expected.count(), components.count());
+                for (Node<Integer> node : graph.getNodes())
+                {
+                    assertEquals(expected.getComponent(node.getValue()),
+                            components.getComponent(node.getValue()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.WeightedEdge;
+
+public final class IncrementalShortestPathsTest {
+
+    @Test
+    public void testFollowsChanges()
+    {
+        Graph<Integer> graph = new Graph<Integer>();
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(0, 2, 5);
+        IncrementalShortestPaths<Integer> paths = new IncrementalShortestPaths<Integer>(graph, 0);
+        assertEquals(2.0, paths.getPathWeight(2), .0001);
+        assertEquals(Integer.valueOf(1), paths.getPredecessor(2));
+
+        graph.removeEdge(1, 2);
+        assertEquals(5.0, paths.getPathWeight(2), .0001);
+        assertEquals(Integer.valueOf(0), paths.getPredecessor(2));
+
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(1, 3, 1);
+        assertEquals(2.0, paths.getPathWeight(3), .0001);
+        graph.removeEdge(0, 1);
+        assertEquals(6.0, paths.getPathWeight(3), .0001);
+        assertFalse(paths.isReachable(1));
+
+        graph.addEdge(5, 4, 1);
+        assertFalse(paths.isReachable(4));
+        graph.addEdge(3, 5, -1);
+        try
+        {
+            paths.update();
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+    }
+
+    @Test
+    public void testNegativeEdgeMadeReachable()
+    {
+        Graph<Integer> graph = new Graph<Integer>();
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(2, 3, -1);
+        graph.addEdge(3, 4, 1);
+        IncrementalShortestPaths<Integer> paths = new IncrementalShortestPaths<Integer>(graph, 0);
+        assertFalse(paths.isReachable(2));
+
+        // 2 -> 3 is old, it only comes into reach through 1 -> 2
+        graph.addEdge(1, 2, 1);
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                paths.getPathWeight(4);
+                fail("expected IllegalArgumentException");
+            }
+            catch (IllegalArgumentException expected)
+            {
+            }
+        }
+
+        graph.removeEdge(2, 3);
+        assertEquals(2.0, paths.getPathWeight(2), .0001);
+        assertEquals(Integer.valueOf(1), paths.getPredecessor(2));
+        assertFalse(paths.isReachable(3));
+        graph.addEdge(2, 3, 2);
+        assertEquals(5.0, paths.getPathWeight(4), .0001);
+    }
+
+    @Test
+    public void testMatchesRecomputation()
+    {
+        Random random = new Random(13);
+        Graph<Integer> graph = new Graph<Integer>();
+        final int numNodes = 300;
+        for (int i = 0; i < numNodes; i++)
+        {
+            graph.addNode(i);
+        }
+        for (int i = 0; i < 1200; i++)
+        {
+            graph.addEdge(random.nextInt(numNodes), random.nextInt(numNodes),
+                    random.nextInt(20));
+        }
+        IncrementalShortestPaths<Integer> paths = new IncrementalShortestPaths<Integer>(graph, 0);
+        IncrementalShortestPaths<Integer> hops = IncrementalShortestPaths.hops(graph, 0);
+        GraphAlgorithms<Integer> algo = new GraphAlgorithms<Integer>();
+
+        for (int batch = 0; batch < 60; batch++)
+        {
+            for (int change = 0; change < 10; change++)
+            {
+                final int from = random.nextInt(numNodes + 5);
+                final int to = random.nextInt(numNodes + 5);
+                if (random.nextBoolean())
+                {
+                    graph.addEdge(from, to, random.nextInt(20));
+                }
+                else
+                {
+                    List<WeightedEdge<Integer>> edges = new ArrayList<WeightedEdge<Integer>>(
+                            graph.getEdges());
+                    WeightedEdge<Integer> edge = edges.get(random.nextInt(edges.size()));
+                    graph.removeEdge(edge.getFrom().getValue(), edge.getTo().getValue());
+                }
+            }
+
+            algo.singleSourceShortestPathDijkstra(graph, 0);
+            for (Graph.Node<Integer> node : graph.getNodes())
+            {
+                Integer v = node.getValue();
+                assertEquals(algo.getPathWeight(v), paths.getPathWeight(v), .0001);
+            }
+
+            algo.breadthFirstSearch(graph, 0);
+            for (Graph.Node<Integer> node : graph.getNodes())
+            {
+                Integer v = node.getValue();
+                final double expected = algo.getPredecessor(v) == null && v != 0 ? Double.MAX_VALUE
+                        : algo.getDistance(v);
+                assertEquals(expected, hops.getPathWeight(v), .0001);
+            }
+        }
+    }
+}
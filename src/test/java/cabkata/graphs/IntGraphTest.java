@@ -0,0 +1,153 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+import cabkata.graphs.Graph.WeightedEdge;
+
+public final class IntGraphTest {
+
+    private static final int NODES = 300;
+
+    private static IntGraph.Builder randomEdges(long seed, List<String> edgesAsString)
+    {
+        IntGraph.Builder builder = new IntGraph.Builder();
+        Random random = new Random(seed);
+        // Graph keeps one edge per pair, IntGraph keeps them all
+        Set<Long> pairs = new HashSet<Long>();
+        for (int i = 0; i < 1500; i++)
+        {
+            final int from = random.nextInt(NODES);
+            final int to = random.nextInt(NODES);
+            if (!pairs.add(Long.valueOf((long) from * NODES + to)))
+            {
+                continue;
+            }
+            final int weight = 1 + random.nextInt(20);
+            builder.addEdge(from, to, weight);
+            edgesAsString.add(from + "," + to + "," + weight);
+        }
+        return builder;
+    }
+
+    @Test
+    public void testLayout()
+    {
+        IntGraph graph = new IntGraph.Builder().addEdge(2, 0, 1.5)
+                .addEdge(0, 1, 2.0).addEdge(2, 1, 3.0).addVertex(4).build();
+        assertEquals(5, graph.getVertexCount());
+        assertEquals(3, graph.getEdgeCount());
+        assertEquals(1, graph.getOutDegree(0));
+        assertEquals(0, graph.getOutDegree(3));
+        assertEquals(2, graph.getOutDegree(2));
+        final int first = graph.edgeBegin(2);
+        assertEquals(0, graph.getTarget(first));
+        assertEquals(1.5, graph.getWeight(first), 0.0);
+        assertEquals(1, graph.getTarget(first + 1));
+        assertEquals(2, graph.getSource(first + 1));
+        assertEquals(Integer.valueOf(4), graph.asCompactGraph().getVertex(4));
+    }
+
+    @Test
+    public void testMatchesGraph()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        IntGraph graph = randomEdges(7, edgesAsString).build();
+        CompactGraph<String> expected = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+
+        BreadthFirstTree<Integer> tree = graph.breadthFirstSearch(0);
+        BreadthFirstTree<String> expectedTree = CompactGraphAlgorithms
+                .breadthFirstSearch(expected, "0");
+        ShortestPaths<Integer> dijkstra = graph.dijkstra(0);
+        ShortestPaths<Integer> bellmanFord = graph.bellmanFord(0);
+        ShortestPaths<String> expectedPaths = CompactGraphAlgorithms.dijkstra(
+                expected, "0");
+        for (int v = 0; v < NODES; v++)
+        {
+            final String name = String.valueOf(v);
+            if (!expected.getVertices().contains(name))
+            {
+                assertFalse(tree.isReachable(v));
+                continue;
+            }
+            assertEquals(expectedTree.getDistance(name), tree.getDistance(v));
+            assertEquals(expectedPaths.getPathWeight(name),
+                    dijkstra.getPathWeight(v), 0.0);
+            assertEquals(expectedPaths.getPathWeight(name),
+                    bellmanFord.getPathWeight(v), 0.0);
+        }
+    }
+
+    @Test
+    public void testDepthFirstSearch()
+    {
+        IntGraph graph = new IntGraph.Builder().addEdge(0, 1, 1.0)
+                .addEdge(1, 2, 1.0).addEdge(0, 3, 1.0).addEdge(3, 2, 1.0).build();
+        List<Integer> order = graph.depthFirstSearch().getTopologicalOrder();
+        assertEquals(4, order.size());
+        assertEquals(Integer.valueOf(0), order.get(0));
+        assertEquals(Integer.valueOf(2), order.get(3));
+    }
+
+    @Test
+    public void testMinimumSpanningForest()
+    {
+        IntGraph graph = new IntGraph.Builder().addUndirectedEdge(0, 1, 4.0)
+                .addUndirectedEdge(1, 2, 1.0).addUndirectedEdge(0, 2, 2.0)
+                .addUndirectedEdge(3, 4, 5.0).build();
+        int[] forest = graph.minimumSpanningForest();
+        assertEquals(3, forest.length);
+        double weight = 0.0;
+        for (int edge : forest)
+        {
+            weight += graph.getWeight(edge);
+        }
+        assertEquals(8.0, weight, 0.0);
+
+        List<String> edgesAsString = new ArrayList<String>();
+        IntGraph random = randomEdges(11, edgesAsString).build();
+        double expected = 0.0;
+        for (WeightedEdge<String> edge : new GraphAlgorithms<String>()
+                .minimumSpanningTreeKruskal(Graph.graphFromStringEdges(
+                        edgesAsString, EdgeType.DIRECTED).compile()))
+        {
+            expected += edge.getWeight();
+        }
+        double actual = 0.0;
+        for (int edge : random.minimumSpanningForest())
+        {
+            actual += random.getWeight(edge);
+        }
+        assertEquals(expected, actual, 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeVertex()
+    {
+        new IntGraph.Builder().addEdge(-1, 0, 1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSource()
+    {
+        new IntGraph.Builder().addEdge(0, 1, 1.0).build().breadthFirstSearch(5);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        IntGraph graph = new IntGraph.Builder().build();
+        assertEquals(0, graph.getVertexCount());
+        assertTrue(Arrays.equals(new int[0], graph.minimumSpanningForest()));
+    }
+}
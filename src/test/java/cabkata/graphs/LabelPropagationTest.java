@@ -0,0 +1,118 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class LabelPropagationTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void tearDown()
+    {
+        POOL.shutdown();
+    }
+
+    private static void clique(List<String> edgesAsString, String prefix, int size)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            for (int j = i + 1; j < size; j++)
+            {
+                edgesAsString.add(prefix + i + "," + prefix + j + ",1");
+            }
+        }
+    }
+
+    @Test
+    public void testTwoCliques()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        clique(edgesAsString, "a", 6);
+        clique(edgesAsString, "b", 6);
+        edgesAsString.add("a0,b0,1");
+        Communities<String> communities = new GraphAlgorithms<String>()
+                .labelPropagation(Graph.graphFromStringEdges(edgesAsString,
+                        EdgeType.UNDIRECTED), 100, POOL);
+        assertTrue(communities.isConverged());
+        assertEquals(2, communities.getCount());
+        assertTrue(communities.isSameCommunity("a1", "a5"));
+        assertTrue(communities.isSameCommunity("b1", "b5"));
+        assertFalse(communities.isSameCommunity("a3", "b3"));
+        assertEquals(communities.getLabel("a2"), communities.getLabel("a4"));
+    }
+
+    @Test
+    public void testDisconnectedStayApart()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        for (int i = 0; i < 50; i++)
+        {
+            edgesAsString.add("x" + i + ",y" + i + ",1");
+        }
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+        Communities<String> communities = LabelPropagation.detect(graph, 100, POOL);
+        assertTrue(communities.isConverged());
+        assertEquals(50, communities.getCount());
+        for (int i = 0; i < 50; i++)
+        {
+            assertTrue(communities.isSameCommunity("x" + i, "y" + i));
+        }
+    }
+
+    @Test
+    public void testUndirectedPairAndPath()
+    {
+        // each end of an undirected edge sees the other once, not once per
+        // direction, so the two settle on one label instead of swapping
+        Communities<String> pair = new GraphAlgorithms<String>()
+                .labelPropagation(Graph.graphFromStringEdges(
+                        Arrays.asList("p,q"), EdgeType.UNDIRECTED), 100, POOL);
+        assertTrue(pair.isConverged());
+        assertEquals(1, pair.getCount());
+        assertTrue(pair.isSameCommunity("p", "q"));
+
+        List<String> edgesAsString = new ArrayList<String>();
+        for (int i = 0; i < 9; i++)
+        {
+            edgesAsString.add("v" + i + ",v" + (i + 1));
+        }
+        Communities<String> path = new GraphAlgorithms<String>()
+                .labelPropagation(Graph.graphFromStringEdges(edgesAsString,
+                        EdgeType.UNDIRECTED), 100, POOL);
+        assertTrue(path.isConverged());
+        assertTrue(path.getCount() < 10);
+        // communities are unbroken stretches of the path
+        int changes = 0;
+        for (int i = 0; i < 9; i++)
+        {
+            if (!path.isSameCommunity("v" + i, "v" + (i + 1)))
+            {
+                changes++;
+            }
+        }
+        assertEquals(path.getCount() - 1, changes);
+    }
+
+    @Test
+    public void testIterationLimit()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        clique(edgesAsString, "a", 4);
+        Communities<String> communities = LabelPropagation.detect(Graph
+                .graphFromStringEdges(edgesAsString, EdgeType.UNDIRECTED)
+                .compile(), 0, POOL);
+        assertFalse(communities.isConverged());
+        assertEquals(4, communities.getCount());
+    }
+}
@@ -0,0 +1,137 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class LandmarksTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * A size x size grid with random weights, roughly what a road network
+     * looks like to the search
+     */
+    private static CompactGraph<String> grid(int size, long seed)
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(seed);
+        for (int row = 0; row < size; row++)
+        {
+            for (int column = 0; column < size; column++)
+            {
+                final String v = row + ":" + column;
+                if (column + 1 < size)
+                {
+                    edgesAsString.add(v + "," + row + ":" + (column + 1) + ","
+                            + (1 + random.nextInt(9)));
+                }
+                if (row + 1 < size)
+                {
+                    edgesAsString.add(v + "," + (row + 1) + ":" + column + ","
+                            + (1 + random.nextInt(9)));
+                }
+            }
+        }
+        return Graph.graphFromStringEdges(edgesAsString, EdgeType.UNDIRECTED)
+                .compile();
+    }
+
+    @Test
+    public void testMatchesDijkstra()
+    {
+        CompactGraph<String> graph = grid(40, 1);
+        Landmarks<String> landmarks = Landmarks.compute(graph, 8, pool);
+        assertEquals(8, landmarks.getLandmarks().size());
+
+        Random random = new Random(2);
+        long settled = 0;
+        final int queries = 200;
+        for (int i = 0; i < queries; i++)
+        {
+            String source = graph.getVertex(random.nextInt(graph.getVertexCount()));
+            String target = graph.getVertex(random.nextInt(graph.getVertexCount()));
+            PointToPointPath<String> path = CompactGraphAlgorithms.aStar(
+                    landmarks, source, target);
+            ShortestPaths<String> expected = CompactGraphAlgorithms.dijkstra(
+                    graph, source);
+            assertEquals(expected.getPathWeight(target), path.getWeight(), .0001);
+            assertEquals(source, path.getPath().get(0));
+            assertEquals(target, path.getPath().get(path.getPath().size() - 1));
+            settled += path.getSettledCount();
+        }
+        // the bounds keep the searches well inside the graph
+        assertTrue(settled < queries * graph.getVertexCount() / 4);
+    }
+
+    @Test
+    public void testUnreachableTarget()
+    {
+        CompactGraph<String> graph = Graph.graphFromStringEdges(
+                Arrays.asList("a,b,1", "b,c,2", "x,y,1"), EdgeType.DIRECTED).compile();
+        Landmarks<String> landmarks = Landmarks.compute(graph, 16, pool);
+        assertEquals(graph.getVertexCount(), landmarks.getLandmarks().size());
+        PointToPointPath<String> path = new GraphAlgorithms<String>()
+                .shortestPathAStar(landmarks, "a", "y");
+        assertFalse(path.isReachable());
+        assertEquals(Double.MAX_VALUE, path.getWeight(), 0);
+        assertTrue(path.getPath().isEmpty());
+        assertFalse(CompactGraphAlgorithms.aStar(landmarks, "c", "a").isReachable());
+        assertEquals(Arrays.asList("a", "b", "c"), CompactGraphAlgorithms
+                .aStar(landmarks, "a", "c").getPath());
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException
+    {
+        CompactGraph<String> graph = grid(12, 3);
+        Landmarks<String> landmarks = Landmarks.compute(graph, 4, pool);
+        File file = File.createTempFile("landmarks", ".bin");
+        try
+        {
+            landmarks.write(file);
+            Landmarks<String> read = Landmarks.read(graph, file);
+            assertEquals(landmarks.getLandmarks(), read.getLandmarks());
+            for (int v = 0; v < graph.getVertexCount(); v++)
+            {
+                assertEquals(landmarks.lowerBound(v, 0), read.lowerBound(v, 0), 0);
+            }
+            try
+            {
+                Landmarks.read(grid(5, 3), file);
+                fail("expected IOException");
+            }
+            catch (IOException expected)
+            {
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
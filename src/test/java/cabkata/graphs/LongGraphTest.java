@@ -0,0 +1,89 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public final class LongGraphTest {
+
+    private static final long BASE = 1L << 40;
+
+    @Test
+    public void testIdsAreNumberedInOrder()
+    {
+        LongGraph graph = new LongGraph.Builder().addEdge(BASE + 9, BASE, 1.0)
+                .addEdge(BASE, -5L, 2.0).addVertex(BASE + 9).addVertex(42L)
+                .build();
+        assertEquals(4, graph.getVertexCount());
+        assertEquals(2, graph.getEdgeCount());
+        assertEquals(0, graph.indexOf(BASE + 9));
+        assertEquals(1, graph.indexOf(BASE));
+        assertEquals(2, graph.indexOf(-5L));
+        assertEquals(3, graph.indexOf(42L));
+        assertEquals(-1, graph.indexOf(7L));
+        assertEquals(-5L, graph.getId(2));
+        assertEquals(2, graph.getTarget(graph.edgeBegin(1)));
+        assertEquals(1, graph.getSource(graph.edgeBegin(1)));
+    }
+
+    @Test
+    public void testMatchesIntGraph()
+    {
+        // the same random graph over strided long ids and over dense ints
+        LongGraph.Builder longs = new LongGraph.Builder();
+        IntGraph.Builder ints = new IntGraph.Builder();
+        Random random = new Random(3);
+        final int nodes = 2000;
+        for (int v = 0; v < nodes; v++)
+        {
+            longs.addVertex(BASE + 1000L * v);
+            ints.addVertex(v);
+        }
+        for (int i = 0; i < 10000; i++)
+        {
+            final int from = random.nextInt(nodes);
+            final int to = random.nextInt(nodes);
+            final int weight = random.nextInt(10);
+            longs.addEdge(BASE + 1000L * from, BASE + 1000L * to, weight);
+            ints.addEdge(from, to, weight);
+        }
+        LongGraph longGraph = longs.build();
+        IntGraph intGraph = ints.build();
+        assertEquals(intGraph.getEdgeCount(), longGraph.getEdgeCount());
+
+        BreadthFirstTree<Long> tree = longGraph.breadthFirstSearch(BASE);
+        BreadthFirstTree<Integer> expectedTree = intGraph.breadthFirstSearch(0);
+        ShortestPaths<Long> paths = longGraph.dijkstra(BASE);
+        ShortestPaths<Long> bellmanFord = longGraph.bellmanFord(BASE);
+        ShortestPaths<Integer> expectedPaths = intGraph.dijkstra(0);
+        for (int v = 0; v < nodes; v++)
+        {
+            final Long id = Long.valueOf(BASE + 1000L * v);
+            assertEquals(v, longGraph.indexOf(id.longValue()));
+            assertEquals(expectedTree.getDistance(v), tree.getDistance(id));
+            assertEquals(expectedPaths.getPathWeight(v), paths.getPathWeight(id), 0.0);
+            assertEquals(expectedPaths.getPathWeight(v),
+                    bellmanFord.getPathWeight(id), 0.0);
+        }
+        assertEquals(intGraph.minimumSpanningForest().length,
+                longGraph.minimumSpanningForest().length);
+        assertEquals(nodes, longGraph.depthFirstSearch().getTopologicalOrder()
+                .size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSource()
+    {
+        new LongGraph.Builder().addEdge(1L, 2L, 1.0).build().dijkstra(3L);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBuilderIsSingleUse()
+    {
+        LongGraph.Builder builder = new LongGraph.Builder().addEdge(1L, 2L, 1.0);
+        builder.build();
+        builder.addEdge(2L, 3L, 1.0);
+    }
+}
@@ -0,0 +1,185 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class OffHeapGraphTest {
+
+    private static CompactGraph<String> randomGraph(long seed)
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(seed);
+        for (int i = 0; i < 5000; i++)
+        {
+            edgesAsString.add(random.nextInt(1000) + "," + random.nextInt(1000)
+                    + "," + random.nextInt(20));
+        }
+        return Graph.graphFromStringEdges(edgesAsString, EdgeType.DIRECTED)
+                .compile();
+    }
+
+    /**
+     * Copy through small segments, so edges and offsets cross segment ends
+     */
+    private static OffHeapGraph<String> segmentedCopy(CompactGraph<String> graph)
+    {
+        OffHeapGraph.Builder<String> builder = new OffHeapGraph.Builder<String>(
+                new ArrayList<String>(graph.getVertices()), 12);
+        for (int v = 0; v < graph.getVertexCount(); v++)
+        {
+            for (int edge = graph.edgeBegin(v); edge < graph.edgeEnd(v); edge++)
+            {
+                builder.addEdge(v, graph.getTarget(edge), graph.getWeight(edge));
+            }
+        }
+        return builder.build();
+    }
+
+    private static void assertSameEdges(CompactGraph<String> expected,
+            OffHeapGraph<String> actual)
+    {
+        assertEquals(expected.getVertexCount(), actual.getVertexCount());
+        assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+        for (int v = 0; v < expected.getVertexCount(); v++)
+        {
+            assertEquals(expected.getVertex(v), actual.getVertex(v));
+            assertEquals(v, actual.indexOf(expected.getVertex(v)));
+            assertEquals(expected.edgeBegin(v), actual.edgeBegin(v));
+            assertEquals(expected.edgeEnd(v), actual.edgeEnd(v));
+        }
+        for (int edge = 0; edge < expected.getEdgeCount(); edge++)
+        {
+            assertEquals(expected.getTarget(edge), actual.getTarget(edge));
+            assertEquals(expected.getWeight(edge), actual.getWeight(edge), 0.0);
+        }
+    }
+
+    @Test
+    public void testCopy()
+    {
+        CompactGraph<String> graph = randomGraph(1);
+        assertSameEdges(graph, OffHeapGraph.copyOf(graph));
+        assertSameEdges(graph, segmentedCopy(graph));
+    }
+
+    @Test
+    public void testTraversalsMatchCompactGraph()
+    {
+        CompactGraph<String> graph = randomGraph(2);
+        OffHeapGraph<String> offHeap = segmentedCopy(graph);
+        GraphAlgorithms<String> expected = new GraphAlgorithms<String>();
+        GraphAlgorithms<String> actual = new GraphAlgorithms<String>();
+        final String source = graph.getVertex(0);
+
+        expected.breadthFirstSearch(graph, source);
+        actual.breadthFirstSearch(offHeap, source);
+        for (String v : graph.getVertices())
+        {
+            assertEquals(expected.getDistance(v), actual.getDistance(v));
+            assertEquals(expected.getPredecessor(v), actual.getPredecessor(v));
+        }
+
+        expected.singleSourceShortestPathDijkstra(graph, source);
+        actual.singleSourceShortestPathDijkstra(offHeap, source);
+        for (String v : graph.getVertices())
+        {
+            assertEquals(expected.getPathWeight(v), actual.getPathWeight(v), 0.0);
+        }
+    }
+
+    @Test
+    public void testBuilderSkipsVertices()
+    {
+        OffHeapGraph<Integer> graph = OffHeapGraph.builder(6).addEdge(1, 2, 1.0)
+                .addEdge(1, 3, 2.0).addEdge(4, 0, 3.0).build();
+        assertEquals(3L, graph.getEdgeCount());
+        assertEquals(0L, graph.getOutDegree(0));
+        assertEquals(2L, graph.getOutDegree(1));
+        assertEquals(0L, graph.getOutDegree(2));
+        assertEquals(1L, graph.getOutDegree(4));
+        assertEquals(0L, graph.getOutDegree(5));
+        assertEquals(0, graph.getTarget(graph.edgeBegin(4)));
+        assertEquals(4, graph.indexOf(Integer.valueOf(4)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEdgesOutOfOrder()
+    {
+        OffHeapGraph.builder(3).addEdge(2, 0, 1.0).addEdge(1, 0, 1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeightDijkstra()
+    {
+        OffHeapGraph<Integer> graph = OffHeapGraph.builder(2).addEdge(0, 1, -1.0)
+                .build();
+        new GraphAlgorithms<Integer>().singleSourceShortestPathDijkstra(graph,
+                Integer.valueOf(0));
+    }
+
+    @Test
+    public void testWriteAndOpen() throws IOException
+    {
+        CompactGraph<String> graph = randomGraph(3);
+        File file = File.createTempFile("graph", ".ohg");
+        try
+        {
+            segmentedCopy(graph).write(file);
+            assertSameEdges(graph, OffHeapGraph.open(file, graph.getVertices()));
+            OffHeapGraph<Integer> ids = OffHeapGraph.open(file);
+            assertEquals(graph.getEdgeCount(), ids.getEdgeCount());
+            assertEquals(Integer.valueOf(7), ids.getVertex(7));
+            assertEquals(graph.getTarget(9), ids.getTarget(9));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testOpenRejectsOtherFiles() throws IOException
+    {
+        File file = File.createTempFile("graph", ".ohg");
+        try
+        {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[128]);
+            out.close();
+            try
+            {
+                OffHeapGraph.open(file);
+                fail("opened a file of zeros");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+            OffHeapGraph.builder(3).addEdge(0, 1, 1.0).build().write(file);
+            try
+            {
+                OffHeapGraph.open(file, Arrays.asList("a", "b"));
+                fail("opened with the wrong vertex count");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
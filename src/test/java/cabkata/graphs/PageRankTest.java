@@ -0,0 +1,148 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class PageRankTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void tearDown()
+    {
+        POOL.shutdown();
+    }
+
+    /**
+     * Dense power iteration with the dangling rank spread by teleport
+     */
+    private static double[] expected(CompactGraph<String> graph, double damping,
+            double[] teleport, int iterations)
+    {
+        final int n = graph.getVertexCount();
+        double[] rank = Arrays.copyOf(teleport, n);
+        for (int i = 0; i < iterations; i++)
+        {
+            double[] next = new double[n];
+            double dangling = 0.0;
+            for (int u = 0; u < n; u++)
+            {
+                final int degree = graph.getOutDegree(u);
+                if (degree == 0)
+                {
+                    dangling += rank[u];
+                }
+                for (int edge = graph.edgeBegin(u); edge < graph.edgeEnd(u); edge++)
+                {
+                    next[graph.getTarget(edge)] += damping * rank[u] / degree;
+                }
+            }
+            for (int v = 0; v < n; v++)
+            {
+                next[v] += (1 - damping) * teleport[v] + damping * dangling * teleport[v];
+            }
+            rank = next;
+        }
+        return rank;
+    }
+
+    private static CompactGraph<String> randomGraph(long seed)
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(seed);
+        for (int i = 0; i < 20000; i++)
+        {
+            edgesAsString.add(random.nextInt(5000) + "," + random.nextInt(5000)
+                    + ",1");
+        }
+        return Graph.graphFromStringEdges(edgesAsString, EdgeType.DIRECTED)
+                .compile();
+    }
+
+    @Test
+    public void testCycleIsUniform()
+    {
+        CompactGraph<String> graph = Graph.graphFromStringEdges(
+                Arrays.asList("a,b,1", "b,c,1", "c,a,1"), EdgeType.DIRECTED)
+                .compile();
+        VertexValues<String> ranks = PageRank.pageRank(graph, 0.85, 1e-12, 100,
+                POOL);
+        assertTrue(ranks.isConverged());
+        for (String v : Arrays.asList("a", "b", "c"))
+        {
+            assertEquals(1.0 / 3, ranks.getValue(v), 1e-12);
+        }
+    }
+
+    @Test
+    public void testMatchesPowerIteration()
+    {
+        CompactGraph<String> graph = randomGraph(5);
+        final int n = graph.getVertexCount();
+        double[] uniform = new double[n];
+        Arrays.fill(uniform, 1.0 / n);
+        VertexValues<String> ranks = PageRank.pageRank(graph, 0.85, 0.0, 30, POOL);
+        assertFalse(ranks.isConverged());
+        assertEquals(30, ranks.getIterations());
+        double[] expected = expected(graph, 0.85, uniform, 30);
+        double[] actual = ranks.toArray();
+        double sum = 0.0;
+        for (int v = 0; v < n; v++)
+        {
+            assertEquals(expected[v], actual[v], 1e-12);
+            sum += actual[v];
+        }
+        assertEquals(1.0, sum, 1e-9);
+    }
+
+    @Test
+    public void testConverges()
+    {
+        VertexValues<String> ranks = new GraphAlgorithms<String>().pageRank(
+                Graph.graphFromStringEdges(Arrays.asList("a,b,1", "b,c,1",
+                        "c,a,1", "c,b,1", "a,d,1"), EdgeType.DIRECTED), 0.85,
+                1e-10, 1000, POOL);
+        assertTrue(ranks.isConverged());
+        assertTrue(ranks.getIterations() < 1000);
+        assertTrue(ranks.getValue("b") > ranks.getValue("d"));
+    }
+
+    @Test
+    public void testPersonalized()
+    {
+        CompactGraph<String> graph = randomGraph(9);
+        final String source = graph.getVertex(0);
+        VertexValues<String> ranks = PageRank.personalizedPageRank(graph,
+                Arrays.asList(source, source), 0.85, 0.0, 25, POOL);
+        double[] teleport = new double[graph.getVertexCount()];
+        teleport[0] = 1.0;
+        double[] expected = expected(graph, 0.85, teleport, 25);
+        for (int v = 0; v < expected.length; v++)
+        {
+            assertEquals(expected[v], ranks.getValue(graph.getVertex(v)), 1e-12);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDamping()
+    {
+        PageRank.pageRank(randomGraph(1), 1.0, 1e-9, 10, POOL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSource()
+    {
+        PageRank.personalizedPageRank(randomGraph(1), Arrays.asList("x"), 0.85,
+                1e-9, 10, POOL);
+    }
+}
@@ -0,0 +1,81 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+import cabkata.graphs.Graph.WeightedEdge;
+
+public final class ParallelMinimumSpanningTreeTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testMatchesKruskal()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; i++)
+        {
+            // few distinct weights so many ties have to be broken consistently
+            edgesAsString.add(random.nextInt(5000) + "," + random.nextInt(5000)
+                    + "," + random.nextInt(10));
+        }
+        Graph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.UNDIRECTED);
+        CompactGraph<String> compactGraph = graph.compile();
+        Set<WeightedEdge<String>> kruskal = new GraphAlgorithms<String>()
+                .minimumSpanningTreeKruskal(compactGraph);
+        Set<WeightedEdge<String>> boruvka = new ParallelMinimumSpanningTree(
+                pool).minimumSpanningTree(compactGraph);
+
+        assertEquals(kruskal.size(), boruvka.size());
+        assertEquals(totalWeight(kruskal), totalWeight(boruvka), .0001);
+        assertTrue(graph.getEdges().containsAll(boruvka));
+    }
+
+    @Test
+    public void testSpanningForest()
+    {
+        List<String> edgesAsString = Arrays.asList("a,b,4", "b,c,1", "a,c,2",
+                "x,y,5", "y,z,5", "x,z,5");
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.UNDIRECTED).compile();
+        Set<WeightedEdge<String>> mst = new ParallelMinimumSpanningTree()
+                .minimumSpanningTree(graph);
+        assertEquals(4, mst.size());
+        assertEquals(13.0, totalWeight(mst), .0001);
+    }
+
+    private static double totalWeight(Set<WeightedEdge<String>> edges)
+    {
+        double total = 0;
+        for (WeightedEdge<String> edge : edges)
+        {
+            total += edge.getWeight();
+        }
+        return total;
+    }
+}
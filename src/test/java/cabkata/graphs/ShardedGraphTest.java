@@ -0,0 +1,223 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+import cabkata.graphs.ShardedGraph.Partitioning;
+
+public final class ShardedGraphTest {
+
+    private static CompactGraph<String> randomGraph(long seed)
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(seed);
+        for (int i = 0; i < 5000; i++)
+        {
+            edgesAsString.add(random.nextInt(1200) + "," + random.nextInt(1200)
+                    + "," + random.nextInt(30));
+        }
+        return Graph.graphFromStringEdges(edgesAsString, EdgeType.DIRECTED)
+                .compile();
+    }
+
+    @Test
+    public void testHashPartitioning() throws Exception
+    {
+        assertMatchesInProcess(randomGraph(3), 3, Partitioning.HASH);
+    }
+
+    @Test
+    public void testRangePartitioning() throws Exception
+    {
+        assertMatchesInProcess(randomGraph(4), 2, Partitioning.RANGE);
+    }
+
+    private static void assertMatchesInProcess(CompactGraph<String> graph,
+            int shards, Partitioning partitioning) throws Exception
+    {
+        ShardedGraph<String> sharded = ShardedGraph.start(graph, shards,
+                partitioning);
+        try
+        {
+            for (String source : Arrays.asList("0", "17", graph.getVertex(5)))
+            {
+                BreadthFirstTree<String> expectedTree = CompactGraphAlgorithms
+                        .breadthFirstSearch(graph, source);
+                BreadthFirstTree<String> tree = sharded.breadthFirstSearch(source);
+                ShortestPaths<String> expectedPaths = CompactGraphAlgorithms
+                        .dijkstra(graph, source);
+                ShortestPaths<String> paths = sharded.singleSourceShortestPath(source);
+                assertFalse(paths.hasNegativeCycle());
+                for (String v : graph.getVertices())
+                {
+                    assertEquals(expectedTree.getDistance(v), tree.getDistance(v));
+                    assertEquals(expectedPaths.getPathWeight(v),
+                            paths.getPathWeight(v), .0001);
+                    if (paths.isReachable(v) && !v.equals(source))
+                    {
+                        String predecessor = paths.getPredecessor(v);
+                        assertTrue(paths.getPathWeight(predecessor) < paths
+                                .getPathWeight(v) + .0001);
+                        assertEquals(tree.getDistance(v) - 1,
+                                tree.getDistance(tree.getPredecessor(v)));
+                    }
+                }
+            }
+        }
+        finally
+        {
+            sharded.close();
+        }
+    }
+
+    @Test
+    public void testNegativeCycleAndResultApi() throws Exception
+    {
+        CompactGraph<String> graph = Graph.graphFromStringEdges(
+                Arrays.asList("s,a,4", "a,b,1", "b,c,1", "c,d,1", "d,b,-5",
+                        "d,e,1"), EdgeType.DIRECTED).compile();
+        ShardedGraph<String> sharded = ShardedGraph.start(graph, 2,
+                Partitioning.HASH);
+        try
+        {
+            GraphAlgorithms<String> algorithms = new GraphAlgorithms<String>();
+            assertTrue(algorithms.singleSourceShortestPathBellmanFord(sharded, "s"));
+            List<String> cycle = algorithms.getNegativeCycle();
+            assertEquals(3, cycle.size());
+            assertTrue(cycle.containsAll(Arrays.asList("b", "c", "d")));
+
+            algorithms.breadthFirstSearch(sharded, "s");
+            assertEquals(5, algorithms.getDistance("e"));
+            assertEquals("d", algorithms.getPredecessor("e"));
+        }
+        finally
+        {
+            sharded.close();
+        }
+    }
+
+    @Test
+    public void testWorkerKeepsLocalEdgesAndCombinesMessages() throws Exception
+    {
+        // hashed over two shards: 0 and 2 in shard 0, 1 and 3 in shard 1
+        IntGraph.Builder builder = new IntGraph.Builder(5);
+        builder.addEdge(0, 2, 1);
+        builder.addEdge(0, 1, 5);
+        builder.addEdge(0, 1, 3);
+        builder.addEdge(0, 3, 4);
+        builder.addEdge(2, 3, 1);
+        CompactGraph<Integer> graph = builder.build().asCompactGraph();
+        File file = File.createTempFile("shard", ".bin");
+        try
+        {
+            GraphShard.write(graph, ShardMap.hash(4, 2), 0, file);
+            ByteArrayOutputStream commands = new ByteArrayOutputStream();
+            DataOutputStream script = new DataOutputStream(commands);
+            script.writeByte(ShardWorker.RESET);
+            script.writeBoolean(false);
+            script.writeByte(ShardWorker.STEP);
+            script.writeInt(1);
+            script.writeInt(0);
+            script.writeDouble(0.0);
+            script.writeInt(-1);
+            script.writeByte(ShardWorker.STEP);
+            script.writeInt(0);
+            script.writeByte(ShardWorker.COLLECT);
+            script.writeByte(ShardWorker.SHUTDOWN);
+            ByteArrayOutputStream answers = new ByteArrayOutputStream();
+            new ShardWorker(GraphShard.read(file)).serve(new DataInputStream(
+                    new ByteArrayInputStream(commands.toByteArray())),
+                    new DataOutputStream(answers));
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    answers.toByteArray()));
+            // 0->2 stays in the shard, the two edges 0->1 send one message
+            assertEquals(1, in.readInt());
+            assertEquals(2, in.readInt());
+            assertEquals(1, in.readInt());
+            assertEquals(3.0, in.readDouble(), 0.0);
+            assertEquals(0, in.readInt());
+            assertEquals(3, in.readInt());
+            assertEquals(4.0, in.readDouble(), 0.0);
+            assertEquals(0, in.readInt());
+            // 2 is searched from in the next superstep
+            assertEquals(0, in.readInt());
+            assertEquals(1, in.readInt());
+            assertEquals(3, in.readInt());
+            assertEquals(2.0, in.readDouble(), 0.0);
+            assertEquals(2, in.readInt());
+            // values and predecessors of 0 and 2
+            assertEquals(0.0, in.readDouble(), 0.0);
+            assertEquals(-1, in.readInt());
+            assertEquals(1.0, in.readDouble(), 0.0);
+            assertEquals(0, in.readInt());
+            assertEquals(-1, in.read());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testOpenExistingShardFiles() throws Exception
+    {
+        CompactGraph<String> graph = randomGraph(5);
+        File directory = File.createTempFile("shards", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        try
+        {
+            ShardedGraph.start(graph, 3, Partitioning.RANGE, directory,
+                    Collections.<String> emptyList()).close();
+            ShardedGraph<Integer> sharded = ShardedGraph.open(directory,
+                    Collections.<String> emptyList());
+            try
+            {
+                assertEquals(graph.getVertexCount(), sharded.getVertexCount());
+                assertEquals(3, sharded.getShards());
+                final int source = graph.indexOf("0");
+                ShortestPaths<String> expected = CompactGraphAlgorithms
+                        .dijkstra(graph, "0");
+                ShortestPaths<Integer> paths = sharded
+                        .singleSourceShortestPath(Integer.valueOf(source));
+                BreadthFirstTree<String> expectedTree = CompactGraphAlgorithms
+                        .breadthFirstSearch(graph, "0");
+                BreadthFirstTree<Integer> tree = sharded
+                        .breadthFirstSearch(Integer.valueOf(source));
+                for (int v = 0; v < graph.getVertexCount(); v++)
+                {
+                    assertEquals(expected.getPathWeight(graph.getVertex(v)),
+                            paths.getPathWeight(Integer.valueOf(v)), .0001);
+                    assertEquals(expectedTree.getDistance(graph.getVertex(v)),
+                            tree.getDistance(Integer.valueOf(v)));
+                }
+            }
+            finally
+            {
+                sharded.close();
+            }
+            assertTrue(new File(directory, "shard-0.bin").exists());
+        }
+        finally
+        {
+            for (File file : directory.listFiles())
+            {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
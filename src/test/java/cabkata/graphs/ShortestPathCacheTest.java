@@ -0,0 +1,77 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class ShortestPathCacheTest {
+
+    @Test
+    public void testHitsAndInvalidation()
+    {
+        Graph<String> graph = Graph.graphFromStringEdges(
+                Arrays.asList("a,b,1", "b,c,2", "a,c,5"), EdgeType.DIRECTED);
+        ShortestPathCache<String> cache = new ShortestPathCache<String>(graph,
+                1 << 20);
+
+        ShortestPaths<String> paths = cache.singleSourceShortestPath("a");
+        assertEquals(3.0, paths.getPathWeight("c"), .0001);
+        assertSame(paths, cache.singleSourceShortestPath("a"));
+        assertEquals(2, cache.breadthFirstSearch("a").getDistance("c") + 1);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+
+        graph.addEdge("a", "d", 1.0);
+        graph.addEdge("d", "c", 0.5);
+        ShortestPaths<String> changed = cache.singleSourceShortestPath("a");
+        assertNotSame(paths, changed);
+        assertEquals(1.5, changed.getPathWeight("c"), .0001);
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(1, cache.size());
+
+        GraphAlgorithms<String> algorithms = new GraphAlgorithms<String>();
+        assertFalse(algorithms.singleSourceShortestPathBellmanFord(cache, "a"));
+        assertEquals(1.5, algorithms.getPathWeight("c"), .0001);
+        assertEquals("d", algorithms.getPredecessor("c"));
+        algorithms.breadthFirstSearch(cache, "a");
+        assertEquals(1, algorithms.getDistance("c"));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedWithinBudget()
+    {
+        Graph<Integer> graph = new Graph<Integer>();
+        for (int i = 0; i < 1000; i++)
+        {
+            graph.addEdge(i, (i + 1) % 1000, 1.0);
+        }
+        // room for about three shortest path trees of 1000 vertices
+        ShortestPathCache<Integer> cache = new ShortestPathCache<Integer>(graph,
+                40000);
+        for (int source = 0; source < 10; source++)
+        {
+            assertEquals(999.0, cache.singleSourceShortestPath(source)
+                    .getPathWeight((source + 999) % 1000), .0001);
+        }
+        assertTrue(cache.size() <= 3);
+        assertTrue(cache.getEvictionCount() >= 7);
+        cache.singleSourceShortestPath(9);
+        assertEquals(1, cache.getHitCount());
+        cache.singleSourceShortestPath(0);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSource()
+    {
+        Graph<String> graph = Graph.graphFromStringEdges(Arrays.asList("a,b,1"),
+                EdgeType.DIRECTED);
+        new ShortestPathCache<String>(graph, 1024).breadthFirstSearch("z");
+    }
+}
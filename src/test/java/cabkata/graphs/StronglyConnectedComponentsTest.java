@@ -0,0 +1,142 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class StronglyConnectedComponentsTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testComponents()
+    {
+        // CLRS figure 22.9
+        List<String> edgesAsString = Arrays.asList("a,b", "b,c", "b,e", "b,f",
+                "c,d", "c,g", "d,c", "d,h", "e,a", "e,f", "f,g", "g,f", "g,h",
+                "h,h");
+        Graph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED);
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>();
+        StronglyConnectedComponents<String> scc = algo.stronglyConnectedComponents(graph);
+        assertEquals(4, scc.count());
+        assertTrue(scc.hasCycle());
+        assertTrue(scc.isStronglyConnected("a", "e"));
+        assertTrue(scc.isStronglyConnected("c", "d"));
+        assertTrue(scc.isStronglyConnected("f", "g"));
+        assertFalse(scc.isStronglyConnected("a", "c"));
+        assertTrue(scc.getComponent("a") < scc.getComponent("c"));
+        assertTrue(scc.getComponent("c") < scc.getComponent("f"));
+        assertTrue(scc.getComponent("f") < scc.getComponent("h"));
+
+        CompactGraph<Integer> condensation = scc.getCondensation();
+        assertEquals(4, condensation.getVertexCount());
+        assertEquals(5, condensation.getEdgeCount());
+        List<Integer> order = new GraphAlgorithms<Integer>()
+                .toplogicalSort(condensation);
+        assertEquals(Arrays.asList(0, 1, 2, 3), order);
+
+        StronglyConnectedComponents<String> parallel = algo
+                .stronglyConnectedComponents(graph.compile(), pool);
+        assertSameComponents(scc, parallel);
+    }
+
+    @Test
+    public void testAcyclic()
+    {
+        List<String> edgesAsString = Arrays.asList("a,b", "b,c", "a,c");
+        StronglyConnectedComponents<String> scc = new GraphAlgorithms<String>()
+                .stronglyConnectedComponents(Graph.graphFromStringEdges(
+                        edgesAsString, EdgeType.DIRECTED));
+        assertEquals(3, scc.count());
+        assertFalse(scc.hasCycle());
+    }
+
+    @Test
+    public void testParallelMatchesTarjan()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        Random random = new Random(21);
+        // a large cycle, plus random edges that form many small components
+        for (int i = 0; i < 2000; i++)
+        {
+            edgesAsString.add(i + "," + ((i + 1) % 2000));
+        }
+        for (int i = 0; i < 6000; i++)
+        {
+            edgesAsString.add((2000 + random.nextInt(4000)) + ","
+                    + (2000 + random.nextInt(4000)));
+        }
+        edgesAsString.add("5,2500");
+        CompactGraph<String> graph = Graph.graphFromStringEdges(edgesAsString,
+                EdgeType.DIRECTED).compile();
+        GraphAlgorithms<String> algo = new GraphAlgorithms<String>();
+        StronglyConnectedComponents<String> tarjan = algo.stronglyConnectedComponents(graph);
+        StronglyConnectedComponents<String> parallel = algo
+                .stronglyConnectedComponents(graph, pool);
+        assertSameComponents(tarjan, parallel);
+
+        int levelled = 0;
+        for (List<Integer> level : new GraphAlgorithms<Integer>()
+                .topologicalLevels(parallel.getCondensation()))
+        {
+            levelled += level.size();
+        }
+        assertEquals(parallel.count(), levelled);
+    }
+
+    @Test
+    public void testDeepChain()
+    {
+        List<String> edgesAsString = new ArrayList<String>();
+        for (int i = 0; i < 200000; i++)
+        {
+            edgesAsString.add(i + "," + (i + 1));
+        }
+        edgesAsString.add("200000,0");
+        StronglyConnectedComponents<String> scc = new GraphAlgorithms<String>()
+                .stronglyConnectedComponents(Graph.graphFromStringEdges(
+                        edgesAsString, EdgeType.DIRECTED));
+        assertEquals(1, scc.count());
+    }
+
+    private static void assertSameComponents(
+            StronglyConnectedComponents<String> expected,
+            StronglyConnectedComponents<String> actual)
+    {
+        assertEquals(expected.count(), actual.count());
+        int[] mapping = new int[expected.count()];
+        Arrays.fill(mapping, -1);
+        for (String v : expected.getGraph().getVertices())
+        {
+            final int component = expected.getComponent(v);
+            if (mapping[component] < 0)
+            {
+                mapping[component] = actual.getComponent(v);
+            }
+            assertEquals(mapping[component], actual.getComponent(v));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package cabkata.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import cabkata.graphs.Graph.EdgeType;
+
+public final class TraversalTest {
+
+    private static Graph<String> tree()
+    {
+        return Graph.graphFromStringEdges(Arrays.asList("a,b", "a,c", "b,d",
+                "b,e", "c,f", "f,g", "g,a", "h,a"), EdgeType.DIRECTED);
+    }
+
+    private static <V> List<V> toList(Iterable<V> traversal)
+    {
+        List<V> values = new ArrayList<V>();
+        for (V value : traversal)
+        {
+            values.add(value);
+        }
+        return values;
+    }
+
+    private static Graph<Integer> randomGraph(int nodes, int edges, long seed)
+    {
+        Graph<Integer> graph = new Graph<Integer>();
+        Random random = new Random(seed);
+        for (int i = 0; i < edges; i++)
+        {
+            graph.addEdge(Integer.valueOf(random.nextInt(nodes)),
+                    Integer.valueOf(random.nextInt(nodes)), 1.0);
+        }
+        graph.addNode(Integer.valueOf(0));
+        return graph;
+    }
+
+    @Test
+    public void testBreadthFirstOrder()
+    {
+        List<String> order = toList(new GraphAlgorithms<String>()
+                .breadthFirstTraversal(tree(), "a"));
+        assertEquals(7, order.size());
+        assertEquals("a", order.get(0));
+        assertEquals(new HashSet<String>(Arrays.asList("b", "c")),
+                new HashSet<String>(order.subList(1, 3)));
+        assertEquals(new HashSet<String>(Arrays.asList("d", "e", "f")),
+                new HashSet<String>(order.subList(3, 6)));
+        assertEquals("g", order.get(6));
+    }
+
+    @Test
+    public void testDepthAndFilter()
+    {
+        Traversal<String> traversal = Traversal.breadthFirst(tree(), "a");
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c")),
+                new HashSet<String>(toList(traversal.withMaxDepth(1))));
+        assertEquals(Arrays.asList("a"), toList(traversal.withMaxDepth(0)));
+        // a filtered vertex is not searched through
+        List<String> filtered = toList(traversal.withFilter(v -> !v.equals("b")));
+        assertEquals(new HashSet<String>(Arrays.asList("a", "c", "f", "g")),
+                new HashSet<String>(filtered));
+        assertTrue(toList(traversal.withFilter(v -> !v.equals("a"))).isEmpty());
+    }
+
+    @Test
+    public void testDepthFirstPreorder()
+    {
+        Graph<String> graph = tree();
+        List<String> order = toList(new GraphAlgorithms<String>()
+                .depthFirstTraversal(graph, "a"));
+        assertEquals(7, order.size());
+        assertEquals("a", order.get(0));
+        // every vertex is entered from the vertex before it or one of its
+        // ancestors, which for this tree means c follows f and g or b follows
+        // d and e
+        final int b = order.indexOf("b");
+        final int c = order.indexOf("c");
+        if (b < c)
+        {
+            assertEquals(4, c);
+            assertEquals(Arrays.asList("c", "f", "g"), order.subList(4, 7));
+        }
+        else
+        {
+            assertEquals(Arrays.asList("c", "f", "g"), order.subList(1, 4));
+        }
+
+        assertEquals(Arrays.asList("c", "f"), toList(Traversal.depthFirst(
+                graph, "c").withMaxDepth(1)));
+        assertEquals(Arrays.asList("f", "g", "a"), toList(Traversal.depthFirst(
+                graph, "f").withMaxDepth(2)));
+    }
+
+    @Test
+    public void testEarlyTermination()
+    {
+        Graph<Integer> graph = randomGraph(2000, 10000, 3);
+        Iterator<Integer> iterator = Traversal.breadthFirst(graph,
+                Integer.valueOf(0)).iterator();
+        assertEquals(Integer.valueOf(0), iterator.next());
+        assertTrue(iterator.hasNext());
+        assertEquals(5, Traversal.breadthFirst(graph, Integer.valueOf(0))
+                .stream().limit(5).count());
+    }
+
+    @Test
+    public void testParallelStreamMatchesIterator()
+    {
+        Graph<Integer> graph = randomGraph(5000, 12000, 11);
+        final Integer source = Integer.valueOf(0);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            for (int depth : new int[] { 2, 5, Integer.MAX_VALUE })
+            {
+                Traversal<Integer> traversal = Traversal.breadthFirst(graph,
+                        source);
+                if (depth != Integer.MAX_VALUE)
+                {
+                    traversal = traversal.withMaxDepth(depth);
+                }
+                final Traversal<Integer> bounded = traversal;
+                Set<Integer> expected = new HashSet<Integer>(toList(bounded));
+                List<Integer> parallel = pool.submit(
+                        () -> bounded.parallelStream().collect(
+                                Collectors.toList())).get();
+                assertEquals(expected.size(), parallel.size());
+                assertEquals(expected, new HashSet<Integer>(parallel));
+            }
+        }
+        catch (Exception e)
+        {
+            throw new AssertionError(e);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSpliteratorSplitsFrontier()
+    {
+        Graph<Integer> graph = randomGraph(1000, 5000, 5);
+        Map<Integer, Integer> seen = new HashMap<Integer, Integer>();
+        List<Spliterator<Integer>> parts = new ArrayList<Spliterator<Integer>>();
+        Spliterator<Integer> root = Traversal.breadthFirst(graph,
+                Integer.valueOf(0)).spliterator();
+        Spliterator<Integer> prefix = root.trySplit();
+        assertNotNull(prefix);
+        parts.add(prefix);
+        parts.add(root);
+        for (Spliterator<Integer> part : parts)
+        {
+            part.forEachRemaining(v -> seen.merge(v, 1, Integer::sum));
+        }
+        assertEquals(new HashSet<Integer>(toList(Traversal.breadthFirst(
+                graph, Integer.valueOf(0)))), seen.keySet());
+        for (Integer count : seen.values())
+        {
+            assertEquals(1, count.intValue());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSource()
+    {
+        Traversal.breadthFirst(tree(), "z");
+    }
+}
@@ -0,0 +1,64 @@
+package cabkata.heap;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public final class IndexedMinHeapTest {
+
+    @Test
+    public void testDecreaseKey()
+    {
+        IndexedMinHeap heap = new IndexedMinHeap(5);
+        heap.insert(0, 5.0);
+        heap.insert(1, 3.0);
+        heap.insert(2, 4.0);
+        assertTrue(heap.contains(2));
+        assertFalse(heap.contains(3));
+
+        heap.decreaseKey(2, 1.0);
+        assertEquals(2, heap.peek());
+        assertFalse(heap.offer(0, 6.0));
+        assertTrue(heap.offer(0, 2.0));
+        assertTrue(heap.offer(4, 0.5));
+
+        assertEquals(4, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(0, heap.poll());
+        assertEquals(2.0, heap.getKey(0), .0001);
+        assertEquals(1, heap.poll());
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(1));
+    }
+
+    @Test
+    public void testSortsLikeArraysSort()
+    {
+        Random random = new Random(42);
+        for (int arity = 2; arity <= 8; arity++)
+        {
+            IndexedMinHeap heap = new IndexedMinHeap(1000, arity);
+            double[] expected = new double[1000];
+            for (int id = 0; id < 1000; id++)
+            {
+                heap.insert(id, random.nextDouble() * 100);
+            }
+            for (int id = 0; id < 1000; id += 3)
+            {
+                heap.decreaseKey(id, heap.getKey(id) / 2);
+            }
+            for (int id = 0; id < 1000; id++)
+            {
+                expected[id] = heap.getKey(id);
+            }
+            Arrays.sort(expected);
+            for (int i = 0; i < 1000; i++)
+            {
+                assertEquals(expected[i], heap.getKey(heap.poll()), 0.0);
+            }
+        }
+    }
+}
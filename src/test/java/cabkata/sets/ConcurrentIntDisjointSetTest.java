@@ -0,0 +1,81 @@
+package cabkata.sets;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public final class ConcurrentIntDisjointSetTest {
+
+    @Test
+    public void testConcurrentIntDisjointSet()
+    {
+        ConcurrentIntDisjointSet ds = new ConcurrentIntDisjointSet(6);
+        assertEquals(6, ds.count());
+        assertTrue(ds.union(0, 1));
+        assertTrue(ds.union(2, 3));
+        assertTrue(ds.union(1, 3));
+        assertFalse(ds.union(0, 2));
+        assertEquals(3, ds.count());
+
+        assertTrue(ds.connected(0, 3));
+        assertEquals(ds.find(0), ds.find(2));
+        assertFalse(ds.connected(0, 4));
+        assertFalse(ds.connected(4, 5));
+    }
+
+    @Test
+    public void testConcurrentUnions() throws Exception
+    {
+        final int size = 100000;
+        final ConcurrentIntDisjointSet ds = new ConcurrentIntDisjointSet(size);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 4; t++)
+            {
+                final int offset = t;
+                futures.add(executor.submit(new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        // every thread links the same chains of even and odd
+                        // elements, in a different order
+                        int merged = 0;
+                        for (int i = 0; i < size - 2; i++)
+                        {
+                            final int element = (i * (offset + 1)) % (size - 2);
+                            if (ds.union(element, element + 2))
+                            {
+                                merged++;
+                            }
+                        }
+                        return Integer.valueOf(merged);
+                    }
+                }));
+            }
+            int merged = 0;
+            for (Future<Integer> future : futures)
+            {
+                merged += future.get().intValue();
+            }
+            assertEquals(size - 2, merged);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals(2, ds.count());
+        assertTrue(ds.connected(0, size - 2));
+        assertTrue(ds.connected(1, size - 1));
+        assertFalse(ds.connected(0, 1));
+    }
+}
@@ -0,0 +1,25 @@
+package cabkata.sets;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public final class IntDisjointSetTest {
+
+    @Test
+    public void testIntDisjointSet()
+    {
+        IntDisjointSet ds = new IntDisjointSet(6);
+        assertEquals(6, ds.count());
+        assertTrue(ds.union(0, 1));
+        assertTrue(ds.union(2, 3));
+        assertTrue(ds.union(1, 3));
+        assertFalse(ds.union(0, 2));
+        assertEquals(3, ds.count());
+
+        assertTrue(ds.connected(0, 3));
+        assertEquals(ds.find(0), ds.find(2));
+        assertFalse(ds.connected(0, 4));
+        assertFalse(ds.connected(4, 5));
+    }
+}